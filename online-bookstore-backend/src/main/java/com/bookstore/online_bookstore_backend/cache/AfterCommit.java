@@ -0,0 +1,53 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 缓存副作用的提交后执行
+ * 在事务中调用时推迟到提交之后再执行（回滚则丢弃），没有事务时立即执行，
+ * 避免其他节点/请求在提交前读到旧数据并写回缓存，或缓存了最终被回滚的数据
+ * 提交后执行的动作中再次调用时（如写缓存时顺带广播失效）立即执行：此时事务已提交，
+ * 而且提交阶段新注册的同步不会再收到 afterCommit 回调
+ */
+public final class AfterCommit {
+
+    private static final ThreadLocal<Boolean> COMMITTED = new ThreadLocal<>();
+
+    private AfterCommit() {
+    }
+
+    public static void run(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive() && COMMITTED.get() == null) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    COMMITTED.set(Boolean.TRUE);
+                    try {
+                        action.run();
+                    } finally {
+                        COMMITTED.remove();
+                    }
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+    
+    /**
+     * 事务回滚时执行（用于撤销已在事务外生效的缓存修改）；没有事务时不会回滚，直接忽略
+     */
+    public static void onRollback(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        action.run();
+                    }
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import com.bookstore.online_bookstore_backend.entity.Book;
+
+/**
+ * 图书详情缓存条目
+ * Redis 中每本书一个 hash（book:detail:{id}），同时保存图书字段和库存，详情页一次 HGETALL 即可取全
+ * 图书字段与库存各自可能缺失（分别回填、分别失效），absent 表示该图书已确认不存在或已删除（负缓存）
+ * stockVersion 是写入库存时的库存行版本，只用于详情 ETag（预留扣减直接增减库存，不改变它）
+ * expiresAt / loadMillis 随图书字段一起写入，用于到期前的概率提前刷新（XFetch）
+ */
+public class BookCacheEntry {
+
+    private final Book book;      // null 表示图书字段未缓存
+    private final boolean absent;
+    private final Integer stock;  // null 表示库存未缓存
+    private final Long stockVersion; // null 表示未记录
+    private final Long expiresAt; // 图书字段的过期时间（毫秒时间戳），null 表示未记录
+    private final long loadMillis; // 写入时从数据库加载的耗时
+
+    public BookCacheEntry(Book book, boolean absent, Integer stock) {
+        this(book, absent, stock, null, null, 0);
+    }
+
+    public BookCacheEntry(Book book, boolean absent, Integer stock, Long stockVersion, Long expiresAt, long loadMillis) {
+        this.book = book;
+        this.absent = absent;
+        this.stock = stock;
+        this.stockVersion = stockVersion;
+        this.expiresAt = expiresAt;
+        this.loadMillis = loadMillis;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+
+    public boolean isAbsent() {
+        return absent;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public Long getStockVersion() {
+        return stockVersion;
+    }
+
+    public Long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+}
@@ -0,0 +1,19 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 列表页缓存条目：只保存当前页的图书ID与总数，
+ * 图书详情再通过图书缓存（L1 / Redis）批量补齐
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookListPage {
+    private List<Long> ids;
+    private long total;
+}
@@ -0,0 +1,20 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import com.bookstore.online_bookstore_backend.dto.BookSummaryDTO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 精简列表页缓存条目：直接保存当前页的 {@link BookSummaryDTO} 与总数
+ * 与 {@link BookListPage} 共用分类代数，写操作后同样整体失效
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSummaryPage {
+    private List<BookSummaryDTO> content;
+    private long total;
+}
@@ -0,0 +1,222 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 图书缓存的批量清除
+ * 用 SCAN 游标分批遍历 key（不会像 KEYS 那样一次性阻塞 Redis），每攒满一批就在一个 pipeline 中
+ * 分成若干条 UNLINK 发出（由 Redis 后台线程回收内存），批与批之间按配置暂停，限制对 Redis 的压力
+ * 任务在单独的后台线程中执行，同一时间只运行一个，调用方通过 {@link #getProgress()} 查看进度
+ *
+ * 列表缓存的代数计数器（book:list:gen:*）不删除：删掉后代数会从头开始，
+ * 清除过程中新写入的旧代数页面可能因此重新生效；保留计数器即可让列表页只会沿用更新的代数
+ */
+@Component
+public class BulkCacheEvictor {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkCacheEvictor.class);
+
+    // book: 覆盖图书详情 hash、列表页与摘要列表页；inventory: 为旧版单独存放库存的 key
+    private static final List<String> PATTERNS = List.of("book:*", "inventory:*");
+    private static final String PRESERVED_PREFIX = "book:list:gen:";
+    // 单条 UNLINK 携带的 key 数量
+    private static final int UNLINK_CHUNK_SIZE = 100;
+
+    public enum Status {
+        IDLE, RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private NearCacheManager nearCacheManager;
+
+    @Value("${bookstore.cache.evict.scan-count:1000}")
+    private int scanCount;
+
+    @Value("${bookstore.cache.evict.batch-size:500}")
+    private int batchSize;
+
+    @Value("${bookstore.cache.evict.pause-ms:5}")
+    private long pauseMs;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong jobSequence = new AtomicLong();
+    private volatile Job job = new Job(0);
+
+    /**
+     * 启动后台清除任务
+     * @return false 表示已有任务在运行
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Job current = new Job(jobSequence.incrementAndGet());
+        current.status = Status.RUNNING;
+        current.startedAt = LocalDateTime.now();
+        job = current;
+        Thread thread = new Thread(() -> run(current), "book-cache-evict");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("🗑️ Book cache eviction started: job={}", current.id);
+        return true;
+    }
+
+    /**
+     * 请求取消正在运行的任务，当前批次处理完后停止
+     * @return false 表示没有运行中的任务
+     */
+    public boolean cancel() {
+        Job current = job;
+        if (current.status != Status.RUNNING) {
+            return false;
+        }
+        current.cancelRequested = true;
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    private void run(Job current) {
+        long start = System.currentTimeMillis();
+        try {
+            for (String pattern : PATTERNS) {
+                if (current.cancelRequested) {
+                    break;
+                }
+                current.currentPattern = pattern;
+                evictPattern(current, pattern);
+            }
+            current.status = current.cancelRequested ? Status.CANCELLED : Status.COMPLETED;
+        } catch (Exception e) {
+            current.status = Status.FAILED;
+            current.error = e.getMessage();
+            logger.error("❌ Book cache eviction failed: job={}, error={}", current.id, e.getMessage());
+        } finally {
+            current.currentPattern = null;
+            current.finishedAt = LocalDateTime.now();
+            // Redis 中的数据已清掉，再清空各节点的近端缓存，避免 L1 继续返回清除前的内容
+            nearCacheManager.invalidateAll();
+            running.set(false);
+            logger.info("🗑️ Book cache eviction finished: job={}, status={}, scanned={}, deleted={}, took={}ms",
+                    current.id, current.status, current.scanned.get(), current.deleted.get(),
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    private void evictPattern(Job current, String pattern) throws InterruptedException {
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(scanCount).build();
+        AtomicLong patternDeleted = current.deletedByPattern.computeIfAbsent(pattern, p -> new AtomicLong());
+        List<String> batch = new ArrayList<>(batchSize);
+        try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+            while (cursor.hasNext() && !current.cancelRequested) {
+                String key = cursor.next();
+                current.scanned.incrementAndGet();
+                if (key.startsWith(PRESERVED_PREFIX)) {
+                    continue;
+                }
+                batch.add(key);
+                if (batch.size() >= batchSize) {
+                    unlink(current, patternDeleted, batch);
+                    batch.clear();
+                    if (pauseMs > 0) {
+                        Thread.sleep(pauseMs);
+                    }
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            unlink(current, patternDeleted, batch);
+        }
+    }
+
+    private void unlink(Job current, AtomicLong patternDeleted, List<String> keys) {
+        List<Object> results = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                for (int from = 0; from < keys.size(); from += UNLINK_CHUNK_SIZE) {
+                    ops.unlink(new ArrayList<>(keys.subList(from, Math.min(from + UNLINK_CHUNK_SIZE, keys.size()))));
+                }
+                return null;
+            }
+        });
+        long removed = 0;
+        for (Object result : results) {
+            if (result instanceof Number count) {
+                removed += count.longValue();
+            }
+        }
+        current.deleted.addAndGet(removed);
+        patternDeleted.addAndGet(removed);
+        current.batches.incrementAndGet();
+        logger.debug("🗑️ Book cache eviction batch: job={}, keys={}, removed={}", current.id, keys.size(), removed);
+    }
+
+    /**
+     * 最近一次（或正在运行的）任务的进度
+     */
+    public Map<String, Object> getProgress() {
+        Job current = job;
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("jobId", current.id);
+        progress.put("status", current.status);
+        progress.put("currentPattern", current.currentPattern);
+        progress.put("scanned", current.scanned.get());
+        progress.put("deleted", current.deleted.get());
+        progress.put("batches", current.batches.get());
+        Map<String, Long> byPattern = new LinkedHashMap<>();
+        for (String pattern : PATTERNS) {
+            AtomicLong count = current.deletedByPattern.get(pattern);
+            byPattern.put(pattern, count != null ? count.get() : 0L);
+        }
+        progress.put("deletedByPattern", byPattern);
+        progress.put("startedAt", current.startedAt);
+        progress.put("finishedAt", current.finishedAt);
+        progress.put("cancelRequested", current.cancelRequested);
+        progress.put("error", current.error);
+        return progress;
+    }
+
+    private static final class Job {
+        final long id;
+        final AtomicLong scanned = new AtomicLong();
+        final AtomicLong deleted = new AtomicLong();
+        final AtomicLong batches = new AtomicLong();
+        final Map<String, AtomicLong> deletedByPattern = new ConcurrentHashMap<>();
+        volatile Status status = Status.IDLE;
+        volatile String currentPattern;
+        volatile LocalDateTime startedAt;
+        volatile LocalDateTime finishedAt;
+        volatile boolean cancelRequested;
+        volatile String error;
+
+        Job(long id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 缓存未命中时的回源合并（single-flight）
+ * 同一节点上同一个 key 同时只有一个线程执行回源加载，其余线程等待它的结果，
+ * 避免热点 key 过期瞬间大量请求同时打到数据库
+ * 可选开启跨节点合并：回源前用 Redis 短锁（SET NX PX）抢占，没抢到的节点轮询缓存等待持锁节点回填，
+ * 超时仍未等到则自行回源（锁只用于削峰，不影响正确性）
+ */
+@Component
+public class CacheLoadCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheLoadCoalescer.class);
+
+    private static final String LOCK_PREFIX = "lock:load:";
+    private static final long POLL_INTERVAL_MS = 20;
+
+    // 只删除自己持有的锁，避免锁过期后误删其他节点的锁
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final AtomicLong loads = new AtomicLong();             // 实际执行的回源次数
+    private final AtomicLong coalesced = new AtomicLong();         // 本节点内被合并的请求数
+    private final AtomicLong remoteCoalesced = new AtomicLong();   // 等到其他节点回填而免于回源的次数
+    private final AtomicLong lockWaitTimeouts = new AtomicLong();  // 等待其他节点超时后自行回源的次数
+    private final AtomicLong lockErrors = new AtomicLong();        // Redis 锁操作失败次数
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${bookstore.cache.coalesce.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bookstore.cache.coalesce.distributed:false}")
+    private boolean distributed;
+
+    @Value("${bookstore.cache.coalesce.lock-ttl-ms:3000}")
+    private long lockTtlMs;
+
+    @Value("${bookstore.cache.coalesce.lock-wait-ms:500}")
+    private long lockWaitMs;
+
+    /**
+     * 合并同一 key 的并发回源
+     * @param name   缓存名称，与 key 一起组成合并的粒度
+     * @param key    缓存 key
+     * @param recheck 跨节点合并时用于轮询缓存，返回 null 表示仍未命中；不开启跨节点合并时可传 null
+     * @param loader 回源加载（查询数据库并回填缓存）
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V load(String name, Object key, Supplier<V> recheck, Supplier<V> loader) {
+        if (!enabled) {
+            loads.incrementAndGet();
+            return loader.get();
+        }
+        String flightKey = name + ":" + key;
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(flightKey, future);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            logger.debug("🤝 Cache load coalesced: key={}", flightKey);
+            return (V) await(existing);
+        }
+        try {
+            V value = distributed && recheck != null ? loadWithLock(flightKey, recheck, loader) : countedLoad(loader);
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, future);
+        }
+    }
+
+    private <V> V loadWithLock(String flightKey, Supplier<V> recheck, Supplier<V> loader) {
+        String lockKey = LOCK_PREFIX + flightKey;
+        String token = nodeId + ":" + Thread.currentThread().getId();
+        Boolean acquired;
+        try {
+            acquired = stringRedisTemplate.opsForValue().setIfAbsent(lockKey, token, lockTtlMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            lockErrors.incrementAndGet();
+            logger.warn("⚠️ Failed to acquire load lock, loading without it: key={}, error={}", lockKey, e.getMessage());
+            return countedLoad(loader);
+        }
+        if (Boolean.TRUE.equals(acquired)) {
+            try {
+                return countedLoad(loader);
+            } finally {
+                release(lockKey, token);
+            }
+        }
+
+        // 其他节点正在回源：轮询缓存等待回填
+        long deadline = System.currentTimeMillis() + lockWaitMs;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            V value = recheck.get();
+            if (value != null) {
+                remoteCoalesced.incrementAndGet();
+                logger.debug("🤝 Cache load coalesced across nodes: key={}", flightKey);
+                return value;
+            }
+        }
+        lockWaitTimeouts.incrementAndGet();
+        logger.debug("⏱️ Timed out waiting for peer cache load: key={}", flightKey);
+        return countedLoad(loader);
+    }
+
+    private void release(String lockKey, String token) {
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(lockKey), token);
+        } catch (Exception e) {
+            // 释放失败时锁会在 TTL 后自动过期
+            lockErrors.incrementAndGet();
+            logger.warn("⚠️ Failed to release load lock: key={}, error={}", lockKey, e.getMessage());
+        }
+    }
+
+    private <V> V countedLoad(Supplier<V> loader) {
+        loads.incrementAndGet();
+        return loader.get();
+    }
+
+    private static Object await(CompletableFuture<Object> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("等待缓存加载时被中断", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * 回源合并统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("distributed", distributed);
+        stats.put("loads", loads.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("remoteCoalesced", remoteCoalesced.get());
+        stats.put("lockWaitTimeouts", lockWaitTimeouts.get());
+        stats.put("lockErrors", lockErrors.get());
+        stats.put("inFlight", inFlight.size());
+        return stats;
+    }
+}
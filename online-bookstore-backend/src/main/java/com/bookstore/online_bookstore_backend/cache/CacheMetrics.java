@@ -0,0 +1,196 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 缓存读取的统计：按 key 前缀分别记录命中/未命中/异常次数和耗时直方图，并把读到的 key 交给 HotKeyTracker 找出热点
+ * 记录路径只有 LongAdder / AtomicLongArray 的自增，不加锁、不打日志，可以放在每次查询上
+ * 直方图使用固定的微秒分桶，百分位数取所在分桶的上界（即结果偏保守）
+ */
+@Component
+public class CacheMetrics {
+
+    // 分桶上界（微秒），最后一个桶收集所有更慢的请求
+    private static final long[] BUCKET_BOUNDS_MICROS = {
+            50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 1_000_000
+    };
+
+    @Value("${bookstore.cache.metrics.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bookstore.cache.metrics.hot-keys.capacity:50}")
+    private int hotKeyCapacity;
+
+    @Value("${bookstore.cache.metrics.hot-keys.sketch-width:2048}")
+    private int sketchWidth;
+
+    @Value("${bookstore.cache.metrics.hot-keys.sketch-depth:4}")
+    private int sketchDepth;
+
+    @Value("${bookstore.cache.metrics.hot-keys.decay-interval:100000}")
+    private long decayInterval;
+
+    private final ConcurrentHashMap<String, PrefixStats> stats = new ConcurrentHashMap<>();
+    private volatile HotKeyTracker hotKeys;
+    private volatile long resetAt = System.currentTimeMillis();
+
+    @PostConstruct
+    public void init() {
+        hotKeys = new HotKeyTracker(sketchWidth, sketchDepth, hotKeyCapacity, decayInterval);
+    }
+
+    /**
+     * 记录一次缓存读取
+     * @param prefix 统计分组，如 book:detail、inventory
+     * @param key    实际读取的 key，用于热点统计；为 null 时只计入分组
+     */
+    public void record(String prefix, String key, boolean hit, long startNanos) {
+        if (!enabled) {
+            return;
+        }
+        PrefixStats prefixStats = stats(prefix);
+        (hit ? prefixStats.hits : prefixStats.misses).increment();
+        prefixStats.observe(System.nanoTime() - startNanos);
+        if (key != null) {
+            hotKeys.record(key);
+        }
+    }
+
+    /**
+     * 记录一次批量读取：命中/未命中按 key 计数，耗时按整批计入一次直方图
+     */
+    public void recordBatch(String prefix, Collection<String> keys, int hits, long startNanos) {
+        if (!enabled || keys.isEmpty()) {
+            return;
+        }
+        PrefixStats prefixStats = stats(prefix);
+        prefixStats.hits.add(hits);
+        prefixStats.misses.add(keys.size() - hits);
+        prefixStats.observe(System.nanoTime() - startNanos);
+        for (String key : keys) {
+            hotKeys.record(key);
+        }
+    }
+
+    /**
+     * 记录一次读取异常（Redis 不可用、反序列化失败等），耗时同样计入直方图
+     */
+    public void recordError(String prefix, long startNanos) {
+        if (!enabled) {
+            return;
+        }
+        PrefixStats prefixStats = stats(prefix);
+        prefixStats.errors.increment();
+        prefixStats.observe(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * 通用 key 的统计分组：取第一个冒号及之前的部分（如 cart:），没有冒号的 key 归入 other
+     */
+    public static String prefixOf(String key) {
+        int index = key == null ? -1 : key.indexOf(':');
+        return index > 0 ? key.substring(0, index + 1) : "other";
+    }
+
+    private PrefixStats stats(String prefix) {
+        PrefixStats prefixStats = stats.get(prefix);
+        return prefixStats != null ? prefixStats : stats.computeIfAbsent(prefix, p -> new PrefixStats());
+    }
+
+    public Map<String, Object> snapshot(int hotKeyLimit) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("since", resetAt);
+        Map<String, Object> prefixes = new LinkedHashMap<>();
+        for (Map.Entry<String, PrefixStats> entry : new TreeMap<>(stats).entrySet()) {
+            prefixes.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        result.put("prefixes", prefixes);
+        Map<String, Object> hot = new LinkedHashMap<>();
+        hot.put("recorded", hotKeys.getRecorded());
+        hot.put("top", hotKeys.top(hotKeyLimit));
+        result.put("hotKeys", hot);
+        return result;
+    }
+
+    public void reset() {
+        stats.clear();
+        hotKeys.reset();
+        resetAt = System.currentTimeMillis();
+    }
+
+    private static class PrefixStats {
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MICROS.length + 1);
+
+        void observe(long nanos) {
+            totalNanos.add(nanos);
+            long micros = nanos / 1000;
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MICROS.length && micros > BUCKET_BOUNDS_MICROS[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+        }
+
+        Map<String, Object> snapshot() {
+            long hitCount = hits.sum();
+            long missCount = misses.sum();
+            long errorCount = errors.sum();
+            long total = hitCount + missCount + errorCount;
+            long[] counts = new long[buckets.length()];
+            long observed = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets.get(i);
+                observed += counts[i];
+            }
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("requests", total);
+            result.put("hits", hitCount);
+            result.put("misses", missCount);
+            result.put("errors", errorCount);
+            result.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+            result.put("avgMicros", total == 0 ? 0.0 : totalNanos.sum() / 1000.0 / total);
+            result.put("p50Micros", percentile(counts, observed, 0.50));
+            result.put("p95Micros", percentile(counts, observed, 0.95));
+            result.put("p99Micros", percentile(counts, observed, 0.99));
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int i = 0; i < counts.length; i++) {
+                histogram.put(i < BUCKET_BOUNDS_MICROS.length ? "le" + BUCKET_BOUNDS_MICROS[i] : "inf", counts[i]);
+            }
+            result.put("histogramMicros", histogram);
+            return result;
+        }
+
+        // 返回 -1 表示落在最后一个（无上界的）桶
+        private static long percentile(long[] counts, long observed, double quantile) {
+            if (observed == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(observed * quantile);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i < BUCKET_BOUNDS_MICROS.length ? BUCKET_BOUNDS_MICROS[i] : -1;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 缓存提前刷新的后台队列
+ * 读请求发现条目即将过期（见 RedisCacheService.isRefreshDue）时把刷新任务放进来后立即返回，
+ * 由后台线程回源并重写缓存，读请求本身不等待数据库
+ * 同一个 key 排队期间只保留一个任务；队列满时直接丢弃，条目按原 TTL 过期后走正常的回源路径
+ */
+@Component
+public class CacheRefreshQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheRefreshQueue.class);
+
+    @Value("${bookstore.cache.refresh.queue-size:1000}")
+    private int queueSize;
+
+    @Value("${bookstore.cache.refresh.workers:2}")
+    private int workers;
+
+    private final LinkedBlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean started = new AtomicBoolean(false);
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * 提交刷新任务
+     * @return false 表示同一个 key 已在排队，或队列已满被丢弃
+     */
+    public boolean submit(String key, Runnable refresh) {
+        if (pending.size() >= queueSize) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        if (!pending.add(key)) {
+            deduplicated.incrementAndGet();
+            return false;
+        }
+        startWorkers();
+        queue.add(new Task(key, refresh));
+        submitted.incrementAndGet();
+        return true;
+    }
+
+    private void startWorkers() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        for (int i = 0; i < Math.max(1, workers); i++) {
+            Thread thread = new Thread(this::work, "cache-refresh-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Task task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                task.refresh().run();
+                completed.incrementAndGet();
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                logger.warn("⚠️ Cache refresh failed: key={}, error={}", task.key(), e.getMessage());
+            } finally {
+                pending.remove(task.key());
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", pending.size());
+        stats.put("submitted", submitted.get());
+        stats.put("deduplicated", deduplicated.get());
+        stats.put("dropped", dropped.get());
+        stats.put("completed", completed.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+
+    private record Task(String key, Runnable refresh) {
+    }
+}
@@ -0,0 +1,195 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Redis 值序列化：紧凑的二进制格式（Smile）+ 超过阈值时 LZ4 压缩，读取时兼容旧的 JSON 格式
+ * 紧凑格式以 2 字节头开始：MAGIC + 编码方式；LZ4 编码后面再跟 4 字节原始长度
+ * Jackson 输出的 JSON 总以 ASCII 字符开头，不会与 MAGIC 冲突，因此不需要额外的版本标记就能区分新旧格式：
+ * 迁移期间旧 key 仍按 JSON 读取，随 TTL 过期或被重新写入后自然变为紧凑格式
+ * compactWrites=false 时只写 JSON（同样能读紧凑格式），用于未切换的 key 前缀或回退
+ *
+ * 紧凑格式只在头部记录一次根对象的类名（2 字节长度 + UTF-8 类名），正文用不带类型信息的 Smile 编码，
+ * 嵌套对象按字段声明的类型还原，不再像默认类型那样在每个对象、集合前写入完整类名；
+ * 因此紧凑前缀下缓存的对象不应包含声明为 Object / 接口的多态字段
+ * 根对象本身是集合、Map 或数组时元素类型无处可记，仍按带类型信息的 Smile 写入（SMILE / SMILE_LZ4）
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    private static final byte MAGIC = (byte) 0xB5;
+    // 带默认类型信息的 Smile（每个非 final 对象都带类名）
+    private static final byte CODEC_SMILE = 0;
+    private static final byte CODEC_SMILE_LZ4 = 1;
+    // 只记录根类名的 Smile
+    private static final byte CODEC_ROOT_TYPED = 2;
+    private static final byte CODEC_ROOT_TYPED_LZ4 = 3;
+    private static final int HEADER_LENGTH = 2;
+    private static final int LZ4_HEADER_LENGTH = HEADER_LENGTH + 4;
+
+    private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+    private static final LZ4FastDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper smileMapper;
+    private final ObjectMapper plainSmileMapper;
+    private final boolean compactWrites;
+    private final int compressThreshold;
+    private final Map<String, Class<?>> rootTypes = new ConcurrentHashMap<>();
+
+    private final AtomicLong compactReads = new AtomicLong();
+    private final AtomicLong legacyReads = new AtomicLong();
+    private final AtomicLong compressedWrites = new AtomicLong();
+
+    /**
+     * @param smileMapper       与 jsonMapper 配置相同（带默认类型信息）的 Smile 映射器
+     * @param plainSmileMapper  不带默认类型信息的 Smile 映射器，用于只记录根类名的格式
+     * @param compressThreshold Smile 编码后超过该字节数才尝试 LZ4 压缩，小于 0 表示不压缩
+     */
+    public CompactRedisSerializer(ObjectMapper jsonMapper, ObjectMapper smileMapper, ObjectMapper plainSmileMapper,
+                                  boolean compactWrites, int compressThreshold) {
+        this.jsonMapper = jsonMapper;
+        this.smileMapper = smileMapper;
+        this.plainSmileMapper = plainSmileMapper;
+        this.compactWrites = compactWrites;
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        try {
+            if (!compactWrites) {
+                return jsonMapper.writeValueAsBytes(value);
+            }
+            boolean container = value instanceof Collection || value instanceof Map || value.getClass().isArray();
+            byte[] body = container ? smileMapper.writeValueAsBytes(value) : rootTyped(value);
+            if (compressThreshold >= 0 && body.length > compressThreshold) {
+                byte[] compressed = compress(body, container ? CODEC_SMILE_LZ4 : CODEC_ROOT_TYPED_LZ4);
+                if (compressed != null) {
+                    compressedWrites.incrementAndGet();
+                    return compressed;
+                }
+            }
+            byte[] result = new byte[HEADER_LENGTH + body.length];
+            result[0] = MAGIC;
+            result[1] = container ? CODEC_SMILE : CODEC_ROOT_TYPED;
+            System.arraycopy(body, 0, result, HEADER_LENGTH, body.length);
+            return result;
+        } catch (Exception e) {
+            throw new SerializationException("无法序列化缓存值: " + e.getMessage(), e);
+        }
+    }
+
+    // 2 字节类名长度 + 类名 + 不带类型信息的 Smile
+    private byte[] rootTyped(Object value) throws IOException {
+        byte[] type = value.getClass().getName().getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        out.write(type.length >>> 8);
+        out.write(type.length);
+        out.write(type);
+        plainSmileMapper.writeValue(out, value);
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            if (bytes[0] != MAGIC) {
+                legacyReads.incrementAndGet();
+                return jsonMapper.readValue(bytes, Object.class);
+            }
+            compactReads.incrementAndGet();
+            switch (bytes[1]) {
+                case CODEC_SMILE:
+                    return smileMapper.readValue(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH, Object.class);
+                case CODEC_SMILE_LZ4:
+                    return smileMapper.readValue(decompress(bytes), Object.class);
+                case CODEC_ROOT_TYPED:
+                    return readRootTyped(bytes, HEADER_LENGTH);
+                case CODEC_ROOT_TYPED_LZ4:
+                    return readRootTyped(decompress(bytes), 0);
+                default:
+                    throw new SerializationException("未知的缓存编码: " + bytes[1]);
+            }
+        } catch (SerializationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SerializationException("无法反序列化缓存值: " + e.getMessage(), e);
+        }
+    }
+
+    private Object readRootTyped(byte[] body, int offset) throws IOException {
+        int typeLength = ((body[offset] & 0xff) << 8) | (body[offset + 1] & 0xff);
+        String typeName = new String(body, offset + 2, typeLength, StandardCharsets.UTF_8);
+        Class<?> type = rootTypes.get(typeName);
+        if (type == null) {
+            try {
+                type = Class.forName(typeName, false, CompactRedisSerializer.class.getClassLoader());
+            } catch (ClassNotFoundException e) {
+                throw new SerializationException("未知的缓存值类型: " + typeName, e);
+            }
+            rootTypes.put(typeName, type);
+        }
+        int start = offset + 2 + typeLength;
+        return plainSmileMapper.readValue(body, start, body.length - start, type);
+    }
+
+    private static byte[] decompress(byte[] bytes) {
+        int length = ((bytes[2] & 0xff) << 24) | ((bytes[3] & 0xff) << 16) | ((bytes[4] & 0xff) << 8) | (bytes[5] & 0xff);
+        byte[] body = new byte[length];
+        DECOMPRESSOR.decompress(bytes, LZ4_HEADER_LENGTH, body, 0, length);
+        return body;
+    }
+
+    // 压缩后没有变小时返回 null，按未压缩格式写入
+    private static byte[] compress(byte[] smile, byte codec) {
+        int maxLength = COMPRESSOR.maxCompressedLength(smile.length);
+        byte[] buffer = new byte[LZ4_HEADER_LENGTH + maxLength];
+        int compressedLength = COMPRESSOR.compress(smile, 0, smile.length, buffer, LZ4_HEADER_LENGTH, maxLength);
+        if (compressedLength + 4 >= smile.length) {
+            return null;
+        }
+        buffer[0] = MAGIC;
+        buffer[1] = codec;
+        buffer[2] = (byte) (smile.length >>> 24);
+        buffer[3] = (byte) (smile.length >>> 16);
+        buffer[4] = (byte) (smile.length >>> 8);
+        buffer[5] = (byte) smile.length;
+        byte[] result = new byte[LZ4_HEADER_LENGTH + compressedLength];
+        System.arraycopy(buffer, 0, result, 0, result.length);
+        return result;
+    }
+
+    public boolean isCompactWrites() {
+        return compactWrites;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("compactWrites", compactWrites);
+        stats.put("compressThreshold", compressThreshold);
+        stats.put("compactReads", compactReads.get());
+        stats.put("legacyReads", legacyReads.get());
+        stats.put("compressedWrites", compressedWrites.get());
+        return stats;
+    }
+}
@@ -0,0 +1,196 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import com.bookstore.online_bookstore_backend.entity.Book;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Redis 熔断期间的本地降级缓存
+ * RedisCacheService 在熔断器拒绝访问时改为读写这里的图书与库存，避免所有读请求直接落到数据库；
+ * 容量与 TTL 独立于近端缓存（L1），TTL 更长，库存 TTL 较短（节点间的失效广播同样依赖 Redis，此时无法送达）
+ *
+ * 同时记录降级期间没能写进 Redis 的变更（图书、库存、列表分类）：Redis 中对应的数据可能已经过期，
+ * 熔断器恢复后由 RedisCacheService 统一清理（见 beginReconcile / finishReconcile），
+ * 清理完成前这些图书的读取仍走本地数据；记录数超过上限时改为整体清除图书缓存
+ */
+@Component
+public class FallbackCacheStore {
+
+    @Value("${bookstore.cache.enabled:true}")
+    private boolean cacheEnabled;
+
+    @Value("${bookstore.cache.fallback.enabled:true}")
+    private boolean fallbackEnabled;
+
+    @Value("${bookstore.cache.fallback.max-dirty:10000}")
+    private int maxDirty;
+
+    private final NearCache<Long, Book> bookCache;
+    private final NearCache<Long, Integer> inventoryCache;
+
+    // 降级期间 Redis 中可能已过期的数据：整条图书 hash / 只有 stock 字段 / 列表页分类
+    private final Set<Long> dirtyBooks = ConcurrentHashMap.newKeySet();
+    private final Set<Long> dirtyStocks = ConcurrentHashMap.newKeySet();
+    private final Set<String> dirtyCategories = ConcurrentHashMap.newKeySet();
+    private volatile boolean overflowed = false;
+    private volatile boolean reconciling = false;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong reconciled = new AtomicLong();
+
+    public FallbackCacheStore(@Value("${bookstore.cache.fallback.book-max-size:10000}") int bookMaxSize,
+                              @Value("${bookstore.cache.fallback.book-ttl:300}") long bookTtlSeconds,
+                              @Value("${bookstore.cache.fallback.inventory-max-size:10000}") int inventoryMaxSize,
+                              @Value("${bookstore.cache.fallback.inventory-ttl:10}") long inventoryTtlSeconds) {
+        this.bookCache = new NearCache<>("fallback-book", bookMaxSize, bookTtlSeconds * 1000);
+        this.inventoryCache = new NearCache<>("fallback-inventory", inventoryMaxSize, inventoryTtlSeconds * 1000);
+    }
+
+    public boolean isEnabled() {
+        return cacheEnabled && fallbackEnabled;
+    }
+
+    // ==================== 数据 ====================
+
+    public Book getBook(Long bookId) {
+        if (!isEnabled()) {
+            return null;
+        }
+        Book book = bookCache.get(bookId);
+        (book != null ? hits : misses).incrementAndGet();
+        return NearCacheManager.copyOf(book);
+    }
+
+    public void putBook(Book book) {
+        if (isEnabled() && book != null) {
+            bookCache.put(book.getId(), NearCacheManager.copyOf(book));
+        }
+    }
+
+    public void evictBook(Long bookId) {
+        bookCache.invalidate(bookId);
+    }
+
+    public Integer getInventory(Long bookId) {
+        if (!isEnabled()) {
+            return null;
+        }
+        Integer stock = inventoryCache.get(bookId);
+        (stock != null ? hits : misses).incrementAndGet();
+        return stock;
+    }
+
+    public void putInventory(Long bookId, Integer stock) {
+        if (isEnabled()) {
+            inventoryCache.put(bookId, stock);
+        }
+    }
+
+    public void evictInventory(Long bookId) {
+        inventoryCache.invalidate(bookId);
+    }
+
+    // ==================== 待清理的变更 ====================
+
+    public void markBookDirty(Long bookId) {
+        mark(dirtyBooks, bookId);
+    }
+
+    public void markStockDirty(Long bookId) {
+        mark(dirtyStocks, bookId);
+    }
+
+    public void markCategoriesDirty(Collection<String> categories) {
+        for (String category : categories) {
+            mark(dirtyCategories, category);
+        }
+    }
+
+    private <T> void mark(Set<T> dirty, T key) {
+        if (!isEnabled() || key == null) {
+            return;
+        }
+        if (dirtyBooks.size() + dirtyStocks.size() + dirtyCategories.size() >= maxDirty) {
+            overflowed = true;
+            return;
+        }
+        dirty.add(key);
+    }
+
+    /**
+     * 熔断恢复后、清理完成前，这本书在 Redis 中的数据可能已过期，读取应继续走本地数据
+     */
+    public boolean isPendingReconcile(Long bookId) {
+        return reconciling && (dirtyBooks.contains(bookId) || dirtyStocks.contains(bookId));
+    }
+
+    /**
+     * 开始清理：返回当前记录的快照；没有需要清理的内容时直接清空本地数据并返回 null
+     */
+    public synchronized Pending beginReconcile() {
+        if (!overflowed && dirtyBooks.isEmpty() && dirtyStocks.isEmpty() && dirtyCategories.isEmpty()) {
+            clearData();
+            return null;
+        }
+        reconciling = true;
+        return new Pending(List.copyOf(dirtyBooks), List.copyOf(dirtyStocks), List.copyOf(dirtyCategories), overflowed);
+    }
+
+    /**
+     * 清理成功：移除快照中的记录（清理期间新增的记录保留到下一次），本地数据随之作废
+     */
+    public synchronized void finishReconcile(Pending pending) {
+        pending.books().forEach(dirtyBooks::remove);
+        pending.stocks().forEach(dirtyStocks::remove);
+        pending.categories().forEach(dirtyCategories::remove);
+        if (pending.overflowed()) {
+            overflowed = false;
+        }
+        reconciled.addAndGet(pending.books().size() + pending.stocks().size() + pending.categories().size());
+        reconciling = false;
+        clearData();
+    }
+
+    /**
+     * 清理失败（Redis 再次不可用）：保留全部记录，等待下一次恢复
+     */
+    public synchronized void abortReconcile() {
+        reconciling = false;
+    }
+
+    private void clearData() {
+        bookCache.invalidateAll();
+        inventoryCache.invalidateAll();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("books", bookCache.size());
+        stats.put("inventories", inventoryCache.size());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("dirtyBooks", dirtyBooks.size());
+        stats.put("dirtyStocks", dirtyStocks.size());
+        stats.put("dirtyCategories", dirtyCategories.size());
+        stats.put("overflowed", overflowed);
+        stats.put("reconciling", reconciling);
+        stats.put("reconciled", reconciled.get());
+        return stats;
+    }
+
+    /**
+     * 一次清理的内容；overflowed 为 true 时记录不完整，需要整体清除图书缓存
+     */
+    public record Pending(List<Long> books, List<Long> stocks, List<String> categories, boolean overflowed) {
+    }
+}
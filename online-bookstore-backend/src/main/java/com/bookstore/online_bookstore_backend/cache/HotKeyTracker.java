@@ -0,0 +1,160 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 热点 key 的流式统计：Count-Min Sketch 估计每个 key 的访问次数，另外维护估计值最高的 top-k 候选
+ * - 计数只做原子自增，不加锁；已在 top-k 中的 key 原子地更新估计值，
+ *   只有新 key 的估计值超过当前 top-k 最小值、需要替换时才进入同步块
+ * - 每累计 decayInterval 次访问，所有计数减半，使结果反映最近的访问热度而不是启动以来的累计值
+ * 估计值只会偏大（哈希冲突），不会偏小
+ */
+public class HotKeyTracker {
+
+    private final int width;
+    private final int depth;
+    private final int capacity;
+    private final long decayInterval;
+
+    private final AtomicLongArray counters;
+    private final ConcurrentHashMap<String, Long> top = new ConcurrentHashMap<>();
+    private volatile long topMin = 0;
+
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicBoolean decaying = new AtomicBoolean(false);
+
+    /**
+     * @param width         每行计数器数量，越大冲突越少
+     * @param depth         哈希行数，估计值取各行最小值
+     * @param capacity      保留的热点 key 数量
+     * @param decayInterval 每累计多少次访问衰减一次
+     */
+    public HotKeyTracker(int width, int depth, int capacity, long decayInterval) {
+        this.width = width;
+        this.depth = depth;
+        this.capacity = capacity;
+        this.decayInterval = decayInterval;
+        this.counters = new AtomicLongArray(width * depth);
+    }
+
+    public void record(String key) {
+        if (key == null) {
+            return;
+        }
+        long hash = hash64(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int column = ((h1 + row * h2) & Integer.MAX_VALUE) % width;
+            min = Math.min(min, counters.incrementAndGet(row * width + column));
+        }
+        long estimate = min;
+
+        // 已在 top-k 中时原子地更新：与 admit 的淘汰并发时不会把刚被移除的 key 放回去，使 top 超过容量
+        if (top.computeIfPresent(key, (k, v) -> estimate) == null
+                && (top.size() < capacity || estimate > topMin)) {
+            admit(key, estimate);
+        }
+
+        if (recorded.incrementAndGet() % decayInterval == 0) {
+            decay();
+        }
+    }
+
+    private synchronized void admit(String key, long estimate) {
+        // 另一个线程已先一步放入
+        if (top.computeIfPresent(key, (k, v) -> estimate) != null) {
+            return;
+        }
+        if (top.size() >= capacity) {
+            String minKey = null;
+            long min = Long.MAX_VALUE;
+            for (Map.Entry<String, Long> entry : top.entrySet()) {
+                if (entry.getValue() < min) {
+                    min = entry.getValue();
+                    minKey = entry.getKey();
+                }
+            }
+            if (minKey == null || estimate <= min) {
+                topMin = min;
+                return;
+            }
+            top.remove(minKey);
+        }
+        top.put(key, estimate);
+        long min = Long.MAX_VALUE;
+        for (long value : top.values()) {
+            min = Math.min(min, value);
+        }
+        topMin = top.size() >= capacity ? min : 0;
+    }
+
+    // 计数减半（与并发的自增之间不是原子的，只影响近似值）
+    private void decay() {
+        if (!decaying.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (int i = 0; i < counters.length(); i++) {
+                long value;
+                do {
+                    value = counters.get(i);
+                } while (value != 0 && !counters.compareAndSet(i, value, value >> 1));
+            }
+            synchronized (this) {
+                top.replaceAll((k, v) -> v >> 1);
+                top.values().removeIf(v -> v == 0);
+                topMin = topMin >> 1;
+            }
+        } finally {
+            decaying.set(false);
+        }
+    }
+
+    /**
+     * 按估计访问次数从高到低返回前 limit 个热点 key
+     */
+    public List<Map<String, Object>> top(int limit) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(top.entrySet());
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : entries.subList(0, Math.min(limit, entries.size()))) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("key", entry.getKey());
+            item.put("estimate", entry.getValue());
+            result.add(item);
+        }
+        return result;
+    }
+
+    public long getRecorded() {
+        return recorded.get();
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+        top.clear();
+        topMin = 0;
+    }
+
+    // 64 位 FNV-1a，高低两半做双重哈希
+    private static long hash64(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,163 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内近端缓存（L1）
+ * 容量上限 + TTL 过期，淘汰采用 CLOCK（二次机会）近似 LRU
+ * 每个条目带版本号：失效操作会留下一个更高版本的墓碑，
+ * 读取开始前拿到的 stamp 早于墓碑时，回填会被拒绝，避免把旧数据写回 L1
+ * 墓碑被容量淘汰后记下它的版本作为水位，早于水位的 stamp 同样不能回填
+ */
+public class NearCache<K, V> {
+
+    private final String name;
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+    // 最近一次 invalidateAll 时的版本：早于它的 stamp 一律不能回填（清空后没有逐条墓碑可比较）
+    private volatile long clearedAt = 0;
+    // 被容量淘汰的墓碑中最高的版本：墓碑没有被读取过，CLOCK 会优先淘汰它们，淘汰后仍要拦截更早开始的回填
+    private final AtomicLong evictedTombstoneAt = new AtomicLong();
+
+    public NearCache(String name, int maxSize, long ttlMillis) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * 读取条目，过期或已失效时返回 null
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            entries.remove(key, entry);
+            return null;
+        }
+        entry.referenced = true;
+        return entry.value;
+    }
+
+    /**
+     * 在查询 L2/数据库之前获取版本戳，配合 {@link #putIfNewer} 使用
+     */
+    public long stamp() {
+        return clock.get();
+    }
+
+    /**
+     * 仅当 stamp 之后该 key 没有被失效或覆盖时才写入
+     * @return 是否写入成功
+     */
+    public boolean putIfNewer(K key, V value, long stamp) {
+        if (key == null || value == null || stamp < clearedAt || stamp < evictedTombstoneAt.get()) {
+            return false;
+        }
+        boolean[] written = {false};
+        entries.compute(key, (k, current) -> {
+            if (stamp < clearedAt || stamp < evictedTombstoneAt.get()
+                    || (current != null && current.version > stamp && !current.isExpired(System.currentTimeMillis()))) {
+                return current;
+            }
+            written[0] = true;
+            return new Entry<>(value, clock.incrementAndGet(), System.currentTimeMillis() + ttlMillis);
+        });
+        if (written[0]) {
+            evictIfNecessary();
+        }
+        return written[0];
+    }
+
+    /**
+     * 无条件写入（用于写穿透，数据来源就是最新的数据库写入）
+     */
+    public void put(K key, V value) {
+        if (key == null || value == null) {
+            return;
+        }
+        entries.put(key, new Entry<>(value, clock.incrementAndGet(), System.currentTimeMillis() + ttlMillis));
+        evictIfNecessary();
+    }
+
+    /**
+     * 使条目失效，留下墓碑以拦截并发中的旧值回填
+     */
+    public void invalidate(K key) {
+        if (key == null) {
+            return;
+        }
+        entries.put(key, new Entry<>(null, clock.incrementAndGet(), System.currentTimeMillis() + ttlMillis));
+        evictIfNecessary();
+    }
+
+    public void invalidateAll() {
+        clearedAt = clock.incrementAndGet();
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 超出容量时先清理过期条目，再按 CLOCK 淘汰最近未被访问的条目
+     */
+    private void evictIfNecessary() {
+        if (entries.size() <= maxSize) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        entries.entrySet().removeIf(e -> e.getValue().isExpired(now));
+
+        int target = maxSize - maxSize / 10;
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        while (entries.size() > target) {
+            if (!it.hasNext()) {
+                it = entries.entrySet().iterator();
+                if (!it.hasNext()) {
+                    return;
+                }
+            }
+            Map.Entry<K, Entry<V>> e = it.next();
+            Entry<V> entry = e.getValue();
+            if (entry.referenced) {
+                entry.referenced = false;
+            } else {
+                it.remove();
+                if (entry.value == null) {
+                    evictedTombstoneAt.accumulateAndGet(entry.version, Math::max);
+                }
+            }
+        }
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long version;
+        final long expireAt;
+        volatile boolean referenced;
+
+        Entry(V value, long version, long expireAt) {
+            this.value = value;
+            this.version = version;
+            this.expireAt = expireAt;
+        }
+
+        boolean isExpired(long now) {
+            return now >= expireAt;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import com.bookstore.online_bookstore_backend.entity.Book;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * 近端缓存管理器
+ * 持有图书与库存的 L1 缓存（位于 RedisCacheService 之前），
+ * 并通过 Redis pub/sub 在节点间广播失效消息；收到图书/库存失效时交给 {@link PeerChangeLoader}
+ * 在后台加载最新数据后通知内存索引（pub/sub 线程上不访问数据库）
+ * 另外保存图书详情的 ETag，图书或库存失效时一并丢弃，条件请求据此直接返回 304
+ * 消息格式: {nodeId}|{cacheName}|{key}，本节点发出的消息会被忽略
+ * 批量导入等整体变更以 {nodeId}|catalog|0 广播，收到后同样交给 {@link PeerChangeLoader}，由后台线程发布 RELOADED 事件
+ * 批量清除缓存后以 {nodeId}|all|0 广播，收到后清空全部 L1（数据本身未变，不重建索引）
+ *
+ * Book 是可变的 JPA 实体，L1 中保存的是副本，读出时也返回副本，
+ * 避免调用方修改对象后污染其他线程看到的缓存内容
+ */
+@Component
+public class NearCacheManager implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(NearCacheManager.class);
+
+    public static final String INVALIDATION_CHANNEL = "bookstore:cache:invalidate";
+    public static final String BOOK_CACHE = "book";
+    public static final String INVENTORY_CACHE = "inventory";
+    public static final String ETAG_CACHE = "etag";
+    public static final String CATALOG = "catalog";
+    public static final String ALL_CACHES = "all";
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final NearCache<Long, Book> bookCache;
+    private final NearCache<Long, CachedStock> inventoryCache;
+    private final NearCache<Long, String> etagCache;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private PeerChangeLoader peerChangeLoader;
+
+    @Value("${bookstore.cache.near.enabled:true}")
+    private boolean enabled;
+
+    public NearCacheManager(@Value("${bookstore.cache.near.book-max-size:10000}") int bookMaxSize,
+                            @Value("${bookstore.cache.near.book-ttl:60}") long bookTtlSeconds,
+                            @Value("${bookstore.cache.near.inventory-max-size:10000}") int inventoryMaxSize,
+                            @Value("${bookstore.cache.near.inventory-ttl:5}") long inventoryTtlSeconds,
+                            @Value("${bookstore.cache.near.etag-ttl:60}") long etagTtlSeconds) {
+        this.bookCache = new NearCache<>(BOOK_CACHE, bookMaxSize, bookTtlSeconds * 1000);
+        this.inventoryCache = new NearCache<>(INVENTORY_CACHE, inventoryMaxSize, inventoryTtlSeconds * 1000);
+        this.etagCache = new NearCache<>(ETAG_CACHE, bookMaxSize, etagTtlSeconds * 1000);
+    }
+
+    // ==================== 图书 ====================
+
+    public Book getBook(Long bookId) {
+        if (!enabled || bookId == null) {
+            return null;
+        }
+        return copyOf(bookCache.get(bookId));
+    }
+
+    /**
+     * 读取 L2/数据库之前调用，得到的版本戳用于 {@link #putBook}
+     */
+    public long bookStamp() {
+        return bookCache.stamp();
+    }
+
+    /**
+     * 读路径回填：如果 stamp 之后该图书已被失效，则放弃写入
+     */
+    public void putBook(Book book, long stamp) {
+        if (!enabled || book == null) {
+            return;
+        }
+        bookCache.putIfNewer(book.getId(), copyOf(book), stamp);
+    }
+
+    /**
+     * 写路径：通知其他节点失效，本地直接替换为最新值
+     */
+    public void refreshBook(Book book) {
+        if (book == null) {
+            return;
+        }
+        invalidateBook(book.getId());
+        if (enabled) {
+            bookCache.put(book.getId(), copyOf(book));
+        }
+    }
+
+    public void invalidateBook(Long bookId) {
+        bookCache.invalidate(bookId);
+        etagCache.invalidate(bookId);
+        publish(BOOK_CACHE, bookId);
+    }
+
+    // ==================== 库存 ====================
+
+    /**
+     * L1 中的库存：数量及读取时的库存行版本（book_inventory.version，来源未带版本时为 null）
+     */
+    public record CachedStock(Integer stock, Long version) {
+    }
+
+    public Integer getInventory(Long bookId) {
+        CachedStock cached = getStock(bookId);
+        return cached != null ? cached.stock() : null;
+    }
+
+    public CachedStock getStock(Long bookId) {
+        if (!enabled || bookId == null) {
+            return null;
+        }
+        return inventoryCache.get(bookId);
+    }
+
+    public long inventoryStamp() {
+        return inventoryCache.stamp();
+    }
+
+    public void putInventory(Long bookId, Integer stock, long stamp) {
+        putInventory(bookId, stock, null, stamp);
+    }
+
+    public void putInventory(Long bookId, Integer stock, Long version, long stamp) {
+        if (!enabled) {
+            return;
+        }
+        inventoryCache.putIfNewer(bookId, new CachedStock(stock, version), stamp);
+    }
+
+    public void invalidateInventory(Long bookId) {
+        inventoryCache.invalidate(bookId);
+        etagCache.invalidate(bookId);
+        publish(INVENTORY_CACHE, bookId);
+    }
+
+    // ==================== 详情 ETag ====================
+
+    /**
+     * 只读取 ETag 元数据，不复制/加载图书实体
+     */
+    public String getBookETag(Long bookId) {
+        if (!enabled || bookId == null) {
+            return null;
+        }
+        return etagCache.get(bookId);
+    }
+
+    /**
+     * 加载图书和库存之前调用，得到的版本戳用于 {@link #putBookETag}
+     */
+    public long etagStamp() {
+        return etagCache.stamp();
+    }
+
+    public void putBookETag(Long bookId, String etag, long stamp) {
+        if (!enabled) {
+            return;
+        }
+        etagCache.putIfNewer(bookId, etag, stamp);
+    }
+
+    // ==================== 广播 ====================
+
+    /**
+     * 在事务中调用时推迟到提交之后再广播，保证其他节点收到消息时能读到已提交的数据
+     */
+    private void publish(String cacheName, Long key) {
+        if (key == null) {
+            return;
+        }
+        String message = nodeId + "|" + cacheName + "|" + key;
+        AfterCommit.run(() -> send(message));
+    }
+
+    /**
+     * 通知其他节点目录发生了整体变更（如批量导入），各节点据此重建内存索引
+     */
+    public void broadcastCatalogReload() {
+        publish(CATALOG, 0L);
+    }
+
+    /**
+     * 清空本节点全部 L1 并通知其他节点同样清空
+     */
+    public void invalidateAll() {
+        clearLocal();
+        publish(ALL_CACHES, 0L);
+    }
+
+    private void clearLocal() {
+        bookCache.invalidateAll();
+        inventoryCache.invalidateAll();
+        etagCache.invalidateAll();
+    }
+
+    private void send(String message) {
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, message);
+        } catch (Exception e) {
+            // 广播失败时其他节点依靠 L1 的短 TTL 收敛
+            logger.warn("⚠️ Failed to broadcast cache invalidation: message={}, error={}", message, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split("\\|");
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        try {
+            Long key = Long.valueOf(parts[2]);
+            if (BOOK_CACHE.equals(parts[1])) {
+                bookCache.invalidate(key);
+                etagCache.invalidate(key);
+                // 让本节点的内存索引（搜索等）也跟上其他节点的修改
+                peerChangeLoader.bookChanged(key);
+            } else if (INVENTORY_CACHE.equals(parts[1])) {
+                inventoryCache.invalidate(key);
+                etagCache.invalidate(key);
+                peerChangeLoader.inventoryChanged(key);
+            } else if (CATALOG.equals(parts[1])) {
+                // 全量重建要扫描整张表，不能阻塞 pub/sub 线程
+                peerChangeLoader.catalogChanged();
+            } else if (ALL_CACHES.equals(parts[1])) {
+                clearLocal();
+            }
+            logger.debug("🔔 Near-cache invalidated by peer: cache={}, key={}", parts[1], key);
+        } catch (NumberFormatException e) {
+            logger.warn("⚠️ Malformed invalidation message: {}", body);
+        }
+    }
+
+    public static Book copyOf(Book book) {
+        if (book == null) {
+            return null;
+        }
+        return new Book(book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn(), book.getPublisher(),
+                book.getPrice(), book.getCover(), book.getDescription(), book.getCategory(), book.getDeleted(),
+                book.getCreatedAt(), book.getUpdatedAt(), book.getDeletedAt());
+    }
+}
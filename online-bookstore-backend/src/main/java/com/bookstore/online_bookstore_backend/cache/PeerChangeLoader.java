@@ -0,0 +1,186 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import com.bookstore.online_bookstore_backend.entity.Book;
+import com.bookstore.online_bookstore_backend.event.BookChangedEvent;
+import com.bookstore.online_bookstore_backend.event.InventoryChangedEvent;
+import com.bookstore.online_bookstore_backend.repository.BookInventoryRepository;
+import com.bookstore.online_bookstore_backend.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 其他节点变更的后台加载
+ * NearCacheManager 在 pub/sub 线程上收到失效消息后只把图书ID放进来，由后台线程批量查询数据库，
+ * 再以带数据的 PEER_CHANGED 事件 / 带库存的 InventoryChangedEvent 通知内存索引，pub/sub 线程不访问数据库
+ * 同一个ID在等待期间只加载一次；积压超过上限或其他节点整体变更（批量导入等）时丢弃积压，改为发布一次 RELOADED 全量重建
+ */
+@Component
+public class PeerChangeLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(PeerChangeLoader.class);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookInventoryRepository inventoryRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${bookstore.cache.peer-sync.max-pending:10000}")
+    private int maxPending;
+
+    @Value("${bookstore.cache.peer-sync.batch-size:500}")
+    private int batchSize;
+
+    private final Set<Long> books = ConcurrentHashMap.newKeySet();
+    private final Set<Long> inventories = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean overflow = new AtomicBoolean(false);
+    private final AtomicBoolean reload = new AtomicBoolean(false);
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private volatile Thread worker;
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong loaded = new AtomicLong();
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public void bookChanged(Long bookId) {
+        submit(books, bookId);
+    }
+
+    public void inventoryChanged(Long bookId) {
+        submit(inventories, bookId);
+    }
+
+    /**
+     * 其他节点整体变更了图书目录：全量重建在后台线程上进行，已积压的单本变更随之丢弃
+     */
+    public void catalogChanged() {
+        reload.set(true);
+        startWorker();
+        LockSupport.unpark(worker);
+    }
+
+    private void submit(Set<Long> ids, Long bookId) {
+        if (bookId == null) {
+            return;
+        }
+        if (books.size() + inventories.size() >= maxPending) {
+            overflow.set(true);
+        } else if (ids.add(bookId)) {
+            submitted.incrementAndGet();
+        }
+        startWorker();
+        LockSupport.unpark(worker);
+    }
+
+    private void startWorker() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(this::work, "peer-change-loader");
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                drain();
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                logger.warn("⚠️ Failed to load peer changes: {}", e.getMessage());
+            }
+            LockSupport.park(this);
+        }
+    }
+
+    /**
+     * 处理当前积压的全部变更（后台线程调用）
+     */
+    void drain() {
+        // 两个标志都要取出并清除，不能短路
+        boolean overflowed = overflow.getAndSet(false);
+        boolean requested = reload.getAndSet(false);
+        if (overflowed || requested) {
+            books.clear();
+            inventories.clear();
+            reloads.incrementAndGet();
+            if (overflowed) {
+                logger.warn("⚠️ Too many pending peer changes, rebuild in-memory indexes");
+            } else {
+                logger.info("🔄 Peer changed the catalog, rebuild in-memory indexes");
+            }
+            eventPublisher.publishEvent(BookChangedEvent.reloaded());
+            return;
+        }
+        for (List<Long> ids = take(books); !ids.isEmpty(); ids = take(books)) {
+            loadBooks(ids);
+        }
+        for (List<Long> ids = take(inventories); !ids.isEmpty(); ids = take(inventories)) {
+            loadInventories(ids);
+        }
+    }
+
+    private void loadBooks(List<Long> ids) {
+        Map<Long, Book> found = new HashMap<>();
+        load(books, ids, () -> bookRepository.findAllById(ids).forEach(book -> found.put(book.getId(), book)));
+        ids.forEach(id -> eventPublisher.publishEvent(BookChangedEvent.peerChanged(id, found.get(id))));
+    }
+
+    private void loadInventories(List<Long> ids) {
+        Map<Long, Integer> stocks = new HashMap<>();
+        load(inventories, ids, () -> inventoryRepository.findAllById(ids).forEach(inv -> stocks.put(inv.getBookId(), inv.getStock())));
+        ids.forEach(id -> eventPublisher.publishEvent(new InventoryChangedEvent(id, stocks.getOrDefault(id, 0))));
+    }
+
+    // 查询失败时放回积压，下一次收到变更时重试
+    private void load(Set<Long> pending, List<Long> ids, Runnable query) {
+        try {
+            query.run();
+            loaded.addAndGet(ids.size());
+        } catch (RuntimeException e) {
+            pending.addAll(ids);
+            throw e;
+        }
+    }
+
+    private List<Long> take(Set<Long> ids) {
+        List<Long> batch = new ArrayList<>();
+        Iterator<Long> it = ids.iterator();
+        while (it.hasNext() && batch.size() < Math.max(1, batchSize)) {
+            batch.add(it.next());
+            it.remove();
+        }
+        return batch;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", books.size() + inventories.size());
+        stats.put("submitted", submitted.get());
+        stats.put("loaded", loaded.get());
+        stats.put("reloads", reloads.get());
+        stats.put("failed", failed.get());
+        return stats;
+    }
+}
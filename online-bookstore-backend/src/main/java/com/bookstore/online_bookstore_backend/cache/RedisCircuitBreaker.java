@@ -0,0 +1,246 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import com.bookstore.online_bookstore_backend.event.RedisRecoveredEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Redis 熔断器，取代每次缓存操作前的 PING 检查
+ * - CLOSED：正常放行，按最近 window-size 次调用统计失败率，达到阈值（且调用数不少于 min-calls）时熔断
+ * - OPEN：直接拒绝，缓存调用立即降级到数据库，不再等待连接超时；后台线程按 probe-interval-ms 定期 PING
+ * - HALF_OPEN：探测成功后进入，只放行 half-open-calls 次试探调用；试探（或后台探测）全部成功则恢复 CLOSED，
+ *   任意一次失败重新 OPEN
+ * 调用方在放行后必须通过 {@link #recordSuccess()} / {@link #recordFailure(Exception)} 回报结果
+ * 恢复 CLOSED 时发布 {@link RedisRecoveredEvent}
+ */
+@Component
+public class RedisCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisCircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${bookstore.cache.breaker.window-size:50}")
+    private int windowSize;
+
+    @Value("${bookstore.cache.breaker.min-calls:5}")
+    private int minCalls;
+
+    @Value("${bookstore.cache.breaker.failure-rate-threshold:50}")
+    private int failureRateThreshold;
+
+    @Value("${bookstore.cache.breaker.half-open-calls:3}")
+    private int halfOpenCalls;
+
+    @Value("${bookstore.cache.breaker.probe-interval-ms:1000}")
+    private long probeIntervalMs;
+
+    private volatile State state = State.CLOSED;
+
+    // 最近 windowSize 次调用的结果环（true 表示失败），由 this 同步
+    private boolean[] outcomes;
+    private int position;
+    private int recorded;
+    private int failures;
+
+    private final AtomicInteger halfOpenPermits = new AtomicInteger();
+    private final AtomicInteger halfOpenSuccesses = new AtomicInteger();
+    private final AtomicBoolean probing = new AtomicBoolean(false);
+
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong opened = new AtomicLong();
+    private volatile LocalDateTime lastOpenedAt;
+    private volatile String lastError;
+
+    /**
+     * @return 是否允许本次调用访问 Redis；false 时调用方应直接降级
+     */
+    public boolean allowRequest() {
+        State current = state;
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.HALF_OPEN && halfOpenPermits.getAndDecrement() > 0) {
+            return true;
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    public void recordSuccess() {
+        State current = state;
+        if (current == State.CLOSED) {
+            record(false);
+        } else if (current == State.HALF_OPEN && halfOpenSuccesses.incrementAndGet() >= halfOpenCalls) {
+            close();
+        }
+    }
+
+    /**
+     * 只统计 Redis 访问异常（连接失败、超时、命令错误），反序列化等本地异常不计入失败率
+     */
+    public void recordFailure(Exception e) {
+        if (!(e instanceof DataAccessException)) {
+            return;
+        }
+        lastError = e.getMessage();
+        State current = state;
+        if (current == State.HALF_OPEN) {
+            open();
+        } else if (current == State.CLOSED && record(true)) {
+            open();
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * 记录一次调用结果
+     * @return 是否达到熔断条件
+     */
+    private synchronized boolean record(boolean failed) {
+        if (outcomes == null) {
+            outcomes = new boolean[Math.max(1, windowSize)];
+            position = 0;
+            recorded = 0;
+            failures = 0;
+        }
+        if (recorded == outcomes.length) {
+            if (outcomes[position]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[position] = failed;
+        if (failed) {
+            failures++;
+        }
+        position = (position + 1) % outcomes.length;
+        return recorded >= minCalls && failures * 100 >= failureRateThreshold * recorded;
+    }
+
+    private synchronized void resetWindow() {
+        outcomes = null;
+        recorded = 0;
+        failures = 0;
+    }
+
+    private synchronized double failureRate() {
+        return recorded == 0 ? 0.0 : (double) failures / recorded;
+    }
+
+    private synchronized void open() {
+        if (state == State.OPEN) {
+            return;
+        }
+        state = State.OPEN;
+        opened.incrementAndGet();
+        lastOpenedAt = LocalDateTime.now();
+        logger.error("❌ Redis circuit opened, system degraded to database: {}", lastError);
+        startProbe();
+    }
+
+    private synchronized void halfOpen() {
+        if (state != State.OPEN) {
+            return;
+        }
+        halfOpenSuccesses.set(0);
+        halfOpenPermits.set(halfOpenCalls);
+        state = State.HALF_OPEN;
+        logger.info("🔌 Redis reachable again, circuit half-open");
+    }
+
+    private synchronized void close() {
+        if (state != State.HALF_OPEN) {
+            return;
+        }
+        resetWindow();
+        state = State.CLOSED;
+        logger.info("✅ Redis connection restored, circuit closed");
+        eventPublisher.publishEvent(new RedisRecoveredEvent(lastOpenedAt));
+    }
+
+    /**
+     * 后台健康探测：OPEN 时探测成功进入 HALF_OPEN；HALF_OPEN 时探测成功也计入试探成功，
+     * 保证没有业务流量（或试探名额被占用）时熔断器也能恢复
+     */
+    private void startProbe() {
+        if (!probing.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                while (state != State.CLOSED) {
+                    Thread.sleep(probeIntervalMs);
+                    if (ping()) {
+                        if (state == State.OPEN) {
+                            halfOpen();
+                        } else {
+                            recordSuccess();
+                        }
+                    } else if (state == State.HALF_OPEN) {
+                        open();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                probing.set(false);
+                // 退出前状态又变回非 CLOSED（并发的 open() 未能启动探测线程）时重新启动
+                if (state != State.CLOSED && !Thread.currentThread().isInterrupted()) {
+                    startProbe();
+                }
+            }
+        }, "redis-health-probe");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private boolean ping() {
+        try {
+            stringRedisTemplate.execute((RedisCallback<String>) RedisConnection::ping);
+            return true;
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            logger.debug("🔌 Redis health probe failed: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", state);
+        stats.put("failureRate", failureRate());
+        stats.put("rejected", rejected.get());
+        stats.put("opened", opened.get());
+        stats.put("lastOpenedAt", lastOpenedAt);
+        stats.put("lastError", lastError);
+        return stats;
+    }
+}
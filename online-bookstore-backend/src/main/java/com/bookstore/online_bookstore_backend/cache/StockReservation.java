@@ -0,0 +1,79 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次多商品库存预留（RedisCacheService.reserveStock）的结果
+ * 只有 RESERVED 时 Redis 中的库存被扣减；其余状态下所有库存保持不变
+ */
+public class StockReservation {
+
+    public enum Status {
+        RESERVED,     // 全部扣减成功
+        INSUFFICIENT, // 至少一本书库存不足，见 getShortfalls
+        NOT_CACHED,   // 至少一本书的库存未缓存，见 getUncached，Redis 无法判断
+        UNAVAILABLE   // Redis 不可用
+    }
+
+    private final Status status;
+    private final Map<Long, Integer> requested;
+    private final Map<Long, Integer> stocks; // RESERVED 时为扣减后的库存，否则为当前库存；未缓存的图书不在其中
+
+    public StockReservation(Status status, Map<Long, Integer> requested, Map<Long, Integer> stocks) {
+        this.status = status;
+        this.requested = requested;
+        this.stocks = stocks;
+    }
+
+    public static StockReservation unavailable(Map<Long, Integer> requested) {
+        return new StockReservation(Status.UNAVAILABLE, requested, Collections.emptyMap());
+    }
+
+    public boolean isReserved() {
+        return status == Status.RESERVED;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Map<Long, Integer> getStocks() {
+        return stocks;
+    }
+
+    /**
+     * 库存不足的图书及其当前库存
+     */
+    public Map<Long, Integer> getShortfalls() {
+        Map<Long, Integer> shortfalls = new LinkedHashMap<>();
+        if (status == Status.RESERVED) {
+            return shortfalls;
+        }
+        for (Map.Entry<Long, Integer> entry : requested.entrySet()) {
+            Integer stock = stocks.get(entry.getKey());
+            if (stock != null && stock < entry.getValue()) {
+                shortfalls.put(entry.getKey(), stock);
+            }
+        }
+        return shortfalls;
+    }
+
+    /**
+     * Redis 中没有库存的图书
+     */
+    public List<Long> getUncached() {
+        List<Long> uncached = new ArrayList<>();
+        if (status == Status.NOT_CACHED) {
+            for (Long bookId : requested.keySet()) {
+                if (!stocks.containsKey(bookId)) {
+                    uncached.add(bookId);
+                }
+            }
+        }
+        return uncached;
+    }
+}
@@ -1,19 +1,25 @@
 package com.bookstore.online_bookstore_backend.config;
 
+import com.bookstore.online_bookstore_backend.cache.CompactRedisSerializer;
+import com.bookstore.online_bookstore_backend.cache.NearCacheManager;
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 /**
@@ -28,29 +34,60 @@ public class RedisConfig {
     
     /**
      * 配置 RedisTemplate
-     * 使用 JSON 序列化方式存储对象
+     * 使用 JSON 序列化方式存储对象（也能读取紧凑格式，见 {@link CompactRedisSerializer}）
      */
     @Bean
+    @Primary
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
         logger.info("正在配置 RedisTemplate...");
-        
-        RedisTemplate<String, Object> template = new RedisTemplate<>();
-        template.setConnectionFactory(connectionFactory);
-        
-        // 配置 Jackson2JsonRedisSerializer
-        Jackson2JsonRedisSerializer<Object> jackson2JsonRedisSerializer = new Jackson2JsonRedisSerializer<>(Object.class);
-        ObjectMapper objectMapper = new ObjectMapper();
+        RedisTemplate<String, Object> template = createTemplate(connectionFactory, valueSerializer(false, -1));
+        logger.info("RedisTemplate 配置完成");
+        return template;
+    }
+    
+    /**
+     * 紧凑格式的 RedisTemplate：Smile 二进制编码，超过阈值再做 LZ4 压缩
+     * 哪些 key 前缀使用它由 bookstore.cache.codec.compact-prefixes 决定（见 RedisCacheService）
+     */
+    @Bean
+    public RedisTemplate<String, Object> compactRedisTemplate(RedisConnectionFactory connectionFactory,
+                                                              @Value("${bookstore.cache.codec.compress-threshold:512}") int compressThreshold) {
+        return createTemplate(connectionFactory, valueSerializer(true, compressThreshold));
+    }
+    
+    /**
+     * 创建缓存值序列化器，JSON 与 Smile 使用相同的 ObjectMapper 配置（字段可见性、类型信息、时间类型）
+     * 紧凑格式只记录根类名，另用一个不带默认类型信息的 Smile 映射器编码正文
+     * @param compactWrites 是否以紧凑格式写入；两种模式都能读取新旧两种格式
+     */
+    public static CompactRedisSerializer valueSerializer(boolean compactWrites, int compressThreshold) {
+        return new CompactRedisSerializer(typed(cacheObjectMapper(new ObjectMapper())),
+                typed(cacheObjectMapper(new ObjectMapper(new SmileFactory()))),
+                cacheObjectMapper(new ObjectMapper(new SmileFactory())), compactWrites, compressThreshold);
+    }
+    
+    private static ObjectMapper cacheObjectMapper(ObjectMapper objectMapper) {
         objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
-        objectMapper.activateDefaultTyping(
-            LaissezFaireSubTypeValidator.instance,
-            ObjectMapper.DefaultTyping.NON_FINAL
-        );
         
         // 支持 Java 8 时间类型
         objectMapper.registerModule(new JavaTimeModule());
         objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        
-        jackson2JsonRedisSerializer.setObjectMapper(objectMapper);
+        return objectMapper;
+    }
+    
+    // 每个非 final 对象都带上类名，读取时不需要知道目标类型
+    private static ObjectMapper typed(ObjectMapper objectMapper) {
+        objectMapper.activateDefaultTyping(
+            LaissezFaireSubTypeValidator.instance,
+            ObjectMapper.DefaultTyping.NON_FINAL
+        );
+        return objectMapper;
+    }
+    
+    private static RedisTemplate<String, Object> createTemplate(RedisConnectionFactory connectionFactory,
+                                                                CompactRedisSerializer valueSerializer) {
+        RedisTemplate<String, Object> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
         
         // 使用 StringRedisSerializer 序列化 key
         StringRedisSerializer stringRedisSerializer = new StringRedisSerializer();
@@ -60,13 +97,23 @@ public class RedisConfig {
         template.setHashKeySerializer(stringRedisSerializer);
         
         // value 采用 jackson 的序列化方式
-        template.setValueSerializer(jackson2JsonRedisSerializer);
-        template.setHashValueSerializer(jackson2JsonRedisSerializer);
+        template.setValueSerializer(valueSerializer);
+        template.setHashValueSerializer(valueSerializer);
         
         template.afterPropertiesSet();
-        
-        logger.info("RedisTemplate 配置完成");
         return template;
     }
+    
+    /**
+     * 订阅近端缓存失效频道
+     * 其他节点写入图书/库存后会广播失效消息，本节点据此丢弃 L1 中的旧条目
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       NearCacheManager nearCacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(nearCacheManager, new ChannelTopic(NearCacheManager.INVALIDATION_CHANNEL));
+        return container;
+    }
 }
-
@@ -1,10 +1,18 @@
 package com.bookstore.online_bookstore_backend.controller;
 
+import com.bookstore.online_bookstore_backend.cache.BulkCacheEvictor;
+import com.bookstore.online_bookstore_backend.cache.CacheLoadCoalescer;
+import com.bookstore.online_bookstore_backend.cache.CacheMetrics;
+import com.bookstore.online_bookstore_backend.cache.CacheRefreshQueue;
+import com.bookstore.online_bookstore_backend.cache.PeerChangeLoader;
+import com.bookstore.online_bookstore_backend.cache.RedisCircuitBreaker;
 import com.bookstore.online_bookstore_backend.entity.Order;
 import com.bookstore.online_bookstore_backend.payload.response.MessageResponse;
 import com.bookstore.online_bookstore_backend.payload.response.UserResponse;
 import com.bookstore.online_bookstore_backend.service.AdminService;
+import com.bookstore.online_bookstore_backend.service.InventoryWriteBehindService;
 import com.bookstore.online_bookstore_backend.service.OrderService;
+import com.bookstore.online_bookstore_backend.service.RedisCacheService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -26,6 +34,30 @@ public class AdminController {
 
     private final AdminService adminService;
     private final OrderService orderService; // Inject OrderService
+    
+    @Autowired
+    private CacheLoadCoalescer cacheLoadCoalescer;
+    
+    @Autowired
+    private CacheRefreshQueue cacheRefreshQueue;
+    
+    @Autowired
+    private PeerChangeLoader peerChangeLoader;
+    
+    @Autowired
+    private RedisCacheService redisCacheService;
+    
+    @Autowired
+    private BulkCacheEvictor bulkCacheEvictor;
+    
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+    
+    @Autowired
+    private CacheMetrics cacheMetrics;
+
+    @Autowired
+    private InventoryWriteBehindService inventoryWriteBehindService;
 
     @Autowired
     public AdminController(AdminService adminService, OrderService orderService) {
@@ -95,4 +127,95 @@ public class AdminController {
             return ResponseEntity.status(500).body(Map.of("message", "获取订单详情时出错: " + e.getMessage()));
         }
     }
-} 
\ No newline at end of file
+
+    // 缓存回源合并统计：实际回源次数、被合并的请求数、跨节点锁等待情况
+    @GetMapping("/cache/coalescing")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCacheCoalescingStats() {
+        return ResponseEntity.ok(cacheLoadCoalescer.getStats());
+    }
+
+    // 临近过期的缓存条目在后台提前刷新的统计
+    @GetMapping("/cache/refresh")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCacheRefreshStats() {
+        return ResponseEntity.ok(cacheRefreshQueue.getStats());
+    }
+
+    // 其他节点变更的后台加载：积压数量、已加载数量、积压过多改为全量重建的次数
+    @GetMapping("/cache/peer-sync")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getPeerSyncStats() {
+        return ResponseEntity.ok(peerChangeLoader.getStats());
+    }
+
+    // Redis 熔断器状态：当前状态、窗口内失败率、被拒绝（直接降级）的调用数
+    @GetMapping("/cache/circuit-breaker")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getRedisCircuitBreakerStats() {
+        return ResponseEntity.ok(redisCircuitBreaker.getStats());
+    }
+
+    // 库存异步落库：本节点待落库的行数、已落库批次与失败次数
+    @GetMapping("/inventory/write-behind")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getInventoryWriteBehindStats() {
+        return ResponseEntity.ok(inventoryWriteBehindService.getStats());
+    }
+
+    // Redis 熔断期间的本地降级缓存：容量、命中情况，以及待恢复后清理的变更数量
+    @GetMapping("/cache/fallback")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getFallbackCacheStats() {
+        return ResponseEntity.ok(redisCacheService.getFallbackStats());
+    }
+
+    // 缓存值编码统计：各编码的读写次数，legacyReads 用于观察旧 JSON 格式的迁移进度
+    @GetMapping("/cache/codec")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCacheCodecStats() {
+        return ResponseEntity.ok(redisCacheService.getCodecStats());
+    }
+
+    // 按 key 前缀的命中率、耗时分布，以及近期访问最多的热点 key
+    @GetMapping("/cache/metrics")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCacheMetrics(@RequestParam(defaultValue = "20") int hotKeys) {
+        return ResponseEntity.ok(cacheMetrics.snapshot(Math.max(0, Math.min(hotKeys, 1000))));
+    }
+
+    @DeleteMapping("/cache/metrics")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> resetCacheMetrics() {
+        cacheMetrics.reset();
+        return ResponseEntity.ok(Map.of("message", "缓存统计已重置"));
+    }
+
+    // 后台批量清除全部图书缓存，立即返回任务进度
+    @PostMapping("/cache/eviction")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> evictAllBookCaches() {
+        if (!redisCacheService.evictAllBookCaches()) {
+            if (bulkCacheEvictor.isRunning()) {
+                return ResponseEntity.status(409).body(Map.of("message", "已有缓存清除任务正在运行"));
+            }
+            return ResponseEntity.status(503).body(Map.of("message", "Redis 不可用，无法清除缓存"));
+        }
+        return ResponseEntity.accepted().body(bulkCacheEvictor.getProgress());
+    }
+
+    @GetMapping("/cache/eviction")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> getCacheEvictionProgress() {
+        return ResponseEntity.ok(bulkCacheEvictor.getProgress());
+    }
+
+    @DeleteMapping("/cache/eviction")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> cancelCacheEviction() {
+        if (!bulkCacheEvictor.cancel()) {
+            return ResponseEntity.status(404).body(Map.of("message", "没有正在运行的缓存清除任务"));
+        }
+        return ResponseEntity.accepted().body(bulkCacheEvictor.getProgress());
+    }
+}
\ No newline at end of file
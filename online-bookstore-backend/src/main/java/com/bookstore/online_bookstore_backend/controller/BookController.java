@@ -1,7 +1,13 @@
 package com.bookstore.online_bookstore_backend.controller; // 确保是正确的包名
 
+import com.bookstore.online_bookstore_backend.dto.BookSummaryDTO;
 import com.bookstore.online_bookstore_backend.dto.BookWithInventoryDTO;
 import com.bookstore.online_bookstore_backend.entity.Book;
+import com.bookstore.online_bookstore_backend.payload.response.BookImportResponse;
+import com.bookstore.online_bookstore_backend.payload.response.FacetQueryResponse;
+import com.bookstore.online_bookstore_backend.search.BookSuggestIndex;
+import com.bookstore.online_bookstore_backend.service.BookExportService;
+import com.bookstore.online_bookstore_backend.service.BookImportService;
 import com.bookstore.online_bookstore_backend.service.BookInventoryService;
 import com.bookstore.online_bookstore_backend.service.BookService;
 import org.slf4j.Logger;
@@ -11,11 +17,20 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*; // 导入所有 Web 注解
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -29,6 +44,12 @@ public class BookController {
     
     @Autowired
     private BookInventoryService inventoryService;
+    
+    @Autowired
+    private BookImportService bookImportService;
+    
+    @Autowired
+    private BookExportService bookExportService;
 
     @Autowired
     public BookController(BookService bookService) {
@@ -36,19 +57,44 @@ public class BookController {
     }
 
     // GET /api/books - 获取所有书籍 (支持分页、分类、标题搜索)
+    // 传入 cursor 参数（首页传空串）时改用键集分页，响应中返回 nextCursor
     @GetMapping
-    public ResponseEntity<Page<Book>> getBooks(
+    public ResponseEntity<?> getBooks(
             @RequestParam(required = false) String category,
             @RequestParam(name = "title", required = false) String titleKeyword,
             @RequestParam(defaultValue = "0") int page, // 页码 (0-indexed)
             @RequestParam(defaultValue = "10") int size, // 每页大小
-            @RequestParam(defaultValue = "id,asc") String[] sort) { // 排序字段和方向
+            @RequestParam(required = false) String[] sort, // 排序字段和方向，不传时默认 id,asc（标题搜索按相关度）
+            @RequestParam(required = false) String cursor, // 键集分页游标
+            WebRequest request) {
         
+        boolean search = titleKeyword != null && !titleKeyword.trim().isEmpty();
+        boolean sorted = sort != null;
+        if (!sorted) {
+            sort = new String[]{"id", "asc"};
+        }
         Sort.Direction direction = sort[1].equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sort[0]));
+        if (cursor != null) {
+            if (search) {
+                return ResponseEntity.badRequest().body(Map.of("message", "标题搜索不支持游标分页"));
+            }
+            try {
+                return ResponseEntity.ok(bookService.getBooksByCursor(category, sort[0], direction == Sort.Direction.ASC, cursor, size));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+            }
+        }
+        // 标题搜索未指定排序时不带排序，由搜索索引按相关度返回
+        Pageable pageable = search && !sorted
+                ? PageRequest.of(page, size)
+                : PageRequest.of(page, size, Sort.by(direction, sort[0]));
+
+        if (isNotModified(request, bookService.getListETag(category, titleKeyword, pageable))) {
+            return null; // 304 Not Modified，已由 checkNotModified 写入响应
+        }
 
         Page<Book> booksPage;
-        if (titleKeyword != null && !titleKeyword.trim().isEmpty()) {
+        if (search) {
             booksPage = bookService.searchBooksByTitle(titleKeyword, pageable);
         } else if (category != null && !category.trim().isEmpty()) {
             booksPage = bookService.getBooksByCategory(category, pageable);
@@ -58,16 +104,79 @@ public class BookController {
         return ResponseEntity.ok(booksPage); // 返回 200 OK 和书籍列表
     }
 
+    // GET /api/books/summaries - 列表页精简数据（不含 description），供首页/分类页卡片展示
+    @GetMapping("/summaries")
+    public ResponseEntity<Page<BookSummaryDTO>> getBookSummaries(
+            @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id,asc") String[] sort,
+            WebRequest request) {
+        
+        Sort.Direction direction = sort[1].equalsIgnoreCase("desc") ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sort[0]));
+        if (isNotModified(request, bookService.getListETag(category, null, pageable))) {
+            return null; // 304 Not Modified
+        }
+        return ResponseEntity.ok(bookService.getBookSummaries(category, pageable));
+    }
+
+    // GET /api/books/suggest?q= - 搜索框自动补全（书名/作者前缀，按销量加权），不访问数据库
+    @GetMapping("/suggest")
+    public ResponseEntity<List<BookSuggestIndex.Suggestion>> suggestBooks(
+            @RequestParam(name = "q", required = false) String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(bookService.suggestBooks(prefix, Math.max(1, Math.min(limit, 20))));
+    }
+
+    // GET /api/books/filter - 分面筛选：category/publisher/author 可重复传入多个值，
+    // 返回当前页精简数据和各维度的取值计数（sort 仅支持 id 或 price）
+    @GetMapping("/filter")
+    public ResponseEntity<?> filterBooks(
+            @RequestParam(required = false) List<String> category,
+            @RequestParam(required = false) List<String> publisher,
+            @RequestParam(required = false) List<String> author,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "false") boolean inStock,
+            @RequestParam(name = "title", required = false) String titleKeyword,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id,asc") String[] sort) {
+        
+        boolean ascending = sort.length < 2 || !sort[1].equalsIgnoreCase("desc");
+        try {
+            FacetQueryResponse response = bookService.filterBooks(category, publisher, author, minPrice, maxPrice,
+                    inStock, titleKeyword, sort[0], ascending, page, size);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("message", e.getMessage()));
+        }
+    }
+
     // GET /api/books/{id} - 根据ID获取书籍详情（包含库存）
+    // 支持 If-None-Match：ETag 仍有效时直接返回 304，不加载图书和库存
     @GetMapping("/{id}")
-    public ResponseEntity<BookWithInventoryDTO> getBookById(@PathVariable Long id) {
+    public ResponseEntity<BookWithInventoryDTO> getBookById(@PathVariable Long id, WebRequest request) {
+        String cachedETag = bookService.getCachedBookETag(id);
+        if (isNotModified(request, cachedETag)) {
+            logger.debug("Book details not modified: ID={}", id);
+            return null; // 304 Not Modified
+        }
         logger.info("Get book details: ID={}", id);
         Optional<BookWithInventoryDTO> bookOptional = bookService.getBookWithInventoryById(id);
         // 如果找到了书，返回 200 OK 和书对象；否则返回 404 Not Found
-        return bookOptional.map(ResponseEntity::ok)
+        return bookOptional.map(dto -> ResponseEntity.ok().eTag(BookService.detailETag(dto)).body(dto))
                            .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    // 条件请求判断：etag 为 null（元数据不可用）时总是返回完整响应
+    private static boolean isNotModified(WebRequest request, String etag) {
+        return etag != null && request.checkNotModified(etag);
+    }
+
     // POST /api/books - 添加一本新书（包含库存信息）
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -270,4 +379,36 @@ public class BookController {
         Page<Book> deletedBooksPage = bookService.getDeletedBooks(pageable);
         return ResponseEntity.ok(deletedBooksPage);
     }
-}
\ No newline at end of file
+
+    // 管理员专用端点：批量导入书籍（请求体为 CSV 或 JSON Lines，流式读取，不走 multipart）
+    @PostMapping("/admin/import")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> importBooks(@RequestParam(defaultValue = "csv") String format, InputStream body) {
+        try {
+            BookImportResponse result = bookImportService.importBooks(body, format);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IOException | IllegalStateException e) {
+            logger.error("❌ Book import failed: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", "批量导入失败: " + e.getMessage()));
+        }
+    }
+
+    // 管理员专用端点：导出全部书籍（含库存），边查边写，内存占用恒定
+    @GetMapping("/admin/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> exportBooks(@RequestParam(defaultValue = "csv") String format) {
+        if (!BookExportService.isSupportedFormat(format)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "不支持的导出格式: " + format + "（仅支持 csv / jsonl）"));
+        }
+        boolean csv = format.equalsIgnoreCase("csv");
+        StreamingResponseBody body = out -> bookExportService.exportBooks(out, format);
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                                 : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"books." + (csv ? "csv" : "jsonl") + "\"")
+                .body(body);
+    }
+}
@@ -120,8 +120,9 @@ public class OrderController {
             @RequestParam(defaultValue = "orderDate,desc") String[] sort, // Default sort by orderDate descending
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
-            @RequestParam(required = false) String bookName
+            @RequestParam(required = false) String bookName,
             // bookName filter will be added later
+            @RequestParam(required = false) String cursor // 键集分页游标，首页传空串
             ) {
         if (currentUser == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "用户未登录"));
@@ -129,10 +130,19 @@ public class OrderController {
         try {
             Sort.Direction direction = sort.length > 1 && sort[1].equalsIgnoreCase("asc") ? Sort.Direction.ASC : Sort.Direction.DESC;
             String sortField = sort.length > 0 ? sort[0] : "orderDate"; // Ensure a default sort field
+            if (cursor != null) {
+                if (!"orderDate".equals(sortField) || (bookName != null && !bookName.trim().isEmpty())) {
+                    return ResponseEntity.badRequest().body(Map.of("message", "游标分页仅支持按下单时间排序且不支持书名筛选"));
+                }
+                return ResponseEntity.ok(orderService.getOrdersByUserIdAfterCursor(currentUser.getId(), cursor, size,
+                        direction == Sort.Direction.ASC, startDate, endDate));
+            }
             Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortField));
             
             Page<Order> ordersPage = orderService.getOrdersByUserId(currentUser.getId(), pageable, startDate, endDate, bookName);
             return ResponseEntity.ok(ordersPage);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("message", "获取订单列表时出错: " + e.getMessage()));
         }
@@ -286,9 +296,15 @@ public class OrderController {
         message.setShippingAddress(shippingAddress);
         message.setTimestamp(LocalDateTime.now());
 
+        List<Long> bookIds = new ArrayList<>();
+        for (CartItem item : cartItems) {
+            bookIds.add(item.getBookId());
+        }
+        Map<Long, Book> books = bookDao.findAllByIds(bookIds);
+
         List<CartItemInfo> cartItemInfos = new ArrayList<>();
         for (CartItem item : cartItems) {
-            Book itemBook = bookDao.findById(item.getBookId()).orElse(null);
+            Book itemBook = books.get(item.getBookId());
             if (itemBook != null) {
                 CartItemInfo info = new CartItemInfo();
                 info.setBookId(itemBook.getId());
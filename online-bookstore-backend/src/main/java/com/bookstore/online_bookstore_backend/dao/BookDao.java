@@ -1,20 +1,48 @@
 package com.bookstore.online_bookstore_backend.dao;
 
+import com.bookstore.online_bookstore_backend.dto.BookSummaryDTO;
+import com.bookstore.online_bookstore_backend.dto.BookWithInventoryDTO;
 import com.bookstore.online_bookstore_backend.entity.Book;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface BookDao {
     Page<Book> findAll(Pageable pageable);
     Page<Book> findByCategory(String category, Pageable pageable);
+    
+    // 列表页精简投影（不含 description），category 为 null 表示全部分类
+    Page<BookSummaryDTO> findSummaries(String category, Pageable pageable);
+    
+    // 列表页缓存的分类代数（写操作后递增），category 为 null 表示全部分类；Redis 不可用时返回 null
+    Long findListGeneration(String category);
     Optional<Book> findById(Long id);
+    
+    // 详情页：图书 + 库存，缓存命中时只需一次 Redis 往返（同一个 hash 中的图书字段和库存）
+    Optional<BookWithInventoryDTO> findWithStockById(Long id);
+    
+    // 批量查询：按 ID 返回未删除的书籍，不存在的 ID 不出现在结果中
+    Map<Long, Book> findAllByIds(Collection<Long> ids);
     Book save(Book book);
+    
+    // 批量导入：JDBC 批量插入，插入后回填每本书的 ID；缓存预热在事务提交后进行
+    void insertBatch(List<Book> books);
+    
+    // 所有已占用的 ISBN（包含已软删除的书籍，ISBN 列有唯一约束）
+    List<String> findAllIsbns();
     void deleteById(Long id);
     Page<Book> findByTitleContainingIgnoreCase(String keyword, Pageable pageable);
     
+    // 键集分页（seek）：lastId/lastPrice 为 null 时返回第一页，category 为 null 表示不过滤
+    List<Book> findPageAfterId(String category, Long lastId, boolean ascending, int limit);
+    // 按价格翻页时价格为空的书籍排在最后（两个方向都是）；lastPrice 为 null 而 lastId 不为 null 表示上一页停在这部分书籍中
+    List<Book> findPageAfterPrice(String category, BigDecimal lastPrice, Long lastId, boolean ascending, int limit);
+    
     // 软删除相关方法
     void softDeleteById(Long id);
     void restoreById(Long id);
@@ -1,6 +1,7 @@
 package com.bookstore.online_bookstore_backend.dao;
 
 import com.bookstore.online_bookstore_backend.entity.BookInventory;
+import java.util.Map;
 import java.util.Optional;
 
 public interface BookInventoryDao {
@@ -19,17 +20,30 @@ public interface BookInventoryDao {
      */
     BookInventory save(BookInventory inventory);
     
+    /**
+     * 批量创建库存记录（JDBC 批量插入），key 为图书ID，value 为初始库存
+     * 缓存预热在事务提交后进行
+     */
+    void insertBatch(Map<Long, Integer> stocks);
+    
     /**
      * 删除库存记录
      */
     void deleteByBookId(Long bookId);
     
     /**
-     * 减少库存（原子操作）
+     * 减少库存（原子操作），等同于只有一本书的 {@link #reduceStocks}
      * @return 是否成功
      */
     boolean reduceStock(Long bookId, int quantity);
     
+    /**
+     * 一次扣减多本书的库存（全部成功或全部不变）
+     * @param quantities 图书ID -> 数量
+     * @return 库存不足的图书及其当前库存，为空表示扣减成功
+     */
+    Map<Long, Integer> reduceStocks(Map<Long, Integer> quantities);
+    
     /**
      * 增加库存（原子操作）
      */
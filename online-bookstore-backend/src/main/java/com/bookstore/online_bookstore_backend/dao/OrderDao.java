@@ -21,6 +21,10 @@ public interface OrderDao {
     Page<Order> findByUserIdAndBookNameContainingIgnoreCase(Long userId, String bookNameKeyword, Pageable pageable);
     Page<Order> findByUserIdAndOrderDateBetweenAndBookNameContainingIgnoreCase(Long userId, LocalDateTime startDate, LocalDateTime endDate, String bookNameKeyword, Pageable pageable);
 
+    // Keyset (seek) pagination for User; lastDate/lastId null means first page
+    List<Order> findUserOrdersAfter(Long userId, LocalDateTime startDate, LocalDateTime endDate,
+                                    LocalDateTime lastDate, Long lastId, boolean ascending, int limit);
+
     // Paginated and filtered methods for Admin
     Page<Order> findAllByOrderByOrderDateDesc(Pageable pageable);
     Page<Order> findAllByOrderDateBetweenOrderByOrderDateDesc(LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
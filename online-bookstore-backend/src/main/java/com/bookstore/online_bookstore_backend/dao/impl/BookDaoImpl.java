@@ -1,28 +1,87 @@
 package com.bookstore.online_bookstore_backend.dao.impl;
 
+import com.bookstore.online_bookstore_backend.cache.AfterCommit;
+import com.bookstore.online_bookstore_backend.cache.BookCacheEntry;
+import com.bookstore.online_bookstore_backend.cache.BookListPage;
+import com.bookstore.online_bookstore_backend.cache.BookSummaryPage;
+import com.bookstore.online_bookstore_backend.cache.CacheLoadCoalescer;
+import com.bookstore.online_bookstore_backend.cache.CacheRefreshQueue;
+import com.bookstore.online_bookstore_backend.cache.NearCacheManager;
 import com.bookstore.online_bookstore_backend.dao.BookDao;
+import com.bookstore.online_bookstore_backend.dao.BookInventoryDao;
+import com.bookstore.online_bookstore_backend.dto.BookSummaryDTO;
+import com.bookstore.online_bookstore_backend.dto.BookWithInventoryDTO;
 import com.bookstore.online_bookstore_backend.entity.Book;
+import com.bookstore.online_bookstore_backend.entity.BookInventory;
+import com.bookstore.online_bookstore_backend.event.BookChangedEvent;
 import com.bookstore.online_bookstore_backend.repository.BookRepository;
+import com.bookstore.online_bookstore_backend.search.IsbnBloomFilter;
 import com.bookstore.online_bookstore_backend.service.RedisCacheService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public class BookDaoImpl implements BookDao {
     
     private static final Logger logger = LoggerFactory.getLogger(BookDaoImpl.class);
+    
+    // 列表页缓存中代表"全部分类"的代数 key
+    private static final String ALL_CATEGORIES = "all";
+    
+    private static final String INSERT_BOOK_SQL =
+            "INSERT INTO books (title, author, isbn, publisher, price, cover, description, category, deleted, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
     private final BookRepository bookRepository;
     
     @Autowired
     private RedisCacheService redisCacheService;
+    
+    @Autowired
+    private NearCacheManager nearCacheManager;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private IsbnBloomFilter isbnBloomFilter;
+    
+    @Autowired
+    private CacheLoadCoalescer cacheLoadCoalescer;
+    
+    @Autowired
+    private CacheRefreshQueue cacheRefreshQueue;
+    
+    @Autowired
+    private BookInventoryDao bookInventoryDao;
 
     @Autowired
     public BookDaoImpl(BookRepository bookRepository) {
@@ -31,53 +90,394 @@ public class BookDaoImpl implements BookDao {
 
     @Override
     public Page<Book> findAll(Pageable pageable) {
-        return bookRepository.findAll(pageable);
+        return findListPage(ALL_CATEGORIES, null, pageable);
     }
 
     @Override
     public Page<Book> findByCategory(String category, Pageable pageable) {
-        return bookRepository.findByCategory(category, pageable);
+        return findListPage(category, category, pageable);
+    }
+
+    /**
+     * 列表页读取：Redis 中按 (分类, 代数, 页码, 每页大小, 排序) 缓存图书ID列表和总数，
+     * 命中后通过 findAllByIds 从图书缓存补齐详情；写操作递增分类代数使旧列表页整体失效
+     * 补齐时发现图书已删除或已换分类，则视为未命中并回源数据库
+     */
+    private Page<Book> findListPage(String generationKey, String category, Pageable pageable) {
+        Long generation = redisCacheService.getBookListGeneration(generationKey);
+        if (generation == null) {
+            return queryListPage(category, pageable);
+        }
+        String pageKey = listPageKey(pageable);
+        
+        BookListPage cachedPage = redisCacheService.getCachedBookListPage(generationKey, generation, pageKey);
+        if (cachedPage != null) {
+            Map<Long, Book> books = findAllByIds(cachedPage.getIds());
+            List<Book> content = new ArrayList<>(cachedPage.getIds().size());
+            for (Long id : cachedPage.getIds()) {
+                Book book = books.get(id);
+                if (book == null || (category != null && !Objects.equals(category, book.getCategory()))) {
+                    content = null;
+                    break;
+                }
+                content.add(book);
+            }
+            if (content != null) {
+                return new PageImpl<>(content, pageable, cachedPage.getTotal());
+            }
+            logger.debug("⚠️ Stale book list page, reload from DB: category={}, page={}", generationKey, pageKey);
+        }
+        
+        Page<Book> page = queryListPage(category, pageable);
+        List<Long> ids = new ArrayList<>(page.getNumberOfElements());
+        for (Book book : page.getContent()) {
+            ids.add(book.getId());
+        }
+        redisCacheService.cacheBookListPage(generationKey, generation, pageKey, new BookListPage(ids, page.getTotalElements()));
+        redisCacheService.cacheBooks(page.getContent());
+        return page;
+    }
+
+    /**
+     * 精简列表页：与完整列表页共用分类代数，缓存条目直接保存 DTO，命中时无需再补齐图书详情
+     */
+    @Override
+    public Page<BookSummaryDTO> findSummaries(String category, Pageable pageable) {
+        String generationKey = category != null ? category : ALL_CATEGORIES;
+        Long generation = redisCacheService.getBookListGeneration(generationKey);
+        String pageKey = listPageKey(pageable);
+        if (generation != null) {
+            BookSummaryPage cachedPage = redisCacheService.getCachedBookSummaryPage(generationKey, generation, pageKey);
+            if (cachedPage != null) {
+                return new PageImpl<>(cachedPage.getContent(), pageable, cachedPage.getTotal());
+            }
+        }
+        
+        Page<BookSummaryDTO> page = category == null
+                ? bookRepository.findAllSummaries(pageable)
+                : bookRepository.findSummariesByCategory(category, pageable);
+        if (generation != null) {
+            redisCacheService.cacheBookSummaryPage(generationKey, generation, pageKey,
+                    new BookSummaryPage(new ArrayList<>(page.getContent()), page.getTotalElements()));
+        }
+        return page;
+    }
+
+    @Override
+    public Long findListGeneration(String category) {
+        return redisCacheService.getBookListGeneration(category != null ? category : ALL_CATEGORIES);
+    }
+
+    private Page<Book> queryListPage(String category, Pageable pageable) {
+        return category == null ? bookRepository.findAll(pageable) : bookRepository.findByCategory(category, pageable);
+    }
+
+    private static String listPageKey(Pageable pageable) {
+        StringBuilder key = new StringBuilder();
+        if (pageable.isPaged()) {
+            key.append(pageable.getPageNumber()).append(':').append(pageable.getPageSize());
+        } else {
+            key.append("unpaged");
+        }
+        for (Sort.Order order : pageable.getSort()) {
+            key.append(':').append(order.getProperty()).append(',').append(order.getDirection().name().toLowerCase());
+        }
+        return key.toString();
+    }
+
+    /**
+     * 递增相关分类以及"全部"的列表页代数
+     * 在事务中调用时推迟到提交之后，避免其他请求在新代数下缓存到提交前的旧数据
+     */
+    private void bumpListGenerations(String... categories) {
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(ALL_CATEGORIES);
+        for (String category : categories) {
+            if (category != null) {
+                keys.add(category);
+            }
+        }
+        AfterCommit.run(() -> redisCacheService.bumpBookListGeneration(keys));
+    }
+
+    /**
+     * 写穿透推迟到提交之后：回滚时 Redis 中不能留下未提交的行，否则它更新的版本会让 CAS 拒绝已提交数据的回填；
+     * 回滚时删除缓存（版本墓碑保持不变），下一次读取重新加载
+     */
+    private void cacheAfterCommit(Book book) {
+        Book snapshot = NearCacheManager.copyOf(book);
+        AfterCommit.run(() -> {
+            redisCacheService.cacheBook(snapshot);
+            nearCacheManager.refreshBook(snapshot);
+        });
+        AfterCommit.onRollback(() -> {
+            redisCacheService.evictBook(snapshot.getId(), 0);
+            nearCacheManager.invalidateBook(snapshot.getId());
+        });
+    }
+
+    /**
+     * 删除缓存推迟到提交之后，回滚时不留下更新的版本墓碑；
+     * 提交前读到旧行的回填版本不高于墓碑，会被拒绝
+     */
+    private void evictAfterCommit(Long id, long version) {
+        AfterCommit.run(() -> {
+            redisCacheService.evictBook(id, version);
+            nearCacheManager.invalidateBook(id);
+        });
     }
 
     @Override
     public Optional<Book> findById(Long id) {
-        // 1. Try Redis cache first
-        Book cachedBook = redisCacheService.getCachedBook(id);
-        if (cachedBook != null) {
-            logger.info("✅ Book from Redis: ID={}, Title={}", id, cachedBook.getTitle());
+        // 1. Try in-process near cache first (no network round trip)
+        Book nearBook = nearCacheManager.getBook(id);
+        if (nearBook != null) {
+            logger.debug("✅ Book from near cache: ID={}", id);
+            return Optional.of(nearBook);
+        }
+        long stamp = nearCacheManager.bookStamp();
+        
+        // 2. Try Redis cache (an absent entry is a tombstone: the book is missing or soft-deleted)
+        BookCacheEntry entry = redisCacheService.getCachedBookDetail(id);
+        if (entry != null && entry.isAbsent()) {
+            logger.debug("🚫 Book absent (negative cache): ID={}", id);
+            return Optional.empty();
+        }
+        if (entry != null && entry.getBook() != null) {
+            Book cachedBook = entry.getBook();
+            logger.debug("✅ Book from Redis: ID={}, Title={}", id, cachedBook.getTitle());
+            nearCacheManager.putBook(cachedBook, stamp);
+            refreshIfDue(id, entry);
             return Optional.of(cachedBook);
         }
         
-        // 2. Cache miss, query database
-        logger.info("⚠️ Redis miss, query DB: ID={}", id);
-        Optional<Book> bookOpt = bookRepository.findById(id);
+        // 3. Cache miss, query database
+        return loadBook(id, stamp);
+    }
+
+    // Concurrent misses for the same ID share one DB load
+    private Optional<Book> loadBook(Long id, long stamp) {
+        Optional<Book> bookOpt = cacheLoadCoalescer.load(NearCacheManager.BOOK_CACHE, id,
+                () -> redisCacheService.getCachedBookEntry(id),
+                () -> {
+                    logger.debug("⚠️ Redis miss, query DB: ID={}", id);
+                    long start = System.currentTimeMillis();
+                    Optional<Book> loaded = bookRepository.findById(id);
+                    
+                    // 4. Cache to Redis and near cache if found, otherwise leave a short-lived tombstone
+                    if (loaded.isPresent()) {
+                        Book book = loaded.get();
+                        redisCacheService.cacheBook(book, System.currentTimeMillis() - start);
+                        nearCacheManager.putBook(book, stamp);
+                        logger.debug("📦 Cached to Redis: ID={}, Title={}", book.getId(), book.getTitle());
+                    } else {
+                        redisCacheService.cacheBookAbsent(id);
+                    }
+                    return loaded;
+                });
         
-        // 3. Cache to Redis if found
-        bookOpt.ifPresent(book -> {
-            redisCacheService.cacheBook(book);
-            logger.info("📦 Cached to Redis: ID={}, Title={}", book.getId(), book.getTitle());
+        // 合并加载时多个线程拿到的是同一个对象，各自返回副本
+        return bookOpt.map(NearCacheManager::copyOf);
+    }
+
+    /**
+     * 缓存条目临近过期时（XFetch 概率判定）在后台重新加载，读请求直接返回当前缓存值
+     * 刷新只在缓存仍是读到的那一版时写入，不会覆盖并发写穿透写入的新数据
+     */
+    private void refreshIfDue(Long id, BookCacheEntry entry) {
+        if (!redisCacheService.isRefreshDue(entry)) {
+            return;
+        }
+        long expectedExpiresAt = entry.getExpiresAt();
+        cacheRefreshQueue.submit(NearCacheManager.BOOK_CACHE + ":" + id, () -> {
+            long start = System.currentTimeMillis();
+            bookRepository.findById(id).ifPresent(book ->
+                    redisCacheService.refreshCachedBook(book, System.currentTimeMillis() - start, expectedExpiresAt));
         });
+    }
+
+    @Override
+    public Optional<BookWithInventoryDTO> findWithStockById(Long id) {
+        // 1. Near cache for both book and stock (no network round trip)
+        Book book = nearCacheManager.getBook(id);
+        NearCacheManager.CachedStock nearStock = nearCacheManager.getStock(id);
+        Integer stock = nearStock != null ? nearStock.stock() : null;
+        Long stockVersion = nearStock != null ? nearStock.version() : null;
+        if (book != null && stock != null) {
+            logger.debug("✅ Book detail from near cache: ID={}", id);
+            return Optional.of(BookWithInventoryDTO.fromBookAndStock(book, stock, stockVersion));
+        }
+        long bookStamp = nearCacheManager.bookStamp();
+        long inventoryStamp = nearCacheManager.inventoryStamp();
         
-        return bookOpt;
+        // 2. One HGETALL returns catalog fields and stock together
+        BookCacheEntry entry = redisCacheService.getCachedBookDetail(id);
+        if (entry != null) {
+            if (entry.isAbsent()) {
+                logger.debug("🚫 Book absent (negative cache): ID={}", id);
+                return Optional.empty();
+            }
+            if (book == null && entry.getBook() != null) {
+                book = entry.getBook();
+                nearCacheManager.putBook(book, bookStamp);
+                refreshIfDue(id, entry);
+            }
+            if (stock == null && entry.getStock() != null) {
+                stock = entry.getStock();
+                stockVersion = entry.getStockVersion();
+                nearCacheManager.putInventory(id, stock, stockVersion, inventoryStamp);
+            }
+            logger.debug("✅ Book detail from Redis: ID={}, book={}, stock={}", id, book != null, stock);
+        }
+        
+        // 3. Load whatever is still missing (each refills its own part of the hash)
+        if (book == null) {
+            Optional<Book> loaded = loadBook(id, bookStamp);
+            if (loaded.isEmpty()) {
+                return Optional.empty();
+            }
+            book = loaded.get();
+        }
+        if (stock == null) {
+            Optional<BookInventory> inventory = bookInventoryDao.findByBookId(id);
+            stock = inventory.map(BookInventory::getStock).orElse(0);
+            stockVersion = inventory.map(BookInventory::getVersion).orElse(null);
+        }
+        return Optional.of(BookWithInventoryDTO.fromBookAndStock(book, stock, stockVersion));
+    }
+
+    @Override
+    public Map<Long, Book> findAllByIds(Collection<Long> ids) {
+        Map<Long, Book> result = new LinkedHashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return result;
+        }
+        Set<Long> pending = new LinkedHashSet<>();
+        for (Long id : ids) {
+            if (id != null) {
+                pending.add(id);
+            }
+        }
+        
+        // 1. Near cache
+        for (Long id : new ArrayList<>(pending)) {
+            Book nearBook = nearCacheManager.getBook(id);
+            if (nearBook != null) {
+                result.put(id, nearBook);
+                pending.remove(id);
+            }
+        }
+        if (pending.isEmpty()) {
+            return result;
+        }
+        long stamp = nearCacheManager.bookStamp();
+        
+        // 2. Redis multi-get for the rest
+        Map<Long, Book> cached = redisCacheService.getCachedBooks(pending);
+        for (Map.Entry<Long, Book> entry : cached.entrySet()) {
+            result.put(entry.getKey(), entry.getValue());
+            nearCacheManager.putBook(entry.getValue(), stamp);
+            pending.remove(entry.getKey());
+        }
+        if (pending.isEmpty()) {
+            return result;
+        }
+        
+        // 3. Single IN query for the misses, then write them back in one pipeline
+        logger.debug("⚠️ Redis batch miss, query DB: count={}", pending.size());
+        List<Book> loaded = bookRepository.findAllActiveByIdIn(pending);
+        for (Book book : loaded) {
+            result.put(book.getId(), book);
+            nearCacheManager.putBook(book, stamp);
+        }
+        redisCacheService.cacheBooks(loaded);
+        
+        return result;
     }
 
     @Override
     public Book save(Book book) {
-        // 1. Save to database
-        Book savedBook = bookRepository.save(book);
+        // 1. Save to database (flush so @PreUpdate has set updatedAt before the entity is cached)
+        Book savedBook = bookRepository.saveAndFlush(book);
+        isbnBloomFilter.add(savedBook.getIsbn());
         
-        // 2. Update Redis cache (Write-Through)
-        redisCacheService.cacheBook(savedBook);
+        // 2. Update Redis cache (Write-Through) and broadcast near-cache invalidation once committed
+        cacheAfterCommit(savedBook);
+        bumpListGenerations(savedBook.getCategory());
+        eventPublisher.publishEvent(BookChangedEvent.saved(savedBook));
         logger.info("✅ Book saved and cached: ID={}, Title={}", savedBook.getId(), savedBook.getTitle());
         
         return savedBook;
     }
 
+    @Override
+    public void insertBatch(List<Book> books) {
+        if (books == null || books.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp timestamp = Timestamp.valueOf(now);
+        jdbcTemplate.batchUpdate(INSERT_BOOK_SQL, books, books.size(), (ps, book) -> {
+            ps.setString(1, book.getTitle());
+            ps.setString(2, book.getAuthor());
+            ps.setString(3, book.getIsbn());
+            ps.setString(4, book.getPublisher());
+            if (book.getPrice() != null) {
+                ps.setBigDecimal(5, book.getPrice());
+            } else {
+                ps.setNull(5, Types.DECIMAL);
+            }
+            ps.setString(6, book.getCover());
+            ps.setString(7, book.getDescription());
+            ps.setString(8, book.getCategory());
+            ps.setBoolean(9, false);
+            ps.setTimestamp(10, timestamp);
+            ps.setTimestamp(11, timestamp);
+        });
+        
+        // 批量插入拿不到 IDENTITY 主键，按唯一的 ISBN 一次查回
+        Map<String, Book> byIsbn = new HashMap<>();
+        for (Book book : books) {
+            isbnBloomFilter.add(book.getIsbn());
+            book.setDeleted(false);
+            book.setCreatedAt(now);
+            book.setUpdatedAt(now);
+            byIsbn.put(book.getIsbn(), book);
+        }
+        String placeholders = String.join(",", Collections.nCopies(byIsbn.size(), "?"));
+        jdbcTemplate.query("SELECT id, isbn FROM books WHERE isbn IN (" + placeholders + ")",
+                rs -> {
+                    Book book = byIsbn.get(rs.getString(2));
+                    if (book != null) {
+                        book.setId(rs.getLong(1));
+                    }
+                },
+                byIsbn.keySet().toArray());
+        
+        // 提交后预热图书缓存并使相关分类的列表页失效
+        Set<String> categories = new LinkedHashSet<>();
+        for (Book book : books) {
+            categories.add(book.getCategory());
+        }
+        AfterCommit.run(() -> redisCacheService.cacheBooks(books));
+        bumpListGenerations(categories.toArray(new String[0]));
+        logger.info("✅ Books batch inserted: count={}", books.size());
+    }
+
+    @Override
+    public List<String> findAllIsbns() {
+        return bookRepository.findAllIsbns();
+    }
+
     @Override
     public void deleteById(Long id) {
         // Delete from database and evict cache
         bookRepository.deleteById(id);
-        redisCacheService.evictBook(id);
+        isbnBloomFilter.markRemoved();
+        // 墓碑阻止删除前读到的行被并发的读回填写回缓存
+        evictAfterCommit(id, RedisCacheService.VERSION_DELETED);
+        bumpListGenerations();
+        eventPublisher.publishEvent(BookChangedEvent.removed(id));
         logger.info("✅ Book deleted: ID={}", id);
     }
 
@@ -86,6 +486,45 @@ public class BookDaoImpl implements BookDao {
         return bookRepository.findByTitleContainingIgnoreCase(keyword, pageable);
     }
 
+    @Override
+    public List<Book> findPageAfterId(String category, Long lastId, boolean ascending, int limit) {
+        Pageable first = PageRequest.of(0, limit);
+        if (ascending) {
+            return bookRepository.findPageAfterIdAsc(category, lastId != null ? lastId : 0L, first);
+        }
+        return bookRepository.findPageAfterIdDesc(category, lastId != null ? lastId : Long.MAX_VALUE, first);
+    }
+
+    @Override
+    public List<Book> findPageAfterPrice(String category, BigDecimal lastPrice, Long lastId, boolean ascending, int limit) {
+        if (lastPrice == null && lastId != null) {
+            return findUnpricedPageAfterId(category, lastId, ascending, limit);
+        }
+        Pageable first = PageRequest.of(0, limit);
+        List<Book> rows;
+        if (lastPrice == null) {
+            rows = ascending ? bookRepository.findFirstPageByPriceAsc(category, first)
+                             : bookRepository.findFirstPageByPriceDesc(category, first);
+        } else {
+            rows = ascending ? bookRepository.findPageAfterPriceAsc(category, lastPrice, lastId, first)
+                             : bookRepository.findPageAfterPriceDesc(category, lastPrice, lastId, first);
+        }
+        // 有价格的书籍已取完，用价格为空的书籍补足这一页
+        if (rows.size() < limit) {
+            rows = new ArrayList<>(rows);
+            rows.addAll(findUnpricedPageAfterId(category, null, ascending, limit - rows.size()));
+        }
+        return rows;
+    }
+
+    private List<Book> findUnpricedPageAfterId(String category, Long lastId, boolean ascending, int limit) {
+        Pageable first = PageRequest.of(0, limit);
+        if (ascending) {
+            return bookRepository.findUnpricedPageAfterIdAsc(category, lastId != null ? lastId : 0L, first);
+        }
+        return bookRepository.findUnpricedPageAfterIdDesc(category, lastId != null ? lastId : Long.MAX_VALUE, first);
+    }
+
     // 软删除相关方法实现
     @Override
     public void softDeleteById(Long id) {
@@ -93,8 +532,11 @@ public class BookDaoImpl implements BookDao {
         if (bookOpt.isPresent()) {
             Book book = bookOpt.get();
             book.markAsDeleted();
-            bookRepository.save(book);
-            redisCacheService.evictBook(id);
+            bookRepository.saveAndFlush(book);
+            isbnBloomFilter.markRemoved();
+            evictAfterCommit(id, RedisCacheService.bookVersion(book));
+            bumpListGenerations(book.getCategory());
+            eventPublisher.publishEvent(BookChangedEvent.removed(id));
             logger.info("✅ Book soft-deleted: ID={}", id);
         } else {
             throw new RuntimeException("Book not found, ID: " + id);
@@ -107,8 +549,11 @@ public class BookDaoImpl implements BookDao {
         if (bookOpt.isPresent()) {
             Book book = bookOpt.get();
             book.markAsActive();
-            bookRepository.save(book);
-            redisCacheService.cacheBook(book);
+            bookRepository.saveAndFlush(book);
+            isbnBloomFilter.add(book.getIsbn());
+            cacheAfterCommit(book);
+            bumpListGenerations(book.getCategory());
+            eventPublisher.publishEvent(BookChangedEvent.saved(book));
             logger.info("✅ Book restored: ID={}", id);
         } else {
             throw new RuntimeException("Book not found, ID: " + id);
@@ -135,13 +580,20 @@ public class BookDaoImpl implements BookDao {
         return bookRepository.findDeletedBooks(pageable);
     }
 
+    // 布隆过滤器判定一定不存在时跳过数据库查询，可能存在时再走精确查询
     @Override
     public boolean existsByIsbnAndNotDeleted(String isbn) {
+        if (!isbnBloomFilter.mightContain(isbn)) {
+            return false;
+        }
         return bookRepository.existsByIsbnAndNotDeleted(isbn);
     }
 
     @Override
     public boolean existsByIsbnAndIdNotAndNotDeleted(String isbn, Long id) {
+        if (!isbnBloomFilter.mightContain(isbn)) {
+            return false;
+        }
         return bookRepository.existsByIsbnAndIdNotAndNotDeleted(isbn, id);
     }
 }
@@ -1,16 +1,31 @@
 package com.bookstore.online_bookstore_backend.dao.impl;
 
+import com.bookstore.online_bookstore_backend.cache.AfterCommit;
+import com.bookstore.online_bookstore_backend.cache.CacheLoadCoalescer;
+import com.bookstore.online_bookstore_backend.cache.NearCacheManager;
+import com.bookstore.online_bookstore_backend.cache.StockReservation;
 import com.bookstore.online_bookstore_backend.dao.BookInventoryDao;
 import com.bookstore.online_bookstore_backend.entity.BookInventory;
+import com.bookstore.online_bookstore_backend.event.InventoryChangedEvent;
 import com.bookstore.online_bookstore_backend.repository.BookInventoryRepository;
+import com.bookstore.online_bookstore_backend.service.InventoryWriteBehindService;
 import com.bookstore.online_bookstore_backend.service.RedisCacheService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Repository
 public class BookInventoryDaoImpl implements BookInventoryDao {
@@ -23,30 +38,69 @@ public class BookInventoryDaoImpl implements BookInventoryDao {
     @Autowired
     private RedisCacheService redisCacheService;
     
+    @Autowired
+    private NearCacheManager nearCacheManager;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private CacheLoadCoalescer cacheLoadCoalescer;
+    
+    @Autowired
+    private InventoryWriteBehindService writeBehindService;
+    
     @Override
     @Transactional(readOnly = true)
     public Optional<BookInventory> findByBookId(Long bookId) {
-        // 1. Try Redis cache first
+        // 1. Try in-process near cache first
+        NearCacheManager.CachedStock nearStock = nearCacheManager.getStock(bookId);
+        if (nearStock != null) {
+            logger.debug("✅ Inventory from near cache: BookID={}, Stock={}", bookId, nearStock.stock());
+            BookInventory inventory = new BookInventory();
+            inventory.setBookId(bookId);
+            inventory.setStock(nearStock.stock());
+            inventory.setVersion(nearStock.version());
+            return Optional.of(inventory);
+        }
+        long stamp = nearCacheManager.inventoryStamp();
+        
+        // 2. Try Redis cache
         Integer cachedStock = redisCacheService.getCachedInventory(bookId);
         if (cachedStock != null) {
-            logger.info("✅ Inventory from Redis: BookID={}, Stock={}", bookId, cachedStock);
+            logger.debug("✅ Inventory from Redis: BookID={}, Stock={}", bookId, cachedStock);
+            nearCacheManager.putInventory(bookId, cachedStock, stamp);
             BookInventory inventory = new BookInventory();
             inventory.setBookId(bookId);
             inventory.setStock(cachedStock);
             return Optional.of(inventory);
         }
         
-        // 2. Cache miss, query database
-        logger.info("⚠️ Redis miss, query DB: BookID={}", bookId);
-        Optional<BookInventory> inventoryOpt = inventoryRepository.findById(bookId);
+        // 3. Cache miss, query database (concurrent misses for the same book share one load)
+        Optional<BookInventory> inventoryOpt = cacheLoadCoalescer.load(NearCacheManager.INVENTORY_CACHE, bookId,
+                () -> {
+                    Integer peerLoaded = redisCacheService.getCachedInventory(bookId);
+                    return peerLoaded != null ? Optional.of(new BookInventory(bookId, peerLoaded, null, null)) : null;
+                },
+                () -> {
+                    logger.debug("⚠️ Redis miss, query DB: BookID={}", bookId);
+                    // 异步落库模式下数据库库存需加上尚未落库的扣减
+                    Optional<BookInventory> loaded = writeBehindService.loadWithPending(bookId, () -> inventoryRepository.findById(bookId));
+                    
+                    // 4. Cache to Redis and near cache if found
+                    loaded.ifPresent(inv -> {
+                        redisCacheService.cacheInventory(bookId, inv.getStock(), inv.getVersion());
+                        nearCacheManager.putInventory(bookId, inv.getStock(), inv.getVersion(), stamp);
+                        logger.debug("📦 Cached to Redis: BookID={}, Stock={}", bookId, inv.getStock());
+                    });
+                    return loaded;
+                });
         
-        // 3. Cache to Redis if found
-        inventoryOpt.ifPresent(inv -> {
-            redisCacheService.cacheInventory(bookId, inv.getStock());
-            logger.info("📦 Cached to Redis: BookID={}, Stock={}", bookId, inv.getStock());
-        });
-        
-        return inventoryOpt;
+        // 合并加载时多个线程拿到的是同一个对象，各自返回副本
+        return inventoryOpt.map(inv -> new BookInventory(inv.getBookId(), inv.getStock(), inv.getVersion(), inv.getUpdatedAt()));
     }
     
     @Override
@@ -58,24 +112,93 @@ public class BookInventoryDaoImpl implements BookInventoryDao {
     @Override
     @Transactional
     public BookInventory save(BookInventory inventory) {
-        // 1. 保存到数据库
-        BookInventory saved = inventoryRepository.save(inventory);
+        // 异步落库模式下已有的库存行不直接覆盖：换算成增量与预留的扣减走同一条日志，
+        // 否则并发扣减的增量之后会叠加到新值上，而 Redis 中已被新值覆盖，两边不再一致
+        if (writeBehindService.isEnabled() && inventory.getBookId() != null) {
+            Long bookId = inventory.getBookId();
+            Optional<BookInventory> current = writeBehindService.loadWithPending(bookId, () -> inventoryRepository.findById(bookId));
+            if (current.isPresent()) {
+                return saveAsDelta(current.get(), inventory.getStock());
+            }
+        }
+        
+        // 1. 保存到数据库（flush 后 version 才是新版本）
+        BookInventory saved = inventoryRepository.saveAndFlush(inventory);
         
-        // 2. 更新 Redis 缓存
-        redisCacheService.cacheInventory(saved.getBookId(), saved.getStock());
+        // 2. 提交后更新 Redis 缓存
+        cacheAfterCommit(saved.getBookId(), saved.getStock(), saved.getVersion());
+        eventPublisher.publishEvent(new InventoryChangedEvent(saved.getBookId(), saved.getStock()));
         logger.info("✅ Inventory saved and cached: BookID={}, Stock={}", saved.getBookId(), saved.getStock());
         
         return saved;
     }
     
+    /**
+     * 提交后按新版本写入 Redis；回滚时删除缓存的库存，由下一次读取按数据库重新加载
+     * 不能在事务中写：回滚后 Redis 中留下未提交的库存，版本不低于数据库中的版本，提交的值会被 CAS 拒绝
+     */
+    private void cacheAfterCommit(Long bookId, Integer stock, Long version) {
+        AfterCommit.run(() -> {
+            redisCacheService.cacheInventory(bookId, stock, version);
+            nearCacheManager.invalidateInventory(bookId);
+        });
+        AfterCommit.onRollback(() -> {
+            redisCacheService.evictInventory(bookId);
+            nearCacheManager.invalidateInventory(bookId);
+        });
+    }
+    
+    /**
+     * 把直接设置的库存换算成相对当前值（数据库 + 尚未落库的变化）的增量，在事务中记入日志，提交后同步增减 Redis
+     * 期间的并发扣减视为发生在设置之后，Redis 与数据库得到相同的结果
+     */
+    private BookInventory saveAsDelta(BookInventory current, int stock) {
+        Long bookId = current.getBookId();
+        int delta = stock - current.getStock();
+        if (delta != 0) {
+            writeBehindService.record(Map.of(bookId, delta));
+            AfterCommit.run(() -> {
+                redisCacheService.updateInventoryCache(bookId, delta);
+                nearCacheManager.invalidateInventory(bookId);
+            });
+        }
+        eventPublisher.publishEvent(new InventoryChangedEvent(bookId, stock));
+        logger.info("✅ Inventory saved (write-behind): BookID={}, Stock={}, Delta={}", bookId, stock, delta);
+        return new BookInventory(bookId, stock, current.getVersion(), current.getUpdatedAt());
+    }
+    
+    @Override
+    @Transactional
+    public void insertBatch(Map<Long, Integer> stocks) {
+        if (stocks == null || stocks.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(stocks.entrySet());
+        jdbcTemplate.batchUpdate("INSERT INTO book_inventory (book_id, stock, version, updated_at) VALUES (?, ?, 0, ?)",
+                entries, entries.size(), (ps, entry) -> {
+                    ps.setLong(1, entry.getKey());
+                    ps.setInt(2, entry.getValue());
+                    ps.setTimestamp(3, now);
+                });
+        AfterCommit.run(() -> redisCacheService.cacheInventories(stocks));
+        logger.info("✅ Inventory batch inserted: count={}", stocks.size());
+    }
+    
     @Override
     @Transactional
     public void deleteByBookId(Long bookId) {
+        writeBehindService.discard(bookId);
+        
         // 1. Delete from database
         inventoryRepository.deleteById(bookId);
         
-        // 2. Evict from Redis
-        redisCacheService.evictInventory(bookId);
+        // 2. Evict from Redis after commit
+        AfterCommit.run(() -> {
+            redisCacheService.evictInventory(bookId);
+            nearCacheManager.invalidateInventory(bookId);
+        });
+        eventPublisher.publishEvent(new InventoryChangedEvent(bookId, 0));
         logger.info("✅ Inventory deleted: BookID={}", bookId);
     }
     
@@ -83,78 +206,177 @@ public class BookInventoryDaoImpl implements BookInventoryDao {
     @Transactional
     public boolean reduceStock(Long bookId, int quantity) {
         logger.info("Attempt to reduce stock: BookID={}, Quantity={}", bookId, quantity);
+        // 与多本书扣减走同一条路径：Redis 脚本检查足够后才扣减，不会先扣成负数再加回来
+        return reduceStocks(Map.of(bookId, quantity)).isEmpty();
+    }
+    
+    @Override
+    @Transactional
+    public Map<Long, Integer> reduceStocks(Map<Long, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) {
+            throw new IllegalArgumentException("扣减的图书不能为空");
+        }
+        quantities.forEach((bookId, quantity) -> {
+            if (bookId == null || quantity == null || quantity <= 0) {
+                throw new IllegalArgumentException("扣减数量必须为正数: BookID=" + bookId);
+            }
+        });
+        logger.info("Attempt to reduce stocks: items={}", quantities.size());
+        
+        // 1. Redis 中一次检查并预留全部库存；有图书未缓存时先回填再试一次
+        StockReservation reservation = redisCacheService.reserveStock(quantities);
+        if (reservation.getStatus() == StockReservation.Status.NOT_CACHED) {
+            cacheFromDatabase(reservation.getUncached());
+            reservation = redisCacheService.reserveStock(quantities);
+        }
+        if (reservation.getStatus() == StockReservation.Status.INSUFFICIENT) {
+            logger.warn("❌ Insufficient stock (Redis): {}", reservation.getShortfalls());
+            return reservation.getShortfalls();
+        }
+        
+        // Redis 已扣减：数据库校验失败或事务回滚时归还（只归还一次）
+        boolean reserved = reservation.isReserved();
+        AtomicBoolean released = new AtomicBoolean(false);
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                redisCacheService.releaseStock(quantities);
+            }
+        };
+        if (reserved) {
+            AfterCommit.onRollback(release);
+        }
+        
+        // 异步落库：Redis 的扣减即为准，记入日志后由后台批量写入数据库，不再加行锁
+        if (reserved && writeBehindService.isEnabled()) {
+            return recordReservation(reservation, quantities, release);
+        }
         
         try {
-            // 1. 先尝试从 Redis 减库存（原子操作）
-            if (redisCacheService.isRedisAvailable()) {
-                boolean success = redisCacheService.updateInventoryCache(bookId, -quantity);
-                if (success) {
-                    // Redis 操作成功，异步更新数据库
-                    Optional<BookInventory> inventoryOpt = inventoryRepository.findByIdWithLock(bookId);
-                    if (inventoryOpt.isPresent()) {
-                        BookInventory inventory = inventoryOpt.get();
-                        if (inventory.reduceStock(quantity)) {
-                            inventoryRepository.save(inventory);
-                            logger.info("✅ Stock reduced successfully (Redis+DB): BookID={}, NewStock={}", bookId, inventory.getStock());
-                            return true;
-                        } else {
-                            // 数据库库存不足，回滚 Redis
-                            redisCacheService.updateInventoryCache(bookId, quantity);
-                            logger.warn("⚠️ DB stock insufficient, Redis rolled back: BookID={}", bookId);
-                            return false;
-                        }
-                    }
+            // 2. 数据库按图书ID顺序加锁后校验并扣减
+            List<BookInventory> inventories = inventoryRepository.findAllByIdWithLock(quantities.keySet());
+            Map<Long, BookInventory> byId = new LinkedHashMap<>();
+            inventories.forEach(inventory -> byId.put(inventory.getBookId(), inventory));
+            Map<Long, Integer> shortfalls = new LinkedHashMap<>();
+            quantities.forEach((bookId, quantity) -> {
+                BookInventory inventory = byId.get(bookId);
+                // 异步落库模式下 Redis 不可用时走这里，数据库库存需加上尚未落库的扣减
+                long stock = inventory == null ? 0 : inventory.getStock() + writeBehindService.pendingDelta(bookId);
+                if (inventory == null) {
+                    shortfalls.put(bookId, 0);
+                } else if (stock < quantity) {
+                    shortfalls.put(bookId, (int) stock);
                 }
+            });
+            if (!shortfalls.isEmpty()) {
+                if (reserved) {
+                    release.run();
+                    // Redis 认为足够而数据库不足，说明缓存中的库存已过期
+                    shortfalls.keySet().forEach(redisCacheService::evictInventory);
+                }
+                logger.warn("❌ Insufficient stock (DB): {}", shortfalls);
+                return shortfalls;
             }
             
-            // 2. Redis 不可用，直接操作数据库
-            logger.warn("⚠️ Redis unavailable, operate DB directly");
-            Optional<BookInventory> inventoryOpt = inventoryRepository.findByIdWithLock(bookId);
-            if (inventoryOpt.isPresent()) {
-                BookInventory inventory = inventoryOpt.get();
-                if (inventory.reduceStock(quantity)) {
-                    inventoryRepository.save(inventory);
-                    logger.info("✅ Stock reduced successfully (DB only): BookID={}, NewStock={}", bookId, inventory.getStock());
-                    return true;
-                } else {
-                    logger.warn("❌ Insufficient stock: BookID={}, CurrentStock={}, RequiredQuantity={}", 
-                               bookId, inventory.getStock(), quantity);
-                    return false;
-                }
-            } else {
-                logger.error("❌ Inventory record not found: BookID={}", bookId);
-                return false;
+            // 已按（含未落库扣减的）库存校验过，这里直接扣减数据库中的值
+            quantities.forEach((bookId, quantity) -> {
+                BookInventory inventory = byId.get(bookId);
+                inventory.setStock(inventory.getStock() - quantity);
+            });
+            inventoryRepository.saveAll(inventories);
+            if (!reserved) {
+                // Redis 中的库存（或熔断期间的本地降级库存）没有同步扣减，提交后删除，由下一次读取重新加载
+                AfterCommit.run(() -> quantities.keySet().forEach(bookId -> {
+                    redisCacheService.evictInventory(bookId);
+                    nearCacheManager.invalidateInventory(bookId);
+                }));
+            }
+            inventories.forEach(inventory ->
+                    eventPublisher.publishEvent(new InventoryChangedEvent(inventory.getBookId(), inventory.getStock())));
+            logger.info("✅ Stocks reduced successfully ({}): items={}", reserved ? "Redis+DB" : "DB only", quantities.size());
+            return shortfalls;
+        } catch (RuntimeException e) {
+            if (reserved) {
+                release.run();
+            }
+            throw e;
+        } finally {
+            for (Long bookId : quantities.keySet()) {
+                nearCacheManager.invalidateInventory(bookId);
             }
-        } catch (Exception e) {
-            logger.error("❌ Failed to reduce stock: BookID={}, Error={}", bookId, e.getMessage(), e);
-            return false;
         }
     }
     
+    /**
+     * 从数据库读取库存写入 Redis（含尚未落库的变化）
+     * 不经过 findByBookId：L1 命中时它直接返回，Redis 中仍然没有库存
+     */
+    private void cacheFromDatabase(List<Long> bookIds) {
+        for (Long bookId : bookIds) {
+            writeBehindService.loadWithPending(bookId, () -> inventoryRepository.findById(bookId))
+                    .ifPresent(inv -> redisCacheService.cacheInventory(bookId, inv.getStock(), inv.getVersion()));
+        }
+    }
+    
+    /**
+     * 异步落库模式下 Redis 预留成功后的处理：扣减在订单事务中记入日志，随事务一起提交（提交后崩溃也不会丢失）或回滚；
+     * 回滚时 Redis 中的预留由 reduceStocks 归还
+     */
+    private Map<Long, Integer> recordReservation(StockReservation reservation, Map<Long, Integer> quantities, Runnable release) {
+        Map<Long, Integer> deltas = new LinkedHashMap<>();
+        quantities.forEach((bookId, quantity) -> deltas.put(bookId, -quantity));
+        try {
+            writeBehindService.record(deltas);
+        } catch (RuntimeException e) {
+            release.run();
+            throw e;
+        }
+        
+        reservation.getStocks().forEach((bookId, stock) -> {
+            nearCacheManager.invalidateInventory(bookId);
+            eventPublisher.publishEvent(new InventoryChangedEvent(bookId, stock));
+        });
+        logger.info("✅ Stocks reduced successfully (Redis, write-behind): items={}", quantities.size());
+        return new LinkedHashMap<>();
+    }
+    
     @Override
     @Transactional
     public void addStock(Long bookId, int quantity) {
         logger.info("Add stock: BookID={}, Quantity={}", bookId, quantity);
         
+        // 异步落库模式下与 save 一样换算成增量记入日志，不直接覆盖后台正在累加的库存行
+        if (writeBehindService.isEnabled()) {
+            Optional<BookInventory> current = writeBehindService.loadWithPending(bookId, () -> inventoryRepository.findById(bookId));
+            if (current.isPresent()) {
+                BookInventory updated = new BookInventory(bookId, current.get().getStock(), null, null);
+                updated.addStock(quantity);
+                saveAsDelta(current.get(), updated.getStock());
+                return;
+            }
+        }
+        
         // 1. 更新数据库
         Optional<BookInventory> inventoryOpt = inventoryRepository.findById(bookId);
         if (inventoryOpt.isPresent()) {
             BookInventory inventory = inventoryOpt.get();
             inventory.addStock(quantity);
-            inventoryRepository.save(inventory);
+            BookInventory saved = inventoryRepository.saveAndFlush(inventory);
             
-            // 2. 更新 Redis 缓存
-            redisCacheService.updateInventoryCache(bookId, quantity);
+            // 2. 提交后更新 Redis 缓存
+            cacheAfterCommit(bookId, saved.getStock(), saved.getVersion());
+            eventPublisher.publishEvent(new InventoryChangedEvent(bookId, inventory.getStock()));
             logger.info("✅ Stock added successfully: BookID={}, NewStock={}", bookId, inventory.getStock());
         } else {
             // 如果不存在，创建新记录
             BookInventory newInventory = new BookInventory();
             newInventory.setBookId(bookId);
             newInventory.setStock(quantity);
-            inventoryRepository.save(newInventory);
-            redisCacheService.cacheInventory(bookId, quantity);
+            BookInventory saved = inventoryRepository.saveAndFlush(newInventory);
+            cacheAfterCommit(bookId, quantity, saved.getVersion());
+            eventPublisher.publishEvent(new InventoryChangedEvent(bookId, quantity));
             logger.info("✅ Inventory record created: BookID={}, Stock={}", bookId, quantity);
         }
+        nearCacheManager.invalidateInventory(bookId);
     }
 }
 
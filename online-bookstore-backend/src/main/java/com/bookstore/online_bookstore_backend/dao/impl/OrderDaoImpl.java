@@ -5,6 +5,7 @@ import com.bookstore.online_bookstore_backend.entity.Order;
 import com.bookstore.online_bookstore_backend.repository.OrderRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
@@ -57,6 +58,18 @@ public class OrderDaoImpl implements OrderDao {
         return orderRepository.findByUserIdAndOrderDateBetweenAndBookNameContainingIgnoreCase(userId, startDate, endDate, bookNameKeyword, pageable);
     }
 
+    @Override
+    public List<Order> findUserOrdersAfter(Long userId, LocalDateTime startDate, LocalDateTime endDate,
+                                           LocalDateTime lastDate, Long lastId, boolean ascending, int limit) {
+        Pageable first = PageRequest.of(0, limit);
+        if (lastDate == null) {
+            return ascending ? orderRepository.findFirstPageByUserIdAsc(userId, startDate, endDate, first)
+                             : orderRepository.findFirstPageByUserIdDesc(userId, startDate, endDate, first);
+        }
+        return ascending ? orderRepository.findPageAfterByUserIdAsc(userId, startDate, endDate, lastDate, lastId, first)
+                         : orderRepository.findPageAfterByUserIdDesc(userId, startDate, endDate, lastDate, lastId, first);
+    }
+
     @Override
     public Page<Order> findAllByOrderByOrderDateDesc(Pageable pageable) {
         return orderRepository.findAllByOrderByOrderDateDesc(pageable);
@@ -2,19 +2,26 @@ package com.bookstore.online_bookstore_backend.dao.impl;
 
 import com.bookstore.online_bookstore_backend.dao.OrderItemDao;
 import com.bookstore.online_bookstore_backend.entity.OrderItem;
+import com.bookstore.online_bookstore_backend.event.BookSoldEvent;
 import com.bookstore.online_bookstore_backend.repository.OrderItemRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Repository
 public class OrderItemDaoImpl implements OrderItemDao {
 
     private final OrderItemRepository orderItemRepository;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public OrderItemDaoImpl(OrderItemRepository orderItemRepository) {
@@ -28,7 +35,17 @@ public class OrderItemDaoImpl implements OrderItemDao {
 
     @Override
     public List<OrderItem> saveAll(List<OrderItem> orderItems) {
-        return orderItemRepository.saveAll(orderItems);
+        List<OrderItem> saved = orderItemRepository.saveAll(orderItems);
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderItem item : saved) {
+            if (item.getBook() != null) {
+                quantities.merge(item.getBook().getId(), item.getQuantity(), Integer::sum);
+            }
+        }
+        if (!quantities.isEmpty()) {
+            eventPublisher.publishEvent(new BookSoldEvent(quantities));
+        }
+        return saved;
     }
 
     @Override
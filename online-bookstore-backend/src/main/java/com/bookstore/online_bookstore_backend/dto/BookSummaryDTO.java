@@ -0,0 +1,32 @@
+package com.bookstore.online_bookstore_backend.dto;
+
+import com.bookstore.online_bookstore_backend.entity.Book;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * 图书列表 DTO（精简投影）
+ * 列表页只展示书名、作者、封面和价格，不读取 TEXT 类型的 description 字段，
+ * 由 JPQL 构造器表达式直接生成，不经过 Book 实体
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookSummaryDTO {
+    
+    private Long id;
+    private String title;
+    private String author;
+    private String publisher;
+    private BigDecimal price;
+    private String cover;
+    private String category;
+
+    public static BookSummaryDTO fromBook(Book book) {
+        return new BookSummaryDTO(book.getId(), book.getTitle(), book.getAuthor(), book.getPublisher(),
+                book.getPrice(), book.getCover(), book.getCategory());
+    }
+}
@@ -2,6 +2,7 @@ package com.bookstore.online_bookstore_backend.dto;
 
 import com.bookstore.online_bookstore_backend.entity.Book;
 import com.bookstore.online_bookstore_backend.entity.BookInventory;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -38,6 +39,10 @@ public class BookWithInventoryDTO {
     // 库存信息（来自 BookInventory）
     private Integer stock;
     
+    // 读取库存时的库存行版本（BookInventory.version），只用于计算 ETag，不返回给前端；未知时为 null
+    @JsonIgnore
+    private Long stockVersion;
+    
     /**
      * 从 Book 实体创建 DTO（不包含库存）
      */
@@ -72,6 +77,7 @@ public class BookWithInventoryDTO {
         BookWithInventoryDTO dto = fromBook(book);
         if (dto != null && inventory != null) {
             dto.setStock(inventory.getStock());
+            dto.setStockVersion(inventory.getVersion());
         }
         return dto;
     }
@@ -86,5 +92,16 @@ public class BookWithInventoryDTO {
         }
         return dto;
     }
+    
+    /**
+     * 从 Book、库存数量和库存行版本创建 DTO
+     */
+    public static BookWithInventoryDTO fromBookAndStock(Book book, Integer stock, Long stockVersion) {
+        BookWithInventoryDTO dto = fromBookAndStock(book, stock);
+        if (dto != null) {
+            dto.setStockVersion(stockVersion);
+        }
+        return dto;
+    }
 }
 
@@ -5,6 +5,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Lob;
 import jakarta.persistence.Table;
 import jakarta.persistence.PrePersist;
@@ -20,7 +21,11 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
 @Entity
-@Table(name = "books") // 指定数据库中的表名为 "books"
+@Table(name = "books", indexes = { // 指定数据库中的表名为 "books"
+        // 键集分页（按价格翻页）使用的复合索引
+        @Index(name = "idx_books_price_id", columnList = "price, id"),
+        @Index(name = "idx_books_category_price_id", columnList = "category, price, id")
+})
 // Lombok 注解 (如果使用了 Lombok)
 @Data // 自动生成 getter, setter, toString, equals, hashCode
 @NoArgsConstructor // 自动生成无参构造函数
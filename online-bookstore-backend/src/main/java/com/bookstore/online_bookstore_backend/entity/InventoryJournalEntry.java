@@ -0,0 +1,43 @@
+package com.bookstore.online_bookstore_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 库存异步落库（write-behind）尚未写入 book_inventory 的库存变化
+ * 与扣减所在的订单事务一起插入（只插入，不锁库存行），事务提交即持久；
+ * 写入节点的后台线程把它们按图书合并后批量 UPDATE 到 book_inventory，并在同一事务中删除
+ * 所有节点读取库存时都加上这里的全部行，因此重新加载库存不会漏掉其他节点尚未落库的扣减
+ */
+@Entity
+@Table(name = "inventory_journal", indexes = {
+        // 读取库存时按图书汇总尚未落库的变化
+        @Index(name = "idx_inventory_journal_book", columnList = "book_id"),
+        // 各节点按写入顺序取出自己的行落库
+        @Index(name = "idx_inventory_journal_node_id", columnList = "node_id, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryJournalEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "node_id", nullable = false, length = 64)
+    private String nodeId;
+
+    @Column(name = "book_id", nullable = false)
+    private Long bookId;
+
+    @Column(nullable = false)
+    private Integer delta; // 库存变化量，扣减为负数
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
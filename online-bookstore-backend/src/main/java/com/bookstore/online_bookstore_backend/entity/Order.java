@@ -13,7 +13,10 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "orders") // 确保表名与数据库中一致
+@Table(name = "orders", indexes = { // 确保表名与数据库中一致
+        // 用户订单键集分页使用的复合索引
+        @Index(name = "idx_orders_user_date_id", columnList = "user_id, order_date, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,56 @@
+package com.bookstore.online_bookstore_backend.event;
+
+import com.bookstore.online_bookstore_backend.entity.Book;
+
+/**
+ * 图书目录变更事件
+ * 由 BookDaoImpl 在写操作后发布；其他节点的修改由 PeerChangeLoader 在后台加载后以 PEER_CHANGED 类型发布，
+ * 供进程内的索引结构（搜索索引等）增量更新
+ */
+public class BookChangedEvent {
+
+    public enum Type {
+        SAVED,        // 新增/更新/恢复，book 为最新数据
+        REMOVED,      // 软删除或物理删除，book 为 null
+        PEER_CHANGED, // 其他节点修改了该图书，book 为重新加载的最新数据，null 表示已不存在
+        RELOADED      // 批量导入等整体变更，bookId 与 book 均为 null，需要全量重建
+    }
+
+    private final Type type;
+    private final Long bookId;
+    private final Book book;
+
+    private BookChangedEvent(Type type, Long bookId, Book book) {
+        this.type = type;
+        this.bookId = bookId;
+        this.book = book;
+    }
+
+    public static BookChangedEvent saved(Book book) {
+        return new BookChangedEvent(Type.SAVED, book.getId(), book);
+    }
+
+    public static BookChangedEvent removed(Long bookId) {
+        return new BookChangedEvent(Type.REMOVED, bookId, null);
+    }
+
+    public static BookChangedEvent peerChanged(Long bookId, Book book) {
+        return new BookChangedEvent(Type.PEER_CHANGED, bookId, book);
+    }
+
+    public static BookChangedEvent reloaded() {
+        return new BookChangedEvent(Type.RELOADED, null, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+}
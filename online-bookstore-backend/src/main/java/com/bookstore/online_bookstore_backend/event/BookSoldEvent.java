@@ -0,0 +1,21 @@
+package com.bookstore.online_bookstore_backend.event;
+
+import java.util.Map;
+
+/**
+ * 图书售出事件
+ * 由 OrderItemDaoImpl 在保存订单项后发布（事务提交后才会被监听器处理），
+ * 供按销量加权的进程内结构（搜索建议等）更新热度
+ */
+public class BookSoldEvent {
+
+    private final Map<Long, Integer> quantities; // 图书ID -> 本次售出数量
+
+    public BookSoldEvent(Map<Long, Integer> quantities) {
+        this.quantities = quantities;
+    }
+
+    public Map<Long, Integer> getQuantities() {
+        return quantities;
+    }
+}
@@ -0,0 +1,25 @@
+package com.bookstore.online_bookstore_backend.event;
+
+/**
+ * 库存变更事件
+ * 由 BookInventoryDaoImpl 在库存写入后发布；其他节点的库存变更由 PeerChangeLoader 在后台加载后发布，
+ * 供进程内的索引结构（分面筛选的有货位图等）增量更新
+ */
+public class InventoryChangedEvent {
+
+    private final Long bookId;
+    private final Integer stock; // 变更后的库存
+
+    public InventoryChangedEvent(Long bookId, Integer stock) {
+        this.bookId = bookId;
+        this.stock = stock;
+    }
+
+    public Long getBookId() {
+        return bookId;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+}
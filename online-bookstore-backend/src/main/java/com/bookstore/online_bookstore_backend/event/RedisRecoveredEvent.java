@@ -0,0 +1,21 @@
+package com.bookstore.online_bookstore_backend.event;
+
+import java.time.LocalDateTime;
+
+/**
+ * Redis 恢复事件
+ * 由 RedisCircuitBreaker 在熔断结束（HALF_OPEN -> CLOSED）时发布，
+ * RedisCacheService 据此清理熔断期间没能写进 Redis 的变更，并作废本地降级缓存
+ */
+public class RedisRecoveredEvent {
+
+    private final LocalDateTime openedAt; // 本次熔断开始的时间
+
+    public RedisRecoveredEvent(LocalDateTime openedAt) {
+        this.openedAt = openedAt;
+    }
+
+    public LocalDateTime getOpenedAt() {
+        return openedAt;
+    }
+}
@@ -0,0 +1,55 @@
+package com.bookstore.online_bookstore_backend.payload.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 键集分页（seek）游标
+ * 记录上一页最后一行的排序字段值和 id，对客户端是不透明的 base64url 字符串
+ * 编码内容: {sortField}|{asc|desc}|{id}|{value}
+ */
+@Getter
+@AllArgsConstructor
+public class PageCursor {
+
+    // 每页最大条数（多取的一行不计入）
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private final String sortField;
+    private final boolean ascending;
+    private final Long lastId;
+    private final String lastValue;
+
+    public String encode() {
+        String raw = sortField + "|" + (ascending ? "asc" : "desc") + "|" + lastId + "|" + (lastValue == null ? "" : lastValue);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 校验每页大小，不在 1..MAX_PAGE_SIZE 之间时抛出 IllegalArgumentException
+     */
+    public static void checkPageSize(int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("每页大小必须在 1 到 " + MAX_PAGE_SIZE + " 之间");
+        }
+    }
+
+    /**
+     * 解析游标，格式不合法时抛出 IllegalArgumentException
+     */
+    public static PageCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 4);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+            return new PageCursor(parts[0], "asc".equals(parts[1]), Long.valueOf(parts[2]), parts[3].isEmpty() ? null : parts[3]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的分页游标", e);
+        }
+    }
+}
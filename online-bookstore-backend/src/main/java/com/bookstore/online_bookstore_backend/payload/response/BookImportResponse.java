@@ -0,0 +1,22 @@
+package com.bookstore.online_bookstore_backend.payload.response;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 图书批量导入结果
+ */
+@Data
+@NoArgsConstructor
+public class BookImportResponse {
+    private long totalRows;        // 读取到的数据行数（不含表头）
+    private long imported;         // 成功导入的图书数
+    private long duplicates;       // ISBN 已存在或文件内重复而跳过的行数
+    private long invalid;          // 字段校验失败的行数
+    private long failed;           // 逐行重试后仍因数据库错误写入失败的行数
+    private List<String> errors = new ArrayList<>(); // 前若干条错误信息
+    private long elapsedMs;
+}
@@ -0,0 +1,24 @@
+package com.bookstore.online_bookstore_backend.payload.response;
+
+import com.bookstore.online_bookstore_backend.dto.BookSummaryDTO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分面筛选响应：当前页图书 + 各维度取值计数（维度 -> 取值 -> 数量）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetQueryResponse {
+    private List<BookSummaryDTO> content;
+    private long totalElements;
+    private int page;
+    private int size;
+    private Map<String, Map<String, Long>> facets;
+    private long tookMicros; // 索引内筛选耗时（不含图书数据加载）
+}
@@ -8,6 +8,8 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import jakarta.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -19,5 +21,12 @@ public interface BookInventoryRepository extends JpaRepository<BookInventory, Lo
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT bi FROM BookInventory bi WHERE bi.bookId = :bookId")
     Optional<BookInventory> findByIdWithLock(@Param("bookId") Long bookId);
+    
+    /**
+     * 批量加悲观锁，按图书ID顺序加锁，避免多个订单交叉加锁造成死锁
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT bi FROM BookInventory bi WHERE bi.bookId IN :bookIds ORDER BY bi.bookId")
+    List<BookInventory> findAllByIdWithLock(@Param("bookIds") Collection<Long> bookIds);
 }
 
@@ -1,15 +1,23 @@
 package com.bookstore.online_bookstore_backend.repository; // 确保这是您正确的包名
 
+import com.bookstore.online_bookstore_backend.dto.BookSummaryDTO;
 import com.bookstore.online_bookstore_backend.entity.Book; // 导入您的Book实体
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List; // 如果您需要返回列表的方法
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 
 @Repository // 表明这是一个 Spring 管理的 Repository Bean
 public interface BookRepository extends JpaRepository<Book, Long> {
@@ -26,14 +34,95 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     @Query("SELECT b FROM Book b WHERE b.id = :id AND b.deleted = false")
     Optional<Book> findById(@Param("id") Long id);
 
+    // 按ID批量查找，只返回未删除的书籍（单条 IN 查询）
+    @Query("SELECT b FROM Book b WHERE b.id IN :ids AND b.deleted = false")
+    List<Book> findAllActiveByIdIn(@Param("ids") Collection<Long> ids);
+
+    // 构建内存检索索引用：只取参与检索的字段，不加载 description
+    @Query("SELECT b.id, b.title, b.author, b.publisher, b.isbn FROM Book b WHERE b.deleted = false")
+    List<Object[]> findActiveSearchFields();
+
+    // 批量导入前预加载已占用的 ISBN（包含已删除的书籍，isbn 列有唯一约束）
+    @Query("SELECT b.isbn FROM Book b WHERE b.isbn IS NOT NULL")
+    List<String> findAllIsbns();
+
+    // 构建分面索引用：分面字段 + 库存，不加载 description
+    @Query("SELECT b.id, b.category, b.publisher, b.author, b.price, i.stock " +
+           "FROM Book b LEFT JOIN BookInventory i ON i.bookId = b.id WHERE b.deleted = false")
+    List<Object[]> findActiveFacetFields();
+
+    // 构建 ISBN 布隆过滤器用：只取在售图书的 ISBN
+    @Query("SELECT b.isbn FROM Book b WHERE b.isbn IS NOT NULL AND b.deleted = false")
+    List<String> findActiveIsbns();
+
+    // 全量导出：只进游标逐行读取（MySQL 驱动在 fetchSize = Integer.MIN_VALUE 时按行流式返回），
+    // 每行为 [Book, 库存]，调用方需在事务内消费并及时 detach
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT b, i.stock FROM Book b LEFT JOIN BookInventory i ON i.bookId = b.id WHERE b.deleted = false ORDER BY b.id")
+    Stream<Object[]> streamActiveWithStock();
+
     // 按分类查找，只返回未删除的书籍
     @Query("SELECT b FROM Book b WHERE b.category = :category AND b.deleted = false")
     Page<Book> findByCategory(@Param("category") String category, Pageable pageable);
 
+    // 列表页精简投影：不读取 description 字段
+    @Query(value = "SELECT new com.bookstore.online_bookstore_backend.dto.BookSummaryDTO(" +
+                   "b.id, b.title, b.author, b.publisher, b.price, b.cover, b.category) " +
+                   "FROM Book b WHERE b.deleted = false",
+           countQuery = "SELECT COUNT(b) FROM Book b WHERE b.deleted = false")
+    Page<BookSummaryDTO> findAllSummaries(Pageable pageable);
+
+    // 按分类的列表页精简投影
+    @Query(value = "SELECT new com.bookstore.online_bookstore_backend.dto.BookSummaryDTO(" +
+                   "b.id, b.title, b.author, b.publisher, b.price, b.cover, b.category) " +
+                   "FROM Book b WHERE b.category = :category AND b.deleted = false",
+           countQuery = "SELECT COUNT(b) FROM Book b WHERE b.category = :category AND b.deleted = false")
+    Page<BookSummaryDTO> findSummariesByCategory(@Param("category") String category, Pageable pageable);
+
     // 按书名模糊查找，只返回未删除的书籍
     @Query("SELECT b FROM Book b WHERE LOWER(b.title) LIKE LOWER(CONCAT('%', :keyword, '%')) AND b.deleted = false")
     Page<Book> findByTitleContainingIgnoreCase(@Param("keyword") String keyword, Pageable pageable);
 
+    // 键集分页（seek）：按 id 翻页，不做 COUNT，category 为 null 时不过滤分类
+    @Query("SELECT b FROM Book b WHERE b.deleted = false AND (:category IS NULL OR b.category = :category) " +
+           "AND b.id > :lastId ORDER BY b.id ASC")
+    List<Book> findPageAfterIdAsc(@Param("category") String category, @Param("lastId") Long lastId, Pageable limit);
+
+    @Query("SELECT b FROM Book b WHERE b.deleted = false AND (:category IS NULL OR b.category = :category) " +
+           "AND b.id < :lastId ORDER BY b.id DESC")
+    List<Book> findPageAfterIdDesc(@Param("category") String category, @Param("lastId") Long lastId, Pageable limit);
+
+    // 键集分页（seek）：按 (price, id) 翻页，价格为空的书籍排在最后，由 findUnpricedPageAfterId* 接着翻页
+    @Query("SELECT b FROM Book b WHERE b.deleted = false AND (:category IS NULL OR b.category = :category) " +
+           "AND b.price IS NOT NULL ORDER BY b.price ASC, b.id ASC")
+    List<Book> findFirstPageByPriceAsc(@Param("category") String category, Pageable limit);
+
+    @Query("SELECT b FROM Book b WHERE b.deleted = false AND (:category IS NULL OR b.category = :category) " +
+           "AND (b.price > :lastPrice OR (b.price = :lastPrice AND b.id > :lastId)) ORDER BY b.price ASC, b.id ASC")
+    List<Book> findPageAfterPriceAsc(@Param("category") String category, @Param("lastPrice") BigDecimal lastPrice,
+                                     @Param("lastId") Long lastId, Pageable limit);
+
+    @Query("SELECT b FROM Book b WHERE b.deleted = false AND (:category IS NULL OR b.category = :category) " +
+           "AND b.price IS NOT NULL ORDER BY b.price DESC, b.id DESC")
+    List<Book> findFirstPageByPriceDesc(@Param("category") String category, Pageable limit);
+
+    @Query("SELECT b FROM Book b WHERE b.deleted = false AND (:category IS NULL OR b.category = :category) " +
+           "AND (b.price < :lastPrice OR (b.price = :lastPrice AND b.id < :lastId)) ORDER BY b.price DESC, b.id DESC")
+    List<Book> findPageAfterPriceDesc(@Param("category") String category, @Param("lastPrice") BigDecimal lastPrice,
+                                      @Param("lastId") Long lastId, Pageable limit);
+
+    @Query("SELECT b FROM Book b WHERE b.deleted = false AND (:category IS NULL OR b.category = :category) " +
+           "AND b.price IS NULL AND b.id > :lastId ORDER BY b.id ASC")
+    List<Book> findUnpricedPageAfterIdAsc(@Param("category") String category, @Param("lastId") Long lastId, Pageable limit);
+
+    @Query("SELECT b FROM Book b WHERE b.deleted = false AND (:category IS NULL OR b.category = :category) " +
+           "AND b.price IS NULL AND b.id < :lastId ORDER BY b.id DESC")
+    List<Book> findUnpricedPageAfterIdDesc(@Param("category") String category, @Param("lastId") Long lastId, Pageable limit);
+
     // 管理员专用：查找所有书籍（包括已删除的）
     @Query("SELECT b FROM Book b")
     Page<Book> findAllIncludingDeleted(Pageable pageable);
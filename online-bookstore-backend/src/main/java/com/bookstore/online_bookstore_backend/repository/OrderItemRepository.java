@@ -26,6 +26,10 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     // 根据订单ID删除订单项
     void deleteByOrderId(Long orderId);
 
+    // 每本书的累计销量（图书ID, 数量），用于搜索建议的热度权重
+    @Query("SELECT oi.book.id, SUM(oi.quantity) FROM OrderItem oi GROUP BY oi.book.id")
+    List<Object[]> sumQuantityGroupByBook();
+
     @Query("SELECT new com.bookstore.online_bookstore_backend.payload.response.BookSalesStatsDto(oi.book.id, oi.book.title, oi.book.author, oi.book.cover, SUM(oi.quantity), SUM(oi.priceAtPurchase * oi.quantity)) " +
            "FROM OrderItem oi JOIN oi.order o " +
            "WHERE o.orderDate BETWEEN :startDate AND :endDate " +
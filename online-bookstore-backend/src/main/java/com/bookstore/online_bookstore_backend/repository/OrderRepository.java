@@ -31,6 +31,35 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
             @Param("bookNameKeyword") String bookNameKeyword, 
             Pageable pageable);
 
+    // Keyset (seek) pagination on (orderDate, id); date bounds are optional
+    @Query("SELECT o FROM Order o WHERE o.userId = :userId " +
+           "AND (:startDate IS NULL OR o.orderDate >= :startDate) AND (:endDate IS NULL OR o.orderDate <= :endDate) " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findFirstPageByUserIdDesc(@Param("userId") Long userId, @Param("startDate") LocalDateTime startDate,
+                                          @Param("endDate") LocalDateTime endDate, Pageable limit);
+
+    @Query("SELECT o FROM Order o WHERE o.userId = :userId " +
+           "AND (:startDate IS NULL OR o.orderDate >= :startDate) AND (:endDate IS NULL OR o.orderDate <= :endDate) " +
+           "AND (o.orderDate < :lastDate OR (o.orderDate = :lastDate AND o.id < :lastId)) " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<Order> findPageAfterByUserIdDesc(@Param("userId") Long userId, @Param("startDate") LocalDateTime startDate,
+                                          @Param("endDate") LocalDateTime endDate, @Param("lastDate") LocalDateTime lastDate,
+                                          @Param("lastId") Long lastId, Pageable limit);
+
+    @Query("SELECT o FROM Order o WHERE o.userId = :userId " +
+           "AND (:startDate IS NULL OR o.orderDate >= :startDate) AND (:endDate IS NULL OR o.orderDate <= :endDate) " +
+           "ORDER BY o.orderDate ASC, o.id ASC")
+    List<Order> findFirstPageByUserIdAsc(@Param("userId") Long userId, @Param("startDate") LocalDateTime startDate,
+                                         @Param("endDate") LocalDateTime endDate, Pageable limit);
+
+    @Query("SELECT o FROM Order o WHERE o.userId = :userId " +
+           "AND (:startDate IS NULL OR o.orderDate >= :startDate) AND (:endDate IS NULL OR o.orderDate <= :endDate) " +
+           "AND (o.orderDate > :lastDate OR (o.orderDate = :lastDate AND o.id > :lastId)) " +
+           "ORDER BY o.orderDate ASC, o.id ASC")
+    List<Order> findPageAfterByUserIdAsc(@Param("userId") Long userId, @Param("startDate") LocalDateTime startDate,
+                                         @Param("endDate") LocalDateTime endDate, @Param("lastDate") LocalDateTime lastDate,
+                                         @Param("lastId") Long lastId, Pageable limit);
+
     // Admin-specific queries (can filter by all, date range, book name, or combinations)
     Page<Order> findAllByOrderByOrderDateDesc(Pageable pageable);
     Page<Order> findAllByOrderDateBetweenOrderByOrderDateDesc(LocalDateTime startDate, LocalDateTime endDate, Pageable pageable);
@@ -0,0 +1,523 @@
+package com.bookstore.online_bookstore_backend.search;
+
+import com.bookstore.online_bookstore_backend.entity.Book;
+import com.bookstore.online_bookstore_backend.event.BookChangedEvent;
+import com.bookstore.online_bookstore_backend.event.InventoryChangedEvent;
+import com.bookstore.online_bookstore_backend.repository.BookRepository;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * 图书分面筛选引擎（内存压缩位图）
+ * 对在售图书按分类、出版社、作者、价格区间各建一组 RoaringBitmap 倒排表，另有一个有货位图，
+ * 同一维度内多个取值为 OR，不同维度之间为 AND；分面计数采用"排除本维度条件"的口径，
+ * 便于前端在已选条件下继续展示本维度的其他选项
+ * 启动时全量构建，之后通过 {@link BookChangedEvent} 与 {@link InventoryChangedEvent} 增量维护；
+ * 全量重建读取快照之后被增量更新过的图书，按更新后的状态补回，不会被快照中的旧值覆盖
+ * 位图以 int 存储图书ID，超出 int 范围的ID不进入索引
+ */
+@Component
+public class BookFacetIndex implements BookIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookFacetIndex.class);
+
+    public static final String CATEGORY = "category";
+    public static final String PUBLISHER = "publisher";
+    public static final String AUTHOR = "author";
+    public static final String PRICE = "price";
+    public static final String IN_STOCK = "inStock";
+
+    private final Map<String, RoaringBitmap> byCategory = new HashMap<>();
+    private final Map<String, RoaringBitmap> byPublisher = new HashMap<>();
+    private final Map<String, RoaringBitmap> byAuthor = new HashMap<>();
+    private final RoaringBitmap[] byPriceBucket;
+    private final String[] priceBucketLabels;
+    private final long[] priceBucketBounds; // 各区间下界（分），升序
+    private final RoaringBitmap inStock = new RoaringBitmap();
+    private final RoaringBitmap all = new RoaringBitmap();
+    private final Map<Integer, DocFacets> docs = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready = false;
+    // 全量重建期间被增量更新过的图书（持有写锁时读写），不在重建时为 null
+    private Set<Integer> touched;
+    // 同一时刻只进行一次全量重建
+    private final Object rebuildLock = new Object();
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Value("${bookstore.facet.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bookstore.facet.max-values:20}")
+    private int maxFacetValues;
+
+    /**
+     * 单本图书的分面取值，删除/更新时用于从旧的倒排表中移除
+     */
+    private record DocFacets(String category, String publisher, String author, long priceCents, boolean inStock) {
+    }
+
+    /**
+     * 筛选条件：集合为空表示该维度不过滤；restrictTo 为关键词检索等外部条件的命中集合，null 表示不限制
+     */
+    public record Query(Collection<String> categories, Collection<String> publishers, Collection<String> authors,
+                        BigDecimal minPrice, BigDecimal maxPrice, boolean inStockOnly, Collection<Long> restrictTo) {
+    }
+
+    /**
+     * 筛选结果：total 为命中总数，ids 为当前页图书ID，facets 为各维度取值的计数
+     */
+    public record Result(long total, List<Long> ids, Map<String, Map<String, Long>> facets) {
+    }
+
+    public BookFacetIndex(@Value("${bookstore.facet.price-buckets:0,20,50,100,200}") long[] priceBuckets) {
+        long[] bounds = Arrays.stream(priceBuckets).sorted().distinct().toArray();
+        if (bounds.length == 0 || bounds[0] != 0) {
+            long[] withZero = new long[bounds.length + 1];
+            System.arraycopy(bounds, 0, withZero, 1, bounds.length);
+            bounds = withZero;
+        }
+        this.priceBucketBounds = new long[bounds.length];
+        this.priceBucketLabels = new String[bounds.length];
+        this.byPriceBucket = new RoaringBitmap[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            priceBucketBounds[i] = bounds[i] * 100;
+            priceBucketLabels[i] = i + 1 < bounds.length ? bounds[i] + "-" + bounds[i + 1] : bounds[i] + "+";
+            byPriceBucket[i] = new RoaringBitmap();
+        }
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (rebuildLock) {
+            rebuildFromDatabase();
+        }
+    }
+
+    private void rebuildFromDatabase() {
+        long start = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            touched = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        List<Object[]> rows;
+        try {
+            rows = bookRepository.findActiveFacetFields();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                touched = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            // 读取快照之后的修改已作用在当前结构上，清空前先取出这些图书的最新状态
+            Map<Integer, DocFacets> latest = new HashMap<>();
+            for (Integer docId : touched) {
+                latest.put(docId, docs.get(docId));
+            }
+            replayed = latest.size();
+            touched = null;
+
+            byCategory.clear();
+            byPublisher.clear();
+            byAuthor.clear();
+            for (RoaringBitmap bucket : byPriceBucket) {
+                bucket.clear();
+            }
+            inStock.clear();
+            all.clear();
+            docs.clear();
+            for (Object[] row : rows) {
+                Integer stock = (Integer) row[5];
+                indexInternal((Long) row[0], (String) row[1], (String) row[2], (String) row[3], (BigDecimal) row[4],
+                        stock != null && stock > 0);
+            }
+            for (Map.Entry<Integer, DocFacets> e : latest.entrySet()) {
+                removeInternal(e.getKey());
+                if (e.getValue() != null) {
+                    addInternal(e.getKey(), e.getValue());
+                }
+            }
+            for (RoaringBitmap bitmap : allBitmaps()) {
+                bitmap.runOptimize();
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("🧮 Book facet index built: docs={}, categories={}, publishers={}, authors={}, replayed={}, took={}ms",
+                docs.size(), byCategory.size(), byPublisher.size(), byAuthor.size(), replayed, System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        apply(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if (!enabled || event.getBookId() == null) {
+            return;
+        }
+        if (event.getStock() != null) {
+            setInStock(event.getBookId(), event.getStock() > 0);
+        }
+    }
+
+    public void indexBook(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        if (Boolean.TRUE.equals(book.getDeleted())) {
+            remove(book.getId());
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            DocFacets old = docs.get(toDocId(book.getId()));
+            indexInternal(book.getId(), book.getCategory(), book.getPublisher(), book.getAuthor(), book.getPrice(),
+                    old != null && old.inStock());
+            touch(toDocId(book.getId()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(toDocId(bookId));
+            touch(toDocId(bookId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void setInStock(Long bookId, boolean available) {
+        int docId = toDocId(bookId);
+        if (docId < 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            DocFacets old = docs.get(docId);
+            if (old == null) {
+                return;
+            }
+            touch(docId);
+            if (available) {
+                inStock.add(docId);
+            } else {
+                inStock.remove(docId);
+            }
+            docs.put(docId, new DocFacets(old.category(), old.publisher(), old.author(), old.priceCents(), available));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void indexInternal(Long bookId, String category, String publisher, String author, BigDecimal price, boolean available) {
+        int docId = toDocId(bookId);
+        if (docId < 0) {
+            return;
+        }
+        removeInternal(docId);
+        long priceCents = price != null ? price.setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValue() : -1;
+        addInternal(docId, new DocFacets(category, publisher, author, priceCents, available));
+    }
+
+    private void addInternal(int docId, DocFacets facets) {
+        addTo(byCategory, facets.category(), docId);
+        addTo(byPublisher, facets.publisher(), docId);
+        addTo(byAuthor, facets.author(), docId);
+        if (facets.priceCents() >= 0) {
+            byPriceBucket[bucketOf(facets.priceCents())].add(docId);
+        }
+        if (facets.inStock()) {
+            inStock.add(docId);
+        }
+        all.add(docId);
+        docs.put(docId, facets);
+    }
+
+    private void touch(int docId) {
+        if (touched != null && docId >= 0) {
+            touched.add(docId);
+        }
+    }
+
+    private void removeInternal(int docId) {
+        DocFacets old = docs.remove(docId);
+        if (old == null) {
+            return;
+        }
+        removeFrom(byCategory, old.category(), docId);
+        removeFrom(byPublisher, old.publisher(), docId);
+        removeFrom(byAuthor, old.author(), docId);
+        if (old.priceCents() >= 0) {
+            byPriceBucket[bucketOf(old.priceCents())].remove(docId);
+        }
+        inStock.remove(docId);
+        all.remove(docId);
+    }
+
+    // ==================== 查询 ====================
+
+    /**
+     * 执行筛选并计算分面
+     * @param sortField id 或 price（price 为空的图书排在最后）
+     */
+    public Result query(Query query, String sortField, boolean ascending, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            RoaringBitmap categoryFilter = union(byCategory, query.categories());
+            RoaringBitmap publisherFilter = union(byPublisher, query.publishers());
+            RoaringBitmap authorFilter = union(byAuthor, query.authors());
+            RoaringBitmap priceFilter = priceRange(query.minPrice(), query.maxPrice());
+            RoaringBitmap stockFilter = query.inStockOnly() ? inStock : null;
+            RoaringBitmap restrictFilter = null;
+            if (query.restrictTo() != null) {
+                restrictFilter = new RoaringBitmap();
+                for (Long id : query.restrictTo()) {
+                    int docId = toDocId(id);
+                    if (docId >= 0) {
+                        restrictFilter.add(docId);
+                    }
+                }
+            }
+
+            RoaringBitmap matched = and(all, categoryFilter, publisherFilter, authorFilter, priceFilter, stockFilter, restrictFilter);
+
+            Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+            facets.put(CATEGORY, countValues(byCategory,
+                    and(all, publisherFilter, authorFilter, priceFilter, stockFilter, restrictFilter), DocFacets::category));
+            facets.put(PUBLISHER, countValues(byPublisher,
+                    and(all, categoryFilter, authorFilter, priceFilter, stockFilter, restrictFilter), DocFacets::publisher));
+            facets.put(AUTHOR, countValues(byAuthor,
+                    and(all, categoryFilter, publisherFilter, priceFilter, stockFilter, restrictFilter), DocFacets::author));
+            RoaringBitmap priceBase = and(all, categoryFilter, publisherFilter, authorFilter, stockFilter, restrictFilter);
+            Map<String, Long> priceCounts = new LinkedHashMap<>();
+            for (int i = 0; i < byPriceBucket.length; i++) {
+                long count = RoaringBitmap.andCardinality(byPriceBucket[i], priceBase);
+                if (count > 0) {
+                    priceCounts.put(priceBucketLabels[i], count);
+                }
+            }
+            facets.put(PRICE, priceCounts);
+            RoaringBitmap stockBase = and(all, categoryFilter, publisherFilter, authorFilter, priceFilter, restrictFilter);
+            long available = RoaringBitmap.andCardinality(inStock, stockBase);
+            Map<String, Long> stockCounts = new LinkedHashMap<>();
+            stockCounts.put("true", available);
+            stockCounts.put("false", stockBase.getLongCardinality() - available);
+            facets.put(IN_STOCK, stockCounts);
+
+            return new Result(matched.getLongCardinality(), page(matched, sortField, ascending, offset, limit), facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Long> page(RoaringBitmap matched, String sortField, boolean ascending, int offset, int limit) {
+        List<Long> ids = new ArrayList<>(Math.max(0, Math.min(limit, matched.getCardinality() - offset)));
+        if (!"price".equals(sortField)) {
+            IntIterator it = ascending ? matched.getIntIterator() : matched.getReverseIntIterator();
+            int skipped = 0;
+            while (it.hasNext() && ids.size() < limit) {
+                int docId = it.next();
+                if (skipped++ >= offset) {
+                    ids.add((long) docId);
+                }
+            }
+            return ids;
+        }
+        // 按价格排序：在命中集合上排序（命中集合通常已被筛选条件大幅缩小）
+        int[] docIds = matched.toArray();
+        long[] keys = new long[docIds.length];
+        for (int i = 0; i < docIds.length; i++) {
+            long cents = docs.get(docIds[i]).priceCents();
+            long sortKey = cents < 0 ? Long.MAX_VALUE / 2 : (ascending ? cents : -cents);
+            keys[i] = sortKey;
+        }
+        Integer[] order = new Integer[docIds.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> keys[a] != keys[b] ? Long.compare(keys[a], keys[b]) : Integer.compare(docIds[a], docIds[b]));
+        for (int i = offset; i < order.length && ids.size() < limit; i++) {
+            ids.add((long) docIds[order[i]]);
+        }
+        return ids;
+    }
+
+    /**
+     * 价格区间筛选：完全落在区间内的价格桶直接并入，边界桶逐个比较价格
+     */
+    private RoaringBitmap priceRange(BigDecimal min, BigDecimal max) {
+        if (min == null && max == null) {
+            return null;
+        }
+        long minCents = min != null ? min.movePointRight(2).setScale(0, RoundingMode.CEILING).longValue() : 0;
+        long maxCents = max != null ? max.movePointRight(2).setScale(0, RoundingMode.FLOOR).longValue() : Long.MAX_VALUE;
+        RoaringBitmap result = new RoaringBitmap();
+        for (int i = 0; i < byPriceBucket.length; i++) {
+            long lower = priceBucketBounds[i];
+            long upper = i + 1 < priceBucketBounds.length ? priceBucketBounds[i + 1] - 1 : Long.MAX_VALUE;
+            if (upper < minCents || lower > maxCents) {
+                continue;
+            }
+            if (lower >= minCents && upper <= maxCents) {
+                result.or(byPriceBucket[i]);
+            } else {
+                IntIterator it = byPriceBucket[i].getIntIterator();
+                while (it.hasNext()) {
+                    int docId = it.next();
+                    long cents = docs.get(docId).priceCents();
+                    if (cents >= minCents && cents <= maxCents) {
+                        result.add(docId);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 统计各取值在 base 中的数量，只返回数量最多的前若干个
+     * base 较小时直接遍历文档累加，否则逐个取值求交集基数
+     */
+    private Map<String, Long> countValues(Map<String, RoaringBitmap> index, RoaringBitmap base,
+                                          Function<DocFacets, String> valueOf) {
+        Map<String, Long> counts = new HashMap<>();
+        if (base.getCardinality() < index.size()) {
+            IntIterator it = base.getIntIterator();
+            while (it.hasNext()) {
+                String value = valueOf.apply(docs.get(it.next()));
+                if (value != null) {
+                    counts.merge(value, 1L, Long::sum);
+                }
+            }
+        } else {
+            for (Map.Entry<String, RoaringBitmap> e : index.entrySet()) {
+                long count = RoaringBitmap.andCardinality(e.getValue(), base);
+                if (count > 0) {
+                    counts.put(e.getKey(), count);
+                }
+            }
+        }
+        Map<String, Long> top = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(maxFacetValues)
+                .forEach(e -> top.put(e.getKey(), e.getValue()));
+        return top;
+    }
+
+    private static RoaringBitmap union(Map<String, RoaringBitmap> index, Collection<String> values) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        List<RoaringBitmap> bitmaps = new ArrayList<>();
+        for (String value : values) {
+            RoaringBitmap bitmap = index.get(value);
+            if (bitmap != null) {
+                bitmaps.add(bitmap);
+            }
+        }
+        return RoaringBitmap.or(bitmaps.iterator());
+    }
+
+    // null 表示该维度不过滤
+    private static RoaringBitmap and(RoaringBitmap base, RoaringBitmap... filters) {
+        RoaringBitmap result = base;
+        for (RoaringBitmap filter : filters) {
+            if (filter != null) {
+                result = RoaringBitmap.and(result, filter);
+            }
+        }
+        return result == base ? base.clone() : result;
+    }
+
+    private int bucketOf(long priceCents) {
+        int bucket = Arrays.binarySearch(priceBucketBounds, priceCents);
+        return bucket >= 0 ? bucket : Math.max(0, -bucket - 2);
+    }
+
+    private List<RoaringBitmap> allBitmaps() {
+        List<RoaringBitmap> bitmaps = new ArrayList<>();
+        bitmaps.addAll(byCategory.values());
+        bitmaps.addAll(byPublisher.values());
+        bitmaps.addAll(byAuthor.values());
+        bitmaps.addAll(Arrays.asList(byPriceBucket));
+        bitmaps.add(inStock);
+        bitmaps.add(all);
+        return bitmaps;
+    }
+
+    private static void addTo(Map<String, RoaringBitmap> index, String value, int docId) {
+        if (value != null && !value.isBlank()) {
+            index.computeIfAbsent(value, k -> new RoaringBitmap()).add(docId);
+        }
+    }
+
+    private static void removeFrom(Map<String, RoaringBitmap> index, String value, int docId) {
+        if (value == null) {
+            return;
+        }
+        RoaringBitmap bitmap = index.get(value);
+        if (bitmap != null) {
+            bitmap.remove(docId);
+            if (bitmap.isEmpty()) {
+                index.remove(value);
+            }
+        }
+    }
+
+    private static int toDocId(Long bookId) {
+        if (bookId == null || bookId < 0 || bookId > Integer.MAX_VALUE) {
+            return -1;
+        }
+        return bookId.intValue();
+    }
+}
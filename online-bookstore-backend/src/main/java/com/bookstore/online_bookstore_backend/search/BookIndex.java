@@ -0,0 +1,32 @@
+package com.bookstore.online_bookstore_backend.search;
+
+import com.bookstore.online_bookstore_backend.entity.Book;
+import com.bookstore.online_bookstore_backend.event.BookChangedEvent;
+
+/**
+ * 按图书增量维护的内存索引（全文检索、分面筛选、搜索联想）
+ * 对 {@link BookChangedEvent} 的处理相同：带最新数据的 SAVED / PEER_CHANGED 重新索引（已删除的图书由 indexBook 移除），
+ * REMOVED 与已不存在的 PEER_CHANGED 移除，RELOADED 全量重建
+ */
+interface BookIndex {
+
+    void indexBook(Book book);
+
+    void remove(Long bookId);
+
+    void rebuild();
+
+    default void apply(BookChangedEvent event) {
+        switch (event.getType()) {
+            case SAVED, PEER_CHANGED -> {
+                if (event.getBook() != null) {
+                    indexBook(event.getBook());
+                } else {
+                    remove(event.getBookId());
+                }
+            }
+            case REMOVED -> remove(event.getBookId());
+            case RELOADED -> rebuild();
+        }
+    }
+}
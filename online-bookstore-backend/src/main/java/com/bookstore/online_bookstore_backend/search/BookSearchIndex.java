@@ -0,0 +1,302 @@
+package com.bookstore.online_bookstore_backend.search;
+
+import com.bookstore.online_bookstore_backend.entity.Book;
+import com.bookstore.online_bookstore_backend.event.BookChangedEvent;
+import com.bookstore.online_bookstore_backend.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * 图书全文检索的内存倒排索引
+ * 覆盖书名、作者、出版社、ISBN 四个字段，中文按二元组切分（见 {@link BookTokenizer}）
+ * 多个查询词之间为 AND 关系，最后一个词按前缀扩展以支持边输入边搜索
+ * 评分 = Σ 字段权重 × idf，启动时全量构建，之后通过 {@link BookChangedEvent} 增量维护
+ * 全量重建在新结构上进行，构建期间查询与增量更新仍作用于旧结构；被增量更新过的图书在替换前
+ * 按旧结构中的最新状态补到新结构上，避免快照之后的修改被重建覆盖
+ */
+@Component
+public class BookSearchIndex implements BookIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    private static final float TITLE_WEIGHT = 3.0f;
+    private static final float AUTHOR_WEIGHT = 2.0f;
+    private static final float PUBLISHER_WEIGHT = 1.0f;
+    private static final float ISBN_WEIGHT = 3.0f;
+    private static final float PREFIX_PENALTY = 0.7f;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    // 词项 -> (图书ID -> 字段权重)
+    private volatile ConcurrentSkipListMap<String, ConcurrentHashMap<Long, Float>> postings = new ConcurrentSkipListMap<>();
+    // 图书ID -> 该书的词项（删除/更新时用于清理旧的倒排项）
+    private volatile ConcurrentHashMap<Long, Map<String, Float>> docTerms = new ConcurrentHashMap<>();
+    // 全量重建期间被增量更新过的图书ID（在 synchronized 方法内读写），不在重建时为 null
+    private Set<Long> touched;
+    // 同一时刻只进行一次全量重建
+    private final Object rebuildLock = new Object();
+
+    private volatile boolean ready = false;
+    // 修订号：每次增删文档加一（在 synchronized 方法内修改），计入标题搜索的 ETag
+    private volatile long revision;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Value("${bookstore.search.index.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 检索结果：total 为匹配总数，ids 为当前页按相关度排序的图书ID
+     */
+    public record Hits(long total, List<Long> ids) {
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    public int size() {
+        return docTerms.size();
+    }
+
+    public long revision() {
+        return revision;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (rebuildLock) {
+            long start = System.currentTimeMillis();
+            synchronized (this) {
+                touched = new HashSet<>();
+            }
+            try {
+                ConcurrentSkipListMap<String, ConcurrentHashMap<Long, Float>> newPostings = new ConcurrentSkipListMap<>();
+                ConcurrentHashMap<Long, Map<String, Float>> newDocTerms = new ConcurrentHashMap<>();
+                List<Object[]> rows = bookRepository.findActiveSearchFields();
+                for (Object[] row : rows) {
+                    addDoc(newPostings, newDocTerms, (Long) row[0],
+                            termsOf((String) row[1], (String) row[2], (String) row[3], (String) row[4]));
+                }
+                int replayed;
+                synchronized (this) {
+                    // 快照读取之后的修改已作用在旧结构上，以旧结构中的状态为准
+                    replayed = touched.size();
+                    for (Long bookId : touched) {
+                        Map<String, Float> current = docTerms.get(bookId);
+                        if (current != null) {
+                            addDoc(newPostings, newDocTerms, bookId, current);
+                        } else {
+                            removeDoc(newPostings, newDocTerms, bookId);
+                        }
+                    }
+                    postings = newPostings;
+                    docTerms = newDocTerms;
+                    revision++;
+                    ready = true;
+                }
+                logger.info("🔎 Book search index built: docs={}, terms={}, replayed={}, took={}ms",
+                        newDocTerms.size(), newPostings.size(), replayed, System.currentTimeMillis() - start);
+            } finally {
+                synchronized (this) {
+                    touched = null;
+                }
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        apply(event);
+    }
+
+    public void indexBook(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        if (Boolean.TRUE.equals(book.getDeleted())) {
+            remove(book.getId());
+            return;
+        }
+        index(book.getId(), book.getTitle(), book.getAuthor(), book.getPublisher(), book.getIsbn());
+    }
+
+    public synchronized void index(Long bookId, String title, String author, String publisher, String isbn) {
+        addDoc(postings, docTerms, bookId, termsOf(title, author, publisher, isbn));
+        if (touched != null) {
+            touched.add(bookId);
+        }
+        revision++;
+    }
+
+    public synchronized void remove(Long bookId) {
+        removeDoc(postings, docTerms, bookId);
+        if (touched != null) {
+            touched.add(bookId);
+        }
+        revision++;
+    }
+
+    private static Map<String, Float> termsOf(String title, String author, String publisher, String isbn) {
+        Map<String, Float> terms = new HashMap<>();
+        addTerms(terms, BookTokenizer.tokenize(title), TITLE_WEIGHT);
+        addTerms(terms, BookTokenizer.tokenize(author), AUTHOR_WEIGHT);
+        addTerms(terms, BookTokenizer.tokenize(publisher), PUBLISHER_WEIGHT);
+        String normalizedIsbn = BookTokenizer.normalizeIsbn(isbn);
+        if (normalizedIsbn != null) {
+            terms.merge(normalizedIsbn, ISBN_WEIGHT, Math::max);
+        }
+        return terms;
+    }
+
+    private static void addDoc(ConcurrentSkipListMap<String, ConcurrentHashMap<Long, Float>> postings,
+                               Map<Long, Map<String, Float>> docTerms, Long bookId, Map<String, Float> terms) {
+        removeDoc(postings, docTerms, bookId);
+        for (Map.Entry<String, Float> term : terms.entrySet()) {
+            postings.computeIfAbsent(term.getKey(), k -> new ConcurrentHashMap<>()).put(bookId, term.getValue());
+        }
+        docTerms.put(bookId, terms);
+    }
+
+    private static void removeDoc(ConcurrentSkipListMap<String, ConcurrentHashMap<Long, Float>> postings,
+                                  Map<Long, Map<String, Float>> docTerms, Long bookId) {
+        Map<String, Float> old = docTerms.remove(bookId);
+        if (old == null) {
+            return;
+        }
+        for (String term : old.keySet()) {
+            postings.computeIfPresent(term, (k, docs) -> {
+                docs.remove(bookId);
+                return docs.isEmpty() ? null : docs;
+            });
+        }
+    }
+
+    /**
+     * 检索并返回指定页的结果
+     */
+    public Hits search(String query, int offset, int limit) {
+        Map<Long, Float> scores = score(query);
+        if (scores.isEmpty()) {
+            return new Hits(0, Collections.emptyList());
+        }
+
+        // 只保留 offset + limit 个最高分，避免对全部命中排序
+        int keep = offset + limit;
+        Comparator<Map.Entry<Long, Float>> byScore = Map.Entry.<Long, Float>comparingByValue()
+                .thenComparing(Map.Entry.<Long, Float>comparingByKey().reversed());
+        PriorityQueue<Map.Entry<Long, Float>> top = new PriorityQueue<>(byScore);
+        for (Map.Entry<Long, Float> e : scores.entrySet()) {
+            top.offer(e);
+            if (top.size() > keep) {
+                top.poll();
+            }
+        }
+        List<Map.Entry<Long, Float>> ranked = new ArrayList<>(top);
+        ranked.sort(byScore.reversed());
+
+        List<Long> ids = new ArrayList<>();
+        for (int i = offset; i < ranked.size(); i++) {
+            ids.add(ranked.get(i).getKey());
+        }
+        return new Hits(scores.size(), ids);
+    }
+
+    /**
+     * 返回全部命中的图书ID（不排序），供分面筛选与其他条件组合
+     */
+    public Set<Long> matchAll(String query) {
+        return score(query).keySet();
+    }
+
+    // 逐个查询词求交集并累加得分
+    private Map<Long, Float> score(String query) {
+        List<String> tokens = BookTokenizer.tokenizeQuery(query);
+        if (tokens.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        // 同一次查询只使用一份结构，不受中途的全量替换影响
+        ConcurrentSkipListMap<String, ConcurrentHashMap<Long, Float>> postings = this.postings;
+        int totalDocs = Math.max(1, docTerms.size());
+
+        Map<Long, Float> scores = null;
+        for (int i = 0; i < tokens.size(); i++) {
+            boolean last = i == tokens.size() - 1;
+            Map<Long, Float> termScores = scoreTerm(postings, tokens.get(i), last, totalDocs);
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                Map<Long, Float> merged = new HashMap<>();
+                Map<Long, Float> smaller = scores.size() <= termScores.size() ? scores : termScores;
+                Map<Long, Float> larger = smaller == scores ? termScores : scores;
+                for (Map.Entry<Long, Float> e : smaller.entrySet()) {
+                    Float other = larger.get(e.getKey());
+                    if (other != null) {
+                        merged.put(e.getKey(), e.getValue() + other);
+                    }
+                }
+                scores = merged;
+            }
+            if (scores.isEmpty()) {
+                return scores;
+            }
+        }
+        return scores;
+    }
+
+    private Map<Long, Float> scoreTerm(ConcurrentSkipListMap<String, ConcurrentHashMap<Long, Float>> postings,
+                                       String token, boolean allowPrefix, int totalDocs) {
+        Map<Long, Float> result = new HashMap<>();
+        accumulate(result, token, postings.get(token), 1.0f, totalDocs);
+        if (allowPrefix) {
+            int expansions = 0;
+            for (Map.Entry<String, ConcurrentHashMap<Long, Float>> e : postings.tailMap(token, false).entrySet()) {
+                if (!e.getKey().startsWith(token) || expansions++ >= MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                accumulate(result, e.getKey(), e.getValue(), PREFIX_PENALTY, totalDocs);
+            }
+        }
+        return result;
+    }
+
+    private void accumulate(Map<Long, Float> result, String term, Map<Long, Float> docs, float factor, int totalDocs) {
+        if (docs == null || docs.isEmpty()) {
+            return;
+        }
+        float idf = (float) Math.log(1.0 + (double) totalDocs / docs.size());
+        for (Map.Entry<Long, Float> doc : docs.entrySet()) {
+            result.merge(doc.getKey(), doc.getValue() * idf * factor, Math::max);
+        }
+    }
+
+    private static void addTerms(Map<String, Float> terms, List<String> tokens, float weight) {
+        for (String token : tokens) {
+            terms.merge(token, weight, Math::max);
+        }
+    }
+}
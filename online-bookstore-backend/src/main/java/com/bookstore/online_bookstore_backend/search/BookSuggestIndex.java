@@ -0,0 +1,552 @@
+package com.bookstore.online_bookstore_backend.search;
+
+import com.bookstore.online_bookstore_backend.entity.Book;
+import com.bookstore.online_bookstore_backend.event.BookChangedEvent;
+import com.bookstore.online_bookstore_backend.event.BookSoldEvent;
+import com.bookstore.online_bookstore_backend.repository.BookRepository;
+import com.bookstore.online_bookstore_backend.repository.OrderItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * 搜索框自动补全的前缀树
+ * 词条为书名和作者：书名除整体外，还从每个空格/标点后的单词开头再挂一份（最多若干处），
+ * 这样输入 "java" 也能补全出 "Effective Java"
+ * 每个节点预先保存子树内权重最高的前 k 个词条，查询只需沿前缀走到对应节点直接返回，与目录规模无关
+ * 权重 = Σ(1 + 累计销量)，同名的多本书合并为一个词条；子节点用有序 char 数组 + 二分查找，比 HashMap 更省内存
+ * 启动时全量构建，之后通过 {@link BookChangedEvent} 与 {@link BookSoldEvent} 增量维护，
+ * 变更只重算受影响词条所在路径上的节点
+ * 全量重建在新结构上进行，构建期间的增量变更仍作用于旧结构并被记录下来，替换时再补到新结构上
+ */
+@Component
+public class BookSuggestIndex implements BookIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSuggestIndex.class);
+
+    public static final String TYPE_TITLE = "title";
+    public static final String TYPE_AUTHOR = "author";
+
+    private static final int MAX_KEY_LENGTH = 64;
+    private static final int MAX_WORD_STARTS = 8;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final char[] EMPTY_LABELS = new char[0];
+    private static final Node[] EMPTY_CHILDREN = new Node[0];
+    private static final Term[] EMPTY_TERMS = new Term[0];
+
+    private static final Comparator<Term> BY_WEIGHT = Comparator.<Term>comparingLong(t -> t.weight).reversed()
+            .thenComparingInt(t -> t.text.length())
+            .thenComparing(t -> t.text);
+
+    private Node root = new Node();
+    // 词条标识（类型 + 规范化文本）-> 词条
+    private Map<String, Term> terms = new HashMap<>();
+    // 图书ID -> 该书所属的词条（更新/删除时用于清理）
+    private Map<Long, List<Term>> docTerms = new HashMap<>();
+    // 图书ID -> 累计销量
+    private Map<Long, Long> sales = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean ready = false;
+    // 全量重建期间被增量更新过的图书ID与新增的销量（持有写锁时读写），不在重建时为 null
+    private Set<Long> touched;
+    private Map<Long, Long> soldDuringRebuild;
+    // 同一时刻只进行一次全量重建
+    private final Object rebuildLock = new Object();
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Value("${bookstore.suggest.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bookstore.suggest.top-k:10}")
+    private int topK;
+
+    /**
+     * 补全建议：type 为 title 或 author；书名建议附带销量最高的那本书的ID，便于前端直接跳转详情
+     */
+    public record Suggestion(String text, String type, Long bookId) {
+    }
+
+    private static final class Node {
+        char[] labels = EMPTY_LABELS;
+        Node[] children = EMPTY_CHILDREN;
+        int childCount;
+        List<Term> terms;         // 以该节点结尾的词条（通常为空或 1 个）
+        Term[] top = EMPTY_TERMS; // 子树内权重最高的前 k 个词条
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(labels, 0, childCount, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node getOrAddChild(char c) {
+            int i = Arrays.binarySearch(labels, 0, childCount, c);
+            if (i >= 0) {
+                return children[i];
+            }
+            int pos = -i - 1;
+            if (childCount == labels.length) {
+                int capacity = Math.max(2, childCount * 2);
+                labels = Arrays.copyOf(labels, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(labels, pos, labels, pos + 1, childCount - pos);
+            System.arraycopy(children, pos, children, pos + 1, childCount - pos);
+            Node node = new Node();
+            labels[pos] = c;
+            children[pos] = node;
+            childCount++;
+            return node;
+        }
+
+        void removeChild(char c) {
+            int i = Arrays.binarySearch(labels, 0, childCount, c);
+            if (i < 0) {
+                return;
+            }
+            System.arraycopy(labels, i + 1, labels, i, childCount - i - 1);
+            System.arraycopy(children, i + 1, children, i, childCount - i - 1);
+            childCount--;
+            children[childCount] = null;
+        }
+
+        boolean isEmpty() {
+            return childCount == 0 && (terms == null || terms.isEmpty());
+        }
+    }
+
+    private static final class Term {
+        final String text;
+        final String type;
+        final List<String> keys;                         // 该词条在树中的所有路径
+        final Map<Long, Long> books = new HashMap<>();   // 图书ID -> 权重
+        long weight;
+        Long bestBookId;
+
+        Term(String text, String type, List<String> keys) {
+            this.text = text;
+            this.type = type;
+            this.keys = keys;
+        }
+
+        void recomputeWeight() {
+            long sum = 0;
+            long best = -1;
+            bestBookId = null;
+            for (Map.Entry<Long, Long> e : books.entrySet()) {
+                sum += e.getValue();
+                if (e.getValue() > best || (e.getValue() == best && e.getKey() < bestBookId)) {
+                    best = e.getValue();
+                    bestBookId = e.getKey();
+                }
+            }
+            weight = sum;
+        }
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (rebuildLock) {
+            lock.writeLock().lock();
+            try {
+                touched = new HashSet<>();
+                soldDuringRebuild = new HashMap<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            try {
+                rebuildFromDatabase();
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    touched = null;
+                    soldDuringRebuild = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    private void rebuildFromDatabase() {
+        long start = System.currentTimeMillis();
+        Map<Long, Long> newSales = new HashMap<>();
+        for (Object[] row : orderItemRepository.sumQuantityGroupByBook()) {
+            if (row[0] != null && row[1] != null) {
+                newSales.put((Long) row[0], ((Number) row[1]).longValue());
+            }
+        }
+        List<Object[]> rows = bookRepository.findActiveSearchFields();
+
+        // 在新结构上构建，完成后整体替换，构建期间查询仍使用旧结构
+        Node newRoot = new Node();
+        Map<String, Term> newTerms = new HashMap<>();
+        Map<Long, List<Term>> newDocTerms = new HashMap<>();
+        for (Object[] row : rows) {
+            Long bookId = (Long) row[0];
+            long weight = 1 + newSales.getOrDefault(bookId, 0L);
+            List<Term> bookTerms = new ArrayList<>(2);
+            addBookTerm(newRoot, newTerms, bookTerms, bookId, weight, (String) row[1], TYPE_TITLE, null);
+            addBookTerm(newRoot, newTerms, bookTerms, bookId, weight, (String) row[2], TYPE_AUTHOR, null);
+            newDocTerms.put(bookId, bookTerms);
+        }
+        for (Term term : newTerms.values()) {
+            term.recomputeWeight();
+        }
+        computeTop(newRoot);
+
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            Map<Long, List<Term>> oldDocTerms = docTerms;
+            root = newRoot;
+            terms = newTerms;
+            docTerms = newDocTerms;
+            sales = newSales;
+            // 把构建期间作用在旧结构上的变更补到新结构：先补销量，再按旧结构中的最新书名/作者重新索引
+            // （开始记录后、读取销量前提交的订单会被重复计入，只影响排序权重）
+            Set<Term> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+            soldDuringRebuild.forEach((bookId, quantity) -> addSales(bookId, quantity, changed));
+            for (Long bookId : touched) {
+                removeInternal(bookId, changed);
+                List<Term> current = oldDocTerms.get(bookId);
+                if (current != null) {
+                    indexInternal(bookId, textOf(current, TYPE_TITLE), textOf(current, TYPE_AUTHOR), changed);
+                }
+            }
+            for (Term term : changed) {
+                term.recomputeWeight();
+            }
+            refreshPaths(changed);
+            replayed = touched.size() + soldDuringRebuild.size();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("💡 Book suggest index built: docs={}, terms={}, replayed={}, took={}ms",
+                newDocTerms.size(), newTerms.size(), replayed, System.currentTimeMillis() - start);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        apply(event);
+    }
+
+    /**
+     * 订单提交后更新销量权重（只统计本节点的订单，其他节点的销量在下次全量重建时计入）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookSold(BookSoldEvent event) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Set<Term> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Map.Entry<Long, Integer> e : event.getQuantities().entrySet()) {
+                addSales(e.getKey(), e.getValue(), changed);
+                if (soldDuringRebuild != null) {
+                    soldDuringRebuild.merge(e.getKey(), (long) e.getValue(), Long::sum);
+                }
+            }
+            for (Term term : changed) {
+                term.recomputeWeight();
+            }
+            refreshPaths(changed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void indexBook(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        if (Boolean.TRUE.equals(book.getDeleted())) {
+            remove(book.getId());
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Set<Term> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+            removeInternal(book.getId(), changed);
+            indexInternal(book.getId(), book.getTitle(), book.getAuthor(), changed);
+            if (touched != null) {
+                touched.add(book.getId());
+            }
+            for (Term term : changed) {
+                term.recomputeWeight();
+            }
+            refreshPaths(changed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long bookId) {
+        if (bookId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Set<Term> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+            removeInternal(bookId, changed);
+            if (touched != null) {
+                touched.add(bookId);
+            }
+            for (Term term : changed) {
+                term.recomputeWeight();
+            }
+            refreshPaths(changed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 前缀补全
+     * @param limit 最多返回的条数（不超过 top-k）
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            for (int i = 0; i < key.length() && node != null; i++) {
+                node = node.child(key.charAt(i));
+            }
+            if (node == null) {
+                return Collections.emptyList();
+            }
+            int n = Math.min(limit, node.top.length);
+            List<Suggestion> result = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                Term term = node.top[i];
+                result.add(new Suggestion(term.text, term.type, TYPE_TITLE.equals(term.type) ? term.bestBookId : null));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ==================== 内部实现（调用方持有写锁，或操作尚未发布的新结构） ====================
+
+    private void indexInternal(Long bookId, String title, String author, Set<Term> changed) {
+        long weight = 1 + sales.getOrDefault(bookId, 0L);
+        List<Term> bookTerms = new ArrayList<>(2);
+        addBookTerm(root, terms, bookTerms, bookId, weight, title, TYPE_TITLE, changed);
+        addBookTerm(root, terms, bookTerms, bookId, weight, author, TYPE_AUTHOR, changed);
+        docTerms.put(bookId, bookTerms);
+    }
+
+    private void addSales(Long bookId, long quantity, Set<Term> changed) {
+        long total = sales.merge(bookId, quantity, Long::sum);
+        for (Term term : docTerms.getOrDefault(bookId, Collections.emptyList())) {
+            term.books.put(bookId, 1 + total);
+            changed.add(term);
+        }
+    }
+
+    private static String textOf(List<Term> bookTerms, String type) {
+        for (Term term : bookTerms) {
+            if (type.equals(term.type)) {
+                return term.text;
+            }
+        }
+        return null;
+    }
+
+    private void addBookTerm(Node root, Map<String, Term> terms, List<Term> bookTerms, Long bookId, long weight,
+                             String text, String type, Set<Term> changed) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        Term term = terms.get(type + "|" + normalized);
+        if (term == null) {
+            List<String> keys = TYPE_TITLE.equals(type) ? titleKeys(normalized) : List.of(truncate(normalized));
+            term = new Term(text.trim(), type, keys);
+            terms.put(type + "|" + normalized, term);
+            for (String key : keys) {
+                Node node = root;
+                for (int i = 0; i < key.length(); i++) {
+                    node = node.getOrAddChild(key.charAt(i));
+                }
+                if (node.terms == null) {
+                    node.terms = new ArrayList<>(1);
+                }
+                node.terms.add(term);
+            }
+        }
+        term.books.put(bookId, weight);
+        bookTerms.add(term);
+        if (changed != null) {
+            changed.add(term);
+        }
+    }
+
+    private void removeInternal(Long bookId, Set<Term> changed) {
+        List<Term> old = docTerms.remove(bookId);
+        if (old == null) {
+            return;
+        }
+        for (Term term : old) {
+            term.books.remove(bookId);
+            changed.add(term);
+            if (!term.books.isEmpty()) {
+                continue;
+            }
+            // 词条已没有任何图书，从树中摘除，并清理因此变空的节点
+            terms.remove(term.type + "|" + normalize(term.text));
+            for (String key : term.keys) {
+                Node[] path = pathOf(key);
+                if (path == null) {
+                    continue;
+                }
+                Node node = path[key.length()];
+                if (node.terms != null) {
+                    node.terms.remove(term);
+                }
+                for (int depth = key.length(); depth > 0 && path[depth].isEmpty(); depth--) {
+                    path[depth - 1].removeChild(key.charAt(depth - 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * 按深度从深到浅重算受影响路径上各节点的 top-k（子节点先于父节点）
+     */
+    private void refreshPaths(Set<Term> changed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        List<List<Node>> byDepth = new ArrayList<>();
+        Set<Node> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Term term : changed) {
+            for (String key : term.keys) {
+                Node node = root;
+                for (int depth = 0; node != null; depth++) {
+                    if (seen.add(node)) {
+                        while (byDepth.size() <= depth) {
+                            byDepth.add(new ArrayList<>());
+                        }
+                        byDepth.get(depth).add(node);
+                    }
+                    node = depth < key.length() ? node.child(key.charAt(depth)) : null;
+                }
+            }
+        }
+        for (int depth = byDepth.size() - 1; depth >= 0; depth--) {
+            for (Node node : byDepth.get(depth)) {
+                mergeTop(node);
+            }
+        }
+    }
+
+    private void computeTop(Node node) {
+        for (int i = 0; i < node.childCount; i++) {
+            computeTop(node.children[i]);
+        }
+        mergeTop(node);
+    }
+
+    // 合并本节点词条与各子节点的 top-k；同一词条可能经由多条路径出现在同一子树，需要去重
+    private void mergeTop(Node node) {
+        List<Term> candidates = new ArrayList<>();
+        if (node.terms != null) {
+            candidates.addAll(node.terms);
+        }
+        for (int i = 0; i < node.childCount; i++) {
+            candidates.addAll(Arrays.asList(node.children[i].top));
+        }
+        candidates.sort(BY_WEIGHT);
+        Set<Term> picked = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Term term : candidates) {
+            if (picked.size() >= topK) {
+                break;
+            }
+            picked.add(term);
+        }
+        Term[] top = picked.toArray(EMPTY_TERMS);
+        Arrays.sort(top, BY_WEIGHT);
+        node.top = top;
+    }
+
+    private Node[] pathOf(String key) {
+        Node[] path = new Node[key.length() + 1];
+        path[0] = root;
+        for (int i = 0; i < key.length(); i++) {
+            path[i + 1] = path[i].child(key.charAt(i));
+            if (path[i + 1] == null) {
+                return null;
+            }
+        }
+        return path;
+    }
+
+    // 整体 + 每个单词开头（空格或标点之后）各一份
+    private static List<String> titleKeys(String normalized) {
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(truncate(normalized));
+        for (int i = 1; i < normalized.length() && keys.size() <= MAX_WORD_STARTS; i++) {
+            char prev = normalized.charAt(i - 1);
+            if (!Character.isLetterOrDigit(prev) && Character.isLetterOrDigit(normalized.charAt(i))) {
+                keys.add(truncate(normalized.substring(i)));
+            }
+        }
+        return new ArrayList<>(keys);
+    }
+
+    private static String truncate(String key) {
+        return key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key;
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return WHITESPACE.matcher(text.trim().toLowerCase(Locale.ROOT)).replaceAll(" ");
+    }
+}
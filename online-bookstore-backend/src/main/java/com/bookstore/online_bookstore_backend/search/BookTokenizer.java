@@ -0,0 +1,129 @@
+package com.bookstore.online_bookstore_backend.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 图书文本分词器
+ * - 拉丁字母/数字：按非字母数字字符切分，统一转小写
+ * - 中日韩文字：连续片段切成二元组（bigram），同时保留单字，
+ *   这样单字查询也能命中，多字查询则用二元组近似子串匹配
+ * - ISBN：去掉连字符和空格后作为一个整体词项；查询中 ISBN 形式的片段按同样规则归一后再分词
+ */
+public final class BookTokenizer {
+
+    // 查询中的 ISBN 片段：连字符连接的数字段（可以是输入到一半的 ISBN，末位可为 X），
+    // 或以空格/连字符分隔、共 10 位或 13 位的完整 ISBN
+    private static final Pattern ISBN_QUERY = Pattern.compile(
+            "(?<![\\p{L}\\p{N}])(?:(?:\\d[\\s-]*){12}\\d|(?:\\d[\\s-]*){9}[\\dxX]|\\d+(?:-\\d+)+(?:-[xX])?)(?![\\p{L}\\p{N}])");
+
+    private BookTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        StringBuilder word = new StringBuilder();
+        StringBuilder cjk = new StringBuilder();
+
+        for (int i = 0; i < lower.length(); ) {
+            int cp = lower.codePointAt(i);
+            i += Character.charCount(cp);
+            if (isCjk(cp)) {
+                flushWord(word, tokens);
+                cjk.appendCodePoint(cp);
+            } else if (Character.isLetterOrDigit(cp)) {
+                flushCjk(cjk, tokens, true);
+                word.appendCodePoint(cp);
+            } else {
+                flushWord(word, tokens);
+                flushCjk(cjk, tokens, true);
+            }
+        }
+        flushWord(word, tokens);
+        flushCjk(cjk, tokens, true);
+        return tokens;
+    }
+
+    /**
+     * 查询分词：中文片段长度不少于 2 时只用二元组，长度为 1 时用单字
+     */
+    public static List<String> tokenizeQuery(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String lower = joinIsbns(text).toLowerCase(Locale.ROOT);
+        StringBuilder word = new StringBuilder();
+        StringBuilder cjk = new StringBuilder();
+
+        for (int i = 0; i < lower.length(); ) {
+            int cp = lower.codePointAt(i);
+            i += Character.charCount(cp);
+            if (isCjk(cp)) {
+                flushWord(word, tokens);
+                cjk.appendCodePoint(cp);
+            } else if (Character.isLetterOrDigit(cp)) {
+                flushCjk(cjk, tokens, false);
+                word.appendCodePoint(cp);
+            } else {
+                flushWord(word, tokens);
+                flushCjk(cjk, tokens, false);
+            }
+        }
+        flushWord(word, tokens);
+        flushCjk(cjk, tokens, false);
+        return tokens;
+    }
+
+    // 把 ISBN 片段中的分隔符去掉，与索引中的 ISBN 词项一致
+    private static String joinIsbns(String text) {
+        Matcher matcher = ISBN_QUERY.matcher(text);
+        return matcher.replaceAll(match -> Matcher.quoteReplacement(match.group().replaceAll("[\\s-]", "")));
+    }
+
+    public static String normalizeIsbn(String isbn) {
+        if (isbn == null) {
+            return null;
+        }
+        String normalized = isbn.replaceAll("[\\s-]", "").toLowerCase(Locale.ROOT);
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (word.length() > 0) {
+            tokens.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    private static void flushCjk(StringBuilder cjk, List<String> tokens, boolean withUnigrams) {
+        if (cjk.length() == 0) {
+            return;
+        }
+        int[] cps = cjk.codePoints().toArray();
+        if (cps.length == 1 || withUnigrams) {
+            for (int cp : cps) {
+                tokens.add(new String(Character.toChars(cp)));
+            }
+        }
+        for (int i = 0; i + 1 < cps.length; i++) {
+            tokens.add(new String(cps, i, 2));
+        }
+        cjk.setLength(0);
+    }
+
+    private static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
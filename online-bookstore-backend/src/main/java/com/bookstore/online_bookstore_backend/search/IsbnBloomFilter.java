@@ -0,0 +1,247 @@
+package com.bookstore.online_bookstore_backend.search;
+
+import com.bookstore.online_bookstore_backend.event.BookChangedEvent;
+import com.bookstore.online_bookstore_backend.repository.BookRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 在售图书 ISBN 的布隆过滤器，用于 ISBN 唯一性校验的前置判断
+ * - mightContain 返回 false：该 ISBN 一定未被在售图书占用，可以跳过数据库查询
+ * - 返回 true：可能存在，仍需走精确查询
+ * 布隆过滤器不支持删除，软删除只计数；失效位占比过高或容量不足时从数据库全量重建
+ * 本节点的新增/恢复由 BookDaoImpl 在写入时直接加入，其他节点的修改通过 PEER_CHANGED 事件补充，
+ * 重建时会补回最近一段时间内的新增，并发窗口内的极少数漏判由 isbn 列的唯一约束兜底
+ */
+@Component
+public class IsbnBloomFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(IsbnBloomFilter.class);
+
+    // 软删除累计超过已插入数量的该比例时重建
+    private static final double STALE_REBUILD_RATIO = 0.2;
+    // 重建时补回这段时间内的新增：其所在事务可能在读取数据库快照时尚未提交
+    private static final long RECENT_ADD_WINDOW_MILLIS = 60_000;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Value("${bookstore.isbn-bloom.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bookstore.isbn-bloom.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    @Value("${bookstore.isbn-bloom.fpp:0.01}")
+    private double fpp;
+
+    private volatile Bits bits;
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean(false);
+    private final ConcurrentLinkedQueue<RecentAdd> recentAdds = new ConcurrentLinkedQueue<>();
+    private final AtomicLong stale = new AtomicLong();
+
+    private final AtomicLong negatives = new AtomicLong();
+    private final AtomicLong positives = new AtomicLong();
+
+    /**
+     * @return false 表示一定不存在；过滤器未就绪或已停用时总是返回 true
+     */
+    public boolean mightContain(String isbn) {
+        Bits current = bits;
+        String key = normalize(isbn);
+        if (!enabled || current == null || key == null) {
+            return true;
+        }
+        boolean result = current.mightContain(key);
+        (result ? positives : negatives).incrementAndGet();
+        return result;
+    }
+
+    public void add(String isbn) {
+        String key = normalize(isbn);
+        if (key == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        recentAdds.add(new RecentAdd(key, now));
+        RecentAdd head;
+        while ((head = recentAdds.peek()) != null && head.at() < now - RECENT_ADD_WINDOW_MILLIS) {
+            recentAdds.remove(head);
+        }
+        Bits current = bits;
+        if (current != null) {
+            current.put(key);
+            if (current.inserted.get() > current.capacity) {
+                rebuildAsync();
+            }
+        }
+    }
+
+    /**
+     * 记录一次软删除/物理删除（位无法清除，只累计失效数量）
+     */
+    public void markRemoved() {
+        Bits current = bits;
+        if (current != null && stale.incrementAndGet() > current.inserted.get() * STALE_REBUILD_RATIO) {
+            rebuildAsync();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            long start = System.currentTimeMillis();
+            try {
+                List<String> isbns = bookRepository.findActiveIsbns();
+                Bits fresh = new Bits(Math.max(expectedInsertions, isbns.size() * 2L), fpp);
+                for (String isbn : isbns) {
+                    String key = normalize(isbn);
+                    if (key != null) {
+                        fresh.put(key);
+                    }
+                }
+                bits = fresh;
+                stale.set(0);
+                for (RecentAdd recent : recentAdds) {
+                    if (recent.at() >= start - RECENT_ADD_WINDOW_MILLIS) {
+                        fresh.put(recent.key());
+                    }
+                }
+                logger.info("🌸 ISBN bloom filter built: isbns={}, bits={}, hashes={}, took={}ms",
+                        isbns.size(), fresh.bitSize, fresh.hashCount, System.currentTimeMillis() - start);
+            } finally {
+                rebuildScheduled.set(false);
+            }
+        }
+    }
+
+    private void rebuildAsync() {
+        if (!rebuildScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                logger.warn("⚠️ ISBN bloom filter rebuild failed: {}", e.getMessage());
+            }
+        }, "isbn-bloom-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        switch (event.getType()) {
+            // 本节点的写入已由 BookDaoImpl 在提交前加入，这里只处理其他节点的修改和整体变更
+            case PEER_CHANGED -> {
+                if (event.getBook() != null) {
+                    add(event.getBook().getIsbn());
+                }
+            }
+            case RELOADED -> rebuild();
+            default -> {
+            }
+        }
+    }
+
+    public long getNegativeCount() {
+        return negatives.get();
+    }
+
+    public long getPositiveCount() {
+        return positives.get();
+    }
+
+    private record RecentAdd(String key, long at) {
+    }
+
+    // 与数据库比较规则保持一致：去掉首尾空白、不区分大小写
+    private static String normalize(String isbn) {
+        if (isbn == null || isbn.isBlank()) {
+            return null;
+        }
+        return isbn.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 位数组与哈希：m = -n·ln(p) / (ln2)²，k = m/n·ln2，
+     * 用 64 位 FNV-1a 的高低两半做双重哈希生成 k 个位置
+     */
+    private static final class Bits {
+        final long capacity;
+        final long bitSize;
+        final int hashCount;
+        final AtomicLongArray words;
+        final AtomicLong inserted = new AtomicLong();
+
+        Bits(long capacity, double fpp) {
+            this.capacity = capacity;
+            long m = (long) Math.ceil(-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            this.words = new AtomicLongArray((int) Math.min(Integer.MAX_VALUE - 8, (m + 63) / 64));
+            this.bitSize = words.length() * 64L;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitSize / capacity * Math.log(2)));
+        }
+
+        void put(String key) {
+            long hash = fnv1a64(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                long index = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitSize;
+                int word = (int) (index >>> 6);
+                long mask = 1L << index;
+                long old;
+                do {
+                    old = words.get(word);
+                    if ((old & mask) != 0) {
+                        break;
+                    }
+                } while (!words.compareAndSet(word, old, old | mask));
+            }
+            inserted.incrementAndGet();
+        }
+
+        boolean mightContain(String key) {
+            long hash = fnv1a64(key);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                long index = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitSize;
+                if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static long fnv1a64(String key) {
+            long hash = 0xcbf29ce484222325L;
+            for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= (b & 0xff);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+    }
+}
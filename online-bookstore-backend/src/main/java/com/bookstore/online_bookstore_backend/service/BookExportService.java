@@ -0,0 +1,134 @@
+package com.bookstore.online_bookstore_backend.service;
+
+import com.bookstore.online_bookstore_backend.entity.Book;
+import com.bookstore.online_bookstore_backend.repository.BookRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * 图书目录导出服务
+ * 通过只进游标逐行读取图书（左连接库存），边读边写 CSV / JSON Lines，
+ * 每行写完即从持久化上下文中 detach，导出任意数量的图书堆内存占用都保持恒定
+ * 导出列与批量导入的列名一致，导出文件可直接用于导入
+ */
+@Service
+public class BookExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookExportService.class);
+
+    private static final String[] COLUMNS = {
+            "id", "title", "author", "isbn", "publisher", "price", "cover", "description", "category", "stock", "createdAt", "updatedAt"
+    };
+
+    // 每写出这么多行刷新一次输出，让客户端尽早收到数据
+    private static final int FLUSH_INTERVAL = 500;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static boolean isSupportedFormat(String format) {
+        String normalized = format == null ? "" : format.toLowerCase(Locale.ROOT);
+        return normalized.equals("csv") || normalized.equals("jsonl") || normalized.equals("ndjson");
+    }
+
+    /**
+     * 将未删除的图书写入输出流，需在 StreamingResponseBody 中调用（游标在整个写出过程中保持打开）
+     */
+    @Transactional(readOnly = true)
+    public long exportBooks(OutputStream output, String format) throws IOException {
+        boolean csv = format.equalsIgnoreCase("csv");
+        long start = System.currentTimeMillis();
+        long count = 0;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        if (csv) {
+            writer.write(String.join(",", COLUMNS));
+            writer.write('\n');
+        }
+        try (Stream<Object[]> rows = bookRepository.streamActiveWithStock()) {
+            Iterator<Object[]> it = rows.iterator();
+            while (it.hasNext()) {
+                Object[] row = it.next();
+                Book book = (Book) row[0];
+                Integer stock = (Integer) row[1];
+                if (csv) {
+                    writeCsvRow(writer, book, stock);
+                } else {
+                    writeJsonLine(writer, book, stock);
+                }
+                entityManager.detach(book);
+                if (++count % FLUSH_INTERVAL == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        writer.flush();
+        logger.info("📤 Book export finished: format={}, rows={}, took={}ms", format, count, System.currentTimeMillis() - start);
+        return count;
+    }
+
+    private void writeCsvRow(Writer writer, Book book, Integer stock) throws IOException {
+        Object[] values = {
+                book.getId(), book.getTitle(), book.getAuthor(), book.getIsbn(), book.getPublisher(),
+                book.getPrice() != null ? book.getPrice().toPlainString() : null, book.getCover(), book.getDescription(),
+                book.getCategory(), stock, book.getCreatedAt(), book.getUpdatedAt()
+        };
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escapeCsv(values[i]));
+        }
+        writer.write('\n');
+    }
+
+    private void writeJsonLine(Writer writer, Book book, Integer stock) throws IOException {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("id", book.getId());
+        node.put("title", book.getTitle());
+        node.put("author", book.getAuthor());
+        node.put("isbn", book.getIsbn());
+        node.put("publisher", book.getPublisher());
+        node.put("price", book.getPrice());
+        node.put("cover", book.getCover());
+        node.put("description", book.getDescription());
+        node.put("category", book.getCategory());
+        node.put("stock", stock);
+        node.put("createdAt", book.getCreatedAt() != null ? book.getCreatedAt().toString() : null);
+        node.put("updatedAt", book.getUpdatedAt() != null ? book.getUpdatedAt().toString() : null);
+        writer.write(objectMapper.writeValueAsString(node));
+        writer.write('\n');
+    }
+
+    private static String escapeCsv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+}
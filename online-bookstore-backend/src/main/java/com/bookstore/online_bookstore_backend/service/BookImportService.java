@@ -0,0 +1,404 @@
+package com.bookstore.online_bookstore_backend.service;
+
+import com.bookstore.online_bookstore_backend.cache.NearCacheManager;
+import com.bookstore.online_bookstore_backend.dao.BookDao;
+import com.bookstore.online_bookstore_backend.dao.BookInventoryDao;
+import com.bookstore.online_bookstore_backend.entity.Book;
+import com.bookstore.online_bookstore_backend.event.BookChangedEvent;
+import com.bookstore.online_bookstore_backend.payload.response.BookImportResponse;
+import com.bookstore.online_bookstore_backend.search.BookTokenizer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 图书批量导入服务
+ * 流式读取 CSV / JSON Lines，逐行校验后按批次写入：
+ * 每批一个事务，books 与 book_inventory 均使用 JDBC 批量插入，
+ * ISBN 查重使用导入开始时一次性加载的集合，不再逐行查询数据库
+ * 某一批写入失败时逐行重试，只有确实写不进去的行计为失败，其 ISBN 从查重集合中移除
+ * 每批提交后预热图书/库存缓存，全部完成后通知各节点重建内存索引
+ */
+@Service
+public class BookImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookImportService.class);
+
+    private static final int MAX_ERROR_MESSAGES = 100;
+
+    @Autowired
+    private BookDao bookDao;
+
+    @Autowired
+    private BookInventoryDao inventoryDao;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private NearCacheManager nearCacheManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${bookstore.import.batch-size:1000}")
+    private int batchSize;
+
+    private record ImportRow(long rowNo, Book book, int stock) {
+    }
+
+    /**
+     * 导入图书
+     * @param input  请求体输入流（UTF-8）
+     * @param format csv 或 jsonl；CSV 第一行为表头，列名与 JSON 字段名一致：
+     *               title, author, isbn, publisher, price, cover, description, category, stock
+     */
+    public BookImportResponse importBooks(InputStream input, String format) throws IOException {
+        String normalizedFormat = format == null ? "csv" : format.trim().toLowerCase(Locale.ROOT);
+        if (!normalizedFormat.equals("csv") && !normalizedFormat.equals("jsonl") && !normalizedFormat.equals("ndjson")) {
+            throw new IllegalArgumentException("不支持的导入格式: " + format + "（仅支持 csv / jsonl）");
+        }
+        long start = System.currentTimeMillis();
+        BookImportResponse result = new BookImportResponse();
+
+        Set<String> knownIsbns = new HashSet<>();
+        for (String isbn : bookDao.findAllIsbns()) {
+            knownIsbns.add(BookTokenizer.normalizeIsbn(isbn));
+        }
+        logger.info("📥 Book import started: format={}, existingIsbns={}, batchSize={}", normalizedFormat, knownIsbns.size(), batchSize);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        Iterator<Map<String, String>> records = normalizedFormat.equals("csv") ? csvRecords(reader) : jsonLineRecords(reader);
+
+        List<ImportRow> batch = new ArrayList<>(batchSize);
+        while (records.hasNext()) {
+            result.setTotalRows(result.getTotalRows() + 1);
+            long rowNo = result.getTotalRows();
+            Map<String, String> fields;
+            try {
+                fields = records.next();
+            } catch (IllegalArgumentException e) {
+                result.setInvalid(result.getInvalid() + 1);
+                addError(result, "第 " + rowNo + " 行格式错误: " + e.getMessage());
+                continue;
+            }
+            ImportRow row;
+            try {
+                row = toRow(rowNo, fields);
+            } catch (IllegalArgumentException e) {
+                result.setInvalid(result.getInvalid() + 1);
+                addError(result, "第 " + rowNo + " 行: " + e.getMessage());
+                continue;
+            }
+            if (!knownIsbns.add(BookTokenizer.normalizeIsbn(row.book().getIsbn()))) {
+                result.setDuplicates(result.getDuplicates() + 1);
+                continue;
+            }
+            batch.add(row);
+            if (batch.size() >= batchSize) {
+                flush(batch, result, knownIsbns);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            flush(batch, result, knownIsbns);
+        }
+
+        if (result.getImported() > 0) {
+            // 检索索引等按整体变更处理，本节点直接重建，其他节点通过广播重建
+            eventPublisher.publishEvent(BookChangedEvent.reloaded());
+            nearCacheManager.broadcastCatalogReload();
+        }
+        result.setElapsedMs(System.currentTimeMillis() - start);
+        logger.info("✅ Book import finished: rows={}, imported={}, duplicates={}, invalid={}, failed={}, took={}ms",
+                result.getTotalRows(), result.getImported(), result.getDuplicates(), result.getInvalid(),
+                result.getFailed(), result.getElapsedMs());
+        return result;
+    }
+
+    /**
+     * 写入一批；整批回滚后逐行重试，避免一行坏数据（如并发写入的重复 ISBN）连累同批的其他行
+     */
+    private void flush(List<ImportRow> rows, BookImportResponse result, Set<String> knownIsbns) {
+        try {
+            insert(rows);
+            result.setImported(result.getImported() + rows.size());
+            return;
+        } catch (RuntimeException e) {
+            if (rows.size() == 1) {
+                reject(rows.get(0), e, result, knownIsbns);
+                return;
+            }
+            logger.warn("⚠️ Book import batch failed, retrying row by row: size={}, error={}", rows.size(), e.getMessage());
+        }
+        for (ImportRow row : rows) {
+            // 回滚前可能已回填了主键
+            row.book().setId(null);
+        }
+        for (ImportRow row : rows) {
+            try {
+                insert(List.of(row));
+                result.setImported(result.getImported() + 1);
+            } catch (RuntimeException e) {
+                reject(row, e, result, knownIsbns);
+            }
+        }
+    }
+
+    private void insert(List<ImportRow> rows) {
+        List<Book> books = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            books.add(row.book());
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            bookDao.insertBatch(books);
+            Map<Long, Integer> stocks = new LinkedHashMap<>();
+            for (ImportRow row : rows) {
+                if (row.book().getId() != null) {
+                    stocks.put(row.book().getId(), row.stock());
+                }
+            }
+            inventoryDao.insertBatch(stocks);
+        });
+    }
+
+    // 写入失败的行没有进入数据库，其 ISBN 不再算作已存在，后面出现的同 ISBN 行仍可导入
+    private void reject(ImportRow row, RuntimeException e, BookImportResponse result, Set<String> knownIsbns) {
+        knownIsbns.remove(BookTokenizer.normalizeIsbn(row.book().getIsbn()));
+        result.setFailed(result.getFailed() + 1);
+        addError(result, "第 " + row.rowNo() + " 行写入失败: " + e.getMessage());
+        logger.error("❌ Book import row failed: row={}, isbn={}, error={}", row.rowNo(), row.book().getIsbn(), e.getMessage());
+    }
+
+    private ImportRow toRow(long rowNo, Map<String, String> fields) {
+        Book book = new Book();
+        book.setTitle(required(fields, "title", 255));
+        book.setIsbn(required(fields, "isbn", 20));
+        book.setAuthor(optional(fields, "author", 100));
+        book.setPublisher(optional(fields, "publisher", 100));
+        book.setCover(optional(fields, "cover", 1000));
+        book.setDescription(optional(fields, "description", Integer.MAX_VALUE));
+        book.setCategory(optional(fields, "category", 50));
+
+        String price = optional(fields, "price", Integer.MAX_VALUE);
+        if (price != null) {
+            try {
+                BigDecimal value = new BigDecimal(price);
+                if (value.signum() < 0) {
+                    throw new IllegalArgumentException("价格不能为负数");
+                }
+                book.setPrice(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("价格格式错误: " + price);
+            }
+        }
+
+        int stock = 0;
+        String stockText = optional(fields, "stock", Integer.MAX_VALUE);
+        if (stockText != null) {
+            try {
+                stock = Integer.parseInt(stockText);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("库存格式错误: " + stockText);
+            }
+            if (stock < 0) {
+                throw new IllegalArgumentException("库存不能为负数");
+            }
+        }
+        return new ImportRow(rowNo, book, stock);
+    }
+
+    private static String required(Map<String, String> fields, String name, int maxLength) {
+        String value = optional(fields, name, maxLength);
+        if (value == null) {
+            throw new IllegalArgumentException("缺少必填字段 " + name);
+        }
+        return value;
+    }
+
+    private static String optional(Map<String, String> fields, String name, int maxLength) {
+        String value = fields.get(name);
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        value = value.trim();
+        if (value.length() > maxLength) {
+            throw new IllegalArgumentException("字段 " + name + " 超过最大长度 " + maxLength);
+        }
+        return value;
+    }
+
+    private static void addError(BookImportResponse result, String message) {
+        if (result.getErrors().size() < MAX_ERROR_MESSAGES) {
+            result.getErrors().add(message);
+        }
+    }
+
+    // ==================== 流式解析 ====================
+
+    /**
+     * JSON Lines：每行一个 JSON 对象，空行忽略
+     */
+    private Iterator<Map<String, String>> jsonLineRecords(BufferedReader reader) {
+        return new Iterator<>() {
+            private String nextLine = readNonBlankLine();
+
+            @Override
+            public boolean hasNext() {
+                return nextLine != null;
+            }
+
+            @Override
+            public Map<String, String> next() {
+                String line = nextLine;
+                nextLine = readNonBlankLine();
+                Map<String, String> fields = new HashMap<>();
+                try {
+                    JsonNode node = objectMapper.readTree(line);
+                    if (node == null || !node.isObject()) {
+                        throw new IllegalArgumentException("不是 JSON 对象");
+                    }
+                    node.fields().forEachRemaining(e -> fields.put(e.getKey().toLowerCase(Locale.ROOT),
+                            e.getValue().isNull() ? null : e.getValue().asText()));
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("JSON 解析失败");
+                }
+                return fields;
+            }
+
+            private String readNonBlankLine() {
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (!line.isBlank()) {
+                            return line;
+                        }
+                    }
+                    return null;
+                } catch (IOException e) {
+                    throw new IllegalStateException("读取导入数据失败: " + e.getMessage(), e);
+                }
+            }
+        };
+    }
+
+    /**
+     * CSV（RFC 4180）：首行为表头，字段可用双引号包裹，引号内允许逗号、换行和 "" 转义
+     */
+    private Iterator<Map<String, String>> csvRecords(BufferedReader reader) throws IOException {
+        List<String> header = readCsvRecord(reader);
+        if (header == null) {
+            return new ArrayList<Map<String, String>>().iterator();
+        }
+        List<String> columns = new ArrayList<>(header.size());
+        for (String column : header) {
+            columns.add(column.trim().replace("\uFEFF", "").toLowerCase(Locale.ROOT));
+        }
+        return new Iterator<>() {
+            private List<String> nextRecord = read();
+
+            @Override
+            public boolean hasNext() {
+                return nextRecord != null;
+            }
+
+            @Override
+            public Map<String, String> next() {
+                List<String> values = nextRecord;
+                nextRecord = read();
+                if (values.size() != columns.size()) {
+                    throw new IllegalArgumentException("列数为 " + values.size() + "，表头为 " + columns.size() + " 列");
+                }
+                Map<String, String> fields = new HashMap<>();
+                for (int i = 0; i < columns.size(); i++) {
+                    fields.put(columns.get(i), values.get(i));
+                }
+                return fields;
+            }
+
+            private List<String> read() {
+                try {
+                    List<String> record;
+                    while ((record = readCsvRecord(reader)) != null) {
+                        if (!(record.size() == 1 && record.get(0).isBlank())) {
+                            return record;
+                        }
+                    }
+                    return null;
+                } catch (IOException e) {
+                    throw new IllegalStateException("读取导入数据失败: " + e.getMessage(), e);
+                }
+            }
+        };
+    }
+
+    private static List<String> readCsvRecord(BufferedReader reader) throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (c != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next != -1) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c == '\r') {
+                reader.mark(1);
+                if (reader.read() != '\n') {
+                    reader.reset();
+                }
+                break;
+            } else {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+        values.add(field.toString());
+        return values;
+    }
+}
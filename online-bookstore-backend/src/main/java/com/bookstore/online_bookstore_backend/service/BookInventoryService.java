@@ -8,6 +8,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -66,6 +67,15 @@ public class BookInventoryService {
         return inventoryDao.reduceStock(bookId, quantity);
     }
     
+    /**
+     * 一次扣减多本书的库存（全部成功或全部不变）
+     * @return 库存不足的图书及其当前库存，为空表示扣减成功
+     */
+    @Transactional
+    public Map<Long, Integer> reduceStocks(Map<Long, Integer> quantities) {
+        return inventoryDao.reduceStocks(quantities);
+    }
+    
     /**
      * 增加库存
      */
@@ -1,28 +1,57 @@
 package com.bookstore.online_bookstore_backend.service; // 确保是正确的包名
 
+import com.bookstore.online_bookstore_backend.cache.NearCacheManager;
 import com.bookstore.online_bookstore_backend.dao.BookDao; // Import BookDao
+import com.bookstore.online_bookstore_backend.dto.BookSummaryDTO;
 import com.bookstore.online_bookstore_backend.dto.BookWithInventoryDTO;
 import com.bookstore.online_bookstore_backend.entity.Book;
+import com.bookstore.online_bookstore_backend.payload.request.PageCursor;
+import com.bookstore.online_bookstore_backend.payload.response.CursorPageResponse;
+import com.bookstore.online_bookstore_backend.payload.response.FacetQueryResponse;
+import com.bookstore.online_bookstore_backend.search.BookFacetIndex;
+import com.bookstore.online_bookstore_backend.search.BookSearchIndex;
+import com.bookstore.online_bookstore_backend.search.BookSuggestIndex;
 // import com.bookstore.online_bookstore_backend.repository.BookRepository; // No longer directly used
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional; // 用于事务管理
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.zip.CRC32;
 
 @Service // 标记这是一个 Spring Service Bean
 public class BookService {
     
     private static final Logger logger = LoggerFactory.getLogger(BookService.class);
 
+    // 价格游标中表示"上一页最后一本书没有价格"
+    private static final String NULL_PRICE = "null";
+
     private final BookDao bookDao; // Use BookDao
     
     @Autowired
-    private BookInventoryService inventoryService;
+    private BookSearchIndex bookSearchIndex;
+    
+    @Autowired
+    private BookFacetIndex bookFacetIndex;
+    
+    @Autowired
+    private BookSuggestIndex bookSuggestIndex;
+    
+    @Autowired
+    private NearCacheManager nearCacheManager;
 
     @Autowired // Spring 自动注入 BookDao 的实例
     public BookService(BookDao bookDao) { // Inject BookDao
@@ -44,6 +73,118 @@ public class BookService {
         return bookDao.findByCategory(category, pageable); // Use bookDao
     }
 
+    // 列表页精简数据 (不含 description，支持分页和分类)
+    @Transactional(readOnly = true)
+    public Page<BookSummaryDTO> getBookSummaries(String category, Pageable pageable) {
+        if (category == null || category.trim().isEmpty() || category.equalsIgnoreCase("all")) {
+            return bookDao.findSummaries(null, pageable);
+        }
+        return bookDao.findSummaries(category, pageable);
+    }
+
+    // 搜索框自动补全：只查内存前缀树，索引未就绪时返回空列表（不退回数据库，避免逐键查询压垮 MySQL）
+    public List<BookSuggestIndex.Suggestion> suggestBooks(String prefix, int limit) {
+        if (!bookSuggestIndex.isReady() || prefix == null || prefix.isBlank()) {
+            return List.of();
+        }
+        return bookSuggestIndex.suggest(prefix, limit);
+    }
+
+    // 分面筛选：分类/出版社/作者为多选（维度内 OR、维度间 AND），可叠加价格区间、有货和关键词，
+    // 在内存位图上完成筛选与计数，只为当前页加载图书数据
+    @Transactional(readOnly = true)
+    public FacetQueryResponse filterBooks(Collection<String> categories, Collection<String> publishers,
+                                          Collection<String> authors, BigDecimal minPrice, BigDecimal maxPrice,
+                                          boolean inStockOnly, String keyword, String sortField, boolean ascending,
+                                          int page, int size) {
+        if (!bookFacetIndex.isReady()) {
+            throw new IllegalStateException("分面索引尚未就绪，请稍后重试");
+        }
+        if (page < 0 || size <= 0 || size > 100) {
+            throw new IllegalArgumentException("分页参数无效");
+        }
+        if (!"id".equals(sortField) && !"price".equals(sortField)) {
+            throw new IllegalArgumentException("不支持的排序字段: " + sortField);
+        }
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new IllegalArgumentException("最低价格不能高于最高价格");
+        }
+        Collection<Long> restrictTo = null;
+        if (keyword != null && !keyword.trim().isEmpty()) {
+            if (!bookSearchIndex.isReady()) {
+                throw new IllegalStateException("搜索索引尚未就绪，请稍后重试");
+            }
+            restrictTo = bookSearchIndex.matchAll(keyword);
+        }
+
+        long start = System.nanoTime();
+        BookFacetIndex.Result result = bookFacetIndex.query(
+                new BookFacetIndex.Query(categories, publishers, authors, minPrice, maxPrice, inStockOnly, restrictTo),
+                sortField, ascending, page * size, size);
+        long tookMicros = (System.nanoTime() - start) / 1000;
+
+        Map<Long, Book> books = bookDao.findAllByIds(result.ids());
+        List<BookSummaryDTO> content = new ArrayList<>(result.ids().size());
+        for (Long id : result.ids()) {
+            Book book = books.get(id);
+            if (book != null) {
+                content.add(BookSummaryDTO.fromBook(book));
+            }
+        }
+        return new FacetQueryResponse(content, result.total(), page, size, result.facets(), tookMicros);
+    }
+
+    // 键集分页获取书籍：不执行 COUNT，翻到多深都是常数代价（支持 id / price 排序）
+    // 按价格排序时价格为空的书籍排在最后，游标中的价格记为 NULL_PRICE
+    @Transactional(readOnly = true)
+    public CursorPageResponse<Book> getBooksByCursor(String category, String sortField, boolean ascending, String cursor, int size) {
+        PageCursor.checkPageSize(size);
+        PageCursor after = (cursor == null || cursor.isBlank()) ? null : PageCursor.decode(cursor);
+        if (after != null && (!after.getSortField().equals(sortField) || after.isAscending() != ascending)) {
+            throw new IllegalArgumentException("分页游标与排序参数不匹配");
+        }
+        String categoryFilter = (category == null || category.trim().isEmpty() || category.equalsIgnoreCase("all")) ? null : category;
+
+        List<Book> rows;
+        if ("id".equals(sortField)) {
+            rows = bookDao.findPageAfterId(categoryFilter, after != null ? after.getLastId() : null, ascending, size + 1);
+        } else if ("price".equals(sortField)) {
+            BigDecimal lastPrice = after != null ? parseCursorPrice(after.getLastValue()) : null;
+            rows = bookDao.findPageAfterPrice(categoryFilter, lastPrice, after != null ? after.getLastId() : null, ascending, size + 1);
+        } else {
+            throw new IllegalArgumentException("键集分页仅支持按 id 或 price 排序");
+        }
+
+        // 多取一行用于判断是否还有下一页
+        boolean hasNext = rows.size() > size;
+        List<Book> content = hasNext ? new ArrayList<>(rows.subList(0, size)) : rows;
+        String nextCursor = null;
+        if (hasNext) {
+            Book last = content.get(content.size() - 1);
+            String lastValue = null;
+            if ("price".equals(sortField)) {
+                lastValue = last.getPrice() != null ? last.getPrice().toPlainString() : NULL_PRICE;
+            }
+            nextCursor = new PageCursor(sortField, ascending, last.getId(), lastValue).encode();
+        }
+        return new CursorPageResponse<>(content, content.size(), nextCursor, hasNext);
+    }
+
+    // 解析游标中的价格：NULL_PRICE 表示上一页停在价格为空的书籍中（返回 null），缺失或不是数字时视为无效游标
+    private static BigDecimal parseCursorPrice(String value) {
+        if (NULL_PRICE.equals(value)) {
+            return null;
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("无效的分页游标", e);
+        }
+    }
+
     // 根据ID获取单本书籍详情
     @Transactional(readOnly = true)
     public Optional<Book> getBookById(Long id) {
@@ -51,16 +192,50 @@ public class BookService {
         return bookDao.findById(id); // Use bookDao
     }
     
-    // 根据ID获取书籍详情（包含库存信息）
+    // 获取已记录的书籍详情 ETag（仅查内存元数据，未记录时返回 null）
+    public String getCachedBookETag(Long id) {
+        return nearCacheManager.getBookETag(id);
+    }
+
+    /**
+     * 详情 ETag：由图书 updatedAt、库存行版本（BookInventory.version）与库存数量决定
+     * 版本标识管理端的库存修改；下单预留在 Redis 中直接增减库存而不改变版本，因此库存数量也要计入
+     */
+    public static String detailETag(BookWithInventoryDTO dto) {
+        long updated = dto.getUpdatedAt() != null
+                ? dto.getUpdatedAt().toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + dto.getUpdatedAt().getNano()
+                : 0L;
+        long stockVersion = dto.getStockVersion() != null ? dto.getStockVersion() : 0L;
+        return "\"" + dto.getId() + "-" + Long.toHexString(updated) + "-v" + stockVersion + "-" + dto.getStock() + "\"";
+    }
+
+    /**
+     * 列表页 ETag：分类代数加上查询参数（页码、每页大小、排序、标题关键词）的摘要，代数不变则同一查询的结果不变
+     * 标题搜索跨分类，使用全部图书的代数；按相关度检索时结果来自本节点的内存索引，索引修订号一并计入，
+     * 其他节点的修改尚未同步到本节点的索引时不会返回 304
+     * Redis 不可用时返回 null
+     */
+    public String getListETag(String category, String keyword, Pageable pageable) {
+        boolean search = keyword != null && !keyword.trim().isEmpty();
+        String categoryFilter = (search || category == null || category.trim().isEmpty() || category.equalsIgnoreCase("all")) ? null : category;
+        Long generation = bookDao.findListGeneration(categoryFilter);
+        if (generation == null) {
+            return null;
+        }
+        CRC32 query = new CRC32();
+        query.update((pageable.getPageNumber() + "|" + pageable.getPageSize() + "|" + pageable.getSort()
+                + "|" + (search ? keyword.trim() : "")).getBytes(StandardCharsets.UTF_8));
+        String revision = search ? "-r" + Long.toHexString(bookSearchIndex.revision()) : "";
+        return "\"g" + Long.toHexString(generation) + revision + "-" + Long.toHexString(query.getValue()) + "\"";
+    }
+
+    // 根据ID获取书籍详情（包含库存信息），同时记录该详情的 ETag 供后续条件请求使用
     @Transactional(readOnly = true)
     public Optional<BookWithInventoryDTO> getBookWithInventoryById(Long id) {
-        Optional<Book> bookOpt = bookDao.findById(id);
-        if (bookOpt.isPresent()) {
-            Book book = bookOpt.get();
-            Integer stock = inventoryService.getStock(id);
-            return Optional.of(BookWithInventoryDTO.fromBookAndStock(book, stock));
-        }
-        return Optional.empty();
+        long stamp = nearCacheManager.etagStamp();
+        Optional<BookWithInventoryDTO> dtoOpt = bookDao.findWithStockById(id);
+        dtoOpt.ifPresent(dto -> nearCacheManager.putBookETag(id, detailETag(dto), stamp));
+        return dtoOpt;
     }
 
     // 添加新书 (或更新已有书籍，如果ID存在)
@@ -102,9 +277,22 @@ public class BookService {
         bookDao.restoreById(id);
     }
 
-    // 您可以根据需要添加更多业务方法，例如按标题搜索等
+    // 关键词搜索：未指定排序时优先走内存倒排索引（书名/作者/出版社/ISBN，按相关度排序），
+    // 索引未就绪或调用方指定了排序（包括 id）时退回数据库 LIKE 查询，按指定顺序返回
     @Transactional(readOnly = true)
     public Page<Book> searchBooksByTitle(String keyword, Pageable pageable) {
+        if (bookSearchIndex.isReady() && pageable.getSort().isUnsorted()) {
+            BookSearchIndex.Hits hits = bookSearchIndex.search(keyword, (int) pageable.getOffset(), pageable.getPageSize());
+            Map<Long, Book> books = bookDao.findAllByIds(hits.ids());
+            List<Book> content = new ArrayList<>(hits.ids().size());
+            for (Long id : hits.ids()) {
+                Book book = books.get(id);
+                if (book != null) {
+                    content.add(book);
+                }
+            }
+            return new PageImpl<>(content, pageable, hits.total());
+        }
         return bookDao.findByTitleContainingIgnoreCase(keyword, pageable); // Use bookDao
     }
 
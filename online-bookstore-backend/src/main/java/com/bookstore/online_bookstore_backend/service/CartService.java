@@ -9,6 +9,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -30,17 +31,18 @@ public class CartService {
     @Transactional(readOnly = true)
     public List<CartItem> getCartItemsByUserId(Long userId) {
         List<CartItem> items = cartItemDao.findByUserId(userId);
-        // 为每个购物车项目填充瞬时字段 (title, price, cover)
-        return items.stream().map(item -> {
-            Optional<Book> bookOpt = bookDao.findById(item.getBookId());
-            if (bookOpt.isPresent()) {
-                Book book = bookOpt.get();
+        // 一次批量查询所有书籍，再为每个购物车项目填充瞬时字段 (title, price, cover)
+        Map<Long, Book> books = bookDao.findAllByIds(
+                items.stream().map(CartItem::getBookId).collect(Collectors.toList()));
+        for (CartItem item : items) {
+            Book book = books.get(item.getBookId());
+            if (book != null) {
                 item.setTitle(book.getTitle());
                 item.setPrice(book.getPrice());
                 item.setCover(book.getCover());
             }
-            return item;
-        }).collect(Collectors.toList());
+        }
+        return items;
     }
 
     @Transactional
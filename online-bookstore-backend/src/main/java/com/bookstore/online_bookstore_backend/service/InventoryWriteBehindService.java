@@ -0,0 +1,278 @@
+package com.bookstore.online_bookstore_backend.service;
+
+import com.bookstore.online_bookstore_backend.entity.BookInventory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * 库存异步落库（write-behind）
+ * 开启后，Redis 预留成功的扣减不再对 book_inventory 加行锁同步更新，而是：
+ * 1. 在扣减所在的事务中向 inventory_journal 插入库存变化（只插入，热门图书的买家之间不再争同一行锁），
+ *    事务提交即持久，提交后进程崩溃也不会丢失，回滚则一起撤销；
+ * 2. 后台线程定期取出本节点写入的行，按图书合并后批量 UPDATE（stock = stock + ?），同一事务中删除这些行
+ * 这期间 Redis 中的库存是准确值，数据库中的库存需要加上所有节点尚未落库的行才是当前值（{@link #loadWithPending}）
+ */
+@Service
+public class InventoryWriteBehindService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InventoryWriteBehindService.class);
+
+    private static final String INSERT_SQL =
+            "INSERT INTO inventory_journal (node_id, book_id, delta, created_at) VALUES (?, ?, ?, ?)";
+    private static final String LOAD_SQL =
+            "SELECT i.stock + COALESCE((SELECT SUM(j.delta) FROM inventory_journal j WHERE j.book_id = i.book_id), 0) AS stock, " +
+            "i.version, i.updated_at FROM book_inventory i WHERE i.book_id = ?";
+
+    @Value("${bookstore.inventory.write-behind.enabled:false}")
+    private boolean enabled;
+
+    @Value("${bookstore.inventory.write-behind.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${bookstore.inventory.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${bookstore.inventory.write-behind.node-id:}")
+    private String nodeId;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate writeTemplate;
+    private TransactionTemplate readTemplate;
+
+    private volatile boolean running = false;
+    private Thread flusher;
+
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile long lastFlushAt = 0;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        writeTemplate = new TransactionTemplate(transactionManager);
+        writeTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        readTemplate = new TransactionTemplate(transactionManager);
+        readTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        readTemplate.setReadOnly(true);
+        if (nodeId == null || nodeId.isBlank()) {
+            try {
+                nodeId = InetAddress.getLocalHost().getHostName();
+            } catch (IOException e) {
+                nodeId = "default";
+            }
+        }
+
+        // 上次退出（或崩溃）前已提交、还没落库的行留在表中，由后台线程第一轮落库
+        running = true;
+        flusher = new Thread(this::work, "inventory-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+        logger.info("✅ Inventory write-behind enabled: node={}, interval={}ms", nodeId, flushIntervalMs);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(flusher);
+        flush();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 记录已在 Redis 中生效的库存变化（扣减为负数）
+     * 在调用方的事务中插入，随事务提交或回滚；不能放到提交之后执行，否则提交后崩溃会丢失扣减
+     * @param deltas 图书ID -> 库存变化量
+     */
+    public void record(Map<Long, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Map.Entry<Long, Integer>> entries = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate(INSERT_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setString(1, nodeId);
+            ps.setLong(2, entry.getKey());
+            ps.setInt(3, entry.getValue());
+            ps.setTimestamp(4, now);
+        });
+        recorded.addAndGet(deltas.size());
+    }
+
+    /**
+     * 所有节点尚未写入数据库的库存变化
+     * 在调用方事务中加共享锁读取（当前读）：调用方已锁住库存行时，与落库事务看到的是同一时刻的数据，
+     * 不会因为事务快照早于某次落库而把已经加到库存上的变化再算一次
+     */
+    public long pendingDelta(Long bookId) {
+        if (!enabled) {
+            return 0;
+        }
+        Long delta = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(delta), 0) FROM inventory_journal WHERE book_id = ? LOCK IN SHARE MODE", Long.class, bookId);
+        return delta != null ? delta : 0;
+    }
+
+    /**
+     * 读取库存并加上所有节点尚未落库的变化
+     * 一条语句同时读库存行与未落库的行，落库事务对它是原子的；放在独立的只读事务中，
+     * 避免外层事务的快照早于最近提交的扣减
+     * @param loader 未开启异步落库时的读取方式
+     */
+    public Optional<BookInventory> loadWithPending(Long bookId, Supplier<Optional<BookInventory>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        List<Map<String, Object>> rows = readTemplate.execute(status -> jdbcTemplate.queryForList(LOAD_SQL, bookId));
+        if (rows == null || rows.isEmpty()) {
+            return Optional.empty();
+        }
+        Map<String, Object> row = rows.get(0);
+        Object updatedAt = row.get("updated_at");
+        return Optional.of(new BookInventory(bookId, ((Number) row.get("stock")).intValue(),
+                row.get("version") != null ? ((Number) row.get("version")).longValue() : null,
+                updatedAt instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) updatedAt));
+    }
+
+    /**
+     * 删除图书的库存行时一起删除它尚未落库的变化（在调用方事务中）
+     */
+    public void discard(Long bookId) {
+        if (!enabled) {
+            return;
+        }
+        jdbcTemplate.update("DELETE FROM inventory_journal WHERE book_id = ?", bookId);
+    }
+
+    /**
+     * 把本节点写入的所有待落库变化写入数据库：每批在独立事务中合并 UPDATE 库存并删除对应的行
+     * 失败时行保留在表中，下一轮重试
+     */
+    public synchronized void flush() {
+        if (!enabled) {
+            return;
+        }
+        int limit = Math.max(1, batchSize);
+        try {
+            int rows;
+            do {
+                rows = flushBatch(limit);
+            } while (rows >= limit);
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            logger.warn("⚠️ Inventory write-behind flush failed, will retry: error={}", e.getMessage());
+        }
+    }
+
+    private int flushBatch(int limit) {
+        // [读到的行数, 更新的库存行数]
+        int[] result = writeTemplate.execute(status -> {
+            List<Map<String, Object>> entries = jdbcTemplate.queryForList(
+                    "SELECT id, book_id, delta FROM inventory_journal WHERE node_id = ? ORDER BY id LIMIT ?",
+                    nodeId, limit);
+            if (entries.isEmpty()) {
+                return new int[]{0, 0};
+            }
+            // 按图书ID顺序更新，与下单时批量加锁的顺序一致
+            Map<Long, Long> deltas = new TreeMap<>();
+            List<Long> ids = new ArrayList<>(entries.size());
+            for (Map<String, Object> entry : entries) {
+                ids.add(((Number) entry.get("id")).longValue());
+                deltas.merge(((Number) entry.get("book_id")).longValue(), ((Number) entry.get("delta")).longValue(), Long::sum);
+            }
+            deltas.values().removeIf(delta -> delta == 0);
+
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Map.Entry<Long, Long>> rows = new ArrayList<>(deltas.entrySet());
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate("UPDATE book_inventory SET stock = stock + ?, version = version + 1, updated_at = ? WHERE book_id = ?",
+                        rows, rows.size(), (ps, row) -> {
+                            ps.setLong(1, row.getValue());
+                            ps.setTimestamp(2, now);
+                            ps.setLong(3, row.getKey());
+                        });
+            }
+            // 按ID删除读到的行：自增ID不按提交顺序可见，不能按范围删除，否则会删掉刚提交、还没合并的行
+            jdbcTemplate.batchUpdate("DELETE FROM inventory_journal WHERE id = ?", ids, ids.size(),
+                    (ps, id) -> ps.setLong(1, id));
+            return new int[]{entries.size(), rows.size()};
+        });
+        if (result == null || result[0] == 0) {
+            return 0;
+        }
+        flushes.incrementAndGet();
+        flushedRows.addAndGet(result[1]);
+        lastFlushAt = System.currentTimeMillis();
+        logger.debug("📦 Inventory write-behind flushed: entries={}, rows={}", result[0], result[1]);
+        return result[0];
+    }
+
+    private void work() {
+        while (running) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMs));
+            if (!running) {
+                return;
+            }
+            try {
+                flush();
+            } catch (Exception e) {
+                logger.warn("⚠️ Inventory write-behind error: {}", e.getMessage());
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        if (!enabled) {
+            return stats;
+        }
+        stats.put("nodeId", nodeId);
+        stats.put("pendingEntries", jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM inventory_journal WHERE node_id = ?", Long.class, nodeId));
+        stats.put("recorded", recorded.get());
+        stats.put("flushes", flushes.get());
+        stats.put("flushedRows", flushedRows.get());
+        stats.put("failures", failures.get());
+        stats.put("lastFlushAt", lastFlushAt);
+        return stats;
+    }
+}
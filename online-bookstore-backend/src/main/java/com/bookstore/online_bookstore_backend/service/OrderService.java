@@ -4,6 +4,8 @@ import com.bookstore.online_bookstore_backend.dao.BookDao;
 import com.bookstore.online_bookstore_backend.dao.OrderDao;
 import com.bookstore.online_bookstore_backend.dao.OrderItemDao;
 import com.bookstore.online_bookstore_backend.entity.*;
+import com.bookstore.online_bookstore_backend.payload.request.PageCursor;
+import com.bookstore.online_bookstore_backend.payload.response.CursorPageResponse;
 // import com.bookstore.online_bookstore_backend.repository.BookRepository; // No longer directly used
 // import com.bookstore.online_bookstore_backend.repository.CartItemRepository; // Removed as unused
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,8 +17,11 @@ import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 // import java.util.stream.Collectors; // Marked as unused by IDE
 
 @Service
@@ -78,27 +83,29 @@ public class OrderService {
         List<OrderItem> orderItems = new ArrayList<>();
         BigDecimal totalPrice = BigDecimal.ZERO;
 
+        // 批量获取购物车中的所有书籍，避免逐本查询
+        List<Long> bookIds = new ArrayList<>();
         for (CartItem cartItem : cartItems) {
-            Book book = bookDao.findById(cartItem.getBookId())
-                    .orElseThrow(() -> new RuntimeException("未找到书籍ID: " + cartItem.getBookId()));
+            bookIds.add(cartItem.getBookId());
+        }
+        Map<Long, Book> books = bookDao.findAllByIds(bookIds);
 
-            // 检查库存
-            Integer currentStock = inventoryService.getStock(cartItem.getBookId());
-            if (currentStock < cartItem.getQuantity()) {
-                throw new RuntimeException("书籍库存不足: " + book.getTitle() + " (需求: " + cartItem.getQuantity() + ", 库存: " + currentStock + ")");
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (CartItem cartItem : cartItems) {
+            Book book = books.get(cartItem.getBookId());
+            if (book == null) {
+                throw new RuntimeException("未找到书籍ID: " + cartItem.getBookId());
             }
 
             OrderItem orderItem = new OrderItem(order, book, cartItem.getQuantity(), book.getPrice());
             orderItems.add(orderItem);
             totalPrice = totalPrice.add(book.getPrice().multiply(BigDecimal.valueOf(cartItem.getQuantity())));
-            
-            // 减少库存
-            boolean success = inventoryService.reduceStock(cartItem.getBookId(), cartItem.getQuantity());
-            if (!success) {
-                throw new RuntimeException("减少库存失败: " + book.getTitle());
-            }
+            quantities.merge(cartItem.getBookId(), cartItem.getQuantity(), Integer::sum);
         }
 
+        // 一次检查并扣减全部库存（全部成功或全部不变）
+        reduceStocks(quantities, books);
+
         // 保存OrderItem记录
         orderItemDao.saveAll(orderItems);
 
@@ -141,31 +148,27 @@ public class OrderService {
     private List<OrderItem> createOrderItems(Order order, List<Long> bookIds, List<Integer> quantities) {
         List<OrderItem> orderItems = new ArrayList<>();
         BigDecimal totalPrice = BigDecimal.ZERO;
+        Map<Long, Book> books = bookDao.findAllByIds(bookIds);
 
+        Map<Long, Integer> totals = new LinkedHashMap<>();
         for (int i = 0; i < bookIds.size(); i++) {
             Long bookId = bookIds.get(i);
             Integer quantity = quantities.get(i);
 
-            Book book = bookDao.findById(bookId)
-                    .orElseThrow(() -> new RuntimeException("未找到书籍ID: " + bookId));
-
-            // 检查库存
-            Integer currentStock = inventoryService.getStock(bookId);
-            if (currentStock < quantity) {
-                throw new RuntimeException("书籍库存不足: " + book.getTitle());
+            Book book = books.get(bookId);
+            if (book == null) {
+                throw new RuntimeException("未找到书籍ID: " + bookId);
             }
 
             OrderItem orderItem = new OrderItem(order, book, quantity, book.getPrice());
             orderItems.add(orderItem);
             totalPrice = totalPrice.add(book.getPrice().multiply(BigDecimal.valueOf(quantity)));
-
-            // 减少库存
-            boolean success = inventoryService.reduceStock(bookId, quantity);
-            if (!success) {
-                throw new RuntimeException("减少库存失败: " + book.getTitle());
-            }
+            totals.merge(bookId, quantity, Integer::sum);
         }
 
+        // 一次检查并扣减全部库存（全部成功或全部不变）
+        reduceStocks(totals, books);
+
         // 保存OrderItem记录
         orderItemDao.saveAll(orderItems);
 
@@ -176,6 +179,19 @@ public class OrderService {
         return orderItems;
     }
 
+    /**
+     * 扣减订单中全部图书的库存，任何一本不足时抛出异常并列出所有不足的图书
+     */
+    private void reduceStocks(Map<Long, Integer> quantities, Map<Long, Book> books) {
+        Map<Long, Integer> shortfalls = inventoryService.reduceStocks(quantities);
+        if (!shortfalls.isEmpty()) {
+            List<String> messages = new ArrayList<>();
+            shortfalls.forEach((bookId, stock) -> messages.add(
+                    books.get(bookId).getTitle() + " (需求: " + quantities.get(bookId) + ", 库存: " + stock + ")"));
+            throw new RuntimeException("书籍库存不足: " + String.join("; ", messages));
+        }
+    }
+
     @Transactional(readOnly = true)
     public List<Order> getOrdersByUserId(Long userId) {
         List<Order> orders = orderDao.findByUserIdOrderByOrderDateDesc(userId);
@@ -202,6 +218,40 @@ public class OrderService {
         return ordersPage;
     }
     
+    /**
+     * 键集分页获取用户订单，按 (orderDate, id) 翻页，不执行 COUNT
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<Order> getOrdersByUserIdAfterCursor(Long userId, String cursor, int size, boolean ascending,
+                                                                  LocalDateTime startDate, LocalDateTime endDate) {
+        PageCursor.checkPageSize(size);
+        PageCursor after = (cursor == null || cursor.isBlank()) ? null : PageCursor.decode(cursor);
+        if (after != null && (!"orderDate".equals(after.getSortField()) || after.isAscending() != ascending)) {
+            throw new IllegalArgumentException("分页游标与排序参数不匹配");
+        }
+        LocalDateTime lastDate = null;
+        if (after != null) {
+            try {
+                lastDate = LocalDateTime.parse(after.getLastValue());
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+        }
+        Long lastId = after != null ? after.getLastId() : null;
+
+        List<Order> rows = orderDao.findUserOrdersAfter(userId, startDate, endDate, lastDate, lastId, ascending, size + 1);
+        boolean hasNext = rows.size() > size;
+        List<Order> content = hasNext ? new ArrayList<>(rows.subList(0, size)) : rows;
+        fillTransientOrderData(content);
+
+        String nextCursor = null;
+        if (hasNext) {
+            Order last = content.get(content.size() - 1);
+            nextCursor = new PageCursor("orderDate", ascending, last.getId(), last.getOrderDate().toString()).encode();
+        }
+        return new CursorPageResponse<>(content, content.size(), nextCursor, hasNext);
+    }
+    
     @Transactional(readOnly = true)
     public Page<Order> getAllOrders(Pageable pageable, LocalDateTime startDate, LocalDateTime endDate, Long filterByUserId, String bookNameKeyword) {
         Page<Order> ordersPage;
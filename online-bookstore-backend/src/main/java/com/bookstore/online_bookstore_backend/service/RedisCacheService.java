@@ -1,19 +1,53 @@
 package com.bookstore.online_bookstore_backend.service;
 
+import com.bookstore.online_bookstore_backend.cache.BookCacheEntry;
+import com.bookstore.online_bookstore_backend.cache.BookListPage;
+import com.bookstore.online_bookstore_backend.cache.BookSummaryPage;
+import com.bookstore.online_bookstore_backend.cache.BulkCacheEvictor;
+import com.bookstore.online_bookstore_backend.cache.CacheMetrics;
+import com.bookstore.online_bookstore_backend.cache.CompactRedisSerializer;
+import com.bookstore.online_bookstore_backend.cache.FallbackCacheStore;
+import com.bookstore.online_bookstore_backend.cache.RedisCircuitBreaker;
+import com.bookstore.online_bookstore_backend.cache.StockReservation;
 import com.bookstore.online_bookstore_backend.entity.Book;
+import com.bookstore.online_bookstore_backend.event.RedisRecoveredEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 /**
  * Redis 缓存服务
- * 提供图书信息和库存的缓存操作
- * 实现缓存降级机制，当 Redis 不可用时自动降级
+ * 提供图书信息和库存的缓存操作（同一本书的图书字段与库存保存在同一个 hash 中）
+ * 实现缓存降级机制，当 Redis 不可用时自动降级：熔断期间图书与库存的读写改由本地的 FallbackCacheStore 承接，
+ * 没能写进 Redis 的变更在恢复后统一清理（见 onRedisRecovered）
  */
 @Service
 public class RedisCacheService {
@@ -21,119 +55,765 @@ public class RedisCacheService {
     private static final Logger logger = LoggerFactory.getLogger(RedisCacheService.class);
     
     // 缓存 key 前缀
-    private static final String BOOK_CACHE_PREFIX = "book:";
-    private static final String BOOK_INVENTORY_PREFIX = "inventory:";
+    // 每本书一个 hash：图书字段 + stock 库存计数器，详情页一次 HGETALL 取全，库存用 HINCRBY 原子增减
+    private static final String BOOK_CACHE_PREFIX = "book:detail:";
     private static final String BOOK_LIST_CACHE_PREFIX = "book:list:";
+    private static final String BOOK_LIST_GENERATION_PREFIX = BOOK_LIST_CACHE_PREFIX + "gen:";
+    private static final String BOOK_SUMMARY_LIST_PREFIX = "book:list-summary:";
+    
+    // 图书 hash 的字段
+    private static final String FIELD_ID = "id";
+    private static final String FIELD_STOCK = "stock";
+    private static final String FIELD_ABSENT = "absent"; // 负缓存：图书不存在或已删除
+    private static final String FIELD_EXPIRES_AT = "expiresAt"; // 图书字段的过期时间（毫秒时间戳），XFetch 使用
+    private static final String FIELD_LOAD_MILLIS = "loadMillis"; // 写入时从数据库加载的耗时，XFetch 使用
+    // 图书字段的版本（updatedAt 的微秒数）；删除图书字段时保留为墓碑，阻止删除前读到的旧数据被回填
+    private static final String FIELD_VERSION = "version";
+    // 库存的版本（book_inventory.version）；HINCRBY 增减库存时不变，数据库提交后版本才 +1
+    private static final String FIELD_STOCK_VERSION = "stockVersion";
+    private static final Object[] CLEARED_ON_BOOK_WRITE = {FIELD_ABSENT, FIELD_ID, "title", "author", "isbn", "publisher",
+            "price", "cover", "description", "category", "deleted", "createdAt", "updatedAt", "deletedAt",
+            FIELD_EXPIRES_AT, FIELD_LOAD_MILLIS, FIELD_VERSION};
+    
+    /**
+     * 硬删除图书时使用的墓碑版本：任何版本的图书字段都不能再写入，直到 hash 过期或被负缓存取代
+     */
+    public static final long VERSION_DELETED = Long.MAX_VALUE;
+    
+    // 写入图书字段：缓存中的版本更新时放弃（并发的读回填拿到的是写入之前的行）；
+    // 负缓存占位期间只接受严格更新的版本（占位保留了删除时的墓碑，删除前读到的行版本不会更新）；
+    // 否则先清掉旧的图书字段（值变为 null 的字段不能靠 HSET 覆盖）和负缓存占位，保留库存
+    private static final DefaultRedisScript<Long> CACHE_BOOK_SCRIPT = new DefaultRedisScript<>(
+            "local current = tonumber(redis.call('HGET', KEYS[1], 'version') or '0') " +
+            "local version = tonumber(ARGV[2]) " +
+            "if current > version or (current == version and redis.call('HEXISTS', KEYS[1], 'absent') == 1) then return 0 end " +
+            "redis.call('HDEL', KEYS[1], " + luaArgs(CLEARED_ON_BOOK_WRITE) + ") " +
+            "redis.call('HSET', KEYS[1], unpack(ARGV, 3)) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+            "return 1", Long.class);
+    
+    // 后台提前刷新：hash 的 expiresAt 仍是读取时的值才写入（期间被写穿透覆盖或被删除则放弃，避免用旧数据覆盖新数据），
+    // 版本检查同写入
+    private static final DefaultRedisScript<Long> REFRESH_BOOK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HGET', KEYS[1], 'expiresAt') ~= ARGV[2] then return 0 end " +
+            "local current = redis.call('HGET', KEYS[1], 'version') " +
+            "if current and tonumber(current) > tonumber(ARGV[3]) then return 0 end " +
+            "redis.call('HDEL', KEYS[1], " + luaArgs(CLEARED_ON_BOOK_WRITE) + ") " +
+            "redis.call('HSET', KEYS[1], unpack(ARGV, 4)) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+            "return 1", Long.class);
+    
+    // 删除图书字段并留下版本墓碑（取已有版本与 ARGV[1] 中较大者），保留库存；hash 原本不存在时设置 TTL
+    private static final DefaultRedisScript<Long> EVICT_BOOK_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('HGET', KEYS[1], 'version') " +
+            "local version = ARGV[1] " +
+            "if current and tonumber(current) > tonumber(version) then version = current end " +
+            "redis.call('HDEL', KEYS[1], " + luaArgs(CLEARED_ON_BOOK_WRITE) + ") " +
+            "redis.call('HSET', KEYS[1], 'version', version) " +
+            "if redis.call('TTL', KEYS[1]) < 0 then redis.call('EXPIRE', KEYS[1], ARGV[2]) end " +
+            "return 1", Long.class);
+    
+    // 负缓存：已有图书字段时不覆盖；清掉其余字段，但保留版本墓碑（version / stockVersion），
+    // 否则删除前读到旧行的回填会因为找不到墓碑而覆盖掉占位
+    private static final DefaultRedisScript<Long> CACHE_ABSENT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HEXISTS', KEYS[1], 'id') == 1 then return 0 end " +
+            "for _, field in ipairs(redis.call('HKEYS', KEYS[1])) do " +
+            "  if field ~= 'version' and field ~= 'stockVersion' then redis.call('HDEL', KEYS[1], field) end " +
+            "end " +
+            "redis.call('HSET', KEYS[1], 'absent', '1') " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+            "return 1", Long.class);
+    
+    // 写入库存：负缓存占位期间不写（否则会延长占位的 TTL）；只有库存的新 hash 设置 TTL，已有 hash 沿用图书字段的 TTL
+    // 版本低于缓存中的版本时放弃；版本相同时只有 stock 字段已被删除才写入：
+    // 同一版本下缓存的库存可能已被 HINCRBY 改过（对应的数据库修改尚未提交），不能用旧值覆盖
+    private static final DefaultRedisScript<Long> CACHE_STOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HEXISTS', KEYS[1], 'absent') == 1 then return 0 end " +
+            "local current = redis.call('HGET', KEYS[1], 'stockVersion') " +
+            "if current and (tonumber(current) > tonumber(ARGV[3]) or " +
+            "(tonumber(current) == tonumber(ARGV[3]) and redis.call('HEXISTS', KEYS[1], 'stock') == 1)) then return 0 end " +
+            "redis.call('HSET', KEYS[1], 'stock', ARGV[1], 'stockVersion', ARGV[3]) " +
+            "if redis.call('TTL', KEYS[1]) < 0 then redis.call('EXPIRE', KEYS[1], ARGV[2]) end " +
+            "return 1", Long.class);
+    
+    // 库存增减：字段不存在时返回 nil，不在空字段上累加
+    private static final DefaultRedisScript<Long> INCR_STOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('HEXISTS', KEYS[1], 'stock') == 0 then return nil end " +
+            "return redis.call('HINCRBY', KEYS[1], 'stock', ARGV[1])", Long.class);
+    
+    // 脚本返回整数数组时的结果类型（DefaultRedisScript 按 List.class 识别为 MULTI，元素为 Long）
+    @SuppressWarnings("unchecked")
+    private static final Class<List<Long>> LONG_LIST = (Class<List<Long>>) (Class<?>) List.class;
+    
+    // 多本书一起预留库存：先检查全部库存，任何一本未缓存（返回 -1）或不足（返回 0）时不做修改；
+    // 全部足够时一起扣减（返回 1）。第 i+1 个返回值为第 i 本书扣减后（或当前）的库存，未缓存为 -1
+    private static final DefaultRedisScript<List<Long>> RESERVE_STOCK_SCRIPT = new DefaultRedisScript<>(
+            "local result = {1} " +
+            "for i = 1, #KEYS do " +
+            "  local stock = redis.call('HGET', KEYS[i], 'stock') " +
+            "  if not stock then result[1] = -1 result[i + 1] = -1 " +
+            "  else " +
+            "    result[i + 1] = tonumber(stock) " +
+            "    if result[1] == 1 and tonumber(stock) < tonumber(ARGV[i]) then result[1] = 0 end " +
+            "  end " +
+            "end " +
+            "if result[1] ~= 1 then return result end " +
+            "for i = 1, #KEYS do " +
+            "  result[i + 1] = redis.call('HINCRBY', KEYS[i], 'stock', -tonumber(ARGV[i])) " +
+            "end " +
+            "return result", LONG_LIST);
+    
+    // 归还预留的库存；stock 字段已被删除（失效后等待回填）的图书跳过
+    private static final DefaultRedisScript<Long> RELEASE_STOCK_SCRIPT = new DefaultRedisScript<>(
+            "for i = 1, #KEYS do " +
+            "  if redis.call('HEXISTS', KEYS[i], 'stock') == 1 then " +
+            "    redis.call('HINCRBY', KEYS[i], 'stock', tonumber(ARGV[i])) " +
+            "  end " +
+            "end " +
+            "return 1", Long.class);
+    
+    // 单次 MGET / pipeline 的最大 key 数量，避免单条命令过大阻塞 Redis
+    private static final int MULTI_KEY_BATCH_SIZE = 500;
+    
+    // CacheMetrics 的统计分组
+    private static final String METRIC_BOOK = "book:detail";
+    private static final String METRIC_BOOK_BATCH = "book:detail:batch";
+    private static final String METRIC_INVENTORY = "inventory";
+    private static final String METRIC_BOOK_LIST = "book:list";
+    private static final String METRIC_BOOK_SUMMARY = "book:list-summary";
     
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
     
+    // 紧凑格式（Smile + LZ4），按 key 前缀选用，见 templateFor
+    @Autowired
+    @Qualifier("compactRedisTemplate")
+    private RedisTemplate<String, Object> compactRedisTemplate;
+    
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    
+    @Autowired
+    private BulkCacheEvictor bulkCacheEvictor;
+    
+    @Autowired
+    private RedisCircuitBreaker circuitBreaker;
+    
+    @Autowired
+    private CacheMetrics cacheMetrics;
+    
+    @Autowired
+    private FallbackCacheStore fallbackStore;
+    
     @Value("${bookstore.cache.enabled:true}")
     private boolean cacheEnabled;
     
     @Value("${bookstore.cache.book-ttl:7200}")
     private long bookTtl;
     
-    private volatile boolean redisAvailable = true;
+    @Value("${bookstore.cache.list-ttl:600}")
+    private long listTtl;
+    
+    @Value("${bookstore.cache.absent-ttl:60}")
+    private long absentTtl;
+    
+    // TTL 随机抖动比例：实际 TTL 在 ttl × (1 ± jitter) 之间均匀分布，避免同一批写入的 key 同时过期
+    @Value("${bookstore.cache.ttl-jitter:0.1}")
+    private double ttlJitter;
+    
+    @Value("${bookstore.cache.xfetch.enabled:true}")
+    private boolean xfetchEnabled;
+    
+    @Value("${bookstore.cache.xfetch.beta:1.0}")
+    private double xfetchBeta;
+    
+    // 加载耗时的下限：数据库加载通常只需几毫秒，直接使用会让提前刷新的窗口过窄
+    @Value("${bookstore.cache.xfetch.min-delta-ms:1000}")
+    private long xfetchMinDeltaMs;
+    
+    @Value("${bookstore.cache.codec.compact-prefixes:}")
+    private String[] compactPrefixes;
     
     /**
-     * 检查 Redis 是否可用
+     * 检查是否可以访问 Redis（由熔断器决定，不产生网络往返）
+     * 返回 true 后必须通过 {@link RedisCircuitBreaker} 回报本次调用的结果
      */
     public boolean isRedisAvailable() {
-        if (!cacheEnabled) {
+        return cacheEnabled && circuitBreaker.allowRequest();
+    }
+    
+    /**
+     * 按 key 前缀选择值的编码：命中 compact-prefixes 的 key 以紧凑格式写入，其余仍写 JSON
+     * 两个 template 都能读取新旧两种格式，切换前缀（或回退）期间已有的 key 不需要清理
+     * 代数计数器需要 INCR，始终使用 JSON（纯数字文本），不经过这里
+     */
+    private RedisTemplate<String, Object> templateFor(String key) {
+        for (String prefix : compactPrefixes) {
+            if (!prefix.isEmpty() && key.startsWith(prefix)) {
+                return compactRedisTemplate;
+            }
+        }
+        return redisTemplate;
+    }
+    
+    /**
+     * 两种编码的读写统计；legacyReads 持续为 0 说明旧格式的 key 已迁移完毕
+     */
+    public Map<String, Object> getCodecStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("compactPrefixes", List.of(compactPrefixes));
+        stats.put("json", ((CompactRedisSerializer) redisTemplate.getValueSerializer()).getStats());
+        stats.put("compact", ((CompactRedisSerializer) compactRedisTemplate.getValueSerializer()).getStats());
+        return stats;
+    }
+    
+    /**
+     * 缓存图书信息（只写图书字段，保留 hash 中已有的库存）
+     * 写穿透路径：没能写进 Redis 时，Redis 中可能仍是修改前的数据，记录下来在恢复后清理
+     */
+    public void cacheBook(Book book) {
+        if (!writeBook(book, 0) && book != null) {
+            fallbackStore.markBookDirty(book.getId());
+        }
+    }
+    
+    /**
+     * 读路径回填
+     * @param loadMillis 本次从数据库加载的耗时，用于提前刷新的概率计算
+     */
+    public void cacheBook(Book book, long loadMillis) {
+        writeBook(book, loadMillis);
+    }
+    
+    // 返回是否写入了 Redis；Redis 不可用时写入本地降级缓存
+    private boolean writeBook(Book book, long loadMillis) {
+        if (book == null) {
+            return false;
+        }
+        if (!isRedisAvailable()) {
+            fallbackStore.putBook(book);
             return false;
         }
         
         try {
-            redisTemplate.getConnectionFactory().getConnection().ping();
-            if (!redisAvailable) {
-                logger.info("✅ Redis connection restored");
-                redisAvailable = true;
-            }
+            stringRedisTemplate.execute(CACHE_BOOK_SCRIPT, List.of(bookKey(book.getId())), bookScriptArgs(book, loadMillis, null));
+            circuitBreaker.recordSuccess();
+            logger.debug("📦 Book cached: ID={}, Title={}", book.getId(), book.getTitle());
             return true;
         } catch (Exception e) {
-            if (redisAvailable) {
-                logger.error("❌ Redis connection failed, system degraded to database: {}", e.getMessage());
-                redisAvailable = false;
-            }
+            logger.warn("⚠️ Failed to cache book: {}", e.getMessage());
+            circuitBreaker.recordFailure(e);
+            fallbackStore.evictBook(book.getId());
             return false;
         }
     }
     
     /**
-     * 缓存图书信息
+     * 后台提前刷新图书字段：只有缓存仍是读取时的那一版（expiresAt 未变）才写入
+     * @param expectedExpiresAt 读取缓存时看到的 expiresAt
+     * @return 是否写入
      */
-    public void cacheBook(Book book) {
-        if (!isRedisAvailable() || book == null) {
-            return;
+    public boolean refreshCachedBook(Book book, long loadMillis, long expectedExpiresAt) {
+        if (book == null || !isRedisAvailable()) {
+            return false;
         }
         
         try {
-            String key = BOOK_CACHE_PREFIX + book.getId();
-            redisTemplate.opsForValue().set(key, book, bookTtl, TimeUnit.SECONDS);
-            logger.debug("📦 Book cached: ID={}, Title={}", book.getId(), book.getTitle());
+            Long written = stringRedisTemplate.execute(REFRESH_BOOK_SCRIPT, List.of(bookKey(book.getId())),
+                    bookScriptArgs(book, loadMillis, String.valueOf(expectedExpiresAt)));
+            circuitBreaker.recordSuccess();
+            logger.debug("🔄 Book cache refreshed early: ID={}, written={}", book.getId(), written);
+            return written != null && written == 1L;
         } catch (Exception e) {
-            logger.warn("⚠️ Failed to cache book: {}", e.getMessage());
-            redisAvailable = false;
+            logger.warn("⚠️ Failed to refresh book cache: {}", e.getMessage());
+            circuitBreaker.recordFailure(e);
+            return false;
+        }
+    }
+    
+    // ARGV: TTL、[期望的 expiresAt]、版本、字段/值对
+    private Object[] bookScriptArgs(Book book, long loadMillis, String expectedExpiresAt) {
+        long ttl = jitter(bookTtl);
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(ttl));
+        if (expectedExpiresAt != null) {
+            args.add(expectedExpiresAt);
+        }
+        args.add(String.valueOf(bookVersion(book)));
+        for (Map.Entry<String, String> field : encodeBook(book, System.currentTimeMillis() + ttl * 1000, loadMillis).entrySet()) {
+            args.add(field.getKey());
+            args.add(field.getValue());
+        }
+        return args.toArray();
+    }
+    
+    /**
+     * 给 TTL 加上随机抖动
+     */
+    private long jitter(long ttl) {
+        long spread = (long) (ttl * Math.min(Math.max(ttlJitter, 0), 1));
+        if (spread <= 0) {
+            return ttl;
         }
+        return Math.max(1, ttl - spread + ThreadLocalRandom.current().nextLong(2 * spread + 1));
     }
     
     /**
-     * 获取缓存的图书信息
+     * XFetch 概率提前刷新：剩余时间越短、加载越慢，越可能返回 true
+     * 判定条件为 -delta × beta × ln(rand) ≥ 剩余时间，热点 key 会在过期前由少数读请求在后台刷新，
+     * 冷门 key 几乎不会触发，按原 TTL 过期
+     */
+    public boolean isRefreshDue(BookCacheEntry entry) {
+        if (!xfetchEnabled || entry == null || entry.getBook() == null || entry.getExpiresAt() == null) {
+            return false;
+        }
+        long remaining = entry.getExpiresAt() - System.currentTimeMillis();
+        double delta = Math.max(entry.getLoadMillis(), xfetchMinDeltaMs);
+        return -delta * xfetchBeta * Math.log(ThreadLocalRandom.current().nextDouble()) >= remaining;
+    }
+    
+    /**
+     * 获取缓存的图书信息（负缓存占位视为未命中）
      */
     public Book getCachedBook(Long bookId) {
-        if (!isRedisAvailable() || bookId == null) {
+        Optional<Book> entry = getCachedBookEntry(bookId);
+        return entry != null ? entry.orElse(null) : null;
+    }
+    
+    /**
+     * 获取缓存的图书条目，区分"未缓存"和"已确认不存在"
+     * @return null 表示未缓存；Optional.empty() 表示命中负缓存（图书不存在或已删除）；否则为缓存的图书
+     */
+    public Optional<Book> getCachedBookEntry(Long bookId) {
+        BookCacheEntry entry = getCachedBookDetail(bookId);
+        if (entry == null) {
             return null;
         }
+        if (entry.isAbsent()) {
+            return Optional.empty();
+        }
+        return entry.getBook() != null ? Optional.of(entry.getBook()) : null;
+    }
+    
+    /**
+     * 一次 HGETALL 同时取出图书字段和库存（详情页路径）
+     * @return Redis 不可用或 hash 不存在时返回 null
+     */
+    public BookCacheEntry getCachedBookDetail(Long bookId) {
+        if (bookId == null) {
+            return null;
+        }
+        if (fallbackStore.isPendingReconcile(bookId) || !isRedisAvailable()) {
+            return getFallbackBookDetail(bookId);
+        }
         
+        long start = System.nanoTime();
+        String key = bookKey(bookId);
         try {
-            String key = BOOK_CACHE_PREFIX + bookId;
-            Object obj = redisTemplate.opsForValue().get(key);
-            if (obj != null) {
-                logger.debug("🎯 Cache hit: BookID={}", bookId);
-                return (Book) obj;
-            } else {
+            Map<Object, Object> hash = stringRedisTemplate.opsForHash().entries(key);
+            circuitBreaker.recordSuccess();
+            if (hash.isEmpty()) {
+                cacheMetrics.record(METRIC_BOOK, key, false, start);
                 logger.debug("❌ Cache miss: BookID={}", bookId);
+                return null;
             }
+            BookCacheEntry entry = decodeEntry(hash);
+            cacheMetrics.record(METRIC_BOOK, key, true, start);
+            if (entry.isAbsent()) {
+                logger.debug("🚫 Negative cache hit: BookID={}", bookId);
+            } else {
+                logger.debug("🎯 Cache hit: BookID={}, book={}, stock={}", bookId, entry.getBook() != null, entry.getStock());
+            }
+            return entry;
         } catch (Exception e) {
             logger.warn("⚠️ Failed to get cached book: {}", e.getMessage());
-            redisAvailable = false;
+            circuitBreaker.recordFailure(e);
+            cacheMetrics.recordError(METRIC_BOOK, start);
+            return null;
         }
-        return null;
+    }
+    
+    // 本地降级缓存中的图书与库存（不保存负缓存和提前刷新所需的元数据）
+    private BookCacheEntry getFallbackBookDetail(Long bookId) {
+        Book book = fallbackStore.getBook(bookId);
+        Integer stock = fallbackStore.getInventory(bookId);
+        if (book == null && stock == null) {
+            return null;
+        }
+        return new BookCacheEntry(book, false, stock);
     }
     
     /**
-     * 删除图书缓存
+     * 为不存在或已删除的图书写入短 TTL 的负缓存
+     * hash 中已有图书字段时不覆盖（并发的写穿透先写入了真实数据）；
+     * 反过来真实数据的写入会清除占位字段，因此保存、恢复无需额外清理
      */
-    public void evictBook(Long bookId) {
-        if (!isRedisAvailable() || bookId == null) {
+    public void cacheBookAbsent(Long bookId) {
+        if (bookId == null || absentTtl <= 0 || !isRedisAvailable()) {
             return;
         }
         
         try {
-            String key = BOOK_CACHE_PREFIX + bookId;
-            redisTemplate.delete(key);
+            stringRedisTemplate.execute(CACHE_ABSENT_SCRIPT, List.of(bookKey(bookId)), String.valueOf(jitter(absentTtl)));
+            circuitBreaker.recordSuccess();
+            logger.debug("🚫 Absent book cached: ID={}", bookId);
+        } catch (Exception e) {
+            logger.warn("⚠️ Failed to cache absent book: {}", e.getMessage());
+            circuitBreaker.recordFailure(e);
+        }
+    }
+    
+    /**
+     * 批量获取缓存的图书信息（pipeline HGETALL，每批一次往返）
+     * @return 命中的图书，key 为图书ID；Redis 不可用时返回空 Map
+     */
+    public Map<Long, Book> getCachedBooks(Collection<Long> bookIds) {
+        Map<Long, Book> result = new HashMap<>();
+        if (bookIds == null || bookIds.isEmpty()) {
+            return result;
+        }
+        if (!isRedisAvailable()) {
+            for (Long id : bookIds) {
+                Book book = fallbackStore.getBook(id);
+                if (book != null) {
+                    result.put(id, book);
+                }
+            }
+            return result;
+        }
+        
+        long start = System.nanoTime();
+        try {
+            List<Long> ids = new ArrayList<>();
+            for (Long id : bookIds) {
+                if (!fallbackStore.isPendingReconcile(id)) {
+                    ids.add(id);
+                } else {
+                    Book book = fallbackStore.getBook(id);
+                    if (book != null) {
+                        result.put(id, book);
+                    }
+                }
+            }
+            for (int from = 0; from < ids.size(); from += MULTI_KEY_BATCH_SIZE) {
+                List<Long> batch = ids.subList(from, Math.min(from + MULTI_KEY_BATCH_SIZE, ids.size()));
+                List<Object> values = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                        RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                        for (Long id : batch) {
+                            ops.opsForHash().entries(bookKey(id));
+                        }
+                        return null;
+                    }
+                });
+                for (int i = 0; i < batch.size(); i++) {
+                    if (values.get(i) instanceof Map<?, ?> hash && !hash.isEmpty()) {
+                        Book book = decodeEntry(hash).getBook();
+                        if (book != null) {
+                            result.put(batch.get(i), book);
+                        }
+                    }
+                }
+            }
+            circuitBreaker.recordSuccess();
+            cacheMetrics.recordBatch(METRIC_BOOK_BATCH, ids.stream().map(RedisCacheService::bookKey).toList(), result.size(), start);
+            logger.debug("🎯 Batch cache lookup: requested={}, hits={}", bookIds.size(), result.size());
+        } catch (Exception e) {
+            logger.warn("⚠️ Failed to batch get cached books: {}", e.getMessage());
+            circuitBreaker.recordFailure(e);
+            cacheMetrics.recordError(METRIC_BOOK_BATCH, start);
+        }
+        return result;
+    }
+    
+    /**
+     * 批量缓存图书信息（pipeline，每批一次往返）
+     */
+    public void cacheBooks(Collection<Book> books) {
+        if (books == null || books.isEmpty()) {
+            return;
+        }
+        if (!isRedisAvailable()) {
+            books.forEach(fallbackStore::putBook);
+            return;
+        }
+        
+        try {
+            List<Book> list = new ArrayList<>(books);
+            for (int from = 0; from < list.size(); from += MULTI_KEY_BATCH_SIZE) {
+                List<Book> batch = list.subList(from, Math.min(from + MULTI_KEY_BATCH_SIZE, list.size()));
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (Book book : batch) {
+                        eval(connection, CACHE_BOOK_SCRIPT, bookKey(book.getId()), bookScriptArgs(book, 0, null));
+                    }
+                    return null;
+                });
+            }
+            circuitBreaker.recordSuccess();
+            logger.debug("📦 Books cached in batch: count={}", books.size());
+        } catch (Exception e) {
+            logger.warn("⚠️ Failed to batch cache books: {}", e.getMessage());
+            circuitBreaker.recordFailure(e);
+            books.forEach(book -> fallbackStore.evictBook(book.getId()));
+        }
+    }
+    
+    /**
+     * 删除图书缓存（只删除图书字段，保留库存）
+     * @param version 留下的版本墓碑：软删除传删除后那一行的版本（{@link #bookVersion}），硬删除传 {@link #VERSION_DELETED}，
+     *                版本不高于墓碑的读回填都会被拒绝；传 0 时只删除图书字段，已有的墓碑不变
+     */
+    public void evictBook(Long bookId, long version) {
+        if (bookId == null) {
+            return;
+        }
+        fallbackStore.evictBook(bookId);
+        if (!isRedisAvailable()) {
+            fallbackStore.markBookDirty(bookId);
+            return;
+        }
+        
+        try {
+            stringRedisTemplate.execute(EVICT_BOOK_SCRIPT, List.of(bookKey(bookId)), String.valueOf(version), String.valueOf(jitter(bookTtl)));
+            circuitBreaker.recordSuccess();
             logger.debug("🗑️ Book cache evicted: ID={}", bookId);
         } catch (Exception e) {
             logger.warn("⚠️ Failed to evict book cache: {}", e.getMessage());
+            circuitBreaker.recordFailure(e);
+            fallbackStore.markBookDirty(bookId);
         }
     }
     
     /**
-     * 缓存库存信息
+     * 获取列表页缓存的当前代数（按分类，"all" 表示全部分类）
+     * 代数不存在时以当前时间戳初始化，保证计数器丢失后不会回到旧代数、命中残留的旧列表页
+     * @return 当前代数；Redis 不可用时返回 null（此时不应使用列表缓存）
      */
-    public void cacheInventory(Long bookId, Integer stock) {
-        if (!isRedisAvailable() || bookId == null) {
+    public Long getBookListGeneration(String category) {
+        if (!isRedisAvailable()) {
+            return null;
+        }
+        
+        try {
+            String key = BOOK_LIST_GENERATION_PREFIX + category;
+            Object obj = redisTemplate.opsForValue().get(key);
+            if (obj == null) {
+                redisTemplate.opsForValue().setIfAbsent(key, System.currentTimeMillis());
+                obj = redisTemplate.opsForValue().get(key);
+            }
+            circuitBreaker.recordSuccess();
+            return obj instanceof Number number ? number.longValue() : null;
+        } catch (Exception e) {
+            logger.warn("⚠️ Failed to get book list generation: category={}, error={}", category, e.getMessage());
+            circuitBreaker.recordFailure(e);
+            return null;
+        }
+    }
+    
+    /**
+     * 递增分类的列表页代数，旧代数下的列表页不再被读取，随 TTL 自然过期
+     */
+    public void bumpBookListGeneration(Collection<String> categories) {
+        if (categories == null || categories.isEmpty()) {
+            return;
+        }
+        if (!isRedisAvailable()) {
+            fallbackStore.markCategoriesDirty(categories);
             return;
         }
         
         try {
-            String key = BOOK_INVENTORY_PREFIX + bookId;
-            redisTemplate.opsForValue().set(key, stock, bookTtl, TimeUnit.SECONDS);
+            incrementGenerations(categories);
+            circuitBreaker.recordSuccess();
+            logger.debug("🔄 Book list generation bumped: categories={}", categories);
+        } catch (Exception e) {
+            logger.warn("⚠️ Failed to bump book list generation: {}", e.getMessage());
+            circuitBreaker.recordFailure(e);
+            fallbackStore.markCategoriesDirty(categories);
+        }
+    }
+    
+    // 每个分类两条命令（不存在时以时间戳初始化、再递增），全部在一次往返中完成
+    private void incrementGenerations(Collection<String> categories) {
+        List<String> keys = new ArrayList<>();
+        for (String category : categories) {
+            keys.add(BOOK_LIST_GENERATION_PREFIX + category);
+        }
+        long now = System.currentTimeMillis();
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                for (String key : keys) {
+                    ops.opsForValue().setIfAbsent(key, now);
+                    ops.opsForValue().increment(key);
+                }
+                return null;
+            }
+        });
+    }
+    
+    /**
+     * 缓存列表页（图书ID + 总数）
+     */
+    public void cacheBookListPage(String category, long generation, String pageKey, BookListPage page) {
+        if (page == null || !isRedisAvailable()) {
+            return;
+        }
+        
+        try {
+            String key = bookListKey(category, generation, pageKey);
+            templateFor(key).opsForValue().set(key, page, jitter(listTtl), TimeUnit.SECONDS);
+            circuitBreaker.recordSuccess();
+            logger.debug("📦 Book list page cached: key={}, size={}", key, page.getIds().size());
+        } catch (Exception e) {
+            logger.warn("⚠️ Failed to cache book list page: {}", e.getMessage());
+            circuitBreaker.recordFailure(e);
+        }
+    }
+    
+    /**
+     * 获取缓存的列表页
+     */
+    public BookListPage getCachedBookListPage(String category, long generation, String pageKey) {
+        if (!isRedisAvailable()) {
+            return null;
+        }
+        
+        long start = System.nanoTime();
+        try {
+            String key = bookListKey(category, generation, pageKey);
+            Object obj = templateFor(key).opsForValue().get(key);
+            circuitBreaker.recordSuccess();
+            cacheMetrics.record(METRIC_BOOK_LIST, key, obj instanceof BookListPage, start);
+            if (obj instanceof BookListPage page) {
+                logger.debug("🎯 Book list cache hit: category={}, page={}", category, pageKey);
+                return page;
+            }
+            logger.debug("❌ Book list cache miss: category={}, page={}", category, pageKey);
+        } catch (Exception e) {
+            logger.warn("⚠️ Failed to get cached book list page: {}", e.getMessage());
+            circuitBreaker.recordFailure(e);
+            cacheMetrics.recordError(METRIC_BOOK_LIST, start);
+        }
+        return null;
+    }
+    
+    /**
+     * 缓存精简列表页（DTO 列表 + 总数）
+     */
+    public void cacheBookSummaryPage(String category, long generation, String pageKey, BookSummaryPage page) {
+        if (page == null || !isRedisAvailable()) {
+            return;
+        }
+        
+        try {
+            String key = BOOK_SUMMARY_LIST_PREFIX + category + ":" + generation + ":" + pageKey;
+            templateFor(key).opsForValue().set(key, page, jitter(listTtl), TimeUnit.SECONDS);
+            circuitBreaker.recordSuccess();
+            logger.debug("📦 Book summary page cached: key={}, size={}", key, page.getContent().size());
+        } catch (Exception e) {
+            logger.warn("⚠️ Failed to cache book summary page: {}", e.getMessage());
+            circuitBreaker.recordFailure(e);
+        }
+    }
+    
+    /**
+     * 获取缓存的精简列表页
+     */
+    public BookSummaryPage getCachedBookSummaryPage(String category, long generation, String pageKey) {
+        if (!isRedisAvailable()) {
+            return null;
+        }
+        
+        long start = System.nanoTime();
+        try {
+            String key = BOOK_SUMMARY_LIST_PREFIX + category + ":" + generation + ":" + pageKey;
+            Object obj = templateFor(key).opsForValue().get(key);
+            circuitBreaker.recordSuccess();
+            cacheMetrics.record(METRIC_BOOK_SUMMARY, key, obj instanceof BookSummaryPage, start);
+            if (obj instanceof BookSummaryPage page) {
+                logger.debug("🎯 Book summary cache hit: category={}, page={}", category, pageKey);
+                return page;
+            }
+        } catch (Exception e) {
+            logger.warn("⚠️ Failed to get cached book summary page: {}", e.getMessage());
+            circuitBreaker.recordFailure(e);
+            cacheMetrics.recordError(METRIC_BOOK_SUMMARY, start);
+        }
+        return null;
+    }
+    
+    private static String bookListKey(String category, long generation, String pageKey) {
+        return BOOK_LIST_CACHE_PREFIX + category + ":" + generation + ":" + pageKey;
+    }
+    
+    /**
+     * 缓存库存信息（写入图书 hash 的 stock 字段）
+     * @param version 库存行的版本（book_inventory.version），只有比缓存中更新的版本才会写入；写路径需在 flush 之后取值
+     */
+    public void cacheInventory(Long bookId, Integer stock, Long version) {
+        if (bookId == null || stock == null) {
+            return;
+        }
+        if (!isRedisAvailable()) {
+            fallbackStore.putInventory(bookId, stock);
+            fallbackStore.markStockDirty(bookId);
+            return;
+        }
+        
+        try {
+            stringRedisTemplate.execute(CACHE_STOCK_SCRIPT, List.of(bookKey(bookId)), String.valueOf(stock),
+                    String.valueOf(jitter(bookTtl)), String.valueOf(version != null ? version : 0L));
+            circuitBreaker.recordSuccess();
             logger.debug("📦 Inventory cached: BookID={}, Stock={}", bookId, stock);
         } catch (Exception e) {
             logger.warn("⚠️ Failed to cache inventory: {}", e.getMessage());
-            redisAvailable = false;
+            circuitBreaker.recordFailure(e);
+            fallbackStore.evictInventory(bookId);
+            fallbackStore.markStockDirty(bookId);
+        }
+    }
+    
+    /**
+     * 批量缓存新建的库存记录（pipeline，每批一次往返），版本均为初始值 0
+     */
+    public void cacheInventories(Map<Long, Integer> stocks) {
+        if (stocks == null || stocks.isEmpty()) {
+            return;
+        }
+        if (!isRedisAvailable()) {
+            stocks.forEach((bookId, stock) -> {
+                fallbackStore.putInventory(bookId, stock);
+                fallbackStore.markStockDirty(bookId);
+            });
+            return;
+        }
+        
+        try {
+            List<Map.Entry<Long, Integer>> list = new ArrayList<>(stocks.entrySet());
+            for (int from = 0; from < list.size(); from += MULTI_KEY_BATCH_SIZE) {
+                List<Map.Entry<Long, Integer>> batch = list.subList(from, Math.min(from + MULTI_KEY_BATCH_SIZE, list.size()));
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (Map.Entry<Long, Integer> entry : batch) {
+                        eval(connection, CACHE_STOCK_SCRIPT, bookKey(entry.getKey()),
+                                String.valueOf(entry.getValue()), String.valueOf(jitter(bookTtl)), "0");
+                    }
+                    return null;
+                });
+            }
+            circuitBreaker.recordSuccess();
+            logger.debug("📦 Inventories cached in batch: count={}", stocks.size());
+        } catch (Exception e) {
+            logger.warn("⚠️ Failed to batch cache inventories: {}", e.getMessage());
+            circuitBreaker.recordFailure(e);
+            stocks.keySet().forEach(bookId -> {
+                fallbackStore.evictInventory(bookId);
+                fallbackStore.markStockDirty(bookId);
+            });
         }
     }
     
@@ -141,76 +821,372 @@ public class RedisCacheService {
      * 获取缓存的库存信息
      */
     public Integer getCachedInventory(Long bookId) {
-        if (!isRedisAvailable() || bookId == null) {
+        if (bookId == null) {
             return null;
         }
+        if (fallbackStore.isPendingReconcile(bookId) || !isRedisAvailable()) {
+            return fallbackStore.getInventory(bookId);
+        }
         
+        long start = System.nanoTime();
         try {
-            String key = BOOK_INVENTORY_PREFIX + bookId;
-            Object obj = redisTemplate.opsForValue().get(key);
-            if (obj != null) {
+            Object value = stringRedisTemplate.opsForHash().get(bookKey(bookId), FIELD_STOCK);
+            circuitBreaker.recordSuccess();
+            // 库存是图书 Hash 中的字段，热点统计记录的是实际访问的 Redis key
+            cacheMetrics.record(METRIC_INVENTORY, bookKey(bookId), value != null, start);
+            if (value != null) {
                 logger.debug("🎯 Inventory cache hit: BookID={}", bookId);
-                return (Integer) obj;
+                return Integer.valueOf(value.toString());
             } else {
                 logger.debug("❌ Inventory cache miss: BookID={}", bookId);
             }
         } catch (Exception e) {
             logger.warn("⚠️ Failed to get cached inventory: {}", e.getMessage());
-            redisAvailable = false;
+            circuitBreaker.recordFailure(e);
+            cacheMetrics.recordError(METRIC_INVENTORY, start);
         }
         return null;
     }
     
     /**
-     * 更新库存缓存（原子操作）
+     * 更新库存缓存（HINCRBY 原子操作）
+     * 库存未缓存时不做任何修改并返回 false，避免在不存在的字段上从 0 开始累加出错误的库存
      */
     public boolean updateInventoryCache(Long bookId, int delta) {
-        if (!isRedisAvailable() || bookId == null) {
+        if (bookId == null) {
+            return false;
+        }
+        if (!isRedisAvailable()) {
+            fallbackStore.evictInventory(bookId);
+            fallbackStore.markStockDirty(bookId);
             return false;
         }
         
         try {
-            String key = BOOK_INVENTORY_PREFIX + bookId;
-            Long newValue = redisTemplate.opsForValue().increment(key, delta);
+            Long newValue = stringRedisTemplate.execute(INCR_STOCK_SCRIPT, List.of(bookKey(bookId)), String.valueOf(delta));
+            circuitBreaker.recordSuccess();
             logger.debug("📊 Inventory cache updated: BookID={}, Delta={}, NewValue={}", bookId, delta, newValue);
             return newValue != null && newValue >= 0;
         } catch (Exception e) {
             logger.warn("⚠️ Failed to update inventory cache: {}", e.getMessage());
-            redisAvailable = false;
+            circuitBreaker.recordFailure(e);
+            fallbackStore.evictInventory(bookId);
+            fallbackStore.markStockDirty(bookId);
             return false;
         }
     }
     
     /**
-     * 删除库存缓存
+     * 删除库存缓存（只删除 stock 字段，保留图书字段）
      */
     public void evictInventory(Long bookId) {
-        if (!isRedisAvailable() || bookId == null) {
+        if (bookId == null) {
+            return;
+        }
+        fallbackStore.evictInventory(bookId);
+        if (!isRedisAvailable()) {
+            fallbackStore.markStockDirty(bookId);
             return;
         }
         
         try {
-            String key = BOOK_INVENTORY_PREFIX + bookId;
-            redisTemplate.delete(key);
+            stringRedisTemplate.opsForHash().delete(bookKey(bookId), FIELD_STOCK);
+            circuitBreaker.recordSuccess();
             logger.debug("🗑️ Inventory cache evicted: BookID={}", bookId);
         } catch (Exception e) {
             logger.warn("⚠️ Failed to evict inventory cache: {}", e.getMessage());
+            circuitBreaker.recordFailure(e);
+            fallbackStore.markStockDirty(bookId);
         }
     }
     
     /**
-     * 清除所有图书相关缓存
+     * 一次往返预留多本书的库存（全部扣减或全部不变）
+     * 所有 key 在同一个脚本中访问，要求 Redis 为单实例/主从部署（集群下需要相同的 hash tag）
+     * @param quantities 图书ID -> 数量（必须为正数）
      */
-    public void evictAllBookCaches() {
+    public StockReservation reserveStock(Map<Long, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) {
+            throw new IllegalArgumentException("预留的图书不能为空");
+        }
+        List<Long> ids = new ArrayList<>(quantities.keySet());
+        List<String> keys = new ArrayList<>(ids.size());
+        Object[] args = new Object[ids.size()];
+        for (int i = 0; i < ids.size(); i++) {
+            Integer quantity = quantities.get(ids.get(i));
+            if (quantity == null || quantity <= 0) {
+                throw new IllegalArgumentException("预留数量必须为正数: BookID=" + ids.get(i));
+            }
+            keys.add(bookKey(ids.get(i)));
+            args[i] = String.valueOf(quantity);
+        }
         if (!isRedisAvailable()) {
+            return StockReservation.unavailable(quantities);
+        }
+        
+        try {
+            List<Long> result = stringRedisTemplate.execute(RESERVE_STOCK_SCRIPT, keys, args);
+            circuitBreaker.recordSuccess();
+            long code = result.get(0);
+            Map<Long, Integer> stocks = new LinkedHashMap<>();
+            for (int i = 0; i < ids.size(); i++) {
+                long stock = result.get(i + 1);
+                if (code == 1 || stock >= 0) {
+                    stocks.put(ids.get(i), (int) stock);
+                }
+            }
+            StockReservation.Status status = code == 1 ? StockReservation.Status.RESERVED
+                    : code == 0 ? StockReservation.Status.INSUFFICIENT : StockReservation.Status.NOT_CACHED;
+            logger.debug("📊 Stock reservation: items={}, status={}", ids.size(), status);
+            return new StockReservation(status, quantities, stocks);
+        } catch (Exception e) {
+            logger.warn("⚠️ Failed to reserve stock: {}", e.getMessage());
+            circuitBreaker.recordFailure(e);
+            return StockReservation.unavailable(quantities);
+        }
+    }
+    
+    /**
+     * 归还 {@link #reserveStock} 预留的库存（一次往返）
+     * @return 是否已在 Redis 中执行
+     */
+    public boolean releaseStock(Map<Long, Integer> quantities) {
+        if (quantities == null || quantities.isEmpty()) {
+            return true;
+        }
+        if (!isRedisAvailable()) {
+            quantities.keySet().forEach(bookId -> {
+                fallbackStore.evictInventory(bookId);
+                fallbackStore.markStockDirty(bookId);
+            });
+            return false;
+        }
+        
+        List<String> keys = new ArrayList<>(quantities.size());
+        List<String> args = new ArrayList<>(quantities.size());
+        quantities.forEach((bookId, quantity) -> {
+            keys.add(bookKey(bookId));
+            args.add(String.valueOf(quantity));
+        });
+        try {
+            stringRedisTemplate.execute(RELEASE_STOCK_SCRIPT, keys, args.toArray());
+            circuitBreaker.recordSuccess();
+            logger.debug("📊 Stock reservation released: items={}", quantities.size());
+            return true;
+        } catch (Exception e) {
+            logger.warn("⚠️ Failed to release stock reservation: {}", e.getMessage());
+            circuitBreaker.recordFailure(e);
+            // 没能归还的库存偏低，删除后按数据库重新回填
+            quantities.keySet().forEach(fallbackStore::markStockDirty);
+            return false;
+        }
+    }
+    
+    // ==================== 熔断恢复 ====================
+    
+    /**
+     * Redis 恢复后在后台清理熔断期间没能写进 Redis 的变更，完成后作废本地降级缓存
+     */
+    @EventListener
+    public void onRedisRecovered(RedisRecoveredEvent event) {
+        if (!fallbackStore.isEnabled()) {
+            return;
+        }
+        Thread thread = new Thread(this::reconcileFallback, "cache-fallback-reconcile");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private void reconcileFallback() {
+        FallbackCacheStore.Pending pending = fallbackStore.beginReconcile();
+        if (pending == null) {
+            return;
+        }
+        if (pending.overflowed()) {
+            // 记录不完整，整体清除图书缓存（列表页同在 book:* 之下）
+            if (!bulkCacheEvictor.start() && !bulkCacheEvictor.isRunning()) {
+                fallbackStore.abortReconcile();
+                return;
+            }
+            fallbackStore.finishReconcile(pending);
+            logger.info("🗑️ Fallback reconcile: too many changes during outage, evicting all book caches");
+            return;
+        }
+        if (!isRedisAvailable()) {
+            fallbackStore.abortReconcile();
             return;
         }
         
         try {
-            // 这里可以使用 scan 命令批量删除，但为了简单起见暂时不实现
-            logger.info("🗑️ Triggered to evict all book caches");
+            List<Long> books = pending.books();
+            for (int from = 0; from < books.size(); from += MULTI_KEY_BATCH_SIZE) {
+                List<String> keys = books.subList(from, Math.min(from + MULTI_KEY_BATCH_SIZE, books.size())).stream()
+                        .map(RedisCacheService::bookKey).toList();
+                stringRedisTemplate.unlink(keys);
+            }
+            List<Long> stocks = pending.stocks();
+            for (int from = 0; from < stocks.size(); from += MULTI_KEY_BATCH_SIZE) {
+                List<Long> batch = stocks.subList(from, Math.min(from + MULTI_KEY_BATCH_SIZE, stocks.size()));
+                stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                        RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                        for (Long bookId : batch) {
+                            // 版本一并删除：恢复后按数据库当前版本重新回填
+                            ops.opsForHash().delete(bookKey(bookId), FIELD_STOCK, FIELD_STOCK_VERSION);
+                        }
+                        return null;
+                    }
+                });
+            }
+            if (!pending.categories().isEmpty()) {
+                incrementGenerations(pending.categories());
+            }
+            circuitBreaker.recordSuccess();
+            fallbackStore.finishReconcile(pending);
+            logger.info("✅ Fallback reconciled: books={}, stocks={}, categories={}",
+                    books.size(), stocks.size(), pending.categories().size());
+        } catch (Exception e) {
+            logger.warn("⚠️ Failed to reconcile fallback cache: {}", e.getMessage());
+            circuitBreaker.recordFailure(e);
+            fallbackStore.abortReconcile();
+        }
+    }
+    
+    public Map<String, Object> getFallbackStats() {
+        return fallbackStore.getStats();
+    }
+    
+    /**
+     * 图书的缓存版本：updatedAt 的微秒数（与 datetime(6) 列的精度一致，从数据库读回的行版本不变）
+     * 写入前需要 flush，使 @PreUpdate 设置的 updatedAt 已生效
+     */
+    public static long bookVersion(Book book) {
+        LocalDateTime updatedAt = book.getUpdatedAt();
+        if (updatedAt == null) {
+            return 0;
+        }
+        return updatedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + updatedAt.getNano() / 1_000;
+    }
+    
+    private static String bookKey(Long bookId) {
+        return BOOK_CACHE_PREFIX + bookId;
+    }
+    
+    // 在 pipeline 中执行脚本（EVAL 带脚本正文，避免 NOSCRIPT 错误在 pipeline 中无法回退）
+    private static void eval(RedisConnection connection, DefaultRedisScript<?> script, String key, Object... args) {
+        byte[][] keysAndArgs = new byte[args.length + 1][];
+        keysAndArgs[0] = key.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < args.length; i++) {
+            keysAndArgs[i + 1] = args[i].toString().getBytes(StandardCharsets.UTF_8);
+        }
+        connection.scriptingCommands().eval(script.getScriptAsString().getBytes(StandardCharsets.UTF_8),
+                ReturnType.INTEGER, 1, keysAndArgs);
+    }
+    
+    private static String luaArgs(Object[] fields) {
+        StringBuilder sb = new StringBuilder();
+        for (Object field : fields) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append('\'').append(field).append('\'');
+        }
+        return sb.toString();
+    }
+    
+    // 图书 -> hash 字段（null 字段不写入）
+    private static Map<String, String> encodeBook(Book book, long expiresAt, long loadMillis) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        putIfNotNull(fields, FIELD_ID, book.getId());
+        putIfNotNull(fields, "title", book.getTitle());
+        putIfNotNull(fields, "author", book.getAuthor());
+        putIfNotNull(fields, "isbn", book.getIsbn());
+        putIfNotNull(fields, "publisher", book.getPublisher());
+        putIfNotNull(fields, "price", book.getPrice() != null ? book.getPrice().toPlainString() : null);
+        putIfNotNull(fields, "cover", book.getCover());
+        putIfNotNull(fields, "description", book.getDescription());
+        putIfNotNull(fields, "category", book.getCategory());
+        putIfNotNull(fields, "deleted", book.getDeleted());
+        putIfNotNull(fields, "createdAt", book.getCreatedAt());
+        putIfNotNull(fields, "updatedAt", book.getUpdatedAt());
+        putIfNotNull(fields, "deletedAt", book.getDeletedAt());
+        fields.put(FIELD_EXPIRES_AT, String.valueOf(expiresAt));
+        fields.put(FIELD_LOAD_MILLIS, String.valueOf(loadMillis));
+        fields.put(FIELD_VERSION, String.valueOf(bookVersion(book)));
+        return fields;
+    }
+    
+    private static void putIfNotNull(Map<String, String> fields, String name, Object value) {
+        if (value != null) {
+            fields.put(name, value.toString());
+        }
+    }
+    
+    // hash 字段 -> 缓存条目
+    private static BookCacheEntry decodeEntry(Map<?, ?> hash) {
+        Object stockValue = hash.get(FIELD_STOCK);
+        Integer stock = stockValue != null ? Integer.valueOf(stockValue.toString()) : null;
+        String stockVersion = stock != null ? text(hash, FIELD_STOCK_VERSION) : null;
+        Long version = stockVersion != null ? Long.valueOf(stockVersion) : null;
+        if (hash.containsKey(FIELD_ABSENT)) {
+            return new BookCacheEntry(null, true, stock);
+        }
+        if (!hash.containsKey(FIELD_ID)) {
+            return new BookCacheEntry(null, false, stock, version, null, 0);
+        }
+        Book book = new Book();
+        book.setId(Long.valueOf(hash.get(FIELD_ID).toString()));
+        book.setTitle(text(hash, "title"));
+        book.setAuthor(text(hash, "author"));
+        book.setIsbn(text(hash, "isbn"));
+        book.setPublisher(text(hash, "publisher"));
+        String price = text(hash, "price");
+        book.setPrice(price != null ? new BigDecimal(price) : null);
+        book.setCover(text(hash, "cover"));
+        book.setDescription(text(hash, "description"));
+        book.setCategory(text(hash, "category"));
+        String deleted = text(hash, "deleted");
+        book.setDeleted(deleted != null ? Boolean.valueOf(deleted) : Boolean.FALSE);
+        book.setCreatedAt(dateTime(hash, "createdAt"));
+        book.setUpdatedAt(dateTime(hash, "updatedAt"));
+        book.setDeletedAt(dateTime(hash, "deletedAt"));
+        String expiresAt = text(hash, FIELD_EXPIRES_AT);
+        String loadMillis = text(hash, FIELD_LOAD_MILLIS);
+        return new BookCacheEntry(book, false, stock, version, expiresAt != null ? Long.valueOf(expiresAt) : null,
+                loadMillis != null ? Long.parseLong(loadMillis) : 0);
+    }
+    
+    private static String text(Map<?, ?> hash, String name) {
+        Object value = hash.get(name);
+        return value != null ? value.toString() : null;
+    }
+    
+    private static LocalDateTime dateTime(Map<?, ?> hash, String name) {
+        String value = text(hash, name);
+        return value != null ? LocalDateTime.parse(value) : null;
+    }
+    
+    /**
+     * 清除所有图书相关缓存（详情、列表、摘要列表以及旧版库存 key）
+     * 在后台线程中以 SCAN + UNLINK 分批执行，立即返回，进度见 {@link BulkCacheEvictor#getProgress()}
+     * @return false 表示 Redis 不可用或已有清除任务在运行
+     */
+    public boolean evictAllBookCaches() {
+        if (!isRedisAvailable()) {
+            return false;
+        }
+        
+        try {
+            boolean started = bulkCacheEvictor.start();
+            if (!started) {
+                logger.info("🗑️ Book cache eviction already running, request ignored");
+            }
+            return started;
         } catch (Exception e) {
             logger.warn("⚠️ Failed to evict all caches: {}", e.getMessage());
+            return false;
         }
     }
     
@@ -223,10 +1199,11 @@ public class RedisCacheService {
         }
         
         try {
-            redisTemplate.opsForValue().set(key, value, timeout, unit);
+            templateFor(key).opsForValue().set(key, value, timeout, unit);
+            circuitBreaker.recordSuccess();
         } catch (Exception e) {
             logger.warn("⚠️ Failed to set cache: key={}, error={}", key, e.getMessage());
-            redisAvailable = false;
+            circuitBreaker.recordFailure(e);
         }
     }
     
@@ -238,11 +1215,16 @@ public class RedisCacheService {
             return null;
         }
         
+        long start = System.nanoTime();
         try {
-            return redisTemplate.opsForValue().get(key);
+            Object value = templateFor(key).opsForValue().get(key);
+            circuitBreaker.recordSuccess();
+            cacheMetrics.record(CacheMetrics.prefixOf(key), key, value != null, start);
+            return value;
         } catch (Exception e) {
             logger.warn("⚠️ Failed to get cache: key={}, error={}", key, e.getMessage());
-            redisAvailable = false;
+            circuitBreaker.recordFailure(e);
+            cacheMetrics.recordError(CacheMetrics.prefixOf(key), start);
             return null;
         }
     }
@@ -257,9 +1239,180 @@ public class RedisCacheService {
         
         try {
             redisTemplate.delete(key);
+            circuitBreaker.recordSuccess();
         } catch (Exception e) {
             logger.warn("⚠️ Failed to delete cache: key={}, error={}", key, e.getMessage());
+            circuitBreaker.recordFailure(e);
         }
     }
+    
+    // ==================== 批量操作（pipeline） ====================
+    
+    /**
+     * 批量获取通用缓存，每批一次往返
+     * @return 命中的 key 与值；Redis 不可用时返回空 Map，调用方按未命中处理
+     */
+    public Map<String, Object> multiGet(Collection<String> keys) {
+        return multiGet(keys, MULTI_KEY_BATCH_SIZE);
+    }
+    
+    /**
+     * @param batchSize 每个 pipeline 携带的 key 数量上限（不超过 {@value #MULTI_KEY_BATCH_SIZE}）
+     */
+    public Map<String, Object> multiGet(Collection<String> keys, int batchSize) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (keys == null || keys.isEmpty() || !isRedisAvailable()) {
+            return result;
+        }
+        
+        try {
+            // 两种编码的 template 都能读取新旧格式，读取统一走默认 template
+            List<String> list = new ArrayList<>(keys);
+            List<Object> values = pipelined(redisTemplate, list, batchSize,
+                    (operations, key) -> operations.opsForValue().get(key));
+            for (int i = 0; i < list.size(); i++) {
+                if (values.get(i) != null) {
+                    result.put(list.get(i), values.get(i));
+                }
+            }
+            circuitBreaker.recordSuccess();
+            logger.debug("🎯 Multi get: requested={}, hits={}", keys.size(), result.size());
+        } catch (Exception e) {
+            logger.warn("⚠️ Failed to multi get cache: {}", e.getMessage());
+            circuitBreaker.recordFailure(e);
+        }
+        return result;
+    }
+    
+    /**
+     * 批量设置通用缓存（统一 TTL），每批一次往返
+     */
+    public void multiSet(Map<String, ?> values, long timeout, TimeUnit unit) {
+        multiSet(values, timeout, unit, MULTI_KEY_BATCH_SIZE);
+    }
+    
+    public void multiSet(Map<String, ?> values, long timeout, TimeUnit unit, int batchSize) {
+        if (values == null || values.isEmpty() || !isRedisAvailable()) {
+            return;
+        }
+        
+        try {
+            // 按编码分组：同一个 pipeline 只能使用一个 template 的序列化方式
+            Map<RedisTemplate<String, Object>, List<Map.Entry<String, ?>>> groups = new LinkedHashMap<>();
+            for (Map.Entry<String, ?> entry : values.entrySet()) {
+                if (entry.getValue() != null) {
+                    groups.computeIfAbsent(templateFor(entry.getKey()), t -> new ArrayList<>()).add(entry);
+                }
+            }
+            for (Map.Entry<RedisTemplate<String, Object>, List<Map.Entry<String, ?>>> group : groups.entrySet()) {
+                pipelined(group.getKey(), group.getValue(), batchSize,
+                        (operations, entry) -> operations.opsForValue().set(entry.getKey(), entry.getValue(), timeout, unit));
+            }
+            circuitBreaker.recordSuccess();
+            logger.debug("📦 Multi set: count={}", values.size());
+        } catch (Exception e) {
+            logger.warn("⚠️ Failed to multi set cache: {}", e.getMessage());
+            circuitBreaker.recordFailure(e);
+        }
+    }
+    
+    /**
+     * 批量删除缓存，每批一条 DEL 命令
+     * @return 实际删除的 key 数量；Redis 不可用时返回 0
+     */
+    public long multiDelete(Collection<String> keys) {
+        return multiDelete(keys, MULTI_KEY_BATCH_SIZE);
+    }
+    
+    public long multiDelete(Collection<String> keys, int batchSize) {
+        if (keys == null || keys.isEmpty() || !isRedisAvailable()) {
+            return 0;
+        }
+        
+        try {
+            List<String> list = new ArrayList<>(keys);
+            int size = clampBatchSize(batchSize);
+            List<List<String>> batches = new ArrayList<>();
+            for (int from = 0; from < list.size(); from += size) {
+                batches.add(new ArrayList<>(list.subList(from, Math.min(from + size, list.size()))));
+            }
+            long deleted = 0;
+            for (Object count : pipelined(redisTemplate, batches, MULTI_KEY_BATCH_SIZE,
+                    (operations, batch) -> operations.delete(batch))) {
+                if (count instanceof Number number) {
+                    deleted += number.longValue();
+                }
+            }
+            circuitBreaker.recordSuccess();
+            logger.debug("🗑️ Multi delete: requested={}, deleted={}", keys.size(), deleted);
+            return deleted;
+        } catch (Exception e) {
+            logger.warn("⚠️ Failed to multi delete cache: {}", e.getMessage());
+            circuitBreaker.recordFailure(e);
+            return 0;
+        }
+    }
+    
+    /**
+     * 批量递增计数器（INCRBY），每批一次往返
+     * @return 各 key 递增后的值；Redis 不可用或执行失败时返回空 Map，调用方应回退到数据库
+     */
+    public Map<String, Long> multiIncrement(Map<String, Long> deltas) {
+        return multiIncrement(deltas, MULTI_KEY_BATCH_SIZE);
+    }
+    
+    public Map<String, Long> multiIncrement(Map<String, Long> deltas, int batchSize) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        if (deltas == null || deltas.isEmpty() || !isRedisAvailable()) {
+            return result;
+        }
+        
+        try {
+            List<Map.Entry<String, Long>> list = new ArrayList<>(deltas.entrySet());
+            List<Object> values = pipelined(redisTemplate, list, batchSize,
+                    (operations, entry) -> operations.opsForValue().increment(entry.getKey(), entry.getValue()));
+            for (int i = 0; i < list.size(); i++) {
+                if (values.get(i) instanceof Number number) {
+                    result.put(list.get(i).getKey(), number.longValue());
+                }
+            }
+            circuitBreaker.recordSuccess();
+            logger.debug("📊 Multi increment: count={}", deltas.size());
+        } catch (Exception e) {
+            logger.warn("⚠️ Failed to multi increment cache: {}", e.getMessage());
+            circuitBreaker.recordFailure(e);
+            result.clear();
+        }
+        return result;
+    }
+    
+    /**
+     * 把 items 按 batchSize 分批，每批在一个 pipeline 中执行 command
+     * @return 与 items 一一对应的命令结果（command 必须对每个 item 恰好发出一条命令）
+     */
+    private <T> List<Object> pipelined(RedisTemplate<String, Object> template, List<T> items, int batchSize,
+                                       BiConsumer<RedisOperations<String, Object>, T> command) {
+        List<Object> results = new ArrayList<>(items.size());
+        int size = clampBatchSize(batchSize);
+        for (int from = 0; from < items.size(); from += size) {
+            List<T> batch = items.subList(from, Math.min(from + size, items.size()));
+            results.addAll(template.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                    for (T item : batch) {
+                        command.accept(ops, item);
+                    }
+                    return null;
+                }
+            }));
+        }
+        return results;
+    }
+    
+    private static int clampBatchSize(int batchSize) {
+        return Math.max(1, Math.min(batchSize, MULTI_KEY_BATCH_SIZE));
+    }
 }
 
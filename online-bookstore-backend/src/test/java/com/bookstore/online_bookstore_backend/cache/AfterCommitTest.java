@@ -0,0 +1,65 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import com.bookstore.online_bookstore_backend.support.NoOpTransactionManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AfterCommitTest {
+
+    private final TransactionTemplate tx = NoOpTransactionManager.template();
+
+    @Test
+    void runsImmediatelyWithoutTransaction() {
+        List<String> calls = new ArrayList<>();
+        AfterCommit.run(() -> calls.add("run"));
+        AfterCommit.onRollback(() -> calls.add("rollback"));
+
+        assertThat(calls).containsExactly("run");
+    }
+
+    @Test
+    void defersUntilCommit() {
+        List<String> calls = new ArrayList<>();
+        tx.executeWithoutResult(status -> {
+            AfterCommit.run(() -> calls.add("run"));
+            AfterCommit.onRollback(() -> calls.add("rollback"));
+            assertThat(calls).isEmpty();
+        });
+
+        assertThat(calls).containsExactly("run");
+    }
+
+    @Test
+    void rollbackDiscardsDeferredActions() {
+        List<String> calls = new ArrayList<>();
+        tx.executeWithoutResult(status -> {
+            AfterCommit.run(() -> calls.add("run"));
+            AfterCommit.onRollback(() -> calls.add("rollback"));
+            status.setRollbackOnly();
+        });
+
+        assertThat(calls).containsExactly("rollback");
+    }
+
+    @Test
+    void nestedRunInsideAfterCommitExecutes() {
+        List<String> calls = new ArrayList<>();
+        tx.executeWithoutResult(status -> AfterCommit.run(() -> {
+            calls.add("outer");
+            AfterCommit.run(() -> calls.add("nested"));
+        }));
+
+        assertThat(calls).containsExactly("outer", "nested");
+        // 提交后的标记已清除，下一个事务照常推迟
+        tx.executeWithoutResult(status -> {
+            AfterCommit.run(() -> calls.add("next"));
+            assertThat(calls).hasSize(2);
+        });
+        assertThat(calls).containsExactly("outer", "nested", "next");
+    }
+}
@@ -0,0 +1,84 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import com.bookstore.online_bookstore_backend.support.CacheFixture;
+import com.bookstore.online_bookstore_backend.support.EmbeddedRedis;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * 批量清除：分批 UNLINK 图书缓存，保留列表代数计数器与无关的 key，结束后清空近端缓存
+ */
+class BulkCacheEvictorTest {
+
+    private BulkCacheEvictor evictor;
+    private NearCacheManager nearCacheManager;
+    private StringRedisTemplate redis;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        CacheFixture fixture = new CacheFixture();
+        redis = fixture.redis;
+        evictor = fixture.bulkCacheEvictor;
+        nearCacheManager = mock(NearCacheManager.class);
+        setField(evictor, "nearCacheManager", nearCacheManager);
+        setField(evictor, "batchSize", 7);
+    }
+
+    @Test
+    void evictsBookKeysInBatchesAndKeepsGenerations() throws InterruptedException {
+        for (int i = 0; i < 30; i++) {
+            redis.opsForHash().put("book:detail:" + i, "stock", "1");
+            redis.opsForValue().set("inventory:" + i, "1");
+        }
+        redis.opsForValue().set("book:list:gen:all", "5");
+        redis.opsForValue().set("session:1", "x");
+
+        assertThat(evictor.start()).isTrue();
+        awaitFinished();
+
+        Map<String, Object> progress = evictor.getProgress();
+        assertThat(progress.get("status")).isEqualTo(BulkCacheEvictor.Status.COMPLETED);
+        assertThat(progress.get("deleted")).isEqualTo(60L);
+        assertThat((Long) progress.get("batches")).isGreaterThanOrEqualTo(10L);
+        assertThat(redis.keys("book:detail:*")).isEmpty();
+        assertThat(redis.keys("inventory:*")).isEmpty();
+        assertThat(redis.opsForValue().get("book:list:gen:all")).isEqualTo("5");
+        assertThat(redis.opsForValue().get("session:1")).isEqualTo("x");
+        verify(nearCacheManager).invalidateAll();
+    }
+
+    @Test
+    void onlyOneJobRunsAtATime() throws InterruptedException {
+        setField(evictor, "pauseMs", 50L);
+        for (int i = 0; i < 30; i++) {
+            redis.opsForValue().set("book:list:" + i, "1");
+        }
+
+        assertThat(evictor.start()).isTrue();
+        assertThat(evictor.start()).isFalse();
+        assertThat(evictor.cancel()).isTrue();
+        awaitFinished();
+
+        assertThat(evictor.getProgress().get("status")).isEqualTo(BulkCacheEvictor.Status.CANCELLED);
+        assertThat(evictor.start()).isTrue();
+        awaitFinished();
+        assertThat(redis.keys("book:list:*")).isEmpty();
+    }
+
+    private void awaitFinished() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (evictor.isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(evictor.isRunning()).isFalse();
+    }
+}
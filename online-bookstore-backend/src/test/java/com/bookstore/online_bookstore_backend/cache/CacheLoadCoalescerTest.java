@@ -0,0 +1,152 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import com.bookstore.online_bookstore_backend.support.EmbeddedRedis;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * 回源合并：同一节点内并发未命中只回源一次；跨节点时没抢到锁的节点等待对方回填，超时后自行回源
+ */
+class CacheLoadCoalescerTest {
+
+    private StringRedisTemplate redis;
+    private CacheLoadCoalescer coalescer;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        redis = EmbeddedRedis.stringRedisTemplate();
+        coalescer = coalescer(false);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(() -> coalescer.load("book", 1L, null, () -> {
+                calls.incrementAndGet();
+                awaitLatch(release);
+                return "loaded";
+            })));
+        }
+        await(() -> (Long) coalescer.getStats().get("coalesced") == 7L);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("loaded");
+        }
+        assertThat(calls).hasValue(1);
+        assertThat(coalescer.getStats()).containsEntry("loads", 1L).containsEntry("inFlight", 0);
+    }
+
+    @Test
+    void failureReachesWaitersAndNextCallRetries() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<String> first = executor.submit(() -> coalescer.load("book", 2L, null, () -> {
+            awaitLatch(release);
+            throw new IllegalStateException("db down");
+        }));
+        await(() -> (Integer) coalescer.getStats().get("inFlight") == 1);
+        Future<String> waiter = executor.submit(() -> coalescer.load("book", 2L, null, () -> "unused"));
+        await(() -> (Long) coalescer.getStats().get("coalesced") == 1L);
+        release.countDown();
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> waiter.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(coalescer.load("book", 2L, null, () -> "retried")).isEqualTo("retried");
+    }
+
+    @Test
+    void differentKeysLoadIndependently() {
+        assertThat(coalescer.load("book", 1L, null, () -> "a")).isEqualTo("a");
+        assertThat(coalescer.load("inventory", 1L, null, () -> "b")).isEqualTo("b");
+        assertThat(coalescer.getStats()).containsEntry("loads", 2L).containsEntry("coalesced", 0L);
+    }
+
+    @Test
+    void peerNodeWaitsForLockHolderToFillCache() throws Exception {
+        CacheLoadCoalescer nodeA = coalescer(true);
+        CacheLoadCoalescer nodeB = coalescer(true);
+        AtomicReference<String> cache = new AtomicReference<>();
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> holder = executor.submit(() -> nodeA.load("book", 3L, cache::get, () -> {
+            awaitLatch(release);
+            cache.set("from-a");
+            return "from-a";
+        }));
+        await(() -> redis.hasKey("lock:load:book:3"));
+        Future<String> waiter = executor.submit(() -> nodeB.load("book", 3L, cache::get, () -> "from-b"));
+        Thread.sleep(50);
+        release.countDown();
+
+        assertThat(holder.get(5, TimeUnit.SECONDS)).isEqualTo("from-a");
+        assertThat(waiter.get(5, TimeUnit.SECONDS)).isEqualTo("from-a");
+        assertThat(nodeB.getStats()).containsEntry("loads", 0L).containsEntry("remoteCoalesced", 1L);
+        assertThat(redis.hasKey("lock:load:book:3")).isFalse();
+    }
+
+    @Test
+    void loadsItselfWhenPeerNeverFillsCache() {
+        CacheLoadCoalescer node = coalescer(true);
+        setField(node, "lockWaitMs", 100L);
+        redis.opsForValue().set("lock:load:book:4", "other-node", 5, TimeUnit.SECONDS);
+
+        assertThat(node.load("book", 4L, () -> null, () -> "own")).isEqualTo("own");
+        assertThat(node.getStats()).containsEntry("loads", 1L).containsEntry("lockWaitTimeouts", 1L);
+        // 别的节点持有的锁不会被误删
+        assertThat(redis.opsForValue().get("lock:load:book:4")).isEqualTo("other-node");
+    }
+
+    private CacheLoadCoalescer coalescer(boolean distributed) {
+        CacheLoadCoalescer result = new CacheLoadCoalescer();
+        setField(result, "stringRedisTemplate", redis);
+        setField(result, "enabled", true);
+        setField(result, "distributed", distributed);
+        setField(result, "lockTtlMs", 3000L);
+        setField(result, "lockWaitMs", 2000L);
+        return result;
+    }
+
+    private static void awaitLatch(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
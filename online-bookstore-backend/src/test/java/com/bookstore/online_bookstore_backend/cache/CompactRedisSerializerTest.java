@@ -0,0 +1,80 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import com.bookstore.online_bookstore_backend.config.RedisConfig;
+import com.bookstore.online_bookstore_backend.dto.BookSummaryDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 紧凑格式只在头部记录根类名，嵌套对象不再带类名；JSON 与紧凑格式互相可读
+ */
+class CompactRedisSerializerTest {
+
+    private final CompactRedisSerializer compact = RedisConfig.valueSerializer(true, -1);
+    private final CompactRedisSerializer json = RedisConfig.valueSerializer(false, -1);
+
+    @Test
+    void compactPayloadNamesOnlyTheRootType() {
+        BookSummaryPage page = page(20);
+        byte[] bytes = compact.serialize(page);
+
+        String text = new String(bytes, StandardCharsets.ISO_8859_1);
+        assertThat(text).containsOnlyOnce(BookSummaryPage.class.getName());
+        assertThat(text).doesNotContain(BookSummaryDTO.class.getName(), BigDecimal.class.getName(), "java.util.");
+        assertThat(compact.deserialize(bytes)).isEqualTo(page);
+        assertThat(bytes.length).isLessThan(json.serialize(page).length / 2);
+    }
+
+    @Test
+    void compressedPayloadRoundTrips() {
+        CompactRedisSerializer compressing = RedisConfig.valueSerializer(true, 64);
+        BookSummaryPage page = page(20);
+        byte[] bytes = compressing.serialize(page);
+
+        assertThat(bytes.length).isLessThan(compact.serialize(page).length);
+        assertThat(compressing.deserialize(bytes)).isEqualTo(page);
+        assertThat(compressing.getStats()).containsEntry("compressedWrites", 1L);
+    }
+
+    @Test
+    void containerRootKeepsElementTypes() {
+        List<BookSummaryDTO> list = new ArrayList<>(page(3).getContent());
+        Object read = compact.deserialize(compact.serialize(list));
+
+        assertThat(read).isEqualTo(list);
+        assertThat(((List<?>) read).get(0)).isInstanceOf(BookSummaryDTO.class);
+    }
+
+    @Test
+    void jsonAndCompactReadEachOther() {
+        BookListPage page = new BookListPage(List.of(1L, 2L, 3L), 3);
+
+        assertThat(compact.deserialize(json.serialize(page))).isEqualTo(page);
+        assertThat(json.deserialize(compact.serialize(page))).isEqualTo(page);
+        Map<String, Object> stats = compact.getStats();
+        assertThat(stats).containsEntry("legacyReads", 1L);
+    }
+
+    private static BookSummaryPage page(int size) {
+        List<BookSummaryDTO> content = new ArrayList<>();
+        for (long id = 1; id <= size; id++) {
+            BookSummaryDTO dto = new BookSummaryDTO();
+            dto.setId(id);
+            dto.setTitle("图书 " + id);
+            dto.setAuthor("作者 " + id % 5);
+            dto.setPublisher("出版社");
+            dto.setPrice(BigDecimal.valueOf(1999 + id, 2));
+            dto.setCover("https://example.com/" + id + ".jpg");
+            dto.setCategory("小说");
+            content.add(dto);
+        }
+        return new BookSummaryPage(content, 100);
+    }
+}
@@ -0,0 +1,60 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 热点 key：访问最多的 key 排在前面，并发访问下 top-k 不超过容量
+ */
+class HotKeyTrackerTest {
+
+    @Test
+    void ranksMostFrequentKeys() {
+        HotKeyTracker tracker = new HotKeyTracker(1024, 4, 2, 1_000_000);
+        for (int i = 0; i < 10; i++) {
+            tracker.record("book:1");
+        }
+        for (int i = 0; i < 5; i++) {
+            tracker.record("book:2");
+        }
+        tracker.record("book:3");
+
+        assertThat(tracker.top(10)).extracting(item -> item.get("key")).containsExactly("book:1", "book:2");
+    }
+
+    @Test
+    void concurrentUpdatesNeverExceedCapacity() throws InterruptedException {
+        int capacity = 4;
+        HotKeyTracker tracker = new HotKeyTracker(1024, 4, capacity, 1_000_000);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int offset = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 20_000; i++) {
+                    tracker.record("book:" + ((i + offset) % 16));
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        List<Map<String, Object>> top = tracker.top(100);
+        assertThat(top).hasSizeLessThanOrEqualTo(capacity);
+    }
+}
@@ -0,0 +1,126 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NearCacheTest {
+
+    @Test
+    void staleFillAfterInvalidateIsRejected() {
+        NearCache<Long, String> cache = new NearCache<>("test", 100, 60_000);
+        long stamp = cache.stamp();
+        cache.invalidate(1L);
+
+        assertThat(cache.putIfNewer(1L, "stale", stamp)).isFalse();
+        assertThat(cache.get(1L)).isNull();
+
+        assertThat(cache.putIfNewer(1L, "fresh", cache.stamp())).isTrue();
+        assertThat(cache.get(1L)).isEqualTo("fresh");
+    }
+
+    @Test
+    void staleFillAfterWriteThroughIsRejected() {
+        NearCache<Long, String> cache = new NearCache<>("test", 100, 60_000);
+        long stamp = cache.stamp();
+        cache.put(1L, "written");
+
+        assertThat(cache.putIfNewer(1L, "stale", stamp)).isFalse();
+        assertThat(cache.get(1L)).isEqualTo("written");
+    }
+
+    @Test
+    void staleFillAfterInvalidateAllIsRejected() {
+        NearCache<Long, String> cache = new NearCache<>("test", 100, 60_000);
+        cache.put(1L, "old");
+        long stamp = cache.stamp();
+        cache.invalidateAll();
+
+        assertThat(cache.putIfNewer(1L, "stale", stamp)).isFalse();
+        assertThat(cache.get(1L)).isNull();
+        assertThat(cache.putIfNewer(1L, "fresh", cache.stamp())).isTrue();
+    }
+
+    @Test
+    void entriesExpireAfterTtl() throws InterruptedException {
+        NearCache<Long, String> cache = new NearCache<>("test", 100, 50);
+        cache.put(1L, "value");
+        assertThat(cache.get(1L)).isEqualTo("value");
+
+        Thread.sleep(80);
+        assertThat(cache.get(1L)).isNull();
+        // 过期的墓碑不再拦截回填
+        cache.invalidate(2L);
+        long stamp = cache.stamp() - 1;
+        Thread.sleep(80);
+        assertThat(cache.putIfNewer(2L, "value", stamp)).isTrue();
+    }
+
+    @Test
+    void staleFillAfterTombstoneEvictionIsRejected() {
+        NearCache<Long, String> cache = new NearCache<>("test", 10, 60_000);
+        long stamp = cache.stamp();
+        cache.invalidate(1L);
+        // 墓碑从未被读取，最先被 CLOCK 淘汰
+        for (long i = 2; i <= 11; i++) {
+            cache.put(i, "v" + i);
+            cache.get(i);
+        }
+        cache.put(12L, "v12");
+        assertThat(cache.size()).isLessThan(12);
+
+        assertThat(cache.putIfNewer(1L, "stale", stamp)).isFalse();
+        assertThat(cache.get(1L)).isNull();
+        assertThat(cache.putIfNewer(1L, "fresh", cache.stamp())).isTrue();
+    }
+
+    @Test
+    void evictionKeepsRecentlyReadEntries() {
+        NearCache<Long, String> cache = new NearCache<>("test", 10, 60_000);
+        for (long i = 0; i < 10; i++) {
+            cache.put(i, "v" + i);
+        }
+        cache.get(0L);
+        cache.put(10L, "v10");
+
+        assertThat(cache.size()).isLessThanOrEqualTo(10);
+        assertThat(cache.get(0L)).isEqualTo("v0");
+        assertThat(cache.get(10L)).isEqualTo("v10");
+    }
+
+    @Test
+    void concurrentInvalidationAlwaysWinsOverStaleFills() throws Exception {
+        NearCache<Long, Integer> cache = new NearCache<>("test", 1000, 60_000);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 200; round++) {
+                long stamp = cache.stamp();
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    futures.add(pool.submit(() -> {
+                        start.await();
+                        return cache.putIfNewer(1L, -1, stamp);
+                    }));
+                }
+                cache.invalidate(1L);
+                start.countDown();
+                for (Future<?> future : futures) {
+                    future.get(5, TimeUnit.SECONDS);
+                }
+                // 失效发生在所有回填之前，回填读到的旧值都不能留下
+                assertThat(cache.get(1L)).isNull();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
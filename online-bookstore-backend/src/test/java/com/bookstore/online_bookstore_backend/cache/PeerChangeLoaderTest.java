@@ -0,0 +1,163 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import com.bookstore.online_bookstore_backend.entity.Book;
+import com.bookstore.online_bookstore_backend.entity.BookInventory;
+import com.bookstore.online_bookstore_backend.event.BookChangedEvent;
+import com.bookstore.online_bookstore_backend.event.InventoryChangedEvent;
+import com.bookstore.online_bookstore_backend.repository.BookInventoryRepository;
+import com.bookstore.online_bookstore_backend.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class PeerChangeLoaderTest {
+
+    private final List<Object> events = new CopyOnWriteArrayList<>();
+    private BookRepository bookRepository;
+    private BookInventoryRepository inventoryRepository;
+    private PeerChangeLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        inventoryRepository = mock(BookInventoryRepository.class);
+        loader = new PeerChangeLoader();
+        setField(loader, "bookRepository", bookRepository);
+        setField(loader, "inventoryRepository", inventoryRepository);
+        setField(loader, "eventPublisher", (ApplicationEventPublisher) events::add);
+        setField(loader, "maxPending", 3);
+        setField(loader, "batchSize", 2);
+        // 不启动后台线程，测试中直接调用 drain
+        setField(loader, "started", new AtomicBoolean(true));
+    }
+
+    @Test
+    void coalescesRepeatedChangesIntoBatchedLoads() {
+        when(bookRepository.findAllById(anyIterable())).thenAnswer(invocation -> books(invocation.getArgument(0)));
+        loader.bookChanged(1L);
+        loader.bookChanged(1L);
+        loader.bookChanged(2L);
+
+        loader.drain();
+
+        verify(bookRepository, times(1)).findAllById(anyIterable());
+        assertThat(events).hasSize(2).allSatisfy(event -> {
+            BookChangedEvent changed = (BookChangedEvent) event;
+            assertThat(changed.getType()).isEqualTo(BookChangedEvent.Type.PEER_CHANGED);
+            assertThat(changed.getBook().getId()).isEqualTo(changed.getBookId());
+        });
+    }
+
+    @Test
+    void missingBookIsPublishedWithoutData() {
+        when(bookRepository.findAllById(anyIterable())).thenReturn(List.of());
+        loader.bookChanged(9L);
+
+        loader.drain();
+
+        BookChangedEvent event = (BookChangedEvent) events.get(0);
+        assertThat(event.getBookId()).isEqualTo(9L);
+        assertThat(event.getBook()).isNull();
+    }
+
+    @Test
+    void inventoryChangesCarryLoadedStock() {
+        when(inventoryRepository.findAllById(anyIterable())).thenReturn(List.of(new BookInventory(1L, 5, 1L, null)));
+        loader.inventoryChanged(1L);
+        loader.inventoryChanged(2L);
+
+        loader.drain();
+
+        assertThat(events).extracting(event -> ((InventoryChangedEvent) event).getStock()).containsExactlyInAnyOrder(5, 0);
+    }
+
+    @Test
+    void overflowFallsBackToFullReload() {
+        for (long id = 1; id <= 5; id++) {
+            loader.bookChanged(id);
+        }
+
+        loader.drain();
+
+        verify(bookRepository, never()).findAllById(anyIterable());
+        assertThat(events).hasSize(1);
+        assertThat(((BookChangedEvent) events.get(0)).getType()).isEqualTo(BookChangedEvent.Type.RELOADED);
+        assertThat(loader.getStats()).containsEntry("pending", 0).containsEntry("reloads", 1L);
+    }
+
+    @Test
+    void catalogChangeReloadsOnLoaderThread() {
+        loader.bookChanged(1L);
+        loader.catalogChanged();
+        assertThat(events).isEmpty();
+
+        loader.drain();
+
+        verify(bookRepository, never()).findAllById(anyIterable());
+        assertThat(events).hasSize(1);
+        assertThat(((BookChangedEvent) events.get(0)).getType()).isEqualTo(BookChangedEvent.Type.RELOADED);
+        // 只重建一次
+        loader.drain();
+        assertThat(events).hasSize(1);
+    }
+
+    @Test
+    void failedLoadIsRetriedLater() {
+        when(bookRepository.findAllById(anyIterable()))
+                .thenThrow(new DataAccessResourceFailureException("down"))
+                .thenAnswer(invocation -> books(invocation.getArgument(0)));
+        loader.bookChanged(1L);
+
+        assertThatThrownBy(loader::drain).isInstanceOf(DataAccessResourceFailureException.class);
+        assertThat(events).isEmpty();
+
+        loader.drain();
+        assertThat(events).hasSize(1);
+    }
+
+    @Test
+    void workerLoadsInBackground() throws InterruptedException {
+        when(bookRepository.findAllById(anyIterable())).thenAnswer(invocation -> books(invocation.getArgument(0)));
+        PeerChangeLoader background = new PeerChangeLoader();
+        setField(background, "bookRepository", bookRepository);
+        setField(background, "inventoryRepository", inventoryRepository);
+        setField(background, "eventPublisher", (ApplicationEventPublisher) events::add);
+        setField(background, "maxPending", 100);
+        setField(background, "batchSize", 10);
+
+        background.bookChanged(1L);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (events.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(events).hasSize(1);
+    }
+
+    private static List<Book> books(Iterable<Long> ids) {
+        List<Book> books = new ArrayList<>();
+        for (Long id : ids) {
+            Book book = new Book();
+            book.setId(id);
+            books.add(book);
+        }
+        return books;
+    }
+}
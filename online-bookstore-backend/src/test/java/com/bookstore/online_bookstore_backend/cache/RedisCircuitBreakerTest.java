@@ -0,0 +1,141 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import com.bookstore.online_bookstore_backend.event.RedisRecoveredEvent;
+import com.bookstore.online_bookstore_backend.support.CacheFixture;
+import com.bookstore.online_bookstore_backend.support.EmbeddedRedis;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.util.ReflectionTestUtils.invokeMethod;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * 熔断器：按窗口失败率熔断、熔断期间拒绝调用、后台探测恢复后发布 RedisRecoveredEvent
+ * 夹具配置：窗口 10 次、至少 3 次调用、失败率 50%、半开放行 1 次、探测间隔 50ms
+ */
+class RedisCircuitBreakerTest {
+
+    private static final RedisConnectionFailureException DOWN = new RedisConnectionFailureException("down");
+
+    private CacheFixture fixture;
+    private RedisCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        fixture = new CacheFixture();
+        breaker = fixture.circuitBreaker;
+    }
+
+    @Test
+    void staysClosedBelowMinimumCalls() {
+        breaker.recordFailure(DOWN);
+        breaker.recordFailure(DOWN);
+
+        assertThat(breaker.getState()).isEqualTo(RedisCircuitBreaker.State.CLOSED);
+        assertThat(breaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    void opensAtFailureRateAndRejectsCalls() {
+        breaker.recordSuccess();
+        breaker.recordSuccess();
+        breaker.recordFailure(DOWN);
+        assertThat(breaker.getState()).isEqualTo(RedisCircuitBreaker.State.CLOSED);
+
+        breaker.recordFailure(DOWN);
+
+        assertThat(breaker.getState()).isEqualTo(RedisCircuitBreaker.State.OPEN);
+        assertThat(breaker.allowRequest()).isFalse();
+        assertThat(breaker.getStats()).containsEntry("rejected", 1L).containsEntry("opened", 1L);
+    }
+
+    @Test
+    void localErrorsDoNotCount() {
+        for (int i = 0; i < 5; i++) {
+            breaker.recordFailure(new SerializationException("bad payload"));
+        }
+
+        assertThat(breaker.getState()).isEqualTo(RedisCircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void probeClosesCircuitAndPublishesRecovery() throws InterruptedException {
+        openCircuit();
+
+        await(() -> breaker.getState() == RedisCircuitBreaker.State.CLOSED);
+
+        List<Object> recovered = fixture.events.stream().filter(RedisRecoveredEvent.class::isInstance).toList();
+        assertThat(recovered).hasSize(1);
+        assertThat(breaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    void staysOpenWhileRedisIsUnreachable() throws InterruptedException {
+        LettuceConnectionFactory unreachable = new LettuceConnectionFactory("localhost", closedPort());
+        unreachable.afterPropertiesSet();
+        unreachable.start();
+        try {
+            setField(breaker, "stringRedisTemplate", new StringRedisTemplate(unreachable));
+            openCircuit();
+
+            Thread.sleep(300);
+            assertThat(breaker.getState()).isEqualTo(RedisCircuitBreaker.State.OPEN);
+            assertThat(fixture.events).isEmpty();
+
+            // Redis 恢复后由仍在运行的探测线程关闭熔断
+            setField(breaker, "stringRedisTemplate", fixture.redis);
+            await(() -> breaker.getState() == RedisCircuitBreaker.State.CLOSED);
+        } finally {
+            unreachable.destroy();
+        }
+    }
+
+    @Test
+    void halfOpenFailureReopens() {
+        setField(breaker, "probeIntervalMs", 60_000L);
+        openCircuit();
+        // 模拟探测成功进入半开：只放行一次试探调用
+        invokeMethod(breaker, "halfOpen");
+
+        assertThat(breaker.allowRequest()).isTrue();
+        assertThat(breaker.allowRequest()).isFalse();
+        breaker.recordFailure(DOWN);
+
+        assertThat(breaker.getState()).isEqualTo(RedisCircuitBreaker.State.OPEN);
+        assertThat(breaker.getStats()).containsEntry("opened", 2L);
+    }
+
+    private void openCircuit() {
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure(DOWN);
+        }
+        assertThat(breaker.getState()).isEqualTo(RedisCircuitBreaker.State.OPEN);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+
+    private static int closedPort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.bookstore.online_bookstore_backend.cache;
+
+import com.bookstore.online_bookstore_backend.config.RedisConfig;
+import com.bookstore.online_bookstore_backend.dto.BookSummaryDTO;
+import com.bookstore.online_bookstore_backend.entity.Book;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 缓存值编码的对比：用生成的图书数据比较 JSON、Smile、Smile + LZ4 三种编码
+ * 每条记录的字节数与编码/解码耗时，供调整 compact-prefixes 和压缩阈值时参考
+ * 只在本地内存中编解码，不访问 Redis；不属于单元测试，手工运行 main：
+ * 参数依次为 图书数量（默认 200）、每条记录重复编解码的次数（默认 1000）、压缩阈值（默认 512）
+ * 耗时受 JIT 与机器负载影响，只适合同一次运行内横向比较
+ */
+public final class RedisCodecBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    private RedisCodecBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int samples = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int compressThreshold = args.length > 2 ? Integer.parseInt(args[2]) : 512;
+
+        List<Book> books = new ArrayList<>();
+        for (long id = 1; id <= samples; id++) {
+            books.add(book(id));
+        }
+        Map<String, List<Object>> datasets = new LinkedHashMap<>();
+        datasets.put("book", new ArrayList<>(books));
+        List<Object> summaryPages = new ArrayList<>();
+        List<Object> listPages = new ArrayList<>();
+        for (int from = 0; from < books.size(); from += PAGE_SIZE) {
+            List<Book> page = books.subList(from, Math.min(from + PAGE_SIZE, books.size()));
+            summaryPages.add(new BookSummaryPage(page.stream().map(BookSummaryDTO::fromBook).toList(), books.size()));
+            listPages.add(new BookListPage(page.stream().map(Book::getId).toList(), books.size()));
+        }
+        datasets.put("summaryPage", summaryPages);
+        datasets.put("listPage", listPages);
+
+        Map<String, CompactRedisSerializer> codecs = new LinkedHashMap<>();
+        codecs.put("json", RedisConfig.valueSerializer(false, -1));
+        codecs.put("smile", RedisConfig.valueSerializer(true, -1));
+        codecs.put("smile+lz4", RedisConfig.valueSerializer(true, compressThreshold));
+
+        System.out.printf("samples=%d iterations=%d compressThreshold=%d%n", books.size(), iterations, compressThreshold);
+        System.out.printf("%-12s %-10s %8s %10s %12s %12s%n", "dataset", "codec", "entries", "avgBytes", "encodeMicros", "decodeMicros");
+        for (Map.Entry<String, List<Object>> dataset : datasets.entrySet()) {
+            for (Map.Entry<String, CompactRedisSerializer> codec : codecs.entrySet()) {
+                measure(dataset.getKey(), codec.getKey(), codec.getValue(), dataset.getValue(), iterations);
+            }
+        }
+    }
+
+    private static void measure(String dataset, String name, CompactRedisSerializer codec, List<Object> values, int iterations) {
+        if (values.isEmpty()) {
+            return;
+        }
+        // 预热一轮，避免把类加载和 JIT 的开销算进去
+        for (Object value : values) {
+            codec.deserialize(codec.serialize(value));
+        }
+
+        long bytes = 0;
+        long encodeNanos = 0;
+        long decodeNanos = 0;
+        for (Object value : values) {
+            byte[] encoded = null;
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                encoded = codec.serialize(value);
+            }
+            encodeNanos += System.nanoTime() - start;
+            bytes += encoded.length;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                codec.deserialize(encoded);
+            }
+            decodeNanos += System.nanoTime() - start;
+        }
+        long operations = (long) values.size() * iterations;
+        System.out.printf("%-12s %-10s %8d %10d %12.2f %12.2f%n", dataset, name, values.size(), bytes / values.size(),
+                encodeNanos / 1000.0 / operations, decodeNanos / 1000.0 / operations);
+    }
+
+    private static Book book(long id) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("图书标题 " + id);
+        book.setAuthor("作者 " + (id % 50));
+        book.setIsbn(String.format("978%010d", id));
+        book.setPublisher("出版社 " + (id % 10));
+        book.setPrice(BigDecimal.valueOf(1000 + id * 37 % 9000, 2));
+        book.setCover("https://example.com/covers/" + id + ".jpg");
+        book.setDescription(("这是一段用于测试编码大小的图书简介，第 " + id + " 本。").repeat(1 + (int) (id % 8)));
+        book.setCategory("分类 " + (id % 12));
+        book.setDeleted(false);
+        book.setCreatedAt(LocalDateTime.of(2024, 1, 1, 0, 0).plusHours(id));
+        book.setUpdatedAt(LocalDateTime.of(2024, 6, 1, 0, 0).plusMinutes(id));
+        return book;
+    }
+}
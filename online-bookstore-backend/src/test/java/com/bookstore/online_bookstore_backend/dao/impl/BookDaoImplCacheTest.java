@@ -0,0 +1,98 @@
+package com.bookstore.online_bookstore_backend.dao.impl;
+
+import com.bookstore.online_bookstore_backend.cache.NearCacheManager;
+import com.bookstore.online_bookstore_backend.entity.Book;
+import com.bookstore.online_bookstore_backend.repository.BookRepository;
+import com.bookstore.online_bookstore_backend.search.IsbnBloomFilter;
+import com.bookstore.online_bookstore_backend.service.RedisCacheService;
+import com.bookstore.online_bookstore_backend.support.CacheFixture;
+import com.bookstore.online_bookstore_backend.support.EmbeddedRedis;
+import com.bookstore.online_bookstore_backend.support.NoOpTransactionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * 写穿透与事务的先后：提交后才写 Redis / L1，回滚不留下未提交的行
+ */
+class BookDaoImplCacheTest {
+
+    private static final Long BOOK_ID = 1L;
+
+    private final TransactionTemplate tx = NoOpTransactionManager.template();
+    private RedisCacheService cacheService;
+    private NearCacheManager nearCacheManager;
+    private BookDaoImpl bookDao;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        CacheFixture fixture = new CacheFixture();
+        cacheService = fixture.cacheService;
+
+        nearCacheManager = new NearCacheManager(100, 60, 100, 5, 60);
+        setField(nearCacheManager, "stringRedisTemplate", fixture.redis);
+        setField(nearCacheManager, "enabled", true);
+
+        BookRepository bookRepository = mock(BookRepository.class);
+        when(bookRepository.saveAndFlush(any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        bookDao = new BookDaoImpl(bookRepository);
+        setField(bookDao, "redisCacheService", cacheService);
+        setField(bookDao, "nearCacheManager", nearCacheManager);
+        setField(bookDao, "eventPublisher", mock(ApplicationEventPublisher.class));
+        setField(bookDao, "isbnBloomFilter", mock(IsbnBloomFilter.class));
+    }
+
+    @Test
+    void saveWritesThroughAfterCommit() {
+        cacheService.cacheBook(book("v1", 1));
+
+        tx.executeWithoutResult(status -> {
+            bookDao.save(book("v2", 2));
+            assertThat(cacheService.getCachedBook(BOOK_ID).getTitle()).isEqualTo("v1");
+        });
+
+        assertThat(cacheService.getCachedBook(BOOK_ID).getTitle()).isEqualTo("v2");
+        assertThat(nearCacheManager.getBook(BOOK_ID).getTitle()).isEqualTo("v2");
+    }
+
+    @Test
+    void rolledBackSaveDoesNotBlockCommittedBackfill() {
+        cacheService.cacheBook(book("v1", 1));
+
+        tx.executeWithoutResult(status -> {
+            bookDao.save(book("v2", 2));
+            status.setRollbackOnly();
+        });
+
+        assertThat(cacheService.getCachedBook(BOOK_ID)).isNull();
+        assertThat(nearCacheManager.getBook(BOOK_ID)).isNull();
+        // 回滚后数据库中仍是 v1，读路径的回填必须能写入
+        cacheService.cacheBook(book("v1", 1), 5);
+        assertThat(cacheService.getCachedBook(BOOK_ID).getTitle()).isEqualTo("v1");
+    }
+
+    private static Book book(String title, int second) {
+        Book book = new Book();
+        book.setId(BOOK_ID);
+        book.setTitle(title);
+        book.setAuthor("author");
+        book.setIsbn("9787115428028");
+        book.setPrice(new BigDecimal("59.00"));
+        book.setCategory("计算机");
+        book.setDeleted(false);
+        book.setCreatedAt(LocalDateTime.of(2024, 1, 1, 0, 0));
+        book.setUpdatedAt(LocalDateTime.of(2024, 1, 1, 0, 0, second));
+        return book;
+    }
+}
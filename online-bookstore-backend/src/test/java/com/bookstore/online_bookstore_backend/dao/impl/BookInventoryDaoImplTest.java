@@ -0,0 +1,232 @@
+package com.bookstore.online_bookstore_backend.dao.impl;
+
+import com.bookstore.online_bookstore_backend.cache.NearCacheManager;
+import com.bookstore.online_bookstore_backend.entity.BookInventory;
+import com.bookstore.online_bookstore_backend.repository.BookInventoryRepository;
+import com.bookstore.online_bookstore_backend.service.InventoryWriteBehindService;
+import com.bookstore.online_bookstore_backend.service.RedisCacheService;
+import com.bookstore.online_bookstore_backend.support.CacheFixture;
+import com.bookstore.online_bookstore_backend.support.EmbeddedRedis;
+import com.bookstore.online_bookstore_backend.support.FakeInventoryTable;
+import com.bookstore.online_bookstore_backend.support.NoOpTransactionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class BookInventoryDaoImplTest {
+
+    private static final Long BOOK_ID = 1L;
+    // 测试开始时数据库中的库存
+    private static final int DB_STOCK = 10;
+
+    private final TransactionTemplate tx = NoOpTransactionManager.template();
+    private final FakeInventoryTable table = new FakeInventoryTable();
+    private InventoryWriteBehindService writeBehindService;
+    private RedisCacheService cacheService;
+    private NearCacheManager nearCacheManager;
+    private BookInventoryRepository inventoryRepository;
+    private BookInventoryDaoImpl inventoryDao;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        CacheFixture fixture = new CacheFixture();
+        cacheService = fixture.cacheService;
+
+        nearCacheManager = new NearCacheManager(100, 60, 100, 60, 60);
+        setField(nearCacheManager, "stringRedisTemplate", fixture.redis);
+        setField(nearCacheManager, "enabled", true);
+
+        inventoryRepository = mock(BookInventoryRepository.class);
+        inventoryDao = new BookInventoryDaoImpl();
+        setField(inventoryDao, "inventoryRepository", inventoryRepository);
+        setField(inventoryDao, "redisCacheService", cacheService);
+        setField(inventoryDao, "nearCacheManager", nearCacheManager);
+        setField(inventoryDao, "eventPublisher", mock(ApplicationEventPublisher.class));
+        setField(inventoryDao, "writeBehindService", new InventoryWriteBehindService());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (writeBehindService != null) {
+            setField(writeBehindService, "running", false);
+        }
+    }
+
+    @Test
+    void uncachedStockIsRefilledFromDatabaseEvenWhenNearCacheHits() {
+        BookInventory row = new BookInventory(BOOK_ID, 10, 3L, null);
+        when(inventoryRepository.findById(BOOK_ID)).thenReturn(Optional.of(row));
+        when(inventoryRepository.findAllByIdWithLock(anyCollection())).thenReturn(List.of(row));
+        // L1 中还有库存，Redis 中的 stock 字段已被删除
+        nearCacheManager.putInventory(BOOK_ID, 10, nearCacheManager.inventoryStamp());
+
+        Map<Long, Integer> shortfalls = inventoryDao.reduceStocks(Map.of(BOOK_ID, 4));
+
+        assertThat(shortfalls).isEmpty();
+        assertThat(cacheService.getCachedInventory(BOOK_ID)).isEqualTo(6);
+        assertThat(row.getStock()).isEqualTo(6);
+    }
+
+    @Test
+    void singleReductionNeverDrivesRedisNegative() {
+        cacheService.cacheInventory(BOOK_ID, 3, 1L);
+
+        assertThat(inventoryDao.reduceStock(BOOK_ID, 5)).isFalse();
+
+        assertThat(cacheService.getCachedInventory(BOOK_ID)).isEqualTo(3);
+        verify(inventoryRepository, never()).findAllByIdWithLock(anyCollection());
+    }
+
+    @Test
+    void rolledBackSaveLeavesNoUncommittedStockInRedis() {
+        cacheService.cacheInventory(BOOK_ID, DB_STOCK, 1L);
+        when(inventoryRepository.saveAndFlush(any(BookInventory.class))).thenAnswer(invocation -> {
+            BookInventory saved = invocation.getArgument(0);
+            return new BookInventory(saved.getBookId(), saved.getStock(), 2L, null);
+        });
+
+        tx.executeWithoutResult(status -> {
+            inventoryDao.save(new BookInventory(BOOK_ID, 3, 1L, null));
+            assertThat(cacheService.getCachedInventory(BOOK_ID)).isEqualTo(DB_STOCK);
+            status.setRollbackOnly();
+        });
+        assertThat(cacheService.getCachedInventory(BOOK_ID)).isNull();
+
+        // 回滚没有留下更高的版本，之后提交的值可以正常写入
+        tx.executeWithoutResult(status -> inventoryDao.save(new BookInventory(BOOK_ID, 7, 1L, null)));
+        assertThat(cacheService.getCachedInventory(BOOK_ID)).isEqualTo(7);
+    }
+
+    @Test
+    void addStockCachesAfterCommit() {
+        cacheService.cacheInventory(BOOK_ID, DB_STOCK, 1L);
+        when(inventoryRepository.findById(BOOK_ID)).thenReturn(Optional.of(new BookInventory(BOOK_ID, DB_STOCK, 1L, null)));
+        when(inventoryRepository.saveAndFlush(any(BookInventory.class))).thenAnswer(invocation -> {
+            BookInventory saved = invocation.getArgument(0);
+            return new BookInventory(saved.getBookId(), saved.getStock(), 2L, null);
+        });
+
+        tx.executeWithoutResult(status -> {
+            inventoryDao.addStock(BOOK_ID, 5);
+            assertThat(cacheService.getCachedInventory(BOOK_ID)).isEqualTo(DB_STOCK);
+        });
+
+        assertThat(cacheService.getCachedInventory(BOOK_ID)).isEqualTo(15);
+    }
+
+    @Test
+    void rolledBackReservationIsNotJournaled() {
+        enableWriteBehind();
+
+        tx.executeWithoutResult(status -> {
+            assertThat(inventoryDao.reduceStocks(Map.of(BOOK_ID, 4))).isEmpty();
+            status.setRollbackOnly();
+        });
+
+        assertThat(cacheService.getCachedInventory(BOOK_ID)).isEqualTo(DB_STOCK);
+        assertThat(table.journal).isEmpty();
+        writeBehindService.flush();
+        assertThat(dbStock()).isEqualTo(DB_STOCK);
+    }
+
+    @Test
+    void reservationIsJournaledInsideOrderTransaction() {
+        enableWriteBehind();
+
+        tx.executeWithoutResult(status -> {
+            inventoryDao.reduceStocks(Map.of(BOOK_ID, 4));
+            // 提交前已写入订单事务：提交即持久，不依赖提交后再执行的代码
+            assertThat(table.uncommittedWrites()).isEqualTo(1);
+        });
+
+        assertThat(cacheService.getCachedInventory(BOOK_ID)).isEqualTo(6);
+        assertThat(writeBehindService.pendingDelta(BOOK_ID)).isEqualTo(-4);
+        // 落库前崩溃，重启后的同一节点落库
+        setField(writeBehindService, "running", false);
+        writeBehindService = table.startWriteBehind("test");
+        writeBehindService.flush();
+        assertThat(dbStock()).isEqualTo(6);
+    }
+
+    @Test
+    void reloadAfterEvictionKeepsPeerPendingDeductions() {
+        enableWriteBehind();
+        // 另一个节点已提交、尚未落库的扣减
+        table.startWriteBehind("peer").record(Map.of(BOOK_ID, -3));
+        // TTL 到期、批量清理或熔断恢复后的清理删掉了 Redis 中的库存
+        cacheService.evictInventory(BOOK_ID);
+
+        assertThat(inventoryDao.reduceStocks(Map.of(BOOK_ID, 8))).containsEntry(BOOK_ID, 7);
+        assertThat(cacheService.getCachedInventory(BOOK_ID)).isEqualTo(7);
+    }
+
+    @Test
+    void addStockIsJournaledAsDelta() {
+        enableWriteBehind();
+
+        tx.executeWithoutResult(status -> {
+            inventoryDao.addStock(BOOK_ID, 5);
+            assertThat(cacheService.getCachedInventory(BOOK_ID)).isEqualTo(DB_STOCK);
+        });
+
+        assertThat(cacheService.getCachedInventory(BOOK_ID)).isEqualTo(15);
+        writeBehindService.flush();
+        assertThat(dbStock()).isEqualTo(15);
+    }
+
+    @Test
+    void absoluteSaveStaysConsistentWithConcurrentReservations() throws InterruptedException {
+        enableWriteBehind();
+        inventoryDao.reduceStocks(Map.of(BOOK_ID, 3));
+
+        tx.executeWithoutResult(status -> {
+            BookInventory update = new BookInventory(BOOK_ID, 20, null, null);
+            assertThat(inventoryDao.save(update).getStock()).isEqualTo(20);
+            // 设置提交前另一个请求又扣减了 2 本
+            Thread concurrent = new Thread(() -> inventoryDao.reduceStocks(Map.of(BOOK_ID, 2)));
+            concurrent.start();
+            try {
+                concurrent.join();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        int redisStock = cacheService.getCachedInventory(BOOK_ID);
+        writeBehindService.flush();
+        assertThat(redisStock).isEqualTo(18);
+        assertThat(dbStock()).isEqualTo(redisStock);
+    }
+
+    // 数据库中的库存行为初始值；Redis 中已缓存初始库存
+    private void enableWriteBehind() {
+        table.stocks.put(BOOK_ID, (long) DB_STOCK);
+        table.versions.put(BOOK_ID, 1L);
+        writeBehindService = table.startWriteBehind("test");
+        setField(inventoryDao, "writeBehindService", writeBehindService);
+        when(inventoryRepository.saveAndFlush(any(BookInventory.class))).thenAnswer(invocation -> {
+            throw new AssertionError("异步落库模式下已有的库存行不应被直接覆盖");
+        });
+        cacheService.cacheInventory(BOOK_ID, DB_STOCK, 1L);
+    }
+
+    private int dbStock() {
+        return table.stocks.get(BOOK_ID).intValue();
+    }
+}
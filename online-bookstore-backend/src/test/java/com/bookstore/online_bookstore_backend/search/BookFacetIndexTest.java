@@ -0,0 +1,150 @@
+package com.bookstore.online_bookstore_backend.search;
+
+import com.bookstore.online_bookstore_backend.entity.Book;
+import com.bookstore.online_bookstore_backend.event.BookChangedEvent;
+import com.bookstore.online_bookstore_backend.event.InventoryChangedEvent;
+import com.bookstore.online_bookstore_backend.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * 分面筛选：维度内 OR、维度间 AND，分面计数排除本维度条件，随图书与库存事件增量更新
+ */
+class BookFacetIndexTest {
+
+    private BookRepository bookRepository;
+    private BookFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        when(bookRepository.findActiveFacetFields()).thenReturn(List.of(
+                row(1L, "小说", "人民文学", "余华", "39.00", 10),
+                row(2L, "小说", "译林", "村上春树", "59.00", 0),
+                row(3L, "历史", "中华书局", "钱穆", "25.00", 3),
+                row(4L, "计算机", "机械工业", "Bruce Eckel", "108.00", 5),
+                row(5L, "小说", "人民文学", "莫言", null, 2)));
+        index = new BookFacetIndex(new long[]{0, 20, 50, 100, 200});
+        setField(index, "bookRepository", bookRepository);
+        setField(index, "enabled", true);
+        setField(index, "maxFacetValues", 20);
+        index.rebuild();
+    }
+
+    @Test
+    void valuesOrWithinDimensionAndAndAcross() {
+        BookFacetIndex.Result result = index.query(query(List.of("小说", "历史"), List.of("人民文学", "中华书局"),
+                null, null, false, null), "id", true, 0, 10);
+
+        assertThat(result.ids()).containsExactly(1L, 3L, 5L);
+        // 分类的计数不受分类条件限制，只受出版社条件限制
+        assertThat(result.facets().get(BookFacetIndex.CATEGORY)).containsExactly(Map.entry("小说", 2L), Map.entry("历史", 1L));
+        assertThat(result.facets().get(BookFacetIndex.PUBLISHER))
+                .containsEntry("人民文学", 2L).containsEntry("译林", 1L).containsEntry("中华书局", 1L);
+    }
+
+    @Test
+    void priceRangeChecksBoundaryBucketsByPrice() {
+        BookFacetIndex.Result result = index.query(query(null, null, new BigDecimal("30"), new BigDecimal("59"), false, null),
+                "id", true, 0, 10);
+
+        assertThat(result.ids()).containsExactly(1L, 2L);
+        assertThat(result.facets().get(BookFacetIndex.PRICE))
+                .containsEntry("20-50", 2L).containsEntry("50-100", 1L).containsEntry("100-200", 1L);
+    }
+
+    @Test
+    void sortsByPriceWithUnpricedLastAndPages() {
+        BookFacetIndex.Query all = query(null, null, null, null, false, null);
+
+        assertThat(index.query(all, "price", false, 0, 10).ids()).containsExactly(4L, 2L, 1L, 3L, 5L);
+        assertThat(index.query(all, "price", true, 1, 2).ids()).containsExactly(1L, 2L);
+        assertThat(index.query(all, "id", false, 0, 2).ids()).containsExactly(5L, 4L);
+    }
+
+    @Test
+    void stockFilterFollowsInventoryEvents() {
+        BookFacetIndex.Query inStock = query(null, null, null, null, true, null);
+        assertThat(index.query(inStock, "id", true, 0, 10).ids()).containsExactly(1L, 3L, 4L, 5L);
+
+        index.onInventoryChanged(new InventoryChangedEvent(1L, 0));
+        index.onInventoryChanged(new InventoryChangedEvent(2L, 4));
+
+        BookFacetIndex.Result result = index.query(inStock, "id", true, 0, 10);
+        assertThat(result.ids()).containsExactly(2L, 3L, 4L, 5L);
+        assertThat(result.facets().get(BookFacetIndex.IN_STOCK)).containsEntry("true", 4L).containsEntry("false", 1L);
+    }
+
+    @Test
+    void bookEventsReindexAndRemove() {
+        Book moved = new Book();
+        moved.setId(3L);
+        moved.setCategory("小说");
+        moved.setPublisher("中华书局");
+        moved.setAuthor("钱穆");
+        moved.setPrice(new BigDecimal("25.00"));
+        moved.setDeleted(false);
+        index.onBookChanged(BookChangedEvent.saved(moved));
+        index.onBookChanged(BookChangedEvent.removed(2L));
+
+        BookFacetIndex.Result result = index.query(query(List.of("小说"), null, null, null, true, null), "id", true, 0, 10);
+        // 改分类后有货状态保留
+        assertThat(result.ids()).containsExactly(1L, 3L, 5L);
+        assertThat(result.facets().get(BookFacetIndex.CATEGORY)).doesNotContainKey("历史");
+    }
+
+    @Test
+    void restrictToLimitsMatchesAndCounts() {
+        BookFacetIndex.Result result = index.query(query(null, null, null, null, false, List.of(2L, 4L, 99L)),
+                "id", true, 0, 10);
+
+        assertThat(result.total()).isEqualTo(2);
+        assertThat(result.facets().get(BookFacetIndex.CATEGORY)).containsOnly(Map.entry("小说", 1L), Map.entry("计算机", 1L));
+    }
+
+    @Test
+    void changesDuringRebuildSurviveIt() {
+        // 快照读出之后：1 号售罄、3 号下架、6 号上架
+        when(bookRepository.findActiveFacetFields()).thenAnswer(invocation -> {
+            List<Object[]> rows = List.of(
+                    row(1L, "小说", "人民文学", "余华", "39.00", 10),
+                    row(3L, "历史", "中华书局", "钱穆", "25.00", 3));
+            index.setInStock(1L, false);
+            index.remove(3L);
+            Book added = new Book();
+            added.setId(6L);
+            added.setCategory("历史");
+            added.setPrice(new BigDecimal("30.00"));
+            added.setDeleted(false);
+            index.indexBook(added);
+            return rows;
+        });
+
+        index.rebuild();
+
+        BookFacetIndex.Result result = index.query(query(null, null, null, null, false, null), "id", true, 0, 10);
+        assertThat(result.ids()).containsExactly(1L, 6L);
+        assertThat(result.facets().get(BookFacetIndex.IN_STOCK)).containsEntry("true", 0L).containsEntry("false", 2L);
+        assertThat(result.facets().get(BookFacetIndex.CATEGORY)).containsOnly(Map.entry("小说", 1L), Map.entry("历史", 1L));
+    }
+
+    private static BookFacetIndex.Query query(Collection<String> categories, Collection<String> publishers,
+                                              BigDecimal minPrice, BigDecimal maxPrice, boolean inStockOnly,
+                                              Collection<Long> restrictTo) {
+        return new BookFacetIndex.Query(categories, publishers, null, minPrice, maxPrice, inStockOnly, restrictTo);
+    }
+
+    private static Object[] row(Long id, String category, String publisher, String author, String price, Integer stock) {
+        return new Object[]{id, category, publisher, author, price != null ? new BigDecimal(price) : null, stock};
+    }
+}
@@ -0,0 +1,115 @@
+package com.bookstore.online_bookstore_backend.search;
+
+import com.bookstore.online_bookstore_backend.entity.Book;
+import com.bookstore.online_bookstore_backend.event.BookChangedEvent;
+import com.bookstore.online_bookstore_backend.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+class BookSearchIndexTest {
+
+    private BookSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookSearchIndex();
+        setField(index, "enabled", true);
+        index.index(1L, "算法导论", "Thomas Cormen", "机械工业出版社", "978-7-111-40701-0");
+        index.index(2L, "Java 核心技术", "Cay Horstmann", "机械工业出版社", "978-7-111-63666-3");
+        index.index(3L, "深入理解 Java 虚拟机", "周志明", "机械工业出版社", "978-7-111-64124-7");
+    }
+
+    @Test
+    void findsBookByHyphenatedIsbn() {
+        assertThat(index.search("978-7-111-40701-0", 0, 10).ids()).containsExactly(1L);
+        assertThat(index.search("9787111407010", 0, 10).ids()).containsExactly(1L);
+    }
+
+    @Test
+    void partialIsbnMatchesByPrefix() {
+        assertThat(index.matchAll("978-7-111-6")).containsExactlyInAnyOrder(2L, 3L);
+    }
+
+    @Test
+    void queryTermsAreAnded() {
+        assertThat(index.matchAll("java")).containsExactlyInAnyOrder(2L, 3L);
+        assertThat(index.matchAll("java 虚拟机")).containsExactly(3L);
+        assertThat(index.matchAll("java 算法")).isEmpty();
+    }
+
+    @Test
+    void titleMatchRanksAbovePublisherMatch() {
+        index.index(4L, "机械设计手册", "编委会", "化学工业出版社", null);
+
+        BookSearchIndex.Hits hits = index.search("机械", 0, 10);
+        assertThat(hits.total()).isEqualTo(4);
+        assertThat(hits.ids().get(0)).isEqualTo(4L);
+    }
+
+    @Test
+    void pagesResults() {
+        BookSearchIndex.Hits page = index.search("机械工业", 1, 1);
+        assertThat(page.total()).isEqualTo(3);
+        assertThat(page.ids()).hasSize(1);
+    }
+
+    @Test
+    void peerChangeReindexesOrRemoves() {
+        Book renamed = new Book();
+        renamed.setId(1L);
+        renamed.setTitle("数据结构");
+        renamed.setDeleted(false);
+        index.onBookChanged(BookChangedEvent.peerChanged(1L, renamed));
+        assertThat(index.matchAll("算法")).isEmpty();
+        assertThat(index.matchAll("数据结构")).containsExactly(1L);
+
+        index.onBookChanged(BookChangedEvent.peerChanged(2L, null));
+        assertThat(index.matchAll("核心技术")).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void deletedBookIsRemoved() {
+        Book deleted = new Book();
+        deleted.setId(3L);
+        deleted.setTitle("深入理解 Java 虚拟机");
+        deleted.setDeleted(true);
+        index.onBookChanged(BookChangedEvent.saved(deleted));
+
+        assertThat(index.matchAll("虚拟机")).isEmpty();
+    }
+
+    @Test
+    void changesDuringRebuildSurviveSwap() {
+        BookRepository bookRepository = mock(BookRepository.class);
+        setField(index, "bookRepository", bookRepository);
+        // 快照读出之后，另一个线程改了书名并删除了一本书
+        when(bookRepository.findActiveSearchFields()).thenAnswer(invocation -> {
+            List<Object[]> rows = List.of(
+                    new Object[]{1L, "算法导论", "Thomas Cormen", "机械工业出版社", null},
+                    new Object[]{2L, "Java 核心技术", "Cay Horstmann", "机械工业出版社", null});
+            index.index(1L, "数据结构", "Thomas Cormen", "机械工业出版社", null);
+            index.remove(2L);
+            index.index(5L, "编译原理", "Alfred Aho", "机械工业出版社", null);
+            return rows;
+        });
+
+        index.rebuild();
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(index.matchAll("算法")).isEmpty();
+        assertThat(index.matchAll("数据结构")).containsExactly(1L);
+        assertThat(index.matchAll("核心技术")).isEmpty();
+        assertThat(index.matchAll("编译")).containsExactly(5L);
+        // 不在快照中、构建期间也没有变化的图书随重建移除
+        assertThat(index.matchAll("虚拟机")).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+    }
+}
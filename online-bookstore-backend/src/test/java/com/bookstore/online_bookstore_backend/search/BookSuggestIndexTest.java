@@ -0,0 +1,152 @@
+package com.bookstore.online_bookstore_backend.search;
+
+import com.bookstore.online_bookstore_backend.entity.Book;
+import com.bookstore.online_bookstore_backend.event.BookChangedEvent;
+import com.bookstore.online_bookstore_backend.event.BookSoldEvent;
+import com.bookstore.online_bookstore_backend.repository.BookRepository;
+import com.bookstore.online_bookstore_backend.repository.OrderItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * 搜索建议：书名按单词开头也能补全，按销量加权排序，同名图书合并，随图书与销量事件增量更新
+ */
+class BookSuggestIndexTest {
+
+    private BookRepository bookRepository;
+    private OrderItemRepository orderItemRepository;
+    private BookSuggestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        orderItemRepository = mock(OrderItemRepository.class);
+        when(bookRepository.findActiveSearchFields()).thenReturn(List.of(
+                row(1L, "Effective Java", "Joshua Bloch"),
+                row(2L, "Java 编程思想", "Bruce Eckel"),
+                row(3L, "JavaScript 高级程序设计", "Matt Frisbie"),
+                row(4L, "三体", "刘慈欣"),
+                row(5L, "三体", "刘慈欣")));
+        when(orderItemRepository.sumQuantityGroupByBook()).thenReturn(List.of(
+                new Object[]{2L, 30L},
+                new Object[]{3L, 5L},
+                new Object[]{5L, 8L}));
+        index = new BookSuggestIndex();
+        setField(index, "bookRepository", bookRepository);
+        setField(index, "orderItemRepository", orderItemRepository);
+        setField(index, "enabled", true);
+        setField(index, "topK", 10);
+        index.rebuild();
+    }
+
+    @Test
+    void matchesWordStartsAndRanksBySales() {
+        assertThat(index.isReady()).isTrue();
+        assertThat(texts(index.suggest("java", 10)))
+                .containsExactly("Java 编程思想", "JavaScript 高级程序设计", "Effective Java");
+        assertThat(texts(index.suggest("  JAVA   编", 10))).containsExactly("Java 编程思想");
+        assertThat(index.suggest("python", 10)).isEmpty();
+        assertThat(index.suggest(" ", 10)).isEmpty();
+    }
+
+    @Test
+    void sameTitleMergesAndPointsToBestSeller() {
+        List<BookSuggestIndex.Suggestion> result = index.suggest("三", 10);
+
+        assertThat(result).containsExactly(new BookSuggestIndex.Suggestion("三体", BookSuggestIndex.TYPE_TITLE, 5L));
+        // 作者建议不带图书ID
+        assertThat(index.suggest("刘", 10))
+                .containsExactly(new BookSuggestIndex.Suggestion("刘慈欣", BookSuggestIndex.TYPE_AUTHOR, null));
+    }
+
+    @Test
+    void salesReorderSuggestions() {
+        index.onBookSold(new BookSoldEvent(Map.of(1L, 40)));
+
+        assertThat(texts(index.suggest("java", 10)).get(0)).isEqualTo("Effective Java");
+        index.onBookSold(new BookSoldEvent(Map.of(4L, 20)));
+        assertThat(index.suggest("三体", 1).get(0).bookId()).isEqualTo(4L);
+    }
+
+    @Test
+    void retitleAndRemoveDropOldTerms() {
+        index.onBookChanged(BookChangedEvent.saved(book(3L, "TypeScript 入门", "Matt Frisbie")));
+        index.onBookChanged(BookChangedEvent.removed(2L));
+
+        assertThat(texts(index.suggest("java", 10))).containsExactly("Effective Java");
+        assertThat(texts(index.suggest("type", 10))).containsExactly("TypeScript 入门");
+        assertThat(index.suggest("bruce", 10)).isEmpty();
+
+        // 重新上架时沿用之前累计的销量
+        index.indexBook(book(2L, "Java 编程思想", "Bruce Eckel"));
+        assertThat(texts(index.suggest("java", 10))).containsExactly("Java 编程思想", "Effective Java");
+    }
+
+    @Test
+    void limitsToTopK() {
+        setField(index, "topK", 2);
+        index.rebuild();
+
+        assertThat(texts(index.suggest("java", 10))).containsExactly("Java 编程思想", "JavaScript 高级程序设计");
+        assertThat(texts(index.suggest("java", 1))).containsExactly("Java 编程思想");
+    }
+
+    @Test
+    void changesDuringRebuildAreReplayed() {
+        // 快照读出之后：3 号改名、2 号下架、1 号卖出 40 本
+        when(bookRepository.findActiveSearchFields()).thenAnswer(invocation -> {
+            List<Object[]> rows = List.of(
+                    row(1L, "Effective Java", "Joshua Bloch"),
+                    row(2L, "Java 编程思想", "Bruce Eckel"),
+                    row(3L, "JavaScript 高级程序设计", "Matt Frisbie"));
+            index.indexBook(book(3L, "TypeScript 入门", "Matt Frisbie"));
+            index.remove(2L);
+            index.onBookSold(new BookSoldEvent(Map.of(1L, 40)));
+            return rows;
+        });
+
+        index.rebuild();
+
+        assertThat(texts(index.suggest("java", 10))).containsExactly("Effective Java");
+        assertThat(texts(index.suggest("type", 10))).containsExactly("TypeScript 入门");
+        assertThat(index.suggest("bruce", 10)).isEmpty();
+        // 构建期间的销量计入权重：1 号超过快照中销量为 30 的 2 号（重新上架后比较）
+        index.indexBook(book(2L, "Java 编程思想", "Bruce Eckel"));
+        assertThat(texts(index.suggest("java", 10))).containsExactly("Effective Java", "Java 编程思想");
+    }
+
+    @Test
+    void disabledIndexIsNotReady() {
+        BookSuggestIndex disabled = new BookSuggestIndex();
+        setField(disabled, "enabled", false);
+        disabled.rebuild();
+
+        assertThat(disabled.isReady()).isFalse();
+        assertThat(disabled.suggest("java", 10)).isEmpty();
+    }
+
+    private static List<String> texts(List<BookSuggestIndex.Suggestion> suggestions) {
+        return suggestions.stream().map(BookSuggestIndex.Suggestion::text).toList();
+    }
+
+    private static Object[] row(Long id, String title, String author) {
+        return new Object[]{id, title, author, null, null};
+    }
+
+    private static Book book(Long id, String title, String author) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor(author);
+        book.setDeleted(false);
+        return book;
+    }
+}
@@ -0,0 +1,50 @@
+package com.bookstore.online_bookstore_backend.search;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookTokenizerTest {
+
+    @Test
+    void splitsLatinWordsAndLowercases() {
+        assertThat(BookTokenizer.tokenize("Effective Java, 3rd-Edition"))
+                .containsExactly("effective", "java", "3rd", "edition");
+    }
+
+    @Test
+    void indexesCjkAsUnigramsAndBigrams() {
+        assertThat(BookTokenizer.tokenize("算法导论")).containsExactly("算", "法", "导", "论", "算法", "法导", "导论");
+    }
+
+    @Test
+    void queriesCjkWithBigramsOnly() {
+        assertThat(BookTokenizer.tokenizeQuery("算法导论")).containsExactly("算法", "法导", "导论");
+        assertThat(BookTokenizer.tokenizeQuery("算")).containsExactly("算");
+    }
+
+    @Test
+    void joinsHyphenatedIsbnInQuery() {
+        assertThat(BookTokenizer.tokenizeQuery("978-7-115-42802-8")).containsExactly("9787115428028");
+        assertThat(BookTokenizer.tokenizeQuery("7-115-42802-X")).containsExactly("711542802x");
+        assertThat(BookTokenizer.tokenizeQuery("978 7 115 42802 8")).containsExactly("9787115428028");
+    }
+
+    @Test
+    void joinsPartialIsbnForPrefixSearch() {
+        assertThat(BookTokenizer.tokenizeQuery("978-7-115")).containsExactly("9787115");
+        assertThat(BookTokenizer.tokenizeQuery("java 978-7-115")).containsExactly("java", "9787115");
+    }
+
+    @Test
+    void leavesOtherNumbersAlone() {
+        assertThat(BookTokenizer.tokenizeQuery("java 8 in action")).containsExactly("java", "8", "in", "action");
+        assertThat(BookTokenizer.tokenizeQuery("c-3po")).containsExactly("c", "3po");
+    }
+
+    @Test
+    void normalizesIsbnLikeIndexing() {
+        assertThat(BookTokenizer.normalizeIsbn(" 978-7-115-42802-8 ")).isEqualTo("9787115428028");
+        assertThat(BookTokenizer.normalizeIsbn(" - ")).isNull();
+    }
+}
@@ -0,0 +1,119 @@
+package com.bookstore.online_bookstore_backend.search;
+
+import com.bookstore.online_bookstore_backend.entity.Book;
+import com.bookstore.online_bookstore_backend.event.BookChangedEvent;
+import com.bookstore.online_bookstore_backend.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * ISBN 布隆过滤器：已有 ISBN 不会漏判，误判率接近配置值，重建时保留最近的新增
+ */
+class IsbnBloomFilterTest {
+
+    private BookRepository bookRepository;
+    private IsbnBloomFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        bookRepository = mock(BookRepository.class);
+        filter = new IsbnBloomFilter();
+        setField(filter, "bookRepository", bookRepository);
+        setField(filter, "enabled", true);
+        setField(filter, "expectedInsertions", 1000L);
+        setField(filter, "fpp", 0.01);
+    }
+
+    @Test
+    void answersMaybeUntilBuilt() {
+        assertThat(filter.mightContain("9780000000001")).isTrue();
+        assertThat(filter.getNegativeCount()).isZero();
+    }
+
+    @Test
+    void noFalseNegativesAndFalsePositiveRateNearTarget() {
+        List<String> isbns = isbns(0, 1000);
+        when(bookRepository.findActiveIsbns()).thenReturn(isbns);
+        filter.rebuild();
+
+        for (String isbn : isbns) {
+            assertThat(filter.mightContain(isbn)).isTrue();
+        }
+        int falsePositives = 0;
+        for (String isbn : isbns(1000, 20000)) {
+            if (filter.mightContain(isbn)) {
+                falsePositives++;
+            }
+        }
+        // 容量按实际数量的两倍分配（不少于 expected-insertions），误判率应不高于配置值
+        assertThat(falsePositives / 20000.0).isLessThan(0.015);
+    }
+
+    @Test
+    void comparesIsbnsLikeTheDatabase() {
+        when(bookRepository.findActiveIsbns()).thenReturn(List.of("978-7-111-X"));
+        filter.rebuild();
+
+        assertThat(filter.mightContain("  978-7-111-x ")).isTrue();
+        assertThat(filter.mightContain(" ")).isTrue();
+    }
+
+    @Test
+    void recentAddsSurviveRebuildFromOlderSnapshot() {
+        when(bookRepository.findActiveIsbns()).thenReturn(List.of());
+        filter.rebuild();
+        filter.add("9781111111111");
+
+        // 新增所在事务提交前读到的快照中还没有它
+        filter.rebuild();
+
+        assertThat(filter.mightContain("9781111111111")).isTrue();
+    }
+
+    @Test
+    void peerChangesAddAndReloadRebuilds() {
+        when(bookRepository.findActiveIsbns()).thenReturn(List.of());
+        filter.rebuild();
+        Book book = new Book();
+        book.setId(1L);
+        book.setIsbn("9782222222222");
+
+        filter.onBookChanged(BookChangedEvent.peerChanged(1L, book));
+        assertThat(filter.mightContain("9782222222222")).isTrue();
+
+        when(bookRepository.findActiveIsbns()).thenReturn(List.of("9783333333333"));
+        filter.onBookChanged(BookChangedEvent.reloaded());
+        assertThat(filter.mightContain("9783333333333")).isTrue();
+    }
+
+    @Test
+    void manyRemovalsTriggerBackgroundRebuild() {
+        when(bookRepository.findActiveIsbns()).thenReturn(isbns(0, 10));
+        filter.rebuild();
+
+        for (int i = 0; i < 3; i++) {
+            filter.markRemoved();
+        }
+
+        verify(bookRepository, timeout(2000).times(2)).findActiveIsbns();
+    }
+
+    private static List<String> isbns(int from, int to) {
+        List<String> result = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            result.add(String.format("978%010d", i));
+        }
+        return result;
+    }
+}
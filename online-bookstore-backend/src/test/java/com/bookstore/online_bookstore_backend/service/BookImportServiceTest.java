@@ -0,0 +1,92 @@
+package com.bookstore.online_bookstore_backend.service;
+
+import com.bookstore.online_bookstore_backend.cache.NearCacheManager;
+import com.bookstore.online_bookstore_backend.dao.BookDao;
+import com.bookstore.online_bookstore_backend.dao.BookInventoryDao;
+import com.bookstore.online_bookstore_backend.entity.Book;
+import com.bookstore.online_bookstore_backend.payload.response.BookImportResponse;
+import com.bookstore.online_bookstore_backend.support.NoOpTransactionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * 批量导入：整批写入失败时逐行重试，只有写不进去的行计为失败，其 ISBN 不再算作已存在
+ */
+class BookImportServiceTest {
+
+    private final List<String> inserted = new ArrayList<>();
+    private BookImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        BookDao bookDao = mock(BookDao.class);
+        when(bookDao.findAllIsbns()).thenReturn(List.of("978-0-00-000000-1"));
+        // 数据库中已被其他请求占用的 ISBN：含有它的批次整体失败
+        doAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            if (books.stream().anyMatch(book -> "BAD".equalsIgnoreCase(book.getIsbn().replace("-", "")))) {
+                throw new DuplicateKeyException("Duplicate entry 'BAD'");
+            }
+            books.forEach(book -> inserted.add(book.getIsbn()));
+            return null;
+        }).when(bookDao).insertBatch(anyList());
+
+        importService = new BookImportService();
+        setField(importService, "bookDao", bookDao);
+        setField(importService, "inventoryDao", mock(BookInventoryDao.class));
+        setField(importService, "transactionTemplate", NoOpTransactionManager.template());
+        setField(importService, "eventPublisher", mock(ApplicationEventPublisher.class));
+        setField(importService, "nearCacheManager", mock(NearCacheManager.class));
+        setField(importService, "batchSize", 3);
+    }
+
+    @Test
+    void failedBatchIsRetriedRowByRow() throws IOException {
+        BookImportResponse result = importCsv("""
+                title,isbn
+                A,A1
+                B,BAD
+                C,C1
+                D,D1
+                """);
+
+        assertThat(inserted).containsExactly("A1", "C1", "D1");
+        assertThat(result.getImported()).isEqualTo(3);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getErrors()).singleElement().asString().startsWith("第 2 行写入失败");
+    }
+
+    @Test
+    void rejectedIsbnIsNotTreatedAsImported() throws IOException {
+        setField(importService, "batchSize", 1);
+        BookImportResponse result = importCsv("""
+                title,isbn
+                A,BAD
+                B,ba-d
+                C,978-0-00-000000-1
+                """);
+
+        // 第一行没有写入，同 ISBN 的下一行不算重复，照常尝试写入
+        assertThat(result.getFailed()).isEqualTo(2);
+        assertThat(result.getDuplicates()).isEqualTo(1);
+    }
+
+    private BookImportResponse importCsv(String csv) throws IOException {
+        return importService.importBooks(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "csv");
+    }
+}
@@ -0,0 +1,107 @@
+package com.bookstore.online_bookstore_backend.service;
+
+import com.bookstore.online_bookstore_backend.dao.BookDao;
+import com.bookstore.online_bookstore_backend.dto.BookWithInventoryDTO;
+import com.bookstore.online_bookstore_backend.entity.Book;
+import com.bookstore.online_bookstore_backend.search.BookSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * 详情 ETag 随库存行版本与库存变化；列表 ETag 区分分页、排序与标题关键词
+ * 标题搜索只在未指定排序时按索引相关度返回
+ */
+class BookServiceETagTest {
+
+    private BookDao bookDao;
+    private BookSearchIndex searchIndex;
+    private BookService bookService;
+
+    @BeforeEach
+    void setUp() {
+        bookDao = mock(BookDao.class);
+        searchIndex = new BookSearchIndex();
+        setField(searchIndex, "enabled", true);
+        bookService = new BookService(bookDao);
+        setField(bookService, "bookSearchIndex", searchIndex);
+    }
+
+    @Test
+    void detailTagChangesWithStockVersionAndStock() {
+        Book book = new Book();
+        book.setId(7L);
+        book.setUpdatedAt(LocalDateTime.of(2024, 5, 1, 12, 0));
+        String base = BookService.detailETag(BookWithInventoryDTO.fromBookAndStock(book, 10, 3L));
+
+        assertThat(BookService.detailETag(BookWithInventoryDTO.fromBookAndStock(book, 10, 3L))).isEqualTo(base);
+        // 管理端把库存改回原值：数量相同，版本不同
+        assertThat(BookService.detailETag(BookWithInventoryDTO.fromBookAndStock(book, 10, 4L))).isNotEqualTo(base);
+        // 预留扣减：版本不变，数量不同
+        assertThat(BookService.detailETag(BookWithInventoryDTO.fromBookAndStock(book, 9, 3L))).isNotEqualTo(base);
+    }
+
+    @Test
+    void listTagDependsOnQueryParameters() {
+        when(bookDao.findListGeneration("小说")).thenReturn(5L);
+        PageRequest page = PageRequest.of(0, 10, Sort.by(Sort.Direction.ASC, "id"));
+        String base = bookService.getListETag("小说", null, page);
+
+        assertThat(base).startsWith("\"g5-");
+        assertThat(bookService.getListETag("小说", "", page)).isEqualTo(base);
+        assertThat(bookService.getListETag("小说", null, PageRequest.of(1, 10, page.getSort()))).isNotEqualTo(base);
+        assertThat(bookService.getListETag("小说", null, PageRequest.of(0, 20, page.getSort()))).isNotEqualTo(base);
+        assertThat(bookService.getListETag("小说", null, PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "price"))))
+                .isNotEqualTo(base);
+    }
+
+    @Test
+    void searchTagUsesAllBooksGenerationAndIndexRevision() {
+        when(bookDao.findListGeneration(isNull())).thenReturn(2L);
+        PageRequest page = PageRequest.of(0, 10);
+        String java = bookService.getListETag("小说", "java", page);
+
+        assertThat(java).startsWith("\"g2-r");
+        assertThat(bookService.getListETag("小说", "spring", page)).isNotEqualTo(java);
+
+        // 对端的修改同步到本节点索引后，同一搜索的 ETag 随之变化
+        searchIndex.index(1L, "Java 编程思想", "Bruce Eckel", null, null);
+        assertThat(bookService.getListETag("小说", "java", page)).isNotEqualTo(java);
+    }
+
+    @Test
+    void listTagIsNullWithoutGeneration() {
+        when(bookDao.findListGeneration(isNull())).thenReturn(null);
+        assertThat(bookService.getListETag(null, null, PageRequest.of(0, 10))).isNull();
+    }
+
+    @Test
+    void onlyUnsortedSearchUsesRelevanceOrder() {
+        Book book = new Book();
+        book.setId(1L);
+        searchIndex.index(1L, "Java 编程思想", "Bruce Eckel", null, null);
+        setField(searchIndex, "ready", true);
+        when(bookDao.findAllByIds(anyList())).thenReturn(Map.of(1L, book));
+        PageRequest idDesc = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "id"));
+        Page<Book> byDatabase = new PageImpl<>(List.of(book), idDesc, 1);
+        when(bookDao.findByTitleContainingIgnoreCase("java", idDesc)).thenReturn(byDatabase);
+
+        assertThat(bookService.searchBooksByTitle("java", PageRequest.of(0, 10)).getContent()).containsExactly(book);
+        // 显式的 sort=id,desc 按数据库顺序返回，不被当作相关度排序
+        assertThat(bookService.searchBooksByTitle("java", idDesc)).isSameAs(byDatabase);
+    }
+}
@@ -0,0 +1,169 @@
+package com.bookstore.online_bookstore_backend.service;
+
+import com.bookstore.online_bookstore_backend.dao.BookDao;
+import com.bookstore.online_bookstore_backend.dao.OrderDao;
+import com.bookstore.online_bookstore_backend.dao.OrderItemDao;
+import com.bookstore.online_bookstore_backend.dao.impl.BookDaoImpl;
+import com.bookstore.online_bookstore_backend.entity.Book;
+import com.bookstore.online_bookstore_backend.entity.Order;
+import com.bookstore.online_bookstore_backend.payload.request.PageCursor;
+import com.bookstore.online_bookstore_backend.payload.response.CursorPageResponse;
+import com.bookstore.online_bookstore_backend.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * 键集分页：每页大小校验、多取一行判断下一页、游标回传上一页最后一行；按价格翻页时价格为空的书籍排在最后
+ */
+class CursorPagingTest {
+
+    private BookDao bookDao;
+    private OrderDao orderDao;
+    private BookService bookService;
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        bookDao = mock(BookDao.class);
+        orderDao = mock(OrderDao.class);
+        bookService = new BookService(bookDao);
+        orderService = new OrderService(orderDao, mock(OrderItemDao.class), mock(CartService.class), bookDao);
+    }
+
+    @Test
+    void rejectsPageSizeOutOfRange() {
+        for (int size : new int[]{0, -1, PageCursor.MAX_PAGE_SIZE + 1}) {
+            assertThatThrownBy(() -> bookService.getBooksByCursor(null, "id", true, "", size))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> orderService.getOrdersByUserIdAfterCursor(1L, "", size, false, null, null))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        verifyNoInteractions(bookDao, orderDao);
+    }
+
+    @Test
+    void booksPageByIdAndReturnCursorOfLastRow() {
+        when(bookDao.findPageAfterId(isNull(), isNull(), eq(true), eq(3))).thenReturn(books(1, 2, 3));
+        CursorPageResponse<Book> first = bookService.getBooksByCursor("all", "id", true, "", 2);
+
+        assertThat(first.getContent()).extracting(Book::getId).containsExactly(1L, 2L);
+        assertThat(first.isHasNext()).isTrue();
+        assertThat(PageCursor.decode(first.getNextCursor()).getLastId()).isEqualTo(2L);
+
+        when(bookDao.findPageAfterId(isNull(), eq(2L), eq(true), eq(3))).thenReturn(books(3));
+        CursorPageResponse<Book> last = bookService.getBooksByCursor("all", "id", true, first.getNextCursor(), 2);
+
+        assertThat(last.getContent()).extracting(Book::getId).containsExactly(3L);
+        assertThat(last.isHasNext()).isFalse();
+        assertThat(last.getNextCursor()).isNull();
+    }
+
+    @Test
+    void priceCursorCarriesLastPrice() {
+        when(bookDao.findPageAfterPrice(eq("小说"), isNull(), isNull(), eq(false), eq(2))).thenReturn(books(5, 4));
+        CursorPageResponse<Book> first = bookService.getBooksByCursor("小说", "price", false, "", 1);
+
+        PageCursor cursor = PageCursor.decode(first.getNextCursor());
+        assertThat(cursor.getLastId()).isEqualTo(5L);
+        assertThat(new BigDecimal(cursor.getLastValue())).isEqualByComparingTo("50");
+    }
+
+    @Test
+    void invalidPriceCursorIsRejected() {
+        for (String value : new String[]{null, "abc"}) {
+            String cursor = new PageCursor("price", true, 2L, value).encode();
+            assertThatThrownBy(() -> bookService.getBooksByCursor(null, "price", true, cursor, 10))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        verifyNoInteractions(bookDao);
+    }
+
+    @Test
+    void unpricedLastRowContinuesAmongUnpricedBooks() {
+        List<Book> rows = books(3, 7, 8);
+        rows.get(1).setPrice(null);
+        rows.get(2).setPrice(null);
+        when(bookDao.findPageAfterPrice(isNull(), isNull(), isNull(), eq(true), eq(3))).thenReturn(rows);
+        CursorPageResponse<Book> first = bookService.getBooksByCursor(null, "price", true, "", 2);
+
+        when(bookDao.findPageAfterPrice(isNull(), isNull(), eq(7L), eq(true), eq(3))).thenReturn(books());
+        CursorPageResponse<Book> next = bookService.getBooksByCursor(null, "price", true, first.getNextCursor(), 2);
+
+        assertThat(next.getContent()).isEmpty();
+    }
+
+    @Test
+    void priceSeekPutsUnpricedBooksLast() {
+        BookRepository repository = mock(BookRepository.class);
+        BookDaoImpl dao = new BookDaoImpl(repository);
+        when(repository.findPageAfterPriceAsc(isNull(), eq(new BigDecimal("30")), eq(3L), any(Pageable.class))).thenReturn(books(4));
+        when(repository.findUnpricedPageAfterIdAsc(isNull(), eq(0L), any(Pageable.class))).thenReturn(books(1, 2));
+        when(repository.findUnpricedPageAfterIdDesc(isNull(), eq(9L), any(Pageable.class))).thenReturn(books(5));
+
+        // 有价格的书籍不足一页，用价格为空的书籍补足
+        assertThat(dao.findPageAfterPrice(null, new BigDecimal("30"), 3L, true, 3)).extracting(Book::getId).containsExactly(4L, 1L, 2L);
+        // 上一页停在价格为空的书籍中，按 id 继续
+        assertThat(dao.findPageAfterPrice(null, null, 9L, false, 3)).extracting(Book::getId).containsExactly(5L);
+    }
+
+    @Test
+    void cursorMustMatchSortParameters() {
+        String cursor = new PageCursor("id", true, 2L, null).encode();
+
+        assertThatThrownBy(() -> bookService.getBooksByCursor(null, "id", false, cursor, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> bookService.getBooksByCursor(null, "price", true, cursor, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> bookService.getBooksByCursor(null, "id", true, "not-a-cursor", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void ordersPageByDateAndId() {
+        LocalDateTime date = LocalDateTime.of(2024, 5, 1, 12, 0);
+        when(orderDao.findUserOrdersAfter(eq(1L), any(), any(), any(), any(), anyBoolean(), anyInt()))
+                .thenReturn(List.of(order(9L, date), order(8L, date)));
+
+        CursorPageResponse<Order> page = orderService.getOrdersByUserIdAfterCursor(1L, "", 1, false, null, null);
+
+        assertThat(page.getContent()).extracting(Order::getId).containsExactly(9L);
+        PageCursor cursor = PageCursor.decode(page.getNextCursor());
+        assertThat(cursor.getLastId()).isEqualTo(9L);
+        assertThat(LocalDateTime.parse(cursor.getLastValue())).isEqualTo(date);
+    }
+
+    private static List<Book> books(long... ids) {
+        List<Book> books = new ArrayList<>();
+        for (long id : ids) {
+            Book book = new Book();
+            book.setId(id);
+            book.setPrice(BigDecimal.valueOf(id * 10));
+            books.add(book);
+        }
+        return books;
+    }
+
+    private static Order order(Long id, LocalDateTime date) {
+        Order order = new Order();
+        order.setId(id);
+        order.setOrderDate(date);
+        return order;
+    }
+}
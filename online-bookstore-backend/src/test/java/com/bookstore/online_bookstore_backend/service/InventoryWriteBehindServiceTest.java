@@ -0,0 +1,151 @@
+package com.bookstore.online_bookstore_backend.service;
+
+import com.bookstore.online_bookstore_backend.entity.BookInventory;
+import com.bookstore.online_bookstore_backend.support.FakeInventoryTable;
+import com.bookstore.online_bookstore_backend.support.NoOpTransactionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * 库存异步落库：日志随事务写入 inventory_journal、所有节点读取时加上未落库的行、各节点合并落库自己的行
+ * 数据库用内存中的库存表和日志表（FakeInventoryTable）代替
+ */
+class InventoryWriteBehindServiceTest {
+
+    private final FakeInventoryTable table = new FakeInventoryTable();
+    private final List<InventoryWriteBehindService> started = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        table.stocks.put(1L, 10L);
+        table.stocks.put(2L, 10L);
+        table.versions.put(1L, 7L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        started.forEach(service -> setField(service, "running", false));
+    }
+
+    @Test
+    void pendingRowsAreCountedByEveryNode() {
+        InventoryWriteBehindService nodeA = start("a");
+        InventoryWriteBehindService nodeB = start("b");
+        nodeA.record(Map.of(1L, -2));
+        nodeA.record(Map.of(1L, -3, 2L, -1));
+
+        assertThat(nodeB.pendingDelta(1L)).isEqualTo(-5);
+        Optional<BookInventory> loaded = nodeB.loadWithPending(1L, Optional::empty);
+        assertThat(loaded).get().extracting(BookInventory::getStock, BookInventory::getVersion).containsExactly(5, 7L);
+        assertThat(table.stocks).containsEntry(1L, 10L);
+    }
+
+    @Test
+    void rolledBackRecordLeavesNothing() {
+        InventoryWriteBehindService service = start("a");
+
+        NoOpTransactionManager.template().executeWithoutResult(status -> {
+            service.record(Map.of(1L, -2));
+            assertThat(table.uncommittedWrites()).isEqualTo(1);
+            status.setRollbackOnly();
+        });
+
+        assertThat(table.journal).isEmpty();
+        assertThat(service.pendingDelta(1L)).isZero();
+    }
+
+    @Test
+    void flushFoldsOnlyOwnRowsAndKeepsTotalsStable() {
+        InventoryWriteBehindService nodeA = start("a");
+        InventoryWriteBehindService nodeB = start("b");
+        nodeA.record(Map.of(1L, -2));
+        nodeB.record(Map.of(1L, -1));
+
+        nodeA.flush();
+
+        assertThat(table.stocks).containsEntry(1L, 8L);
+        assertThat(table.versions).containsEntry(1L, 8L);
+        assertThat(table.journal.values()).extracting(FakeInventoryTable.JournalRow::nodeId).containsExactly("b");
+        // 落库前后任何节点读到的当前库存不变
+        assertThat(nodeB.loadWithPending(1L, Optional::empty)).get().extracting(BookInventory::getStock).isEqualTo(7);
+    }
+
+    @Test
+    void offsettingDeltasAreDeletedWithoutUpdate() {
+        InventoryWriteBehindService service = start("a");
+        service.record(Map.of(1L, -2));
+        service.record(Map.of(1L, 2));
+        service.flush();
+
+        assertThat(table.stockUpdates).isZero();
+        assertThat(table.journal).isEmpty();
+    }
+
+    @Test
+    void failedFlushKeepsRows() {
+        InventoryWriteBehindService service = start("a");
+        service.record(Map.of(1L, -2));
+        table.failNext = true;
+        service.flush();
+
+        assertThat(table.stocks).containsEntry(1L, 10L);
+        assertThat(service.pendingDelta(1L)).isEqualTo(-2);
+        assertThat(service.getStats()).containsEntry("failures", 1L).containsEntry("pendingEntries", 1L);
+
+        service.flush();
+        assertThat(table.stocks).containsEntry(1L, 8L);
+        assertThat(table.journal).isEmpty();
+    }
+
+    @Test
+    void committedRowsAreFlushedAfterRestart() {
+        InventoryWriteBehindService crashed = start("a");
+        NoOpTransactionManager.template().executeWithoutResult(status -> crashed.record(Map.of(1L, -2, 2L, -5)));
+        // 进程崩溃：没有 flush / shutdown，提交后也没有执行任何其他代码
+
+        InventoryWriteBehindService restarted = start("a");
+        restarted.flush();
+
+        assertThat(table.stocks).containsEntry(1L, 8L).containsEntry(2L, 5L);
+        assertThat(table.journal).isEmpty();
+    }
+
+    @Test
+    void flushDrainsInBatches() {
+        InventoryWriteBehindService service = start("a");
+        setField(service, "batchSize", 2);
+        for (int i = 0; i < 5; i++) {
+            service.record(Map.of(1L, -1));
+        }
+
+        service.flush();
+
+        assertThat(table.stocks).containsEntry(1L, 5L);
+        assertThat(service.getStats()).containsEntry("flushes", 3L).containsEntry("pendingEntries", 0L);
+    }
+
+    @Test
+    void discardDropsRowsOfDeletedBook() {
+        InventoryWriteBehindService service = start("a");
+        service.record(Map.of(1L, -2, 2L, -1));
+        service.discard(1L);
+
+        assertThat(service.pendingDelta(1L)).isZero();
+        assertThat(service.pendingDelta(2L)).isEqualTo(-1);
+    }
+
+    private InventoryWriteBehindService start(String nodeId) {
+        InventoryWriteBehindService service = table.startWriteBehind(nodeId);
+        started.add(service);
+        return service;
+    }
+}
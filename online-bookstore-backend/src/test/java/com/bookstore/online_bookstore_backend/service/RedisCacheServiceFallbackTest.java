@@ -0,0 +1,169 @@
+package com.bookstore.online_bookstore_backend.service;
+
+import com.bookstore.online_bookstore_backend.cache.BookCacheEntry;
+import com.bookstore.online_bookstore_backend.cache.BulkCacheEvictor;
+import com.bookstore.online_bookstore_backend.cache.FallbackCacheStore;
+import com.bookstore.online_bookstore_backend.cache.NearCacheManager;
+import com.bookstore.online_bookstore_backend.cache.RedisCircuitBreaker;
+import com.bookstore.online_bookstore_backend.entity.Book;
+import com.bookstore.online_bookstore_backend.support.CacheFixture;
+import com.bookstore.online_bookstore_backend.support.EmbeddedRedis;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.util.ReflectionTestUtils.invokeMethod;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * 熔断期间读写本地降级缓存并记录变更；恢复后清掉 Redis 中可能过期的图书、库存与列表代数
+ */
+class RedisCacheServiceFallbackTest {
+
+    private CacheFixture fixture;
+    private RedisCacheService cacheService;
+    private RedisCircuitBreaker breaker;
+    private FallbackCacheStore fallbackStore;
+    private StringRedisTemplate redis;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        fixture = new CacheFixture();
+        cacheService = fixture.cacheService;
+        breaker = fixture.circuitBreaker;
+        fallbackStore = fixture.fallbackStore;
+        redis = fixture.redis;
+        // 由测试显式恢复，不让后台探测抢先关闭熔断
+        setField(breaker, "probeIntervalMs", 60_000L);
+        setField(fixture.bulkCacheEvictor, "nearCacheManager", mock(NearCacheManager.class));
+    }
+
+    @Test
+    void outageServesFallbackAndReconcileDropsStaleRedisData() {
+        cacheService.cacheBook(book(1L, "旧书名", 1));
+        cacheService.cacheInventory(1L, 10, 1L);
+        cacheService.cacheBook(book(2L, "第二本", 1));
+        cacheService.cacheInventory(2L, 5, 1L);
+        long generation = cacheService.getBookListGeneration("小说");
+
+        openCircuit();
+        cacheService.cacheBook(book(1L, "新书名", 2));
+        cacheService.updateInventoryCache(2L, -1);
+        cacheService.bumpBookListGeneration(List.of("小说"));
+
+        BookCacheEntry entry = cacheService.getCachedBookDetail(1L);
+        assertThat(entry.getBook().getTitle()).isEqualTo("新书名");
+        assertThat(redis.opsForHash().get("book:detail:1", "title")).isEqualTo("旧书名");
+        assertThat(cacheService.getFallbackStats())
+                .containsEntry("dirtyBooks", 1).containsEntry("dirtyStocks", 1).containsEntry("dirtyCategories", 1);
+
+        recover();
+        invokeMethod(cacheService, "reconcileFallback");
+
+        assertThat(redis.hasKey("book:detail:1")).isFalse();
+        assertThat(redis.opsForHash().get("book:detail:2", "title")).isEqualTo("第二本");
+        assertThat(redis.opsForHash().hasKey("book:detail:2", "stock")).isFalse();
+        assertThat(redis.opsForHash().hasKey("book:detail:2", "stockVersion")).isFalse();
+        assertThat(cacheService.getBookListGeneration("小说")).isEqualTo(generation + 1);
+        assertThat(cacheService.getFallbackStats())
+                .containsEntry("dirtyBooks", 0).containsEntry("dirtyStocks", 0).containsEntry("dirtyCategories", 0)
+                .containsEntry("books", 0).containsEntry("reconciling", false);
+        // 清理后按数据库当前版本重新回填
+        cacheService.cacheInventory(2L, 4, 1L);
+        assertThat(cacheService.getCachedInventory(2L)).isEqualTo(4);
+    }
+
+    @Test
+    void reconcileWaitsWhileRedisIsStillDown() {
+        openCircuit();
+        cacheService.evictBook(3L, 0);
+        assertThat(fallbackStore.beginReconcile()).isNotNull();
+        fallbackStore.abortReconcile();
+
+        invokeMethod(cacheService, "reconcileFallback");
+        assertThat(cacheService.getFallbackStats()).containsEntry("dirtyBooks", 1).containsEntry("reconciling", false);
+
+        recover();
+        invokeMethod(cacheService, "reconcileFallback");
+        assertThat(cacheService.getFallbackStats()).containsEntry("dirtyBooks", 0).containsEntry("reconciled", 1L);
+    }
+
+    @Test
+    void overflowEvictsAllBookCaches() throws InterruptedException {
+        setField(fallbackStore, "maxDirty", 2);
+        for (long id = 1; id <= 3; id++) {
+            cacheService.cacheBook(book(id, "书" + id, 1));
+        }
+        redis.opsForValue().set("book:list:gen:all", "7");
+
+        openCircuit();
+        for (long id = 1; id <= 3; id++) {
+            cacheService.cacheBook(book(id, "改" + id, 2));
+        }
+        assertThat(cacheService.getFallbackStats()).containsEntry("overflowed", true);
+
+        recover();
+        invokeMethod(cacheService, "reconcileFallback");
+        BulkCacheEvictor evictor = fixture.bulkCacheEvictor;
+        long deadline = System.currentTimeMillis() + 5000;
+        while (evictor.isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(redis.keys("book:detail:*")).isEmpty();
+        assertThat(redis.opsForValue().get("book:list:gen:all")).isEqualTo("7");
+        assertThat(cacheService.getFallbackStats()).containsEntry("overflowed", false);
+    }
+
+    @Test
+    void changesDuringReconcileAreKeptForNextRound() {
+        openCircuit();
+        cacheService.evictInventory(4L);
+        FallbackCacheStore.Pending pending = fallbackStore.beginReconcile();
+        assertThat(fallbackStore.isPendingReconcile(4L)).isTrue();
+
+        fallbackStore.markStockDirty(5L);
+        fallbackStore.finishReconcile(pending);
+
+        assertThat(fallbackStore.isPendingReconcile(4L)).isFalse();
+        assertThat(fallbackStore.getStats()).containsEntry("dirtyStocks", 1);
+        assertThat(fallbackStore.beginReconcile().stocks()).containsExactly(5L);
+    }
+
+    // 窗口内此前的成功调用会拉低失败率，连续失败直到熔断
+    private void openCircuit() {
+        for (int i = 0; i < 10; i++) {
+            breaker.recordFailure(new RedisConnectionFailureException("down"));
+        }
+        assertThat(cacheService.isRedisAvailable()).isFalse();
+    }
+
+    // 模拟探测成功后试探调用成功，熔断关闭
+    private void recover() {
+        invokeMethod(breaker, "halfOpen");
+        breaker.recordSuccess();
+        assertThat(breaker.getState()).isEqualTo(RedisCircuitBreaker.State.CLOSED);
+    }
+
+    private static Book book(Long id, String title, int minute) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle(title);
+        book.setAuthor("作者");
+        book.setIsbn("978000000000" + id);
+        book.setPrice(new BigDecimal("39.90"));
+        book.setCategory("小说");
+        book.setDeleted(false);
+        book.setCreatedAt(LocalDateTime.of(2024, 1, 1, 0, 0));
+        book.setUpdatedAt(LocalDateTime.of(2024, 1, 1, 0, minute));
+        return book;
+    }
+}
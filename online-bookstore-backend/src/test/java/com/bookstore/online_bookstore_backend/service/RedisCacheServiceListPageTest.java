@@ -0,0 +1,49 @@
+package com.bookstore.online_bookstore_backend.service;
+
+import com.bookstore.online_bookstore_backend.cache.BookListPage;
+import com.bookstore.online_bookstore_backend.support.CacheFixture;
+import com.bookstore.online_bookstore_backend.support.EmbeddedRedis;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 列表页缓存按分类代数区分：代数递增后旧代数下的列表页不再命中
+ */
+class RedisCacheServiceListPageTest {
+
+    private RedisCacheService cacheService;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        cacheService = new CacheFixture().cacheService;
+    }
+
+    @Test
+    void generationIsInitializedOnceAndStable() {
+        Long generation = cacheService.getBookListGeneration("小说");
+
+        assertThat(generation).isNotNull().isPositive();
+        assertThat(cacheService.getBookListGeneration("小说")).isEqualTo(generation);
+    }
+
+    @Test
+    void bumpHidesPagesOfOlderGeneration() {
+        long generation = cacheService.getBookListGeneration("小说");
+        BookListPage page = new BookListPage(List.of(1L, 2L), 2);
+        cacheService.cacheBookListPage("小说", generation, "0:10:id", page);
+        assertThat(cacheService.getCachedBookListPage("小说", generation, "0:10:id")).isEqualTo(page);
+
+        cacheService.bumpBookListGeneration(List.of("小说", "all"));
+
+        long bumped = cacheService.getBookListGeneration("小说");
+        assertThat(bumped).isEqualTo(generation + 1);
+        assertThat(cacheService.getCachedBookListPage("小说", bumped, "0:10:id")).isNull();
+        // 分类的计数器此前不存在时同样以时间戳初始化后递增
+        assertThat(cacheService.getBookListGeneration("all")).isPositive();
+    }
+}
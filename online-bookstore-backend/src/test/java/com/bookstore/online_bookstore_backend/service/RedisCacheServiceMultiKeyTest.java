@@ -0,0 +1,62 @@
+package com.bookstore.online_bookstore_backend.service;
+
+import com.bookstore.online_bookstore_backend.cache.BookListPage;
+import com.bookstore.online_bookstore_backend.support.CacheFixture;
+import com.bookstore.online_bookstore_backend.support.EmbeddedRedis;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * 多 key 批量操作：跨多个 pipeline 分批后结果仍与输入一一对应，紧凑前缀与 JSON 混写可一次读回
+ */
+class RedisCacheServiceMultiKeyTest {
+
+    private RedisCacheService cacheService;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        cacheService = new CacheFixture().cacheService;
+        setField(cacheService, "compactPrefixes", new String[]{"book:list:"});
+    }
+
+    @Test
+    void multiSetAndGetAcrossBatchesAndCodecs() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < 25; i++) {
+            values.put("book:list:" + i, new BookListPage(List.of((long) i), 1));
+            values.put("plain:" + i, "v" + i);
+        }
+        cacheService.multiSet(values, 60, TimeUnit.SECONDS, 7);
+
+        List<String> keys = new ArrayList<>(values.keySet());
+        keys.add("missing");
+        Map<String, Object> read = cacheService.multiGet(keys, 7);
+
+        assertThat(read).containsExactlyEntriesOf(values);
+    }
+
+    @Test
+    void multiIncrementAndDelete() {
+        Map<String, Long> deltas = new LinkedHashMap<>();
+        for (int i = 0; i < 12; i++) {
+            deltas.put("counter:" + i, (long) i);
+        }
+        cacheService.multiIncrement(deltas, 5);
+        Map<String, Long> result = cacheService.multiIncrement(deltas, 5);
+
+        assertThat(result).hasSize(12);
+        assertThat(result.get("counter:11")).isEqualTo(22L);
+        assertThat(cacheService.multiDelete(new ArrayList<>(deltas.keySet()), 5)).isEqualTo(12);
+        assertThat(cacheService.multiGet(deltas.keySet())).isEmpty();
+    }
+}
@@ -0,0 +1,107 @@
+package com.bookstore.online_bookstore_backend.service;
+
+import com.bookstore.online_bookstore_backend.cache.StockReservation;
+import com.bookstore.online_bookstore_backend.support.CacheFixture;
+import com.bookstore.online_bookstore_backend.support.EmbeddedRedis;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 库存脚本：多本书原子预留 / 归还，以及按 stockVersion 的写入 CAS
+ */
+class RedisCacheServiceStockTest {
+
+    private RedisCacheService cacheService;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        cacheService = new CacheFixture().cacheService;
+    }
+
+    @Test
+    void reservesAllBooksAtOnce() {
+        cacheService.cacheInventory(1L, 10, 1L);
+        cacheService.cacheInventory(2L, 5, 1L);
+
+        StockReservation reservation = cacheService.reserveStock(quantities(1L, 3, 2L, 5));
+
+        assertThat(reservation.getStatus()).isEqualTo(StockReservation.Status.RESERVED);
+        assertThat(reservation.getStocks()).containsEntry(1L, 7).containsEntry(2L, 0);
+        assertThat(cacheService.getCachedInventory(1L)).isEqualTo(7);
+        assertThat(cacheService.getCachedInventory(2L)).isEqualTo(0);
+    }
+
+    @Test
+    void insufficientBookLeavesEveryStockUnchanged() {
+        cacheService.cacheInventory(1L, 10, 1L);
+        cacheService.cacheInventory(2L, 2, 1L);
+
+        StockReservation reservation = cacheService.reserveStock(quantities(1L, 3, 2L, 5));
+
+        assertThat(reservation.getStatus()).isEqualTo(StockReservation.Status.INSUFFICIENT);
+        assertThat(reservation.getShortfalls()).containsExactly(Map.entry(2L, 2));
+        assertThat(cacheService.getCachedInventory(1L)).isEqualTo(10);
+        assertThat(cacheService.getCachedInventory(2L)).isEqualTo(2);
+    }
+
+    @Test
+    void uncachedBookIsReportedWithoutReserving() {
+        cacheService.cacheInventory(1L, 10, 1L);
+
+        StockReservation reservation = cacheService.reserveStock(quantities(1L, 3, 2L, 1));
+
+        assertThat(reservation.getStatus()).isEqualTo(StockReservation.Status.NOT_CACHED);
+        assertThat(reservation.getUncached()).containsExactly(2L);
+        assertThat(cacheService.getCachedInventory(1L)).isEqualTo(10);
+    }
+
+    @Test
+    void releaseSkipsEvictedStock() {
+        cacheService.cacheInventory(1L, 10, 1L);
+        cacheService.cacheInventory(2L, 5, 1L);
+        Map<Long, Integer> quantities = quantities(1L, 3, 2L, 5);
+        cacheService.reserveStock(quantities);
+        cacheService.evictInventory(2L);
+
+        assertThat(cacheService.releaseStock(quantities)).isTrue();
+
+        assertThat(cacheService.getCachedInventory(1L)).isEqualTo(10);
+        // 失效后的字段不被归还重新创建，等待按数据库回填
+        assertThat(cacheService.getCachedInventory(2L)).isNull();
+    }
+
+    @Test
+    void rejectsNonPositiveQuantity() {
+        assertThatThrownBy(() -> cacheService.reserveStock(Map.of(1L, 0)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void stockWriteRequiresNewerVersion() {
+        cacheService.cacheInventory(1L, 10, 3L);
+        cacheService.updateInventoryCache(1L, -2);
+
+        // 同版本的旧值不能覆盖已被 HINCRBY 改过的库存
+        cacheService.cacheInventory(1L, 10, 3L);
+        assertThat(cacheService.getCachedInventory(1L)).isEqualTo(8);
+        cacheService.cacheInventory(1L, 12, 2L);
+        assertThat(cacheService.getCachedInventory(1L)).isEqualTo(8);
+
+        cacheService.cacheInventory(1L, 20, 4L);
+        assertThat(cacheService.getCachedInventory(1L)).isEqualTo(20);
+    }
+
+    private static Map<Long, Integer> quantities(Long firstId, int first, Long secondId, int second) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        quantities.put(firstId, first);
+        quantities.put(secondId, second);
+        return quantities;
+    }
+}
@@ -0,0 +1,128 @@
+package com.bookstore.online_bookstore_backend.service;
+
+import com.bookstore.online_bookstore_backend.cache.BookCacheEntry;
+import com.bookstore.online_bookstore_backend.entity.Book;
+import com.bookstore.online_bookstore_backend.support.CacheFixture;
+import com.bookstore.online_bookstore_backend.support.EmbeddedRedis;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 图书缓存的版本 CAS：写穿透、删除墓碑、负缓存占位与读回填之间的先后顺序
+ */
+class RedisCacheServiceVersionTest {
+
+    private static final Long BOOK_ID = 1L;
+
+    private CacheFixture fixture;
+    private RedisCacheService cacheService;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flushAll();
+        fixture = new CacheFixture();
+        cacheService = fixture.cacheService;
+    }
+
+    @Test
+    void staleBackfillAfterWriteThroughIsRejected() {
+        cacheService.cacheBook(book("new", 6));
+        cacheService.cacheBook(book("old", 5), 5);
+
+        assertThat(cacheService.getCachedBook(BOOK_ID).getTitle()).isEqualTo("new");
+    }
+
+    @Test
+    void hardDeleteKeepsTombstoneUnderNegativeCache() {
+        cacheService.cacheBook(book("live", 5));
+        cacheService.evictBook(BOOK_ID, RedisCacheService.VERSION_DELETED);
+        cacheService.cacheBookAbsent(BOOK_ID);
+
+        // 删除提交前读到的行，回填晚于负缓存到达
+        cacheService.cacheBook(book("live", 5), 5);
+
+        assertThat(cacheService.getCachedBookEntry(BOOK_ID)).isEmpty();
+        assertThat(hashField("version")).isEqualTo(String.valueOf(RedisCacheService.VERSION_DELETED));
+    }
+
+    @Test
+    void softDeleteNegativeCacheAcceptsOnlyNewerVersion() {
+        cacheService.cacheBook(book("live", 4));
+        cacheService.evictBook(BOOK_ID, micros(5));
+        cacheService.cacheBookAbsent(BOOK_ID);
+
+        cacheService.cacheBook(book("before-delete", 4), 5);
+        assertThat(cacheService.getCachedBookEntry(BOOK_ID)).isEmpty();
+        // 与墓碑同版本的回填同样是删除时的行
+        cacheService.cacheBook(book("deleted-row", 5), 5);
+        assertThat(cacheService.getCachedBookEntry(BOOK_ID)).isEmpty();
+
+        // 恢复后的写穿透版本更新，覆盖占位
+        cacheService.cacheBook(book("restored", 6));
+        BookCacheEntry entry = cacheService.getCachedBookDetail(BOOK_ID);
+        assertThat(entry.isAbsent()).isFalse();
+        assertThat(entry.getBook().getTitle()).isEqualTo("restored");
+    }
+
+    @Test
+    void negativeCacheWithoutTombstoneIsReplacedByCreation() {
+        cacheService.cacheBookAbsent(BOOK_ID);
+        assertThat(cacheService.getCachedBookEntry(BOOK_ID)).isEmpty();
+
+        cacheService.cacheBook(book("created", 1));
+
+        assertThat(cacheService.getCachedBook(BOOK_ID).getTitle()).isEqualTo("created");
+    }
+
+    @Test
+    void negativeCacheDoesNotOverwriteCachedBook() {
+        cacheService.cacheBook(book("live", 3));
+        cacheService.cacheBookAbsent(BOOK_ID);
+
+        assertThat(cacheService.getCachedBook(BOOK_ID).getTitle()).isEqualTo("live");
+    }
+
+    @Test
+    void evictWithZeroVersionKeepsExistingTombstone() {
+        cacheService.cacheBook(book("live", 7));
+        cacheService.evictBook(BOOK_ID, 0);
+
+        assertThat(hashField("version")).isEqualTo(String.valueOf(micros(7)));
+        cacheService.cacheBook(book("stale", 6), 5);
+        assertThat(cacheService.getCachedBookDetail(BOOK_ID).getBook()).isNull();
+        cacheService.cacheBook(book("committed", 7), 5);
+        assertThat(cacheService.getCachedBook(BOOK_ID).getTitle()).isEqualTo("committed");
+    }
+
+    private String hashField(String field) {
+        return (String) fixture.redis.opsForHash().get("book:detail:" + BOOK_ID, field);
+    }
+
+    static Book book(String title, int second) {
+        Book book = new Book();
+        book.setId(BOOK_ID);
+        book.setTitle(title);
+        book.setAuthor("author");
+        book.setIsbn("9787115428028");
+        book.setPrice(new BigDecimal("59.00"));
+        book.setCategory("计算机");
+        book.setDeleted(false);
+        book.setCreatedAt(updatedAt(0));
+        book.setUpdatedAt(updatedAt(second));
+        return book;
+    }
+
+    private static LocalDateTime updatedAt(int second) {
+        return LocalDateTime.of(2024, 1, 1, 0, 0, second);
+    }
+
+    private static long micros(int second) {
+        return updatedAt(second).toEpochSecond(ZoneOffset.UTC) * 1_000_000;
+    }
+}
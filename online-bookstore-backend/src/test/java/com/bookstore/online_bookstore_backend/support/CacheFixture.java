@@ -0,0 +1,83 @@
+package com.bookstore.online_bookstore_backend.support;
+
+import com.bookstore.online_bookstore_backend.cache.BulkCacheEvictor;
+import com.bookstore.online_bookstore_backend.cache.CacheMetrics;
+import com.bookstore.online_bookstore_backend.cache.FallbackCacheStore;
+import com.bookstore.online_bookstore_backend.cache.RedisCircuitBreaker;
+import com.bookstore.online_bookstore_backend.config.RedisConfig;
+import com.bookstore.online_bookstore_backend.service.RedisCacheService;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * 不启动 Spring 容器，按生产配置的默认值手工装配 RedisCacheService 及其依赖（连接内嵌 Redis）
+ * 熔断器的窗口调小、探测间隔调短，便于测试熔断与恢复；TTL 抖动与 XFetch 关闭，结果可预期
+ */
+public class CacheFixture {
+
+    public final RedisCacheService cacheService = new RedisCacheService();
+    public final RedisCircuitBreaker circuitBreaker = new RedisCircuitBreaker();
+    public final FallbackCacheStore fallbackStore = new FallbackCacheStore(100, 300, 100, 10);
+    public final CacheMetrics cacheMetrics = new CacheMetrics();
+    public final BulkCacheEvictor bulkCacheEvictor = new BulkCacheEvictor();
+    public final StringRedisTemplate redis;
+    // 熔断器发布的事件（如 RedisRecoveredEvent）
+    public final List<Object> events = new ArrayList<>();
+
+    public CacheFixture() {
+        this(EmbeddedRedis.connectionFactory());
+    }
+
+    public CacheFixture(LettuceConnectionFactory connectionFactory) {
+        redis = new StringRedisTemplate(connectionFactory);
+        ApplicationEventPublisher publisher = events::add;
+
+        setField(circuitBreaker, "stringRedisTemplate", redis);
+        setField(circuitBreaker, "eventPublisher", publisher);
+        setField(circuitBreaker, "windowSize", 10);
+        setField(circuitBreaker, "minCalls", 3);
+        setField(circuitBreaker, "failureRateThreshold", 50);
+        setField(circuitBreaker, "halfOpenCalls", 1);
+        setField(circuitBreaker, "probeIntervalMs", 50L);
+
+        setField(fallbackStore, "cacheEnabled", true);
+        setField(fallbackStore, "fallbackEnabled", true);
+        setField(fallbackStore, "maxDirty", 100);
+
+        setField(cacheMetrics, "enabled", true);
+        setField(cacheMetrics, "hotKeyCapacity", 10);
+        setField(cacheMetrics, "sketchWidth", 256);
+        setField(cacheMetrics, "sketchDepth", 4);
+        setField(cacheMetrics, "decayInterval", 100_000L);
+        cacheMetrics.init();
+
+        setField(bulkCacheEvictor, "stringRedisTemplate", redis);
+        setField(bulkCacheEvictor, "scanCount", 100);
+        setField(bulkCacheEvictor, "batchSize", 100);
+        setField(bulkCacheEvictor, "pauseMs", 0L);
+
+        RedisConfig config = new RedisConfig();
+        setField(cacheService, "redisTemplate", config.redisTemplate(connectionFactory));
+        setField(cacheService, "compactRedisTemplate", config.compactRedisTemplate(connectionFactory, 512));
+        setField(cacheService, "stringRedisTemplate", redis);
+        setField(cacheService, "bulkCacheEvictor", bulkCacheEvictor);
+        setField(cacheService, "circuitBreaker", circuitBreaker);
+        setField(cacheService, "cacheMetrics", cacheMetrics);
+        setField(cacheService, "fallbackStore", fallbackStore);
+        setField(cacheService, "cacheEnabled", true);
+        setField(cacheService, "bookTtl", 600L);
+        setField(cacheService, "listTtl", 60L);
+        setField(cacheService, "absentTtl", 60L);
+        setField(cacheService, "ttlJitter", 0.0);
+        setField(cacheService, "xfetchEnabled", false);
+        setField(cacheService, "xfetchBeta", 1.0);
+        setField(cacheService, "xfetchMinDeltaMs", 1000L);
+        setField(cacheService, "compactPrefixes", new String[0]);
+    }
+}
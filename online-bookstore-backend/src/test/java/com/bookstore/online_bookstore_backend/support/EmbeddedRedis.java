@@ -0,0 +1,76 @@
+package com.bookstore.online_bookstore_backend.support;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+
+/**
+ * 测试用的 Redis：整个测试 JVM 共用一个内嵌 redis-server 进程（随机端口），JVM 退出时停止
+ * 每个测试类在 @BeforeEach 中调用 {@link #flushAll()} 保证互不影响
+ */
+public final class EmbeddedRedis {
+
+    private static RedisServer server;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private EmbeddedRedis() {
+    }
+
+    public static synchronized LettuceConnectionFactory connectionFactory() {
+        if (connectionFactory == null) {
+            int port = freePort();
+            try {
+                server = new RedisServer(port);
+                server.start();
+            } catch (IOException e) {
+                throw new UncheckedIOException("内嵌 Redis 启动失败", e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(EmbeddedRedis::stop));
+            connectionFactory = new LettuceConnectionFactory("localhost", port);
+            connectionFactory.afterPropertiesSet();
+            connectionFactory.start();
+        }
+        return connectionFactory;
+    }
+
+    public static StringRedisTemplate stringRedisTemplate() {
+        return new StringRedisTemplate(connectionFactory());
+    }
+
+    public static void flushAll() {
+        stringRedisTemplate().execute((RedisCallback<Void>) connection -> {
+            connection.serverCommands().flushAll();
+            return null;
+        });
+    }
+
+    public static boolean ping() {
+        return "PONG".equals(stringRedisTemplate().execute((RedisCallback<String>) RedisConnection::ping));
+    }
+
+    private static synchronized void stop() {
+        try {
+            if (connectionFactory != null) {
+                connectionFactory.destroy();
+            }
+            if (server != null) {
+                server.stop();
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.bookstore.online_bookstore_backend.support;
+
+import com.bookstore.online_bookstore_backend.service.InventoryWriteBehindService;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.test.util.ReflectionTestUtils.setField;
+
+/**
+ * 内存中的 book_inventory / inventory_journal，供库存异步落库的测试使用
+ * 只实现 InventoryWriteBehindService 用到的语句（按 SQL 开头区分）；
+ * 事务同步激活时写入先挂在当前线程上，提交后才生效、回滚则丢弃，读取只能看到已提交的数据
+ */
+public class FakeInventoryTable extends JdbcTemplate {
+
+    public record JournalRow(String nodeId, long bookId, long delta) {
+    }
+
+    public final Map<Long, Long> stocks = new ConcurrentSkipListMap<>();
+    public final Map<Long, Long> versions = new ConcurrentSkipListMap<>();
+    public final Map<Long, JournalRow> journal = new ConcurrentSkipListMap<>();
+    public volatile int stockUpdates = 0;
+    public volatile boolean failNext = false;
+
+    private final AtomicLong ids = new AtomicLong();
+    private final ThreadLocal<List<Runnable>> uncommitted = new ThreadLocal<>();
+
+    /**
+     * 创建并启动一个以本表为数据库的异步落库服务（后台线程基本不触发，由测试调用 flush）
+     */
+    public InventoryWriteBehindService startWriteBehind(String nodeId) {
+        InventoryWriteBehindService service = new InventoryWriteBehindService();
+        setField(service, "enabled", true);
+        setField(service, "flushIntervalMs", 60_000L);
+        setField(service, "batchSize", 500);
+        setField(service, "nodeId", nodeId);
+        setField(service, "jdbcTemplate", this);
+        setField(service, "transactionManager", new NoOpTransactionManager());
+        service.init();
+        return service;
+    }
+
+    /**
+     * 当前线程所在事务中尚未提交的写入条数
+     */
+    public int uncommittedWrites() {
+        List<Runnable> writes = uncommitted.get();
+        return writes != null ? writes.size() : 0;
+    }
+
+    @Override
+    public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                   ParameterizedPreparedStatementSetter<T> pss) {
+        if (failNext) {
+            failNext = false;
+            throw new IllegalStateException("数据库不可用");
+        }
+        for (T args : batchArgs) {
+            Object[] params = bind(pss, args);
+            if (sql.startsWith("INSERT INTO inventory_journal")) {
+                write(() -> journal.put(ids.incrementAndGet(),
+                        new JournalRow((String) params[0], (Long) params[1], ((Integer) params[2]).longValue())));
+            } else if (sql.startsWith("UPDATE book_inventory")) {
+                write(() -> {
+                    long bookId = (Long) params[2];
+                    if (stocks.computeIfPresent(bookId, (id, stock) -> stock + (Long) params[0]) != null) {
+                        versions.merge(bookId, 1L, Long::sum);
+                    }
+                    stockUpdates++;
+                });
+            } else if (sql.startsWith("DELETE FROM inventory_journal WHERE id")) {
+                write(() -> journal.remove((Long) params[0]));
+            } else {
+                throw new UnsupportedOperationException(sql);
+            }
+        }
+        return new int[0][];
+    }
+
+    @Override
+    public int update(String sql, Object... args) {
+        if (!sql.startsWith("DELETE FROM inventory_journal WHERE book_id")) {
+            throw new UnsupportedOperationException(sql);
+        }
+        write(() -> journal.values().removeIf(row -> row.bookId() == (Long) args[0]));
+        return 1;
+    }
+
+    @Override
+    public List<Map<String, Object>> queryForList(String sql, Object... args) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        synchronized (this) {
+            if (sql.startsWith("SELECT id, book_id, delta")) {
+                journal.forEach((id, row) -> {
+                    if (row.nodeId().equals(args[0]) && result.size() < (Integer) args[1]) {
+                        result.add(Map.of("id", id, "book_id", row.bookId(), "delta", row.delta()));
+                    }
+                });
+            } else if (sql.startsWith("SELECT i.stock")) {
+                Long bookId = (Long) args[0];
+                Long stock = stocks.get(bookId);
+                if (stock != null) {
+                    Map<String, Object> row = new HashMap<>();
+                    row.put("stock", stock + pending(bookId));
+                    row.put("version", versions.getOrDefault(bookId, 0L));
+                    row.put("updated_at", null);
+                    result.add(row);
+                }
+            } else {
+                throw new UnsupportedOperationException(sql);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized <T> T queryForObject(String sql, Class<T> requiredType, Object... args) {
+        if (sql.startsWith("SELECT COALESCE(SUM(delta), 0)")) {
+            return requiredType.cast(pending((Long) args[0]));
+        }
+        if (sql.startsWith("SELECT COUNT(*)")) {
+            return requiredType.cast(journal.values().stream().filter(row -> row.nodeId().equals(args[0])).count());
+        }
+        throw new UnsupportedOperationException(sql);
+    }
+
+    private long pending(Long bookId) {
+        return journal.values().stream().filter(row -> row.bookId() == bookId).mapToLong(JournalRow::delta).sum();
+    }
+
+    // 一个事务的全部写入在提交时一起生效，读取不会看到提交了一半的数据
+    private void write(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            synchronized (this) {
+                action.run();
+            }
+            return;
+        }
+        List<Runnable> writes = uncommitted.get();
+        if (writes == null) {
+            List<Runnable> pending = new ArrayList<>();
+            uncommitted.set(pending);
+            writes = pending;
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    uncommitted.remove();
+                    if (status == STATUS_COMMITTED) {
+                        synchronized (FakeInventoryTable.this) {
+                            pending.forEach(Runnable::run);
+                        }
+                    }
+                }
+            });
+        }
+        writes.add(action);
+    }
+
+    // 记录 pss 设置的参数（下标从 0 开始）
+    private static <T> Object[] bind(ParameterizedPreparedStatementSetter<T> pss, T args) {
+        Object[] params = new Object[8];
+        PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, methodArgs) -> {
+                    if (method.getName().startsWith("set") && methodArgs != null && methodArgs.length >= 2
+                            && methodArgs[0] instanceof Integer index) {
+                        params[index - 1] = methodArgs[1];
+                    }
+                    return null;
+                });
+        try {
+            pss.setValues(ps, args);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        return params;
+    }
+}
@@ -0,0 +1,34 @@
+package com.bookstore.online_bookstore_backend.support;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 不连接数据库的事务管理器：只驱动事务同步（afterCommit / afterCompletion 回调），
+ * 用于测试提交后/回滚后的缓存副作用
+ */
+public class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+    public static TransactionTemplate template() {
+        return new TransactionTemplate(new NoOpTransactionManager());
+    }
+
+    @Override
+    protected Object doGetTransaction() {
+        return new Object();
+    }
+
+    @Override
+    protected void doBegin(Object transaction, TransactionDefinition definition) {
+    }
+
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+    }
+
+    @Override
+    protected void doRollback(DefaultTransactionStatus status) {
+    }
+}
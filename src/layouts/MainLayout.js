@@ -1,5 +1,5 @@
-import React from 'react';
-import { Layout, Menu, Input, Button, Space, Dropdown, Avatar, message } from 'antd';
+import React, { useState } from 'react';
+import { Layout, Menu, Input, Button, Space, Dropdown, Avatar, AutoComplete, message } from 'antd';
 import { Link, Outlet, useLocation, useNavigate } from 'react-router-dom';
 import {
   HomeOutlined,
@@ -16,6 +16,7 @@ import {
   AreaChartOutlined // For statistics
 } from '@ant-design/icons';
 import { useAuth } from '../contexts/AuthContext'; // Import useAuth
+import bookService from '../services/bookService';
 
 const { Header, Content, Sider } = Layout;
 const { Search } = Input;
@@ -38,12 +39,32 @@ const MainLayout = () => {
   const { isAuthenticated, user, logout } = useAuth();
   const selectedKeys = getSelectedKeys(location.pathname);
 
+  const [suggestions, setSuggestions] = useState([]);
+
   const handleSearch = (value) => {
     if (value.trim()) {
       navigate(`/search?q=${encodeURIComponent(value.trim())}`);
     }
   };
 
+  // 输入时请求自动补全（后端走内存前缀树，不查数据库）
+  const handleSuggest = async (value) => {
+    if (!value.trim()) {
+      setSuggestions([]);
+      return;
+    }
+    try {
+      const response = await bookService.getSuggestions(value.trim());
+      setSuggestions(response.data.map((item, index) => ({
+        key: `${item.type}-${index}`,
+        value: item.text,
+        label: item.type === 'author' ? `${item.text}（作者）` : item.text,
+      })));
+    } catch (error) {
+      setSuggestions([]);
+    }
+  };
+
   const handleLogout = async () => {
     try {
       const logoutResponse = await logout();
@@ -175,11 +196,17 @@ const MainLayout = () => {
         <div style={{ fontSize: '20px', fontWeight: 'bold' }}>
           <Link to="/" style={{ color: 'inherit', textDecoration: 'none' }}>在线书店</Link>
         </div>
-        <Search
-          placeholder="搜索书籍..."
-          onSearch={handleSearch}
+        <AutoComplete
+          options={suggestions}
+          onSearch={handleSuggest}
+          onSelect={handleSearch}
           style={{ width: 300, verticalAlign: 'middle', margin: '0 20px' }}
-        />
+        >
+          <Search
+            placeholder="搜索书籍..."
+            onSearch={handleSearch}
+          />
+        </AutoComplete>
         <Space>
           {isAuthenticated && user ? (
             <Dropdown overlay={userMenuItems} trigger={['click']}>
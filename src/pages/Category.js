@@ -27,7 +27,7 @@ const Category = () => {
         // const categoryDetails = await bookService.getCategoryDetails(categoryKey); 
         // setCategoryName(categoryDetails ? categoryDetails.name : categoryKey);
 
-        const fetchedBooks = await bookService.getAllBooks({ category: categoryKey });
+        const fetchedBooks = await bookService.getBookSummaries({ category: categoryKey });
         setBooks(fetchedBooks && fetchedBooks.content ? fetchedBooks.content : []);
         setError(null);
       } catch (err) {
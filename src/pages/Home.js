@@ -20,7 +20,7 @@ const Home = () => {
         // Fetch books for home page, we might want a specific endpoint or params for non-paginated popular/new books
         // For now, let's assume getAllBooks with no params or specific params fetches what we need for Home.
         // If getAllBooks returns a Page object, we need its content.
-        const response = await bookService.getAllBooks({ size: 8, sort: 'id,desc' }); // Example: Get 8 newest books
+        const response = await bookService.getBookSummaries({ size: 8, sort: 'id,desc' }); // Example: Get 8 newest books
         if (response && response.content) {
             setBooks(response.content);
         } else if (Array.isArray(response)) { // Fallback if it directly returns an array (older version)
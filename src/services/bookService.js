@@ -33,6 +33,30 @@ const getAllBooks = async (params) => {
   return apiClient.get(`${BOOKS_API_URL}${query}`);
 };
 
+// Fetch slim list-page data (no description) for book cards on Home / Category pages
+const getBookSummaries = async (params) => {
+  let query = '';
+  if (params) {
+    const queryParams = new URLSearchParams();
+    if (params.category) {
+      queryParams.append('category', params.category);
+    }
+    if (params.page !== undefined) {
+      queryParams.append('page', params.page);
+    }
+    if (params.size !== undefined) {
+      queryParams.append('size', params.size);
+    }
+    if (params.sort) {
+      queryParams.append('sort', params.sort);
+    }
+    if (queryParams.toString()) {
+      query = `?${queryParams.toString()}`;
+    }
+  }
+  return apiClient.get(`${BOOKS_API_URL}/summaries${query}`);
+};
+
 // Fetch a single book by its ID
 const getBookById = async (id) => {
   // Also public
@@ -113,8 +137,16 @@ const getDeletedBooks = async (params) => {
   return apiClient.get(`${BOOKS_API_URL}/admin/deleted${query}`);
 };
 
+// Prefix autocomplete for the search box (served from an in-memory index, cheap enough per keystroke)
+const getSuggestions = async (q, limit = 8) => {
+  const queryParams = new URLSearchParams({ q, limit });
+  return apiClient.get(`${BOOKS_API_URL}/suggest?${queryParams.toString()}`);
+};
+
 const bookService = {
   getAllBooks,
+  getBookSummaries,
+  getSuggestions,
   getBookById,
   addBook,
   updateBook,